@@ -54,6 +54,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.BeanCreationNotAllowedException;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.actuate.system.DiskSpaceHealthIndicator;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.context.ApplicationEvent;
@@ -88,8 +89,10 @@ public class AxonServerStandardConfiguration {
 
     @Bean
     @ConditionalOnMissingBean(StorageTransactionManagerFactory.class)
-    public StorageTransactionManagerFactory storageTransactionManagerFactory() {
-        return new DefaultStorageTransactionManagerFactory();
+    public StorageTransactionManagerFactory storageTransactionManagerFactory(
+            MeterFactory meterFactory,
+            @Value("${axoniq.axonserver.sequence-number-cache-size:100000}") int sequenceNumberCacheSize) {
+        return new DefaultStorageTransactionManagerFactory(meterFactory, sequenceNumberCacheSize);
     }
 
     @Bean
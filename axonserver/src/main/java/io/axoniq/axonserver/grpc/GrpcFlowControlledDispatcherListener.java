@@ -9,6 +9,7 @@
 
 package io.axoniq.axonserver.grpc;
 
+import io.axoniq.axonserver.localstorage.Registration;
 import io.axoniq.axonserver.message.FlowControlQueues;
 import io.axoniq.axonserver.util.StreamObserverUtils;
 import io.grpc.stub.StreamObserver;
@@ -19,48 +20,89 @@ import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Reads messages for a specific client from a queue and sends them to the client using gRPC.
  * Only reads messages when there are permits left.
+ * <p>
+ * The listener does not wait for messages on a thread of its own. When a message is added to the queue or permits are
+ * added, the listener schedules a task on a shared executor that sends the messages in the queue while there are
+ * permits left. The number of threads is therefore independent of the number of connected clients.
  * @author Marc Gathier
  */
 public abstract class GrpcFlowControlledDispatcherListener<I, T> {
-    private static final ExecutorService executorService = Executors.newCachedThreadPool(new CustomizableThreadFactory("request-dispatcher-"));
+    private static final int MAX_MESSAGES_PER_TASK = 1000;
+    private static final ExecutorService executorService = Executors.newFixedThreadPool(
+            Math.max(4, 2 * Runtime.getRuntime().availableProcessors()),
+            new CustomizableThreadFactory("request-dispatcher-"));
     private final BlockingQueue<FlowControlQueues<T>.DestinationNode> EMPTY_QUEUE = new ArrayBlockingQueue<>(1);
 
     protected final StreamObserver<I> inboundStream;
     private final AtomicLong permitsLeft = new AtomicLong(0);
     private final FlowControlQueues<T> queues;
     protected final String queueName;
-    private final Future<?>[] futures;
+    private final int maxActiveTasks;
+    private final AtomicInteger activeTasks = new AtomicInteger();
+    private final Registration queueRegistration;
     private volatile boolean running = true;
 
+    /**
+     * @param queues        the queues containing the messages for the clients
+     * @param queueName     the name of the queue for this client
+     * @param inboundStream the stream to send the messages to
+     * @param threads       maximum number of messages sent concurrently to the client
+     */
     public GrpcFlowControlledDispatcherListener(FlowControlQueues<T> queues, String queueName, StreamObserver<I> inboundStream, int threads) {
         this.queues = queues;
         this.queueName = queueName;
         this.inboundStream = inboundStream;
-        futures = new Future[threads];
+        this.maxActiveTasks = Math.max(1, threads);
+        this.queueRegistration = queues.registerListener(queueName, this::schedule);
+    }
+
+    private void schedule() {
+        while (running && permitsLeft.get() > 0 && waiting() > 0) {
+            int active = activeTasks.get();
+            if (active >= maxActiveTasks) {
+                return;
+            }
+            if (activeTasks.compareAndSet(active, active + 1)) {
+                try {
+                    executorService.execute(this::process);
+                } catch (RejectedExecutionException ex) {
+                    activeTasks.decrementAndGet();
+                    getLogger().debug("Listener for {} not scheduled as dispatcher is stopped", queueName);
+                }
+                return;
+            }
+        }
     }
 
     private void process() {
         try {
-            getLogger().debug("Starting listener for {} ", queueName);
-            while (running && permitsLeft.get() > 0) {
-                getLogger().trace("waiting for message for {} ", queueName);
-                T message = queues.take(queueName);
-                if (message != null && send(message)) {
+            getLogger().trace("Sending messages for {} ", queueName);
+            int sent = 0;
+            while (running && sent < MAX_MESSAGES_PER_TASK && permitsLeft.get() > 0) {
+                T message = queues.poll(queueName);
+                if (message == null) {
+                    break;
+                }
+                if (send(message)) {
                     long left = permitsLeft.decrementAndGet();
                     getLogger().trace("{} permits left", left);
                 }
+                sent++;
             }
-            getLogger().debug("Listener stopped as no more permits ({}) left for {} ", permitsLeft.get(), queueName);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            getLogger().trace("Processing of messages from {} interrupted", queueName, e);
+        } catch (RuntimeException ex) {
+            getLogger().warn("Sending messages to {} failed", queueName, ex);
+        } finally {
+            activeTasks.decrementAndGet();
         }
+        // messages or permits may have been added after the last check
+        schedule();
     }
 
     /**
@@ -75,22 +117,14 @@ public abstract class GrpcFlowControlledDispatcherListener<I, T> {
     public void addPermits(long count) {
         long old = permitsLeft.getAndAdd(count);
         getLogger().debug("Adding {} permits, #permits was: {}", count, old);
-        if (old <= 0) {
-            for (int i = 0; i < futures.length; i++) {
-                futures[i] = executorService.submit(this::process);
-            }
-        }
+        schedule();
     }
 
     public void cancel() {
         permitsLeft.set(0);
         getLogger().debug("cancel listener for {} ", queueName);
-        for (Future<?> future : futures) {
-            if (future != null) {
-                future.cancel(true);
-            }
-        }
         running = false;
+        queueRegistration.cancel();
     }
 
     /**
@@ -260,6 +260,13 @@ public class DefaultEventInterceptors implements EventInterceptors {
                     .build();
     }
 
+    @Override
+    public boolean noAppendEventInterceptors(String context) {
+        return pluginContextFilter.getServicesForContext(AppendEventInterceptor.class, context).isEmpty()
+                && pluginContextFilter.getServicesForContext(PreCommitEventsHook.class, context).isEmpty()
+                && pluginContextFilter.getServicesForContext(PostCommitEventsHook.class, context).isEmpty();
+    }
+
     @Override
     public boolean noEventReadInterceptors(String context) {
         return pluginContextFilter.getServicesForContext(ReadEventInterceptor.class, context).isEmpty();
@@ -64,6 +64,16 @@ public interface EventInterceptors {
      */
     Event readEvent(Event event, ExecutionContext executionContext);
 
+    /**
+     * Checks if there aren't any interceptors or hooks for appending events. When there are none, events can be stored
+     * in the form they were received, without parsing them.
+     *
+     * @return true if there are no interceptors or hooks for appending events
+     */
+    default boolean noAppendEventInterceptors(String context) {
+        return false;
+    }
+
     /**
      * Checks if there aren't any interceptors for reading events or snapshots.
      *
@@ -34,6 +34,7 @@ import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -68,9 +69,8 @@ public class PluginContextFilter {
     private final Logger logger = LoggerFactory.getLogger(PluginContextFilter.class);
     private final Map<String, Map<String, String>> enabledPluginsPerContext = new ConcurrentHashMap<>();
     private final PluginServiceProvider pluginServiceProvider;
-    private final Map<Class<? extends Ordered>, List<ServiceWithInfo<Ordered>>> serviceMap = new HashMap<>();
     private final boolean enabled;
-    private volatile boolean initialized;
+    private volatile InterceptorChains interceptorChains;
 
     @Autowired
     public PluginContextFilter(PluginServiceProvider pluginServiceProvider,
@@ -82,24 +82,35 @@ public class PluginContextFilter {
                                boolean pluginEnabled) {
         this.pluginServiceProvider = pluginServiceProvider;
         this.enabled = pluginEnabled;
-        pluginServiceProvider.registerPluginListener((plugin, status) -> initialized = false);
+        pluginServiceProvider.registerPluginListener((plugin, status) -> resetServices());
     }
 
+    private synchronized void resetServices() {
+        interceptorChains = null;
+    }
 
-    private void ensureInitialized() {
-        if (enabled && !initialized) {
-            synchronized (pluginServiceProvider) {
-                if (initialized) {
-                    return;
-                }
+    private synchronized void resetContexts() {
+        InterceptorChains current = interceptorChains;
+        if (current != null) {
+            interceptorChains = new InterceptorChains(current.serviceMap);
+        }
+    }
 
+    private InterceptorChains interceptorChains() {
+        InterceptorChains current = interceptorChains;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (interceptorChains == null) {
+                Map<Class<? extends Ordered>, List<ServiceWithInfo<Ordered>>> serviceMap = new HashMap<>();
                 for (Class<? extends Ordered> interceptorClass : interceptorClasses) {
                     //noinspection unchecked
                     serviceMap.put(interceptorClass, initHooks((Class<Ordered>) interceptorClass));
                 }
-
-                initialized = true;
+                interceptorChains = new InterceptorChains(serviceMap);
             }
+            return interceptorChains;
         }
     }
 
@@ -111,41 +122,48 @@ public class PluginContextFilter {
         return hooks;
     }
 
+    /**
+     * Returns the interceptors of the given type that are active for the context, in the order they must be
+     * invoked. The returned list is immutable and shared between callers.
+     *
+     * @param interceptorClass the type of interceptor
+     * @param context          the name of the context
+     * @param <T>              the type of interceptor
+     * @return the active interceptors with their plugin information
+     */
     public <T extends Ordered> List<ServiceWithInfo<T>> getServicesWithInfoForContext(Class<T> interceptorClass,
                                                                                       String context) {
         if (!enabled) {
             return Collections.emptyList();
         }
-        ensureInitialized();
-        List<ServiceWithInfo<T>> interceptors = new ArrayList<>();
-        Map<String, String> enabledPlugins = enabledPluginsPerContext.getOrDefault(context,
-                                                                                   Collections.emptyMap());
-        serviceMap.get(interceptorClass).forEach(service -> {
-            if (service.pluginKey().getVersion().equals(enabledPlugins
-                                                                .get(service.pluginKey().getSymbolicName()))) {
-                //noinspection unchecked
-                interceptors.add((ServiceWithInfo<T>) service);
-            }
-        });
-        return interceptors;
+        //noinspection unchecked
+        return (List<ServiceWithInfo<T>>) (List<?>) chain(interceptorClass, context).servicesWithInfo;
     }
 
+    /**
+     * Returns the interceptors of the given type that are active for the context, in the order they must be
+     * invoked. The returned list is immutable and shared between callers.
+     *
+     * @param interceptorClass the type of interceptor
+     * @param context          the name of the context
+     * @param <T>              the type of interceptor
+     * @return the active interceptors
+     */
     public <T extends Ordered> List<T> getServicesForContext(Class<T> interceptorClass, String context) {
         if (!enabled) {
             return Collections.emptyList();
         }
-        ensureInitialized();
-        List<T> interceptors = new ArrayList<>();
-        Map<String, String> enabledPlugins = enabledPluginsPerContext.getOrDefault(context,
-                                                                                   Collections.emptyMap());
-        serviceMap.get(interceptorClass).forEach(service -> {
-            if (service.pluginKey().getVersion().equals(enabledPlugins
-                                                                .get(service.pluginKey().getSymbolicName()))) {
-                //noinspection unchecked
-                interceptors.add((T) service.service());
-            }
-        });
-        return interceptors;
+        //noinspection unchecked
+        return (List<T>) chain(interceptorClass, context).services;
+    }
+
+    private InterceptorChain chain(Class<? extends Ordered> interceptorClass, String context) {
+        Map<String, String> enabledPlugins = enabledPluginsPerContext.get(context);
+        if (enabledPlugins == null || enabledPlugins.isEmpty()) {
+            return InterceptorChain.EMPTY;
+        }
+        return interceptorChains().forContext(context, enabledPlugins)
+                                  .getOrDefault(interceptorClass, InterceptorChain.EMPTY);
     }
 
     /**
@@ -181,5 +199,86 @@ public class PluginContextFilter {
                 }
             }
         }
+        resetContexts();
+    }
+
+    /**
+     * Handles {@link PluginRemovedEvent} events, published when an plugin is removed from a specific context.
+     *
+     * @param pluginRemovedEvent the event
+     */
+    @EventListener
+    @Order(100)
+    public void on(PluginRemovedEvent pluginRemovedEvent) {
+        Map<String, String> enabledPlugins = enabledPluginsPerContext.get(pluginRemovedEvent.context());
+        if (enabledPlugins != null) {
+            enabledPlugins.remove(pluginRemovedEvent.plugin().getSymbolicName(),
+                                  pluginRemovedEvent.plugin().getVersion());
+        }
+        resetContexts();
+    }
+
+    /**
+     * The interceptors per type for all plugins, and the interceptors per type active in each context. The
+     * interceptors for a context are resolved on first use.
+     */
+    private static class InterceptorChains {
+
+        private final Map<Class<? extends Ordered>, List<ServiceWithInfo<Ordered>>> serviceMap;
+        private final Map<String, Map<Class<? extends Ordered>, InterceptorChain>> chainsPerContext =
+                new ConcurrentHashMap<>();
+
+        private InterceptorChains(Map<Class<? extends Ordered>, List<ServiceWithInfo<Ordered>>> serviceMap) {
+            this.serviceMap = serviceMap;
+        }
+
+        private Map<Class<? extends Ordered>, InterceptorChain> forContext(String context,
+                                                                           Map<String, String> enabledPlugins) {
+            Map<Class<? extends Ordered>, InterceptorChain> chains = chainsPerContext.get(context);
+            if (chains == null) {
+                chains = chainsPerContext.computeIfAbsent(context, c -> resolve(enabledPlugins));
+            }
+            return chains;
+        }
+
+        private Map<Class<? extends Ordered>, InterceptorChain> resolve(Map<String, String> enabledPlugins) {
+            Map<Class<? extends Ordered>, InterceptorChain> chains = new HashMap<>();
+            serviceMap.forEach((interceptorClass, services) -> {
+                List<ServiceWithInfo<Ordered>> active = new ArrayList<>();
+                services.forEach(service -> {
+                    if (service.pluginKey().getVersion().equals(enabledPlugins
+                                                                        .get(service.pluginKey().getSymbolicName()))) {
+                        active.add(service);
+                    }
+                });
+                if (!active.isEmpty()) {
+                    chains.put(interceptorClass, new InterceptorChain(active));
+                }
+            });
+            return chains;
+        }
+    }
+
+    /**
+     * The active interceptors of one type in a context.
+     */
+    private static class InterceptorChain {
+
+        private static final InterceptorChain EMPTY = new InterceptorChain(Collections.emptyList());
+
+        private final List<ServiceWithInfo<Ordered>> servicesWithInfo;
+        private final List<Ordered> services;
+
+        private InterceptorChain(List<ServiceWithInfo<Ordered>> servicesWithInfo) {
+            ServiceWithInfo<?>[] servicesWithInfoArray = servicesWithInfo.toArray(new ServiceWithInfo<?>[0]);
+            Ordered[] servicesArray = new Ordered[servicesWithInfoArray.length];
+            for (int i = 0; i < servicesArray.length; i++) {
+                servicesArray[i] = servicesWithInfoArray[i].service();
+            }
+            //noinspection unchecked
+            this.servicesWithInfo = Collections.unmodifiableList(Arrays.asList(
+                    (ServiceWithInfo<Ordered>[]) servicesWithInfoArray));
+            this.services = Collections.unmodifiableList(Arrays.asList(servicesArray));
+        }
     }
 }
@@ -0,0 +1,376 @@
+/*
+ *  Copyright (c) 2017-2022 AxonIQ B.V. and/or licensed to AxonIQ B.V.
+ *  under one or more contributor license agreements.
+ *
+ *  Licensed under the AxonIQ Open Source License Agreement v1.0;
+ *  you may not use this file except in compliance with the license.
+ *
+ */
+
+package io.axoniq.axonserver.localstorage;
+
+import io.axoniq.axonserver.metric.BaseMetricName;
+import io.axoniq.axonserver.metric.MeterFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Tags;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the most recently read aggregates for a context in memory, so that reading the events for aggregates that are
+ * loaded frequently does not need to read the latest snapshot and the events after it from the segment files each
+ * time.
+ * <p>
+ * For each aggregate the cache contains the latest snapshot (if snapshots were requested and the aggregate has one)
+ * and all events after the snapshot. Aggregates are added to the cache when a read for all events (up to the latest
+ * event) completes. Appended events are added to the cached aggregates, and storing a new snapshot removes the
+ * aggregate from the cache. The cache is bounded by the total serialized size of the events it contains, when it
+ * exceeds this size the least recently used aggregates are removed.
+ *
+ * @since 2023.0.0
+ */
+public class AggregateCache {
+
+    private final LinkedHashMap<String, CachedAggregate> aggregates = new LinkedHashMap<>(16, 0.75f, true);
+    private final long maxBytes;
+    private final long maxAggregateBytes;
+    private final MeterFactory meterFactory;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter bytesSaved;
+    private final Gauge bytesGauge;
+    private final Gauge hitRatioGauge;
+    private long bytes;
+
+    /**
+     * Constructor for {@link AggregateCache}.
+     *
+     * @param context      the context for the cache
+     * @param maxBytes     maximum total size (in bytes) of the events in the cache, 0 disables the cache
+     * @param meterFactory factory to create metrics meters
+     */
+    public AggregateCache(String context, long maxBytes, MeterFactory meterFactory) {
+        this.maxBytes = maxBytes;
+        this.maxAggregateBytes = maxBytes / 16;
+        this.meterFactory = meterFactory;
+        Tags tags = Tags.of(MeterFactory.CONTEXT, context);
+        this.hits = meterFactory.counter(BaseMetricName.AXON_AGGREGATE_CACHE_HITS, tags);
+        this.misses = meterFactory.counter(BaseMetricName.AXON_AGGREGATE_CACHE_MISSES, tags);
+        this.bytesSaved = meterFactory.counter(BaseMetricName.AXON_AGGREGATE_CACHE_BYTES_SAVED, tags);
+        this.bytesGauge = meterFactory.gauge(BaseMetricName.AXON_AGGREGATE_CACHE_BYTES,
+                                             tags,
+                                             this,
+                                             AggregateCache::bytes);
+        this.hitRatioGauge = meterFactory.gauge(BaseMetricName.AXON_AGGREGATE_CACHE_HIT_RATIO,
+                                                tags,
+                                                this,
+                                                AggregateCache::hitRatio);
+    }
+
+    /**
+     * Returns the events for an aggregate from the cache, if the cache can serve the request.
+     *
+     * @param aggregateId       the identifier of the aggregate
+     * @param useSnapshots      if true, the returned events could start from a snapshot
+     * @param minSequenceNumber the minimum sequence number of the events that are returned
+     * @param maxSequenceNumber the maximum sequence number of the events that are returned (exclusive)
+     * @return the events or {@code null} when the request cannot be served from the cache
+     */
+    public List<SerializedEvent> get(String aggregateId, boolean useSnapshots, long minSequenceNumber,
+                                     long maxSequenceNumber) {
+        if (maxBytes <= 0) {
+            return null;
+        }
+        List<SerializedEvent> events;
+        synchronized (aggregates) {
+            CachedAggregate aggregate = aggregates.get(aggregateId);
+            events = aggregate == null ? null : aggregate.events(useSnapshots, minSequenceNumber, maxSequenceNumber);
+        }
+        if (events == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        bytesSaved.increment(events.stream().mapToLong(SerializedEvent::size).sum());
+        return events;
+    }
+
+    /**
+     * Creates a loader to add an aggregate to the cache while its events are read from the event store. Only reads up
+     * to the latest event of the aggregate can be cached.
+     *
+     * @param aggregateId       the identifier of the aggregate
+     * @param useSnapshots      if true, the events read could start from a snapshot
+     * @param minSequenceNumber the minimum sequence number of the events that are read
+     * @param maxSequenceNumber the maximum sequence number of the events that are read (exclusive)
+     * @return a loader or {@code null} if the read cannot be cached
+     */
+    public Loader loader(String aggregateId, boolean useSnapshots, long minSequenceNumber, long maxSequenceNumber) {
+        if (maxBytes <= 0 || maxSequenceNumber != Long.MAX_VALUE) {
+            return null;
+        }
+        CachedAggregate placeholder = new CachedAggregate(useSnapshots, minSequenceNumber);
+        synchronized (aggregates) {
+            CachedAggregate current = aggregates.get(aggregateId);
+            if (current != null && current.loading) {
+                return null;
+            }
+            if (current != null) {
+                bytes -= current.bytes;
+            }
+            aggregates.put(aggregateId, placeholder);
+        }
+        return new Loader(aggregateId, placeholder);
+    }
+
+    /**
+     * Adds appended events to the aggregates in the cache. When an aggregate is being loaded, the loaded events are
+     * not added to the cache, as the read may have missed the appended events.
+     *
+     * @param events the appended events
+     */
+    public void append(List<SerializedEvent> events) {
+        if (maxBytes <= 0) {
+            return;
+        }
+        synchronized (aggregates) {
+            if (aggregates.isEmpty()) {
+                return;
+            }
+            for (SerializedEvent event : events) {
+                EventIndexFields fields = event.indexFields();
+                if (!fields.isDomainEvent()) {
+                    continue;
+                }
+                CachedAggregate aggregate = aggregates.get(fields.getAggregateIdentifier());
+                if (aggregate != null) {
+                    append(fields.getAggregateIdentifier(), aggregate, fields.getAggregateSequenceNumber(), event);
+                }
+            }
+            evict();
+        }
+    }
+
+    private void append(String aggregateId, CachedAggregate aggregate, long sequenceNumber, SerializedEvent event) {
+        if (aggregate.loading) {
+            aggregate.stale = true;
+        } else if (sequenceNumber == aggregate.nextSequenceNumber) {
+            aggregate.add(event.serializedData(), sequenceNumber);
+            bytes += event.size();
+        } else if (sequenceNumber > aggregate.nextSequenceNumber) {
+            aggregates.remove(aggregateId);
+            bytes -= aggregate.bytes;
+        }
+    }
+
+    /**
+     * Removes an aggregate from the cache, for instance when a new snapshot is stored for the aggregate.
+     *
+     * @param aggregateId the identifier of the aggregate
+     */
+    public void invalidate(String aggregateId) {
+        if (maxBytes <= 0) {
+            return;
+        }
+        synchronized (aggregates) {
+            CachedAggregate aggregate = aggregates.remove(aggregateId);
+            if (aggregate != null) {
+                aggregate.stale = true;
+                bytes -= aggregate.bytes;
+            }
+        }
+    }
+
+    /**
+     * Returns the total size of the events in the cache.
+     *
+     * @return the size in bytes
+     */
+    public long bytes() {
+        synchronized (aggregates) {
+            return bytes;
+        }
+    }
+
+    private double hitRatio() {
+        double total = hits.count() + misses.count();
+        return total == 0 ? 0 : hits.count() / total;
+    }
+
+    private void evict() {
+        Iterator<CachedAggregate> iterator = aggregates.values().iterator();
+        while (bytes > maxBytes && iterator.hasNext()) {
+            CachedAggregate aggregate = iterator.next();
+            if (!aggregate.loading) {
+                iterator.remove();
+                bytes -= aggregate.bytes;
+            }
+        }
+    }
+
+    /**
+     * Removes all aggregates from the cache and unregisters the metrics.
+     */
+    public void close() {
+        synchronized (aggregates) {
+            aggregates.clear();
+            bytes = 0;
+        }
+        remove(hits);
+        remove(misses);
+        remove(bytesSaved);
+        remove(bytesGauge);
+        remove(hitRatioGauge);
+    }
+
+    private void remove(Meter meter) {
+        if (meter != null) {
+            meterFactory.remove(meter);
+        }
+    }
+
+    /**
+     * Collects the events for an aggregate while they are read from the event store, and adds the aggregate to the
+     * cache when the read completes.
+     */
+    public class Loader {
+
+        private final String aggregateId;
+        private final CachedAggregate aggregate;
+        private boolean cacheable = true;
+
+        private Loader(String aggregateId, CachedAggregate aggregate) {
+            this.aggregateId = aggregateId;
+            this.aggregate = aggregate;
+        }
+
+        /**
+         * Adds the next event read for the aggregate.
+         *
+         * @param event the event
+         */
+        public void add(SerializedEvent event) {
+            if (!cacheable) {
+                return;
+            }
+            if (aggregate.bytes + event.size() > maxAggregateBytes) {
+                cacheable = false;
+                return;
+            }
+            if (aggregate.useSnapshots && aggregate.isEmpty() && event.isSnapshot()) {
+                aggregate.setSnapshot(event.serializedData(), event.getAggregateSequenceNumber());
+                return;
+            }
+            long sequenceNumber = event.indexFields().getAggregateSequenceNumber();
+            if (!aggregate.isEmpty() && sequenceNumber != aggregate.nextSequenceNumber) {
+                cacheable = false;
+                return;
+            }
+            aggregate.add(event.serializedData(), sequenceNumber);
+        }
+
+        /**
+         * Adds the aggregate to the cache, unless events were appended to the aggregate while it was read.
+         */
+        public void complete() {
+            synchronized (aggregates) {
+                if (aggregates.get(aggregateId) != aggregate) {
+                    return;
+                }
+                if (!cacheable || aggregate.stale || aggregate.isEmpty()) {
+                    aggregates.remove(aggregateId);
+                    return;
+                }
+                aggregate.loading = false;
+                bytes += aggregate.bytes;
+                evict();
+            }
+        }
+
+        /**
+         * Removes the placeholder for the aggregate from the cache when the read fails or is cancelled.
+         */
+        public void abort() {
+            synchronized (aggregates) {
+                if (aggregates.get(aggregateId) == aggregate) {
+                    aggregates.remove(aggregateId);
+                }
+            }
+        }
+    }
+
+    private static class CachedAggregate {
+
+        private final boolean useSnapshots;
+        private final List<byte[]> events = new ArrayList<>();
+        private byte[] snapshot;
+        private long snapshotSequenceNumber = -1;
+        private long firstSequenceNumber;
+        private long firstEventSequenceNumber;
+        private long nextSequenceNumber;
+        private long bytes;
+        private volatile boolean loading = true;
+        private volatile boolean stale;
+
+        CachedAggregate(boolean useSnapshots, long minSequenceNumber) {
+            this.useSnapshots = useSnapshots;
+            this.firstSequenceNumber = minSequenceNumber;
+            this.nextSequenceNumber = minSequenceNumber;
+        }
+
+        boolean isEmpty() {
+            return snapshot == null && events.isEmpty();
+        }
+
+        void setSnapshot(byte[] snapshot, long sequenceNumber) {
+            this.snapshot = snapshot;
+            this.snapshotSequenceNumber = sequenceNumber;
+            this.firstSequenceNumber = sequenceNumber + 1;
+            this.nextSequenceNumber = sequenceNumber + 1;
+            this.bytes += snapshot.length;
+        }
+
+        void add(byte[] event, long sequenceNumber) {
+            if (events.isEmpty()) {
+                firstEventSequenceNumber = sequenceNumber;
+            }
+            events.add(event);
+            nextSequenceNumber = sequenceNumber + 1;
+            bytes += event.length;
+        }
+
+        /**
+         * Returns the events matching the request, starting with the snapshot if snapshots are requested and the
+         * cached snapshot is in the requested range. Returns {@code null} if the cached events do not cover the
+         * request.
+         */
+        List<SerializedEvent> events(boolean useSnapshots, long minSequenceNumber, long maxSequenceNumber) {
+            if (loading || (useSnapshots && !this.useSnapshots)) {
+                return null;
+            }
+            List<SerializedEvent> result = new ArrayList<>();
+            long from = minSequenceNumber;
+            if (useSnapshots && snapshot != null && snapshotSequenceNumber >= minSequenceNumber) {
+                if (snapshotSequenceNumber >= maxSequenceNumber) {
+                    return null;
+                }
+                result.add(new SerializedEvent(snapshot));
+                from = snapshotSequenceNumber + 1;
+            } else if (minSequenceNumber < firstSequenceNumber) {
+                return null;
+            }
+            long to = Math.min(maxSequenceNumber, nextSequenceNumber);
+            for (long sequenceNumber = Math.max(from, firstEventSequenceNumber); sequenceNumber < to;
+                    sequenceNumber++) {
+                result.add(new SerializedEvent(events.get((int) (sequenceNumber - firstEventSequenceNumber))));
+            }
+            return result;
+        }
+    }
+}
@@ -12,6 +12,7 @@ package io.axoniq.axonserver.localstorage;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.function.Consumer;
 
@@ -22,10 +23,22 @@ public class AggregateReader {
 
     private final EventStorageEngine eventStorageEngine;
     private final SnapshotReader snapshotReader;
+    private final AggregateCache aggregateCache;
 
     public AggregateReader(EventStorageEngine eventStorageEngine, SnapshotReader snapshotReader) {
+        this(eventStorageEngine, snapshotReader, null);
+    }
+
+    /**
+     * @param eventStorageEngine the storage engine for the events
+     * @param snapshotReader     reader for the snapshots
+     * @param aggregateCache     cache for recently read aggregates, may be {@code null}
+     */
+    public AggregateReader(EventStorageEngine eventStorageEngine, SnapshotReader snapshotReader,
+                           AggregateCache aggregateCache) {
         this.eventStorageEngine = eventStorageEngine;
         this.snapshotReader = snapshotReader;
+        this.aggregateCache = aggregateCache;
     }
 
     public void readEvents(String aggregateId, boolean useSnapshots, long minSequenceNumber,
@@ -71,7 +84,8 @@ public class AggregateReader {
      * Returns the events related to the specified aggregate, the have a sequence number included between the specified
      * boundaries, and token greater than the specified minimum token. The result may start with a snapshot event if the
      * {@code useSnapshots} parameter is {@code true} and a snapshot is present in the event store for the specified
-     * aggregate.
+     * aggregate. Reads are served from the aggregate cache when it contains the requested events, reads up to the
+     * latest event of the aggregate are added to the cache.
      *
      * @param aggregateId       the identifier of the aggregate
      * @param useSnapshots      if true, the returned events could start from a snapshot, if present
@@ -85,7 +99,41 @@ public class AggregateReader {
                                         long minSequenceNumber,
                                         long maxSequenceNumber,
                                         long minTokenHint) {
+        if (aggregateCache == null) {
+            return read(aggregateId, useSnapshots, minSequenceNumber, maxSequenceNumber, minTokenHint);
+        }
+        return Flux.defer(() -> {
+            List<SerializedEvent> cached = aggregateCache.get(aggregateId,
+                                                              useSnapshots,
+                                                              minSequenceNumber,
+                                                              maxSequenceNumber);
+            if (cached != null) {
+                return Flux.fromIterable(cached);
+            }
+            Flux<SerializedEvent> events = read(aggregateId,
+                                                useSnapshots,
+                                                minSequenceNumber,
+                                                maxSequenceNumber,
+                                                minTokenHint);
+            AggregateCache.Loader loader = aggregateCache.loader(aggregateId,
+                                                                 useSnapshots,
+                                                                 minSequenceNumber,
+                                                                 maxSequenceNumber);
+            if (loader == null) {
+                return events;
+            }
+            return events.doOnNext(loader::add)
+                         .doOnComplete(loader::complete)
+                         .doOnCancel(loader::abort)
+                         .doOnError(e -> loader.abort());
+        });
+    }
 
+    private Flux<SerializedEvent> read(String aggregateId,
+                                       boolean useSnapshots,
+                                       long minSequenceNumber,
+                                       long maxSequenceNumber,
+                                       long minTokenHint) {
         return snapshot(aggregateId, useSnapshots, minSequenceNumber, maxSequenceNumber)
                 .flatMapMany(snapshot ->
                         Flux.just(snapshot).concatWith(eventStorageEngine.eventsPerAggregate(aggregateId,
@@ -0,0 +1,166 @@
+/*
+ *  Copyright (c) 2017-2022 AxonIQ B.V. and/or licensed to AxonIQ B.V.
+ *  under one or more contributor license agreements.
+ *
+ *  Licensed under the AxonIQ Open Source License Agreement v1.0;
+ *  you may not use this file except in compliance with the license.
+ *
+ */
+
+package io.axoniq.axonserver.localstorage;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.WireFormat;
+import io.axoniq.axonserver.exception.ErrorCode;
+import io.axoniq.axonserver.exception.MessagingPlatformException;
+import io.axoniq.axonserver.grpc.SerializedObject;
+import io.axoniq.axonserver.grpc.event.Event;
+import io.axoniq.axonserver.grpc.event.PayloadDescription;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The fields of an event that are used to filter event streams. The fields are read directly from the serialized form
+ * of the event, skipping the payload data and the metadata values, so filtering does not require parsing the complete
+ * event.
+ *
+ * @since 2023.0.0
+ */
+public class EventFields {
+
+    private static final int MAP_KEY_FIELD_NUMBER = 1;
+
+    private final String payloadType;
+    private final String payloadRevision;
+    private final String aggregateType;
+    private final long timestamp;
+    private final Set<String> metaDataKeys;
+
+    private EventFields(String payloadType, String payloadRevision, String aggregateType, long timestamp,
+                        Set<String> metaDataKeys) {
+        this.payloadType = payloadType;
+        this.payloadRevision = payloadRevision;
+        this.aggregateType = aggregateType;
+        this.timestamp = timestamp;
+        this.metaDataKeys = metaDataKeys;
+    }
+
+    /**
+     * Reads the fields from a serialized event.
+     *
+     * @param serializedEvent  the serialized event
+     * @param withMetaDataKeys whether to read the keys of the metadata
+     * @return the fields of the event
+     */
+    public static EventFields of(SerializedEvent serializedEvent, boolean withMetaDataKeys) {
+        return of(serializedEvent.serializedData(), withMetaDataKeys);
+    }
+
+    /**
+     * Reads the fields from the serialized form of an {@link Event}.
+     *
+     * @param serializedData   the serialized event
+     * @param withMetaDataKeys whether to read the keys of the metadata
+     * @return the fields of the event
+     */
+    public static EventFields of(byte[] serializedData, boolean withMetaDataKeys) {
+        String payloadType = "";
+        String payloadRevision = "";
+        String aggregateType = "";
+        long timestamp = 0;
+        Set<String> metaDataKeys = withMetaDataKeys ? new HashSet<>() : Collections.emptySet();
+        try {
+            CodedInputStream input = CodedInputStream.newInstance(serializedData);
+            int tag;
+            while ((tag = input.readTag()) != 0) {
+                switch (WireFormat.getTagFieldNumber(tag)) {
+                    case Event.AGGREGATE_TYPE_FIELD_NUMBER:
+                        aggregateType = input.readStringRequireUtf8();
+                        break;
+                    case Event.TIMESTAMP_FIELD_NUMBER:
+                        timestamp = input.readInt64();
+                        break;
+                    case Event.PAYLOAD_FIELD_NUMBER:
+                        int limit = input.pushLimit(input.readRawVarint32());
+                        int payloadTag;
+                        while ((payloadTag = input.readTag()) != 0) {
+                            switch (WireFormat.getTagFieldNumber(payloadTag)) {
+                                case SerializedObject.TYPE_FIELD_NUMBER:
+                                    payloadType = input.readStringRequireUtf8();
+                                    break;
+                                case SerializedObject.REVISION_FIELD_NUMBER:
+                                    payloadRevision = input.readStringRequireUtf8();
+                                    break;
+                                default:
+                                    input.skipField(payloadTag);
+                            }
+                        }
+                        input.popLimit(limit);
+                        break;
+                    case Event.META_DATA_FIELD_NUMBER:
+                        if (withMetaDataKeys) {
+                            metaDataKeys.add(readMapKey(input));
+                        } else {
+                            input.skipField(tag);
+                        }
+                        break;
+                    default:
+                        input.skipField(tag);
+                }
+            }
+        } catch (IOException e) {
+            throw new MessagingPlatformException(ErrorCode.DATAFILE_READ_ERROR, e.getMessage(), e);
+        }
+        return new EventFields(payloadType, payloadRevision, aggregateType, timestamp, metaDataKeys);
+    }
+
+    private static String readMapKey(CodedInputStream input) throws IOException {
+        String key = "";
+        int limit = input.pushLimit(input.readRawVarint32());
+        int tag;
+        while ((tag = input.readTag()) != 0) {
+            if (WireFormat.getTagFieldNumber(tag) == MAP_KEY_FIELD_NUMBER) {
+                key = input.readStringRequireUtf8();
+            } else {
+                input.skipField(tag);
+            }
+        }
+        input.popLimit(limit);
+        return key;
+    }
+
+    public String getPayloadType() {
+        return payloadType;
+    }
+
+    public String getPayloadRevision() {
+        return payloadRevision;
+    }
+
+    public String getAggregateType() {
+        return aggregateType;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Returns the keys of the metadata of the event. Only available when the fields were read with metadata keys.
+     *
+     * @return the keys of the metadata
+     */
+    public Set<String> getMetaDataKeys() {
+        return metaDataKeys;
+    }
+
+    public PayloadDescription payloadDescription() {
+        return PayloadDescription.newBuilder()
+                                 .setType(payloadType)
+                                 .setRevision(payloadRevision)
+                                 .build();
+    }
+}
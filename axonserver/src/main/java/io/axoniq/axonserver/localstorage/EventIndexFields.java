@@ -0,0 +1,100 @@
+/*
+ *  Copyright (c) 2017-2022 AxonIQ B.V. and/or licensed to AxonIQ B.V.
+ *  under one or more contributor license agreements.
+ *
+ *  Licensed under the AxonIQ Open Source License Agreement v1.0;
+ *  you may not use this file except in compliance with the license.
+ *
+ */
+
+
+package io.axoniq.axonserver.localstorage;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.WireFormat;
+import io.axoniq.axonserver.exception.ErrorCode;
+import io.axoniq.axonserver.exception.MessagingPlatformException;
+import io.axoniq.axonserver.grpc.event.Event;
+
+import java.io.IOException;
+
+/**
+ * The fields of an event that are needed to store it: the aggregate identifier, type and sequence number and the
+ * timestamp. The fields are read directly from the serialized form of the event, skipping all other fields, so
+ * storing an event does not require parsing the complete event.
+ *
+ * @since 2023.0.0
+ */
+public class EventIndexFields {
+
+    private final String aggregateIdentifier;
+    private final long aggregateSequenceNumber;
+    private final String aggregateType;
+    private final long timestamp;
+
+    private EventIndexFields(String aggregateIdentifier, long aggregateSequenceNumber, String aggregateType,
+                             long timestamp) {
+        this.aggregateIdentifier = aggregateIdentifier;
+        this.aggregateSequenceNumber = aggregateSequenceNumber;
+        this.aggregateType = aggregateType;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Reads the fields from the serialized form of an {@link Event}.
+     *
+     * @param serializedData the serialized event
+     * @return the fields of the event
+     */
+    public static EventIndexFields of(byte[] serializedData) {
+        String aggregateIdentifier = "";
+        long aggregateSequenceNumber = 0;
+        String aggregateType = "";
+        long timestamp = 0;
+        try {
+            CodedInputStream input = CodedInputStream.newInstance(serializedData);
+            int tag;
+            while ((tag = input.readTag()) != 0) {
+                switch (WireFormat.getTagFieldNumber(tag)) {
+                    case Event.AGGREGATE_IDENTIFIER_FIELD_NUMBER:
+                        aggregateIdentifier = input.readStringRequireUtf8();
+                        break;
+                    case Event.AGGREGATE_SEQUENCE_NUMBER_FIELD_NUMBER:
+                        aggregateSequenceNumber = input.readInt64();
+                        break;
+                    case Event.AGGREGATE_TYPE_FIELD_NUMBER:
+                        aggregateType = input.readStringRequireUtf8();
+                        break;
+                    case Event.TIMESTAMP_FIELD_NUMBER:
+                        timestamp = input.readInt64();
+                        break;
+                    default:
+                        input.skipField(tag);
+                }
+            }
+        } catch (IOException e) {
+            throw new MessagingPlatformException(ErrorCode.DATAFILE_READ_ERROR, e.getMessage(), e);
+        }
+        return new EventIndexFields(aggregateIdentifier, aggregateSequenceNumber, aggregateType, timestamp);
+    }
+
+    public String getAggregateIdentifier() {
+        return aggregateIdentifier;
+    }
+
+    public long getAggregateSequenceNumber() {
+        return aggregateSequenceNumber;
+    }
+
+    public String getAggregateType() {
+        return aggregateType;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public boolean isDomainEvent() {
+        return !aggregateType.isEmpty();
+    }
+}
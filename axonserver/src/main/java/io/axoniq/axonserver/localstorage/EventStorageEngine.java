@@ -14,11 +14,13 @@ import io.axoniq.axonserver.grpc.event.EventWithToken;
 import org.springframework.data.util.CloseableIterator;
 import reactor.core.publisher.Flux;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
@@ -63,6 +65,17 @@ public interface EventStorageEngine {
         return completableFuture;
     }
 
+    /**
+     * Stores a number of events in their serialized form. The default implementation parses the events and stores
+     * them through {@link #store(List)}.
+     *
+     * @param eventList list of serialized events
+     * @return completable future containing the token of the first stored event
+     */
+    default CompletableFuture<Long> storeSerialized(List<SerializedEvent> eventList) {
+        return store(eventList.stream().map(SerializedEvent::asEvent).collect(Collectors.toList()));
+    }
+
     /**
      * Retrieves the last token confirmed in the event store.
      * @return the last confirmed token
@@ -191,6 +204,16 @@ public interface EventStorageEngine {
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * Returns the summaries of the segments in this storage engine, most recent segment first. Only relevant for
+     * file based storage. Segments without a summary are not included.
+     *
+     * @return the segment summaries
+     */
+    default List<SegmentSummary> segmentSummaries() {
+        return Collections.emptyList();
+    }
+
     /**
      * Retrieves first token in storage engine.
      * @return first token or -1 when storage is empty
@@ -0,0 +1,89 @@
+/*
+ *  Copyright (c) 2017-2022 AxonIQ B.V. and/or licensed to AxonIQ B.V.
+ *  under one or more contributor license agreements.
+ *
+ *  Licensed under the AxonIQ Open Source License Agreement v1.0;
+ *  you may not use this file except in compliance with the license.
+ *
+ */
+
+package io.axoniq.axonserver.localstorage;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Server-side filter for events sent to a tracking event processor. An event matches the filter when it matches all
+ * the conditions that are set. An empty condition matches all events.
+ *
+ * @since 2023.0.0
+ */
+public class EventStreamFilter {
+
+    /**
+     * Payload types to send. When empty, events of all payload types are sent.
+     */
+    private Set<String> payloadTypes = new HashSet<>();
+    /**
+     * Aggregate types to send. When empty, events of all aggregate types (and non-domain events) are sent.
+     */
+    private Set<String> aggregateTypes = new HashSet<>();
+    /**
+     * Metadata keys of which at least one must be present in the event. When empty, all events are sent.
+     */
+    private Set<String> metaDataKeys = new HashSet<>();
+
+    public Set<String> getPayloadTypes() {
+        return payloadTypes;
+    }
+
+    public void setPayloadTypes(Set<String> payloadTypes) {
+        this.payloadTypes = payloadTypes;
+    }
+
+    public Set<String> getAggregateTypes() {
+        return aggregateTypes;
+    }
+
+    public void setAggregateTypes(Set<String> aggregateTypes) {
+        this.aggregateTypes = aggregateTypes;
+    }
+
+    public Set<String> getMetaDataKeys() {
+        return metaDataKeys;
+    }
+
+    public void setMetaDataKeys(Set<String> metaDataKeys) {
+        this.metaDataKeys = metaDataKeys;
+    }
+
+    /**
+     * Checks if the filter has any conditions.
+     *
+     * @return {@code true} if no conditions are set
+     */
+    public boolean isEmpty() {
+        return payloadTypes.isEmpty() && aggregateTypes.isEmpty() && metaDataKeys.isEmpty();
+    }
+
+    /**
+     * Checks if the filter needs the metadata keys of the events to check the conditions.
+     *
+     * @return {@code true} if the filter has a metadata keys condition
+     */
+    public boolean requiresMetaDataKeys() {
+        return !metaDataKeys.isEmpty();
+    }
+
+    /**
+     * Checks if an event matches the filter.
+     *
+     * @param eventFields the fields of the event
+     * @return {@code true} if the event must be sent
+     */
+    public boolean matches(EventFields eventFields) {
+        return (payloadTypes.isEmpty() || payloadTypes.contains(eventFields.getPayloadType()))
+                && (aggregateTypes.isEmpty() || aggregateTypes.contains(eventFields.getAggregateType()))
+                && (metaDataKeys.isEmpty() || eventFields.getMetaDataKeys().stream().anyMatch(metaDataKeys::contains));
+    }
+}
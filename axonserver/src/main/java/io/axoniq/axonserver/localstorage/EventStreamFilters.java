@@ -0,0 +1,57 @@
+/*
+ *  Copyright (c) 2017-2022 AxonIQ B.V. and/or licensed to AxonIQ B.V.
+ *  under one or more contributor license agreements.
+ *
+ *  Licensed under the AxonIQ Open Source License Agreement v1.0;
+ *  you may not use this file except in compliance with the license.
+ *
+ */
+
+package io.axoniq.axonserver.localstorage;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Configuration of the server-side filters for event streams, per processor name. The filter for a processor can be
+ * defined for a specific context using the key {@code <processor>@<context>}, or for all contexts using the processor
+ * name as key. For example:
+ * <pre>
+ * axoniq.axonserver.event-stream-filters.processors[OrderProjection].aggregate-types=Order
+ * axoniq.axonserver.event-stream-filters.processors[OrderProjection@sales].payload-types=com.example.OrderPlaced
+ * </pre>
+ *
+ * @since 2023.0.0
+ */
+@Configuration
+@ConfigurationProperties(prefix = "axoniq.axonserver.event-stream-filters")
+public class EventStreamFilters {
+
+    private Map<String, EventStreamFilter> processors = new HashMap<>();
+
+    public Map<String, EventStreamFilter> getProcessors() {
+        return processors;
+    }
+
+    public void setProcessors(Map<String, EventStreamFilter> processors) {
+        this.processors = processors;
+    }
+
+    /**
+     * Returns the filter for a processor in a context.
+     *
+     * @param context   the context of the event stream
+     * @param processor the name of the processor requesting the event stream
+     * @return the filter for the processor or {@code null} when there is no filter for this processor
+     */
+    public EventStreamFilter get(String context, String processor) {
+        if (processor == null || processor.isEmpty()) {
+            return null;
+        }
+        EventStreamFilter filter = processors.getOrDefault(processor + "@" + context, processors.get(processor));
+        return filter == null || filter.isEmpty() ? null : filter;
+    }
+}
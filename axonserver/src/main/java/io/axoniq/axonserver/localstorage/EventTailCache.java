@@ -0,0 +1,221 @@
+/*
+ *  Copyright (c) 2017-2022 AxonIQ B.V. and/or licensed to AxonIQ B.V.
+ *  under one or more contributor license agreements.
+ *
+ *  Licensed under the AxonIQ Open Source License Agreement v1.0;
+ *  you may not use this file except in compliance with the license.
+ *
+ */
+
+package io.axoniq.axonserver.localstorage;
+
+import io.axoniq.axonserver.metric.BaseMetricName;
+import io.axoniq.axonserver.metric.MeterFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.data.util.CloseableIterator;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Keeps the most recently stored event transactions for a context in memory, so that tracking event processors that
+ * are reading at the head of the event store can share the events instead of each of them reading (and decoding) the
+ * events from the segment files.
+ * <p>
+ * The cache is bounded by the total serialized size of the events it contains. When adding a transaction would exceed
+ * this size, the oldest transactions are removed. Trackers that are not within the window of the cache fall back to
+ * reading from the event store.
+ *
+ * @since 2023.0.0
+ */
+public class EventTailCache {
+
+    private final ConcurrentSkipListMap<Long, SerializedEventWithToken[]> transactions = new ConcurrentSkipListMap<>();
+    private final AtomicLong bytes = new AtomicLong();
+    private final long maxBytes;
+    private final MeterFactory meterFactory;
+    private final Counter hits;
+    private final Counter misses;
+    private final Gauge bytesGauge;
+    private final Gauge transactionsGauge;
+
+    /**
+     * Constructor for {@link EventTailCache}.
+     *
+     * @param context      the context for the cache
+     * @param maxBytes     maximum total size (in bytes) of the events in the cache, 0 disables the cache
+     * @param meterFactory factory to create metrics meters
+     */
+    public EventTailCache(String context, long maxBytes, MeterFactory meterFactory) {
+        this.maxBytes = maxBytes;
+        this.meterFactory = meterFactory;
+        Tags tags = Tags.of(MeterFactory.CONTEXT, context);
+        this.hits = meterFactory.counter(BaseMetricName.AXON_TAIL_CACHE_HITS, tags);
+        this.misses = meterFactory.counter(BaseMetricName.AXON_TAIL_CACHE_MISSES, tags);
+        this.bytesGauge = meterFactory.gauge(BaseMetricName.AXON_TAIL_CACHE_BYTES, tags, bytes, AtomicLong::get);
+        this.transactionsGauge = meterFactory.gauge(BaseMetricName.AXON_TAIL_CACHE_TRANSACTIONS,
+                                                    tags,
+                                                    transactions,
+                                                    Map::size);
+    }
+
+    /**
+     * Adds a stored transaction to the cache. Removes the oldest transactions from the cache if the cache exceeds its
+     * maximum size.
+     *
+     * @param firstToken the token of the first event in the transaction
+     * @param events     the events in the transaction
+     */
+    public void append(long firstToken, List<SerializedEvent> events) {
+        if (maxBytes <= 0 || events.isEmpty()) {
+            return;
+        }
+        SerializedEventWithToken[] transaction = new SerializedEventWithToken[events.size()];
+        long size = 0;
+        for (int i = 0; i < transaction.length; i++) {
+            transaction[i] = new SerializedEventWithToken(firstToken + i, events.get(i));
+            size += transaction[i].getSerializedEvent().size();
+        }
+        if (size > maxBytes) {
+            return;
+        }
+
+        transactions.put(firstToken, transaction);
+        bytes.addAndGet(size);
+        while (bytes.get() > maxBytes) {
+            Map.Entry<Long, SerializedEventWithToken[]> removed = transactions.pollFirstEntry();
+            if (removed == null) {
+                return;
+            }
+            bytes.addAndGet(-size(removed.getValue()));
+        }
+    }
+
+    private long size(SerializedEventWithToken[] transaction) {
+        return Arrays.stream(transaction).mapToLong(e -> e.getSerializedEvent().size()).sum();
+    }
+
+    /**
+     * Returns the event with the given token if it is in the cache, or {@code null} if it is not.
+     *
+     * @param token the token of the event
+     * @return the event or {@code null}
+     */
+    public SerializedEventWithToken get(long token) {
+        Map.Entry<Long, SerializedEventWithToken[]> entry = transactions.floorEntry(token);
+        if (entry == null) {
+            return null;
+        }
+        int index = (int) (token - entry.getKey());
+        SerializedEventWithToken[] transaction = entry.getValue();
+        return index < transaction.length ? transaction[index] : null;
+    }
+
+    /**
+     * Creates an iterator that serves the events from the cache while the requested token is in the cache, and reads
+     * the events from the event store when the requested token is not in the cache.
+     *
+     * @param start           the token of the first event to return
+     * @param iteratorBuilder function to create an iterator on the event store starting at a given token
+     * @return an iterator of events
+     */
+    public CloseableIterator<SerializedEventWithToken> iterator(long start,
+                                                                Function<Long, CloseableIterator<SerializedEventWithToken>> iteratorBuilder) {
+        if (maxBytes <= 0) {
+            return iteratorBuilder.apply(start);
+        }
+        return new TailCacheIterator(start, iteratorBuilder);
+    }
+
+    /**
+     * Removes all transactions from the cache and unregisters the metrics.
+     */
+    public void close() {
+        transactions.clear();
+        bytes.set(0);
+        remove(hits);
+        remove(misses);
+        remove(bytesGauge);
+        remove(transactionsGauge);
+    }
+
+    private void remove(Meter meter) {
+        if (meter != null) {
+            meterFactory.remove(meter);
+        }
+    }
+
+    private class TailCacheIterator implements CloseableIterator<SerializedEventWithToken> {
+
+        private final Function<Long, CloseableIterator<SerializedEventWithToken>> iteratorBuilder;
+        private long nextToken;
+        private CloseableIterator<SerializedEventWithToken> storeIterator;
+        private SerializedEventWithToken nextEvent;
+        private volatile boolean closed;
+
+        private TailCacheIterator(long start,
+                                  Function<Long, CloseableIterator<SerializedEventWithToken>> iteratorBuilder) {
+            this.nextToken = start;
+            this.iteratorBuilder = iteratorBuilder;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (closed) {
+                throw new IllegalStateException("Iterator is closed");
+            }
+            if (nextEvent != null) {
+                return true;
+            }
+            nextEvent = get(nextToken);
+            if (nextEvent != null) {
+                hits.increment();
+                closeStoreIterator();
+                return true;
+            }
+
+            if (storeIterator == null) {
+                storeIterator = iteratorBuilder.apply(nextToken);
+            }
+            if (storeIterator.hasNext()) {
+                misses.increment();
+                nextEvent = storeIterator.next();
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public SerializedEventWithToken next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("No event for token " + nextToken);
+            }
+            SerializedEventWithToken event = nextEvent;
+            nextEvent = null;
+            nextToken = event.getToken() + 1;
+            return event;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            closeStoreIterator();
+        }
+
+        private void closeStoreIterator() {
+            CloseableIterator<SerializedEventWithToken> iterator = storeIterator;
+            storeIterator = null;
+            if (iterator != null) {
+                iterator.close();
+            }
+        }
+    }
+}
@@ -20,6 +20,8 @@ import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 /**
  * Handles write actions for events.
@@ -29,7 +31,7 @@ import java.util.function.BiConsumer;
 public class EventWriteStorage {
     private static final Logger logger = LoggerFactory.getLogger(EventWriteStorage.class);
 
-    private final Map<String, BiConsumer<Long, List<Event>>> listeners = new ConcurrentHashMap<>();
+    private final Map<String, BiConsumer<Long, List<SerializedEvent>>> listeners = new ConcurrentHashMap<>();
     private final StorageTransactionManager storageTransactionManager;
 
 
@@ -45,14 +47,44 @@ public class EventWriteStorage {
                     return storageTransactionManager.storeBatch(eventList)
                             .doOnError(t-> logger.error("Error occurred while writing batch: ",t))
                             .doOnError(e -> releaseSequences.run())
-                            .doOnSuccess(firstToken -> listeners.values()
-                                    .forEach(consumer -> eventsStored(consumer, firstToken, eventList)));
+                            .doOnSuccess(firstToken -> eventsStored(firstToken, () -> serialized(eventList)));
                 }).then();
     }
 
+    /**
+     * Stores a batch of events in the form they were received from the client. The events are stored without parsing
+     * and serializing them again.
+     *
+     * @param batch the serialized events
+     * @return a {@link Mono} that completes when the events are stored
+     */
+    public Mono<Void> storeSerializedBatch(List<SerializedEvent> batch) {
+        return Mono.just(batch)
+                .filter(b -> !b.isEmpty())
+                .flatMap(eventList -> {
+                    Runnable releaseSequences = storageTransactionManager.reserveSerializedSequenceNumbers(eventList);
+                    return storageTransactionManager.storeSerializedBatch(eventList)
+                            .doOnError(t-> logger.error("Error occurred while writing batch: ",t))
+                            .doOnError(e -> releaseSequences.run())
+                            .doOnSuccess(firstToken -> eventsStored(firstToken, () -> eventList));
+                }).then();
+    }
+
+    private List<SerializedEvent> serialized(List<Event> eventList) {
+        return eventList.stream().map(SerializedEvent::new).collect(Collectors.toList());
+    }
+
+    private void eventsStored(Long firstToken, Supplier<List<SerializedEvent>> eventList) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        List<SerializedEvent> serializedEvents = eventList.get();
+        listeners.values().forEach(consumer -> eventsStored(consumer, firstToken, serializedEvents));
+    }
+
     private void eventsStored(
-            BiConsumer<Long, List<Event>> consumer,
-            Long firstToken, List<Event> eventList) {
+            BiConsumer<Long, List<SerializedEvent>> consumer,
+            Long firstToken, List<SerializedEvent> eventList) {
         try {
             consumer.accept(firstToken, eventList);
         } catch (Exception ex) {
@@ -64,7 +96,7 @@ public class EventWriteStorage {
         return storageTransactionManager.reserveSequenceNumbers(eventList);
     }
 
-    public Registration registerEventListener(BiConsumer<Long, List<Event>> listener) {
+    public Registration registerEventListener(BiConsumer<Long, List<SerializedEvent>> listener) {
         String id = UUID.randomUUID().toString();
         listeners.put(id, listener);
         return () -> listeners.remove(id);
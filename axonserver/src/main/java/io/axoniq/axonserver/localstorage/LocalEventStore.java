@@ -36,6 +36,7 @@ import io.grpc.stub.StreamObserver;
 import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
 import org.reactivestreams.Publisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -57,6 +58,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -66,6 +68,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import java.util.function.IntConsumer;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
@@ -86,6 +89,7 @@ public class LocalEventStore implements io.axoniq.axonserver.message.event.Event
     private final ExecutorService dataFetcher;
     private final ExecutorService dataWriter;
     private final MeterFactory meterFactory;
+    private final EventStreamFilters eventStreamFilters;
     private final StorageTransactionManagerFactory storageTransactionManagerFactory;
     private final EventInterceptors eventInterceptors;
 
@@ -98,12 +102,57 @@ public class LocalEventStore implements io.axoniq.axonserver.message.event.Event
     private volatile boolean running;
     @Value("${axoniq.axonserver.query.limit:200}")
     private long defaultLimit = 200;
+    /**
+     * Maximum number of segments scanned in parallel for an ad-hoc query that aggregates all matching events. When set
+     * to 0, the number of available processors is used.
+     */
+    @SuppressWarnings("FieldMayBeFinal") @Value("${axoniq.axonserver.query.parallelism:0}")
+    private int queryParallelism = 0;
     @Value("${axoniq.axonserver.query.timeout:300000}")
     private long timeout = 300000;
     @Value("${axoniq.axonserver.new-permits-timeout:120000}")
     private long newPermitsTimeout = 120000;
     @SuppressWarnings("FieldMayBeFinal") @Value("${axoniq.axonserver.check-sequence-nr-for-snapshots:true}")
     private boolean checkSequenceNrForSnapshots = true;
+    /**
+     * Maximum size (in bytes) of the recent events kept in memory per context to serve tracking event processors that
+     * are reading at the head of the event store. Setting this to 0 disables the cache.
+     */
+    @SuppressWarnings("FieldMayBeFinal") @Value("${axoniq.axonserver.tracker-tail-cache-size:8388608}")
+    private long trackerTailCacheSize = 8388608;
+    /**
+     * Maximum size (in bytes) of the recently read aggregates kept in memory per context. Setting this to 0 disables
+     * the cache.
+     */
+    @SuppressWarnings("FieldMayBeFinal") @Value("${axoniq.axonserver.aggregate-cache-size:0}")
+    private long aggregateCacheSize = 0;
+    /**
+     * Number of threads per context used to send events to tracking event processors.
+     */
+    @SuppressWarnings("FieldMayBeFinal") @Value("${axoniq.axonserver.tracker-sender-threads:4}")
+    private int trackerSenderThreads = 4;
+    /**
+     * Invokes the post commit events hooks on a separate thread per context instead of before acknowledging the
+     * append.
+     */
+    @SuppressWarnings("FieldMayBeFinal") @Value("${axoniq.axonserver.post-commit-hooks.async:false}")
+    private boolean asyncPostCommitHooks = false;
+    /**
+     * Maximum number of stored event batches per context waiting for the asynchronous post commit hooks.
+     */
+    @SuppressWarnings("FieldMayBeFinal") @Value("${axoniq.axonserver.post-commit-hooks.queue-size:1000}")
+    private int postCommitHooksQueueSize = 1000;
+    /**
+     * Maximum number of stored event batches passed to the asynchronous post commit hooks in one call.
+     */
+    @SuppressWarnings("FieldMayBeFinal") @Value("${axoniq.axonserver.post-commit-hooks.batch-size:100}")
+    private int postCommitHooksBatchSize = 100;
+    /**
+     * Action to take when the queue for the asynchronous post commit hooks is full.
+     */
+    @SuppressWarnings("FieldMayBeFinal") @Value("${axoniq.axonserver.post-commit-hooks.overflow:BLOCK}")
+    private PostCommitEventsDispatcher.OverflowStrategy postCommitHooksOverflow =
+            PostCommitEventsDispatcher.OverflowStrategy.BLOCK;
 
     public LocalEventStore(EventStoreFactory eventStoreFactory,
                            MeterRegistry meterFactory,
@@ -120,12 +169,32 @@ public class LocalEventStore implements io.axoniq.axonserver.message.event.Event
              8);
     }
 
+    public LocalEventStore(EventStoreFactory eventStoreFactory,
+                           MeterFactory meterFactory,
+                           StorageTransactionManagerFactory storageTransactionManagerFactory,
+                           EventInterceptors eventInterceptors,
+                           EventDecorator eventDecorator,
+                           int blacklistedSendAfter,
+                           int fetcherThreads,
+                           int writerThreads) {
+        this(eventStoreFactory,
+             meterFactory,
+             storageTransactionManagerFactory,
+             eventInterceptors,
+             eventDecorator,
+             new EventStreamFilters(),
+             blacklistedSendAfter,
+             fetcherThreads,
+             writerThreads);
+    }
+
     @Autowired
     public LocalEventStore(EventStoreFactory eventStoreFactory,
                            MeterFactory meterFactory,
                            StorageTransactionManagerFactory storageTransactionManagerFactory,
                            EventInterceptors eventInterceptors,
                            EventDecorator eventDecorator,
+                           EventStreamFilters eventStreamFilters,
                            @Value("${axoniq.axonserver.blacklisted-send-after:1000}") int blacklistedSendAfter,
                            @Value("${axoniq.axonserver.data-fetcher-threads:24}") int fetcherThreads,
                            @Value("${axoniq.axonserver.data-writer-threads:8}") int writerThreads) {
@@ -138,6 +207,7 @@ public class LocalEventStore implements io.axoniq.axonserver.message.event.Event
         DataFetcherSchedulerProvider.setDataFetcher(dataFetcher);
         this.dataWriter = Executors.newFixedThreadPool(writerThreads, new CustomizableThreadFactory("data-writer-"));
         this.eventDecorator = eventDecorator;
+        this.eventStreamFilters = eventStreamFilters;
     }
 
     public void initContext(String context, boolean validating) {
@@ -278,6 +348,15 @@ public class LocalEventStore implements io.axoniq.axonserver.message.event.Event
     @Override
     public Mono<Void> appendEvents(String context, Flux<SerializedEvent> events, Authentication authentication) {
         DefaultExecutionContext executionContext = new DefaultExecutionContext(context, authentication);
+        if (eventInterceptors.noAppendEventInterceptors(context)) {
+            return events
+                    .publishOn(Schedulers.fromExecutorService(dataWriter))
+                    .buffer()
+                    .concatMap(batch -> workers(context).eventWriteStorage.storeSerializedBatch(batch))
+                    .transform(pipeline -> handleStoreEventErrors(executionContext, pipeline))
+                    .transform(pipeline -> attachStoreEventMetrics(context, pipeline))
+                    .then();
+        }
         return events
                 .publishOn(Schedulers.fromExecutorService(dataWriter))
                 .map(SerializedEvent::asEvent)
@@ -302,11 +381,19 @@ public class LocalEventStore implements io.axoniq.axonserver.message.event.Event
                 .concatMap(interceptedEvents -> workers(context)
                         .eventWriteStorage
                         .storeBatch(interceptedEvents)
-                        .doOnSuccess(unused -> eventInterceptors.interceptEventsPostCommit(interceptedEvents,
-                                executionContext))
+                        .doOnSuccess(unused -> postCommitEvents(context, interceptedEvents, executionContext))
                 );
     }
 
+    private void postCommitEvents(String context, List<Event> events, DefaultExecutionContext executionContext) {
+        PostCommitEventsDispatcher postCommitEventsDispatcher = workers(context).postCommitEventsDispatcher;
+        if (postCommitEventsDispatcher == null) {
+            eventInterceptors.interceptEventsPostCommit(events, executionContext);
+        } else {
+            postCommitEventsDispatcher.dispatch(events, executionContext);
+        }
+    }
+
     @Nonnull
     private Flux<Void> handleStoreEventErrors(DefaultExecutionContext executionContext, Flux<Void> pipeline) {
         return pipeline
@@ -488,29 +575,32 @@ public class LocalEventStore implements io.axoniq.axonserver.message.event.Event
                     if (c == null) {
                         EventDecorator activeEventDecorator =
                                 new InterceptorAwareEventDecorator(context, authentication);
-                        return workers(context).createEventTracker(getEventsRequest.getTrackingToken(),
-                                                                   getEventsRequest.getClientId(),
-                                                                   getEventsRequest.getForceReadFromLeader(),
-                                                                   new StreamObserver<SerializedEventWithToken>() {
-                                                                       @Override
-                                                                       public void onNext(
-                                                                               SerializedEventWithToken eventWithToken) {
-                                                                           responseStreamObserver.onNext(
-                                                                                   activeEventDecorator
-                                                                                           .decorateEventWithToken(
-                                                                                                   eventWithToken));
-                                                                       }
-
-                                                                       @Override
-                                                                       public void onError(Throwable throwable) {
-                                                                           responseStreamObserver.onError(throwable);
-                                                                       }
-
-                                                                       @Override
-                                                                       public void onCompleted() {
-                                                                           responseStreamObserver.onCompleted();
-                                                                       }
-                                                                   });
+                        TrackingEventProcessorManager.EventTracker tracker =
+                                workers(context).createEventTracker(getEventsRequest.getTrackingToken(),
+                                                                    getEventsRequest.getClientId(),
+                                                                    getEventsRequest.getForceReadFromLeader(),
+                                                                    new StreamObserver<SerializedEventWithToken>() {
+                                                                        @Override
+                                                                        public void onNext(
+                                                                                SerializedEventWithToken eventWithToken) {
+                                                                            responseStreamObserver.onNext(
+                                                                                    activeEventDecorator
+                                                                                            .decorateEventWithToken(
+                                                                                                    eventWithToken));
+                                                                        }
+
+                                                                        @Override
+                                                                        public void onError(Throwable throwable) {
+                                                                            responseStreamObserver.onError(throwable);
+                                                                        }
+
+                                                                        @Override
+                                                                        public void onCompleted() {
+                                                                            responseStreamObserver.onCompleted();
+                                                                        }
+                                                                    });
+                        tracker.setFilter(eventStreamFilters.get(context, getEventsRequest.getProcessor()));
+                        return tracker;
                     }
                     return c;
                 });
@@ -668,7 +758,10 @@ public class LocalEventStore implements io.axoniq.axonserver.message.event.Event
                                                     activeEventDecorator,
                                                     responseObserver,
                                                     workers.snapshotWriteStorage,
-                                                    workers.snapshotStreamReader
+                                                    workers.snapshotStreamReader,
+                                                    queryParallelism > 0 ?
+                                                            queryParallelism :
+                                                            Runtime.getRuntime().availableProcessors()
         );
     }
 
@@ -748,6 +841,7 @@ public class LocalEventStore implements io.axoniq.axonserver.message.event.Event
         try {
             Workers worker = workers(context);
             worker.eventSyncStorage.sync(token, events);
+            worker.eventsSynced(events);
             worker.triggerTrackerEventProcessors();
             return token + events.size();
         } catch (MessagingPlatformException ex) {
@@ -762,8 +856,9 @@ public class LocalEventStore implements io.axoniq.axonserver.message.event.Event
 
     public long syncSnapshots(String context, long token, List<Event> snapshots) {
         try {
-            SyncStorage writeStorage = workers(context).snapshotSyncStorage;
-            writeStorage.sync(token, snapshots);
+            Workers worker = workers(context);
+            worker.snapshotSyncStorage.sync(token, snapshots);
+            worker.snapshotsSynced(snapshots);
             return token + snapshots.size();
         } catch (MessagingPlatformException ex) {
             if (ErrorCode.NO_EVENTSTORE.equals(ex.getErrorCode())) {
@@ -783,6 +878,22 @@ public class LocalEventStore implements io.axoniq.axonserver.message.event.Event
         return workers(context).snapshotWriteStorage.waitingTransactions();
     }
 
+    /**
+     * Returns the summaries of the segments in the event store or snapshot store for a context, most recent segment
+     * first.
+     *
+     * @param context   the context
+     * @param eventType the type of store
+     * @return the segment summaries
+     */
+    public List<SegmentSummary> segmentSummaries(String context, EventType eventType) {
+        Workers workers = workers(context);
+        if (eventType == EventType.SNAPSHOT) {
+            return workers.snapshotStorageEngine.segmentSummaries();
+        }
+        return workers.eventStorageEngine.segmentSummaries();
+    }
+
     public Stream<String> getBackupFilenames(String context, EventType eventType, long lastSegmentBackedUp,
                                              boolean includeActive) {
         try {
@@ -835,8 +946,12 @@ public class LocalEventStore implements io.axoniq.axonserver.message.event.Event
         private final SyncStorage eventSyncStorage;
         private final SyncStorage snapshotSyncStorage;
         private final TrackingEventProcessorManager trackingEventManager;
+        private final EventTailCache eventTailCache;
+        private final AggregateCache aggregateCache;
+        private final PostCommitEventsDispatcher postCommitEventsDispatcher;
         private final Gauge gauge;
         private final Gauge snapshotGauge;
+        private final Timer initTimer;
         private final Object initLock = new Object();
         private volatile boolean initialized;
 
@@ -849,15 +964,37 @@ public class LocalEventStore implements io.axoniq.axonserver.message.event.Event
                                                                    .createTransactionManager(this.eventStorageEngine));
             this.snapshotWriteStorage = new SnapshotWriteStorage(storageTransactionManagerFactory
                                                                          .createTransactionManager(this.snapshotStorageEngine));
-            this.aggregateReader = new AggregateReader(eventStorageEngine, new SnapshotReader(snapshotStorageEngine));
-            this.trackingEventManager = new TrackingEventProcessorManager(eventStorageEngine, blacklistedSendAfter);
+            this.aggregateCache = new AggregateCache(context, aggregateCacheSize, meterFactory);
+            this.aggregateReader = new AggregateReader(eventStorageEngine,
+                                                       new SnapshotReader(snapshotStorageEngine),
+                                                       aggregateCache);
+            this.eventTailCache = new EventTailCache(context, trackerTailCacheSize, meterFactory);
+            this.postCommitEventsDispatcher = asyncPostCommitHooks ?
+                    new PostCommitEventsDispatcher(context,
+                                                   eventInterceptors,
+                                                   postCommitHooksQueueSize,
+                                                   postCommitHooksBatchSize,
+                                                   postCommitHooksOverflow,
+                                                   meterFactory) :
+                    null;
+            this.trackingEventManager = new TrackingEventProcessorManager(eventStorageEngine,
+                                                                          blacklistedSendAfter,
+                                                                          eventTailCache,
+                                                                          trackerSenderThreads,
+                                                                          meterFactory);
 
             this.eventStreamReader = new EventStreamReader(eventStorageEngine);
             this.snapshotStreamReader = new EventStreamReader(snapshotStorageEngine);
 
             this.snapshotSyncStorage = new SyncStorage(snapshotStorageEngine);
             this.eventSyncStorage = new SyncStorage(eventStorageEngine);
-            this.eventWriteStorage.registerEventListener((token, events) -> this.trackingEventManager.reschedule());
+            this.eventWriteStorage.registerEventListener((token, events) -> {
+                this.eventTailCache.append(token, events);
+                this.aggregateCache.append(events);
+                this.trackingEventManager.reschedule();
+            });
+            this.snapshotWriteStorage.registerEventListener((token, snapshot) -> this.aggregateCache.invalidate(
+                    snapshot.getAggregateIdentifier()));
             this.gauge = meterFactory.gauge(BaseMetricName.AXON_EVENT_LAST_TOKEN,
                                             Tags.of(MeterFactory.CONTEXT, context),
                                             context,
@@ -866,6 +1003,8 @@ public class LocalEventStore implements io.axoniq.axonserver.message.event.Event
                                                     Tags.of(MeterFactory.CONTEXT, context),
                                                     context,
                                                     c -> (double) snapshotStorageEngine.getLastToken());
+            this.initTimer = meterFactory.timer(BaseMetricName.AXON_CONTEXT_INIT_DURATION,
+                                                Tags.of(MeterFactory.CONTEXT, context));
         }
 
         public void ensureInitialized(boolean validate, long defaultFirstEventIndex, long defaultFirstSnapshotIndex) {
@@ -880,9 +1019,10 @@ public class LocalEventStore implements io.axoniq.axonserver.message.event.Event
                 if (logger.isInfoEnabled()) {
                     logger.info("{}: initializing Workers [{}]", context, System.identityHashCode(this));
                 }
+                long start = System.nanoTime();
                 try {
-                    eventStorageEngine.init(validate, defaultFirstEventIndex);
-                    snapshotStorageEngine.init(validate, defaultFirstSnapshotIndex);
+                    initStorageEngines(validate, defaultFirstEventIndex, defaultFirstSnapshotIndex);
+                    initTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
                     initialized = true;
                     if (logger.isInfoEnabled()) {
                         logger.info("Workers[{}] for context {} has been initialized.",
@@ -900,6 +1040,37 @@ public class LocalEventStore implements io.axoniq.axonserver.message.event.Event
             }
         }
 
+        /**
+         * Initializes the event store and the snapshot store concurrently, as they are independent. Waits for both
+         * to finish before reporting a failure, so neither store is closed while it is still initializing. The
+         * snapshot store is initialized on a dedicated thread that ends when initialization is done.
+         */
+        private void initStorageEngines(boolean validate, long defaultFirstEventIndex,
+                                        long defaultFirstSnapshotIndex) {
+            ExecutorService snapshotInitExecutor = Executors.newSingleThreadExecutor(
+                    new CustomizableThreadFactory(context + "-snapshot-init-"));
+            try {
+                CompletableFuture<Void> snapshotInit = CompletableFuture.runAsync(
+                        () -> snapshotStorageEngine.init(validate, defaultFirstSnapshotIndex), snapshotInitExecutor);
+                try {
+                    eventStorageEngine.init(validate, defaultFirstEventIndex);
+                } catch (RuntimeException ex) {
+                    snapshotInit.exceptionally(t -> null).join();
+                    throw ex;
+                }
+                try {
+                    snapshotInit.join();
+                } catch (CompletionException ex) {
+                    if (ex.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) ex.getCause();
+                    }
+                    throw ex;
+                }
+            } finally {
+                snapshotInitExecutor.shutdown();
+            }
+        }
+
         /**
          * Close all activity on a context and release all resources.
          */
@@ -907,10 +1078,16 @@ public class LocalEventStore implements io.axoniq.axonserver.message.event.Event
             logger.info("Start closing the Workers[{}] for context {} with deleteData = {}.",
                         System.identityHashCode(this), context, deleteData);
             trackingEventManager.close();
+            eventTailCache.close();
+            aggregateCache.close();
+            if (postCommitEventsDispatcher != null) {
+                postCommitEventsDispatcher.close();
+            }
             eventStorageEngine.close(deleteData);
             snapshotStorageEngine.close(deleteData);
             meterFactory.remove(gauge);
             meterFactory.remove(snapshotGauge);
+            meterFactory.remove(initTimer);
             logger.info("Workers[{}] closed for context {} with deleteData = {}.",
                         System.identityHashCode(this), context, deleteData);
         }
@@ -925,6 +1102,26 @@ public class LocalEventStore implements io.axoniq.axonserver.message.event.Event
                                                            eventStream);
         }
 
+        /**
+         * Adds events stored through replication to the aggregates in the aggregate cache, as these events are not
+         * stored through the {@link EventWriteStorage}.
+         */
+        private void eventsSynced(List<Event> events) {
+            if (aggregateCacheSize > 0) {
+                aggregateCache.append(events.stream()
+                                            .map(SerializedEvent::new)
+                                            .collect(Collectors.toList()));
+            }
+        }
+
+        /**
+         * Removes the aggregates for snapshots stored through replication from the aggregate cache, as these snapshots
+         * are not stored through the {@link SnapshotWriteStorage}.
+         */
+        private void snapshotsSynced(List<Event> snapshots) {
+            snapshots.forEach(snapshot -> aggregateCache.invalidate(snapshot.getAggregateIdentifier()));
+        }
+
         private void triggerTrackerEventProcessors() {
             trackingEventManager.reschedule();
         }
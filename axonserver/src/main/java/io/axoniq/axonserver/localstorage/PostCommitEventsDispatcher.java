@@ -0,0 +1,218 @@
+/*
+ *  Copyright (c) 2017-2022 AxonIQ B.V. and/or licensed to AxonIQ B.V.
+ *  under one or more contributor license agreements.
+ *
+ *  Licensed under the AxonIQ Open Source License Agreement v1.0;
+ *  you may not use this file except in compliance with the license.
+ *
+ */
+
+package io.axoniq.axonserver.localstorage;
+
+import io.axoniq.axonserver.grpc.event.Event;
+import io.axoniq.axonserver.interceptor.EventInterceptors;
+import io.axoniq.axonserver.metric.BaseMetricName;
+import io.axoniq.axonserver.metric.MeterFactory;
+import io.axoniq.axonserver.plugin.ExecutionContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Invokes the post commit events hooks for a context on a separate thread, so that slow hooks do not delay the
+ * acknowledgement of appended events.
+ * <p>
+ * Stored event batches are added to a bounded queue. A single thread per context takes the batches from the queue in
+ * the order they were stored. Consecutive batches from the same append request are passed to the hooks in one call,
+ * up to a maximum number of batches per call. When the queue is full, the {@link OverflowStrategy} determines if the
+ * append waits for space in the queue or if the batch is not passed to the hooks.
+ *
+ * @since 2023.0.0
+ */
+public class PostCommitEventsDispatcher {
+
+    /**
+     * Action to take when a stored batch of events is added to a full queue.
+     */
+    public enum OverflowStrategy {
+        /**
+         * Wait until there is space in the queue. This slows down appending events to the pace of the hooks.
+         */
+        BLOCK,
+        /**
+         * Do not pass the batch of events to the hooks.
+         */
+        DROP
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(PostCommitEventsDispatcher.class);
+    private static final long OFFER_INTERVAL_MILLIS = 100;
+    private static final long CLOSE_TIMEOUT_SECONDS = 10;
+    private static final StoredBatch STOP = new StoredBatch(Collections.emptyList(), null);
+
+    private final String context;
+    private final EventInterceptors eventInterceptors;
+    private final BlockingQueue<StoredBatch> queue;
+    private final int maxBatchesPerCall;
+    private final OverflowStrategy overflowStrategy;
+    private final MeterFactory meterFactory;
+    private final Timer hookTimer;
+    private final Counter dropped;
+    private final Gauge queueGauge;
+    private final ExecutorService executor;
+    private volatile boolean running = true;
+
+    /**
+     * Constructor for {@link PostCommitEventsDispatcher}. Starts the thread invoking the hooks.
+     *
+     * @param context           the context for the dispatcher
+     * @param eventInterceptors the interceptors that invoke the post commit hooks
+     * @param queueSize         maximum number of stored batches waiting for the hooks
+     * @param maxBatchesPerCall maximum number of stored batches passed to the hooks in one call
+     * @param overflowStrategy  action to take when the queue is full
+     * @param meterFactory      factory to create metrics meters
+     */
+    public PostCommitEventsDispatcher(String context,
+                                      EventInterceptors eventInterceptors,
+                                      int queueSize,
+                                      int maxBatchesPerCall,
+                                      OverflowStrategy overflowStrategy,
+                                      MeterFactory meterFactory) {
+        this.context = context;
+        this.eventInterceptors = eventInterceptors;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueSize));
+        this.maxBatchesPerCall = Math.max(1, maxBatchesPerCall);
+        this.overflowStrategy = overflowStrategy;
+        this.meterFactory = meterFactory;
+        Tags tags = Tags.of(MeterFactory.CONTEXT, context);
+        this.hookTimer = meterFactory.timer(BaseMetricName.AXON_POST_COMMIT_DURATION, tags);
+        this.dropped = meterFactory.counter(BaseMetricName.AXON_POST_COMMIT_DROPPED, tags);
+        this.queueGauge = meterFactory.gauge(BaseMetricName.AXON_POST_COMMIT_QUEUE_SIZE,
+                                             tags,
+                                             queue,
+                                             BlockingQueue::size);
+        this.executor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("post-commit-" + context
+                                                                                               + "-"));
+        this.executor.submit(this::run);
+    }
+
+    /**
+     * Adds a stored batch of events to the queue for the post commit hooks.
+     *
+     * @param events           the stored events
+     * @param executionContext the execution context of the append request
+     */
+    public void dispatch(List<Event> events, ExecutionContext executionContext) {
+        StoredBatch batch = new StoredBatch(events, executionContext);
+        if (queue.offer(batch)) {
+            return;
+        }
+        if (overflowStrategy == OverflowStrategy.BLOCK) {
+            try {
+                while (running) {
+                    if (queue.offer(batch, OFFER_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) {
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        dropped.increment();
+        logger.warn("{}: Post commit hooks queue full, {} events not passed to the post commit hooks",
+                    context, events.size());
+    }
+
+    private void run() {
+        List<StoredBatch> batches = new ArrayList<>(maxBatchesPerCall);
+        boolean stopped = false;
+        try {
+            while (!stopped) {
+                batches.add(queue.take());
+                queue.drainTo(batches, maxBatchesPerCall - 1);
+                int stop = batches.indexOf(STOP);
+                if (stop >= 0) {
+                    batches.subList(stop, batches.size()).clear();
+                    stopped = true;
+                }
+                invokeHooks(batches);
+                batches.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void invokeHooks(List<StoredBatch> batches) {
+        int start = 0;
+        while (start < batches.size()) {
+            ExecutionContext executionContext = batches.get(start).executionContext;
+            List<Event> events = new ArrayList<>(batches.get(start).events);
+            int next = start + 1;
+            while (next < batches.size() && batches.get(next).executionContext == executionContext) {
+                events.addAll(batches.get(next).events);
+                next++;
+            }
+            long before = System.nanoTime();
+            try {
+                eventInterceptors.interceptEventsPostCommit(events, executionContext);
+            } catch (Exception ex) {
+                logger.warn("{}: Post commit hooks failed for {} events", context, events.size(), ex);
+            } finally {
+                hookTimer.record(System.nanoTime() - before, TimeUnit.NANOSECONDS);
+            }
+            start = next;
+        }
+    }
+
+    /**
+     * Stops the thread invoking the hooks after it has passed the batches in the queue to the hooks, and unregisters
+     * the metrics. The thread is stopped by adding a marker to the end of the queue, when the marker cannot be added
+     * or the hooks do not complete in time the thread is interrupted.
+     */
+    public void close() {
+        running = false;
+        try {
+            if (!queue.offer(STOP, CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                    || !shutdown(executor)) {
+                logger.warn("{}: {} batches not passed to the post commit hooks", context, queue.size());
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        meterFactory.remove(hookTimer);
+        meterFactory.remove(dropped);
+        meterFactory.remove(queueGauge);
+    }
+
+    private static boolean shutdown(ExecutorService executor) throws InterruptedException {
+        executor.shutdown();
+        return executor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private static class StoredBatch {
+
+        private final List<Event> events;
+        private final ExecutionContext executionContext;
+
+        private StoredBatch(List<Event> events, ExecutionContext executionContext) {
+            this.events = events;
+            this.executionContext = executionContext;
+        }
+    }
+}
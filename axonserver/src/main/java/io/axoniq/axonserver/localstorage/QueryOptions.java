@@ -9,6 +9,9 @@
 
 package io.axoniq.axonserver.localstorage;
 
+import java.util.Collections;
+import java.util.Set;
+
 /**
  * Value object containing options to be used to pre-filter events for ad-hoc queries.
  *
@@ -20,6 +23,9 @@ public class QueryOptions {
     private final long minToken;
     private final long maxToken;
     private final long minTimestamp;
+    private final int parallelism;
+    private final Set<String> payloadTypes;
+    private final Set<String> aggregateTypes;
 
     /**
      * @param minToken     minumum token of events to process
@@ -27,9 +33,37 @@ public class QueryOptions {
      * @param minTimestamp minimum timestamp of events to process
      */
     public QueryOptions(long minToken, long maxToken, long minTimestamp) {
+        this(minToken, maxToken, minTimestamp, 1);
+    }
+
+    /**
+     * @param minToken     minumum token of events to process
+     * @param maxToken     maximum token of events to process
+     * @param minTimestamp minimum timestamp of events to process
+     * @param parallelism  maximum number of segments to scan in parallel, when larger than 1 the events are not
+     *                     processed in order
+     */
+    public QueryOptions(long minToken, long maxToken, long minTimestamp, int parallelism) {
+        this(minToken, maxToken, minTimestamp, parallelism, Collections.emptySet(), Collections.emptySet());
+    }
+
+    /**
+     * @param minToken       minumum token of events to process
+     * @param maxToken       maximum token of events to process
+     * @param minTimestamp   minimum timestamp of events to process
+     * @param parallelism    maximum number of segments to scan in parallel, when larger than 1 the events are not
+     *                       processed in order
+     * @param payloadTypes   payload types of the events to process, empty to process events with any payload type
+     * @param aggregateTypes aggregate types of the events to process, empty to process events with any aggregate type
+     */
+    public QueryOptions(long minToken, long maxToken, long minTimestamp, int parallelism, Set<String> payloadTypes,
+                        Set<String> aggregateTypes) {
         this.minToken = minToken;
         this.maxToken = maxToken;
         this.minTimestamp = minTimestamp;
+        this.parallelism = parallelism;
+        this.payloadTypes = payloadTypes;
+        this.aggregateTypes = aggregateTypes;
     }
 
     public long getMinToken() {
@@ -43,4 +77,27 @@ public class QueryOptions {
     public long getMinTimestamp() {
         return minTimestamp;
     }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public Set<String> getPayloadTypes() {
+        return payloadTypes;
+    }
+
+    public Set<String> getAggregateTypes() {
+        return aggregateTypes;
+    }
+
+    /**
+     * Checks if an event has one of the payload types and one of the aggregate types of these options.
+     *
+     * @param fields the fields of the event
+     * @return true if the event should be processed
+     */
+    public boolean matchesTypes(EventFields fields) {
+        return (payloadTypes.isEmpty() || payloadTypes.contains(fields.getPayloadType()))
+                && (aggregateTypes.isEmpty() || aggregateTypes.contains(fields.getAggregateType()));
+    }
 }
@@ -0,0 +1,166 @@
+/*
+ *  Copyright (c) 2017-2022 AxonIQ B.V. and/or licensed to AxonIQ B.V.
+ *  under one or more contributor license agreements.
+ *
+ *  Licensed under the AxonIQ Open Source License Agreement v1.0;
+ *  you may not use this file except in compliance with the license.
+ *
+ */
+
+
+package io.axoniq.axonserver.localstorage;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Summary of the contents of a single segment of an event store: the token range, the number of events, the minimum
+ * and maximum timestamp, the number of events per payload type and the aggregate types. Ad-hoc queries use the summary
+ * to skip segments that cannot contain matching events.
+ *
+ * @since 2023.0.0
+ */
+public class SegmentSummary {
+
+    private static final int VERSION = 1;
+
+    private final long segment;
+    private long nextToken;
+    private long eventCount;
+    private long minTimestamp = Long.MAX_VALUE;
+    private long maxTimestamp = Long.MIN_VALUE;
+    private final Map<String, Long> payloadTypes = new HashMap<>();
+    private final Set<String> aggregateTypes = new HashSet<>();
+
+    /**
+     * @param segment the first token in the segment
+     */
+    public SegmentSummary(long segment) {
+        this.segment = segment;
+        this.nextToken = segment;
+    }
+
+    /**
+     * Adds the next event in the segment to the summary. Events must be added in token order.
+     *
+     * @param token         the token of the event
+     * @param timestamp     the timestamp of the event
+     * @param payloadType   the payload type of the event
+     * @param aggregateType the aggregate type of the event, empty for events that are not domain events
+     */
+    public synchronized void add(long token, long timestamp, String payloadType, String aggregateType) {
+        if (token < nextToken) {
+            return;
+        }
+        minTimestamp = Math.min(minTimestamp, timestamp);
+        maxTimestamp = Math.max(maxTimestamp, timestamp);
+        payloadTypes.merge(payloadType, 1L, Long::sum);
+        aggregateTypes.add(aggregateType);
+        eventCount++;
+        nextToken = token + 1;
+    }
+
+    /**
+     * Checks if the segment may contain events with one of the given payload types and one of the given aggregate
+     * types. An empty set matches any type.
+     *
+     * @param payloadTypes   the payload types to check
+     * @param aggregateTypes the aggregate types to check
+     * @return false if the segment does not contain any matching event
+     */
+    public synchronized boolean mayContain(Set<String> payloadTypes, Set<String> aggregateTypes) {
+        return (payloadTypes.isEmpty() || payloadTypes.stream().anyMatch(this.payloadTypes::containsKey))
+                && (aggregateTypes.isEmpty() || aggregateTypes.stream().anyMatch(this.aggregateTypes::contains));
+    }
+
+    public long getSegment() {
+        return segment;
+    }
+
+    /**
+     * Returns the token following the last event added.
+     *
+     * @return the next token
+     */
+    public synchronized long getNextToken() {
+        return nextToken;
+    }
+
+    public synchronized long getEventCount() {
+        return eventCount;
+    }
+
+    public synchronized long getMinTimestamp() {
+        return minTimestamp;
+    }
+
+    public synchronized long getMaxTimestamp() {
+        return maxTimestamp;
+    }
+
+    public synchronized Map<String, Long> getPayloadTypes() {
+        return Collections.unmodifiableMap(new HashMap<>(payloadTypes));
+    }
+
+    public synchronized Set<String> getAggregateTypes() {
+        return Collections.unmodifiableSet(new HashSet<>(aggregateTypes));
+    }
+
+    /**
+     * Writes the summary to an output stream.
+     *
+     * @param output the output stream
+     * @throws IOException when writing fails
+     */
+    public synchronized void writeTo(DataOutputStream output) throws IOException {
+        output.writeByte(VERSION);
+        output.writeLong(segment);
+        output.writeLong(nextToken);
+        output.writeLong(eventCount);
+        output.writeLong(minTimestamp);
+        output.writeLong(maxTimestamp);
+        output.writeInt(payloadTypes.size());
+        for (Map.Entry<String, Long> payloadType : payloadTypes.entrySet()) {
+            output.writeUTF(payloadType.getKey());
+            output.writeLong(payloadType.getValue());
+        }
+        output.writeInt(aggregateTypes.size());
+        for (String aggregateType : aggregateTypes) {
+            output.writeUTF(aggregateType);
+        }
+    }
+
+    /**
+     * Reads a summary written by {@link #writeTo(DataOutputStream)}.
+     *
+     * @param input the input stream
+     * @return the summary
+     * @throws IOException when reading fails or the summary has an unsupported version
+     */
+    public static SegmentSummary readFrom(DataInputStream input) throws IOException {
+        int version = input.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported segment summary version: " + version);
+        }
+        SegmentSummary summary = new SegmentSummary(input.readLong());
+        summary.nextToken = input.readLong();
+        summary.eventCount = input.readLong();
+        summary.minTimestamp = input.readLong();
+        summary.maxTimestamp = input.readLong();
+        int payloadTypes = input.readInt();
+        for (int i = 0; i < payloadTypes; i++) {
+            summary.payloadTypes.put(input.readUTF(), input.readLong());
+        }
+        int aggregateTypes = input.readInt();
+        for (int i = 0; i < aggregateTypes; i++) {
+            summary.aggregateTypes.add(input.readUTF());
+        }
+        return summary;
+    }
+}
@@ -35,6 +35,7 @@ public class SerializedEvent {
 
     private final byte[] serializedData;
     private volatile Event event;
+    private volatile EventIndexFields indexFields;
 
     public SerializedEvent(Event event) {
         this.serializedData = event.toByteArray();
@@ -68,6 +69,18 @@ public class SerializedEvent {
         return event;
     }
 
+    /**
+     * Returns the fields needed to store the event, without parsing the complete event.
+     *
+     * @return the index fields of the event
+     */
+    public EventIndexFields indexFields() {
+        if (indexFields == null) {
+            indexFields = EventIndexFields.of(serializedData);
+        }
+        return indexFields;
+    }
+
     public int size() {
         return serializedData.length;
     }
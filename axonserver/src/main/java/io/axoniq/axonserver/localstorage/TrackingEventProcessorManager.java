@@ -12,29 +12,39 @@ package io.axoniq.axonserver.localstorage;
 import io.axoniq.axonserver.exception.ErrorCode;
 import io.axoniq.axonserver.exception.MessagingPlatformException;
 import io.axoniq.axonserver.grpc.event.PayloadDescription;
+import io.axoniq.axonserver.metric.BaseMetricName;
+import io.axoniq.axonserver.metric.MeterFactory;
 import io.axoniq.axonserver.util.StreamObserverUtils;
 import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.util.CloseableIterator;
 import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
-
-import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import java.util.function.LongSupplier;
 
 /**
  * Manages all tracking event processors for a single context.
+ * <p>
+ * Each tracker sends its events in a separate task on a bounded thread pool, so a slow client does not delay the
+ * other trackers. A tracker has at most one task queued or running at any time. A task sends at most
+ * {@value #MAX_EVENTS_PER_RUN} events before the tracker is queued again at the end of the pool's queue, giving other
+ * trackers a fair share of the threads.
  *
  * @author Marc Gathier
  * @since 4.1.2
@@ -44,88 +54,67 @@ public class TrackingEventProcessorManager {
     private static final int MAX_EVENTS_PER_RUN = 500;
     private static final Logger logger = LoggerFactory.getLogger(TrackingEventProcessorManager.class);
 
-    private final ScheduledExecutorService scheduledExecutorService;
+    private final ExecutorService executorService;
     private final Set<EventTracker> eventTrackerSet = ConcurrentHashMap.newKeySet();
-    private final AtomicBoolean replicationRunning = new AtomicBoolean();
     private final String context;
     private final Function<Long, CloseableIterator<SerializedEventWithToken>> iteratorBuilder;
+    private final LongSupplier lastTokenSupplier;
     private final int blacklistedSendAfter;
+    private final MeterFactory meterFactory;
+    private final AtomicLong trackerIds = new AtomicLong();
 
     /**
-     * Constructor for {@link TrackingEventProcessorManager}.
+     * Constructor for {@link TrackingEventProcessorManager} where trackers read recent events from a shared tail cache.
      * @param eventStorageEngine the event storage engine
      * @param blacklistedSendAfter max number of ignored events before sending next event
+     * @param tailCache cache containing the most recent transactions in the event store
+     * @param senderThreads number of threads used to send events to the trackers
+     * @param meterFactory factory to create metrics meters
      */
-    public TrackingEventProcessorManager(EventStorageEngine eventStorageEngine, int blacklistedSendAfter) {
-        this(eventStorageEngine.getType().getContext(), eventStorageEngine::getGlobalIterator, blacklistedSendAfter);
+    public TrackingEventProcessorManager(EventStorageEngine eventStorageEngine, int blacklistedSendAfter,
+                                         EventTailCache tailCache, int senderThreads, MeterFactory meterFactory) {
+        this(eventStorageEngine.getType().getContext(),
+             token -> tailCache.iterator(token, eventStorageEngine::getGlobalIterator),
+             eventStorageEngine::getLastToken,
+             blacklistedSendAfter,
+             senderThreads,
+             meterFactory);
     }
 
     /**
      * Constructor for {@link TrackingEventProcessorManager} for easier testing.
      * @param context the context for the storage engine
      * @param iteratorBuilder function that creates an event iterator
+     * @param lastTokenSupplier provides the last token in the event store
      * @param blacklistedSendAfter max number of ignored events before sending next event
+     * @param senderThreads number of threads used to send events to the trackers
+     * @param meterFactory factory to create metrics meters
      */
-    TrackingEventProcessorManager(String context, Function<Long, CloseableIterator<SerializedEventWithToken>> iteratorBuilder, int blacklistedSendAfter) {
+    TrackingEventProcessorManager(String context,
+                                  Function<Long, CloseableIterator<SerializedEventWithToken>> iteratorBuilder,
+                                  LongSupplier lastTokenSupplier,
+                                  int blacklistedSendAfter,
+                                  int senderThreads,
+                                  MeterFactory meterFactory) {
         this.context = context;
         this.iteratorBuilder = iteratorBuilder;
-        // Use 2 threads (one to send events and one to avoid queuing of reschedules.
-        this.scheduledExecutorService = Executors.newScheduledThreadPool(2, new CustomizableThreadFactory(
-                context + "-trackers-"));
+        this.lastTokenSupplier = lastTokenSupplier;
+        this.executorService = Executors.newFixedThreadPool(Math.max(1, senderThreads),
+                                                            new CustomizableThreadFactory(context + "-trackers-"));
         this.blacklistedSendAfter = blacklistedSendAfter;
+        this.meterFactory = meterFactory;
     }
 
-    /**
-     * Send events to all tracking event processors until there are no new events or no tracking event processors ready to
-     * receive events. If there are tracking event processors left after processing one run, it reschedules to try again
-     * after 100ms.
-     * Only one instance of this operation will run.
-     */
-    private void sendEvents() {
-        if (!replicationRunning.compareAndSet(false, true)) {
-            // it's fine, replication is already in progress
-            return;
-        }
+    private boolean submit(EventTracker eventTracker) {
         try {
-            int runsWithoutChanges = 0;
-            List<EventTracker> failedReplicators = new ArrayList<>();
-            while (runsWithoutChanges < 3) {
-                int sent = 0;
-                failedReplicators.clear();
-                for (EventTracker eventTracker : eventTrackerSet) {
-                    try {
-                        sent += eventTracker.sendNext();
-                    } catch (Throwable ex) {
-                        failedReplicators.add(eventTracker);
-                    }
-                }
-                if (!failedReplicators.isEmpty()) {
-                    logger.debug("{}: removing {} replicators",
-                                context,
-                                failedReplicators.size());
-                    eventTrackerSet.removeAll(failedReplicators);
-                    logger.debug("{}: {} replicators remaining",
-                                context,
-                                eventTrackerSet.size());
-                }
-
-                if (sent == 0) {
-                    runsWithoutChanges++;
-                } else {
-                    runsWithoutChanges = 0;
-                }
-            }
-        } finally {
-            replicationRunning.set(false);
-            if (!eventTrackerSet.isEmpty()) {
-                scheduledExecutorService.schedule(this::sendEvents,
-                                                  100,
-                                                  MILLISECONDS);
-            }
+            executorService.execute(eventTracker::run);
+            return true;
+        } catch (RejectedExecutionException shutdown) {
+            logger.debug("{}: tracker for {} not scheduled, manager is closed", context, eventTracker.client);
+            return false;
         }
     }
 
-
     /**
      * Creates a new event tracker.
      *
@@ -141,12 +130,11 @@ public class TrackingEventProcessorManager {
     }
 
     /**
-     * Starts the sendEvents operation if it is not running.
+     * Notifies the manager that new events are available. Schedules sending events for all trackers that have
+     * permits.
      */
     public void reschedule() {
-        if (!replicationRunning.get()) {
-            this.scheduledExecutorService.execute(this::sendEvents);
-        }
+        eventTrackerSet.forEach(EventTracker::markReady);
     }
 
     /**
@@ -171,12 +159,21 @@ public class TrackingEventProcessorManager {
         eventTrackerSet.forEach(t -> t.validateActiveConnection(minLastPermits));
     }
 
+    /**
+     * Returns the number of active trackers.
+     *
+     * @return the number of active trackers
+     */
+    int trackerCount() {
+        return eventTrackerSet.size();
+    }
+
     /**
      * Cleans up manager by stopping all tracking event processors and stopping the scheduling service.
      */
     public void close() {
         stopAll();
-        scheduledExecutorService.shutdown();
+        executorService.shutdown();
     }
 
     /**
@@ -202,7 +199,19 @@ public class TrackingEventProcessorManager {
         private volatile boolean running = true;
         private final Set<PayloadDescription> blacklistedTypes = new CopyOnWriteArraySet<>();
         private volatile int force = blacklistedSendAfter;
+        private volatile EventStreamFilter filter;
         private final boolean forceReadingFromLeader;
+        /**
+         * Set while a task to send events for this tracker is queued or running.
+         */
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        /**
+         * Set when the tracker is notified of new permits or new events while a task is queued or running.
+         */
+        private final AtomicBoolean pending = new AtomicBoolean();
+        private final Tags tags;
+        private final Timer sendTimer;
+        private final Gauge lagGauge;
 
         private EventTracker(long trackingToken, String clientId, boolean forceReadingFromLeader,
                              StreamObserver<SerializedEventWithToken> eventStream) {
@@ -211,6 +220,35 @@ public class TrackingEventProcessorManager {
             nextToken = new AtomicLong(trackingToken);
             this.eventStream = eventStream;
             this.forceReadingFromLeader = forceReadingFromLeader;
+            this.tags = Tags.of(MeterFactory.CONTEXT, context,
+                                "client", clientId,
+                                "tracker", String.valueOf(trackerIds.incrementAndGet()));
+            this.sendTimer = meterFactory.timer(BaseMetricName.AXON_TRACKER_SEND_TIME, tags);
+            this.lagGauge = meterFactory.gauge(BaseMetricName.AXON_TRACKER_LAG, tags, this, EventTracker::lag);
+        }
+
+        private double lag() {
+            return Math.max(0, lastTokenSupplier.getAsLong() + 1 - nextToken.get());
+        }
+
+        private void run() {
+            pending.set(false);
+            long before = System.nanoTime();
+            try {
+                if (sendNext() >= MAX_EVENTS_PER_RUN && submit(this)) {
+                    // more events available, keep the scheduled flag and continue at the end of the queue
+                    return;
+                }
+            } catch (Throwable ex) {
+                logger.debug("{}: removing tracker for {}", context, client);
+                close();
+            } finally {
+                sendTimer.record(System.nanoTime() - before, TimeUnit.NANOSECONDS);
+            }
+            scheduled.set(false);
+            if (pending.get()) {
+                markReady();
+            }
         }
 
         private int sendNext() {
@@ -239,12 +277,14 @@ public class TrackingEventProcessorManager {
                     } else {
                         force--;
                     }
+                    nextToken.set(next.getToken() + 1);
                     count++;
                 }
             } catch (IllegalStateException ex) {
                 // closed during iterating events
             } catch (Exception ex) {
-                running = false;
+                logger.debug("{}: removing tracker for {}", context, client, ex);
+                close();
                 sendError(ex);
             }
 
@@ -252,26 +292,45 @@ public class TrackingEventProcessorManager {
         }
 
         private boolean blacklisted(SerializedEventWithToken next) {
-            return force > 1 && !blacklistedTypes.isEmpty() && blacklistedTypes.contains(payloadType(next));
-        }
-
-        private PayloadDescription payloadType(SerializedEventWithToken next) {
-            return PayloadDescription.newBuilder().
-                    setRevision(next.asEvent().getPayload().getRevision()).setType(next.asEvent().getPayload().getType()).
-                    build();
+            EventStreamFilter activeFilter = filter;
+            if (force <= 1 || (blacklistedTypes.isEmpty() && activeFilter == null)) {
+                return false;
+            }
+            EventFields eventFields = EventFields.of(next.getSerializedEvent(),
+                                                     activeFilter != null && activeFilter.requiresMetaDataKeys());
+            return (activeFilter != null && !activeFilter.matches(eventFields))
+                    || (!blacklistedTypes.isEmpty() && blacklistedTypes.contains(eventFields.payloadDescription()));
         }
 
         private void sendError(Exception ex) {
             StreamObserverUtils.error(eventStream, ex);
         }
 
+        /**
+         * Schedules a task to send events for this tracker if it is started and has permits. If a task is already
+         * queued or running the task will check again for events when it is finished.
+         */
+        private void markReady() {
+            if (!running || permits.get() <= 0 || !eventTrackerSet.contains(this)) {
+                return;
+            }
+            pending.set(true);
+            if (scheduled.compareAndSet(false, true) && !submit(this)) {
+                scheduled.set(false);
+            }
+        }
+
         public void addPermits(int newPermits) {
             permits.addAndGet(newPermits);
-            reschedule();
+            markReady();
         }
 
         public void close() {
             running = false;
+            if (eventTrackerSet.remove(this)) {
+                meterFactory.remove(sendTimer);
+                meterFactory.remove(lagGauge);
+            }
             if (eventIterator != null) {
                 eventIterator.close();
                 eventIterator = null;
@@ -280,7 +339,7 @@ public class TrackingEventProcessorManager {
 
         public void start() {
             eventTrackerSet.add(this);
-            reschedule();
+            markReady();
         }
 
         public void stop() {
@@ -307,6 +366,16 @@ public class TrackingEventProcessorManager {
             }
         }
 
+        /**
+         * Sets a server-side filter for the events sent to this tracker. Events that do not match the filter are
+         * skipped in the same way as blacklisted events.
+         *
+         * @param filter the filter, {@code null} to send all events
+         */
+        public void setFilter(EventStreamFilter filter) {
+            this.filter = filter;
+        }
+
         public void addBlacklist(List<PayloadDescription> blacklistList) {
             if (logger.isDebugEnabled()) {
                 blacklistList.forEach(i -> logger.debug("{}: Blacklisting: {} for {}", context, i, client));
@@ -0,0 +1,159 @@
+/*
+ *  Copyright (c) 2017-2022 AxonIQ B.V. and/or licensed to AxonIQ B.V.
+ *  under one or more contributor license agreements.
+ *
+ *  Licensed under the AxonIQ Open Source License Agreement v1.0;
+ *  you may not use this file except in compliance with the license.
+ *
+ */
+
+package io.axoniq.axonserver.localstorage.file;
+
+import io.axoniq.axonserver.localstorage.SegmentSummary;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Snapshot of the in-memory index, timestamp index, summary and skip index of the active segment. Restoring the snapshot at
+ * startup avoids reading all events in the active segment to rebuild the index. Only the events from
+ * {@link #getNextToken()} onwards need to be read again.
+ *
+ * @since 2023.0.0
+ */
+public class ActiveSegmentSnapshot {
+
+    private static final int VERSION = 2;
+
+    private final long segment;
+    private final long nextToken;
+    private final Map<String, IndexEntries> entries;
+    private final SegmentTimestamps timestamps;
+    private final SegmentSummary summary;
+    private final SegmentSkipIndex skipIndex;
+
+    /**
+     * @param segment    the first token in the segment
+     * @param nextToken  the token following the last event that is guaranteed to be included in the snapshot
+     * @param entries    the index entries per aggregate
+     * @param timestamps the timestamp index of the segment
+     * @param summary    the summary of the segment
+     * @param skipIndex  the skip index of the segment
+     */
+    public ActiveSegmentSnapshot(long segment, long nextToken, Map<String, IndexEntries> entries,
+                                 SegmentTimestamps timestamps, SegmentSummary summary, SegmentSkipIndex skipIndex) {
+        this.segment = segment;
+        this.nextToken = nextToken;
+        this.entries = entries;
+        this.timestamps = timestamps;
+        this.summary = summary;
+        this.skipIndex = skipIndex;
+    }
+
+    public long getSegment() {
+        return segment;
+    }
+
+    public long getNextToken() {
+        return nextToken;
+    }
+
+    public Map<String, IndexEntries> getEntries() {
+        return entries;
+    }
+
+    public SegmentTimestamps getTimestamps() {
+        return timestamps;
+    }
+
+    public SegmentSummary getSummary() {
+        return summary;
+    }
+
+    public SegmentSkipIndex getSkipIndex() {
+        return skipIndex;
+    }
+
+    /**
+     * Returns a snapshot that only contains the index entries for events stored before the given position, and the
+     * skip index entries for transactions before the next token. The snapshot may contain entries for events after its
+     * next token, these are removed before the events are read again from the segment.
+     *
+     * @param position the position of the first event that is not included
+     * @return a snapshot with the index entries before the given position
+     */
+    public ActiveSegmentSnapshot truncate(int position) {
+        Map<String, IndexEntries> truncated = new HashMap<>();
+        entries.forEach((aggregateId, indexEntries) -> {
+            int[] positions = indexEntries.positionArray();
+            int count = 0;
+            while (count < positions.length && positions[count] < position) {
+                count++;
+            }
+            if (count > 0) {
+                truncated.put(aggregateId, new StandardIndexEntries(indexEntries.firstSequenceNumber(),
+                                                                    Arrays.copyOf(positions, count)));
+            }
+        });
+        return new ActiveSegmentSnapshot(segment,
+                                         nextToken,
+                                         truncated,
+                                         timestamps,
+                                         summary,
+                                         skipIndex.truncate(nextToken));
+    }
+
+    void writeTo(DataOutputStream output) throws IOException {
+        output.writeByte(VERSION);
+        output.writeLong(segment);
+        output.writeLong(nextToken);
+        output.writeInt(entries.size());
+        for (Map.Entry<String, IndexEntries> entry : entries.entrySet()) {
+            byte[] aggregateId = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            int[] positions = entry.getValue().positionArray();
+            output.writeInt(aggregateId.length);
+            output.write(aggregateId);
+            output.writeLong(entry.getValue().firstSequenceNumber());
+            output.writeInt(positions.length);
+            for (int position : positions) {
+                output.writeInt(position);
+            }
+        }
+        timestamps.writeTo(output);
+        summary.writeTo(output);
+        skipIndex.writeTo(output);
+    }
+
+    static ActiveSegmentSnapshot readFrom(DataInputStream input) throws IOException {
+        int version = input.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported active segment snapshot version: " + version);
+        }
+        long segment = input.readLong();
+        long nextToken = input.readLong();
+        int aggregates = input.readInt();
+        Map<String, IndexEntries> entries = new HashMap<>(aggregates * 4 / 3 + 1);
+        for (int i = 0; i < aggregates; i++) {
+            byte[] aggregateId = new byte[input.readInt()];
+            input.readFully(aggregateId);
+            long firstSequenceNumber = input.readLong();
+            int[] positions = new int[input.readInt()];
+            for (int p = 0; p < positions.length; p++) {
+                positions[p] = input.readInt();
+            }
+            entries.put(new String(aggregateId, StandardCharsets.UTF_8),
+                        new StandardIndexEntries(firstSequenceNumber, positions));
+        }
+        return new ActiveSegmentSnapshot(segment,
+                                         nextToken,
+                                         entries,
+                                         SegmentTimestamps.readFrom(input),
+                                         SegmentSummary.readFrom(input),
+                                         SegmentSkipIndex.readFrom(input));
+    }
+}
@@ -10,6 +10,7 @@
 package io.axoniq.axonserver.localstorage.file;
 
 import io.axoniq.axonserver.localstorage.SerializedEvent;
+import io.axoniq.axonserver.localstorage.file.SegmentSkipIndex.TransactionPosition;
 import io.axoniq.axonserver.localstorage.transformation.EventTransformer;
 import io.axoniq.axonserver.localstorage.transformation.EventTransformerFactory;
 
@@ -108,6 +109,17 @@ public class ByteBufferEventSource implements EventSource {
         return new EventByteBufferIterator(this, segment, startToken);
     }
 
+    @Override
+    public TransactionIterator createTransactionIterator(long segment, long token, boolean validating,
+                                                         TransactionPosition from) {
+        return new TransactionByteBufferIterator(this, segment, token, validating, from);
+    }
+
+    @Override
+    public EventIterator createEventIterator(long segment, long startToken, TransactionPosition from) {
+        return new EventByteBufferIterator(this, segment, startToken, from);
+    }
+
     public ByteBuffer getBuffer() {
         return buffer;
     }
@@ -118,7 +130,19 @@ public class ByteBufferEventSource implements EventSource {
 
     public void clean(long delay) {
         if (cleanerHack && main) {
-            CleanUtils.cleanDirectBuffer(getBuffer(), () -> duplicatesCount.get() == 0, delay, path);
+            CleanUtils.cleanDirectBuffer(buffer, () -> duplicatesCount.get() == 0, delay, path);
+        }
+    }
+
+    /**
+     * Unmaps the buffer once all duplicates are closed, regardless of the platform. Only to be used for buffers that
+     * are no longer handed out to readers.
+     *
+     * @param delay delay in seconds before the buffer is unmapped
+     */
+    public void release(long delay) {
+        if (main) {
+            CleanUtils.cleanDirectBuffer(buffer, () -> duplicatesCount.get() == 0, delay, path);
         }
     }
 
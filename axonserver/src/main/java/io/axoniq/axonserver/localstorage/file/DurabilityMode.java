@@ -0,0 +1,34 @@
+/*
+ *  Copyright (c) 2017-2022 AxonIQ B.V. and/or licensed to AxonIQ B.V.
+ *  under one or more contributor license agreements.
+ *
+ *  Licensed under the AxonIQ Open Source License Agreement v1.0;
+ *  you may not use this file except in compliance with the license.
+ *
+ */
+
+
+package io.axoniq.axonserver.localstorage.file;
+
+/**
+ * Defines when the {@link Synchronizer} confirms appended transactions to the writer, relative to forcing the segment
+ * data to disk.
+ *
+ * @since 2023.0.0
+ */
+public enum DurabilityMode {
+    /**
+     * Confirms transactions as soon as they are written to the memory mapped segment. The segment is forced to disk
+     * periodically, every force interval.
+     */
+    ASYNC,
+    /**
+     * Collects the transactions that are written to the memory mapped segment and confirms them after one force of the
+     * segment that is shared by all collected transactions.
+     */
+    GROUP_COMMIT,
+    /**
+     * Forces the segment to disk for every transaction before confirming it.
+     */
+    PER_TRANSACTION
+}
@@ -29,7 +29,11 @@ public class EmbeddedDBProperties {
 
     public EmbeddedDBProperties(SystemInfoProvider systemInfoProvider) {
         event = new StorageProperties(systemInfoProvider);
-        snapshot = new StorageProperties(systemInfoProvider, ".snapshots", ".sindex", ".sbloom", ".snindex", ".sxref");
+        snapshot = new StorageProperties(systemInfoProvider, ".snapshots", ".sindex", ".sbloom", ".snindex", ".sxref",
+                                         ".stindex", ".ssummary");
+        snapshot.setValidationSuffix(".svalid");
+        snapshot.setActiveIndexSuffix(".saindex");
+        snapshot.setSkipIndexSuffix(".sskip");
     }
 
     public StorageProperties getEvent() {
@@ -12,6 +12,7 @@ package io.axoniq.axonserver.localstorage.file;
 import io.axoniq.axonserver.exception.ErrorCode;
 import io.axoniq.axonserver.exception.MessagingPlatformException;
 import io.axoniq.axonserver.localstorage.SerializedEventWithToken;
+import io.axoniq.axonserver.localstorage.file.SegmentSkipIndex.TransactionPosition;
 
 import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
@@ -26,18 +27,35 @@ public class EventByteBufferIterator extends EventIterator {
 
 
     public EventByteBufferIterator(ByteBufferEventSource eventSource, long segment, long token) {
+        this(eventSource, segment, token, null);
+    }
+
+    /**
+     * @param eventSource the event source for the segment
+     * @param segment     the first token in the segment
+     * @param token       the token of the first event to return
+     * @param from        start of a transaction at or before {@code token}, or {@code null} to read from the start of
+     *                    the segment
+     */
+    public EventByteBufferIterator(ByteBufferEventSource eventSource, long segment, long token,
+                                   TransactionPosition from) {
         this.eventSource = eventSource;
         this.reader = eventSource.getBuffer();
         this.currentSequenceNumber = segment;
+        reader.position(5);
+        if (from != null && from.getToken() <= token) {
+            currentSequenceNumber = from.getToken();
+            reader.position(from.getPosition());
+        }
         forwardTo(token);
     }
 
     private void forwardTo(long firstSequence) {
-            reader.position(5);
             while (firstSequence > currentSequenceNumber) {
 
                 int size = reader.getInt();
                 if (size == -1 || size == 0) {
+                    reader.position(reader.position() - 4);
                     return;
                 }
                 reader.get(); // version
@@ -78,11 +96,13 @@ public class EventByteBufferIterator extends EventIterator {
     }
 
     protected boolean readTransaction() {
+            int start = reader.position();
             int size = reader.getInt();
             if (size == -1 || size == 0) {
                 reader.position(reader.position()-4);
                 return false;
             }
+            transactionStarted(currentSequenceNumber, start);
             reader.get(); // version
             short nrOfMessages = reader.getShort();
             for( int idx = 0; idx < nrOfMessages ; idx++) {
@@ -10,6 +10,7 @@
 package io.axoniq.axonserver.localstorage.file;
 
 import io.axoniq.axonserver.exception.MessagingPlatformException;
+import io.axoniq.axonserver.localstorage.file.SegmentSkipIndex.TransactionPosition;
 
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -24,6 +25,8 @@ public abstract class EventIterator implements Iterator<EventInformation>, AutoC
     protected long currentSequenceNumber;
     protected final List<EventInformation> eventsInTransaction = new LinkedList<>();
     private final AtomicBoolean closed = new AtomicBoolean();
+    private long transactionToken = -1;
+    private int transactionPosition;
 
     public void close() {
         closed.set(true);
@@ -57,27 +60,33 @@ public abstract class EventIterator implements Iterator<EventInformation>, AutoC
         return eventsInTransaction.remove(0);
     }
 
-    public List<EventInformation> pendingEvents() {
-        return eventsInTransaction;
+    /**
+     * Registers the start of the transaction that is read next.
+     *
+     * @param token    the token of the first event in the transaction
+     * @param position the position of the transaction in the segment
+     */
+    protected void transactionStarted(long token, int position) {
+        transactionToken = token;
+        transactionPosition = position;
     }
 
-    public Long getTokenAt(long instant) {
-        if (hasNext()) {
-            EventInformation event = next();
-            if (event.getEvent().getTimestamp() == instant) {
-                return event.getToken();
-            }
-            if (event.getEvent().getTimestamp() < instant) {
-                while (hasNext()) {
-                    event = next();
-                    if (event.getEvent().getTimestamp() >= instant) {
-                        return event.getToken();
-                    }
-                }
-                return event.getToken() + 1;
-            }
+    /**
+     * Returns the start of the transaction if the given event is the first event of a transaction read by this
+     * iterator.
+     *
+     * @param event an event returned by this iterator
+     * @return the start of the transaction or {@code null} if the event is not the first event of a transaction
+     */
+    public TransactionPosition transactionStart(EventInformation event) {
+        if (event.getToken() != transactionToken) {
+            return null;
         }
-        return null;
+        return new TransactionPosition(transactionToken, transactionPosition);
+    }
+
+    public List<EventInformation> pendingEvents() {
+        return eventsInTransaction;
     }
 
 }
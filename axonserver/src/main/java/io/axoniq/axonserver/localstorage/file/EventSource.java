@@ -10,6 +10,7 @@
 package io.axoniq.axonserver.localstorage.file;
 
 import io.axoniq.axonserver.localstorage.SerializedEvent;
+import io.axoniq.axonserver.localstorage.file.SegmentSkipIndex.TransactionPosition;
 
 /**
  * @author Marc Gathier
@@ -25,4 +26,34 @@ public interface EventSource extends AutoCloseable {
     TransactionIterator createTransactionIterator(long segment, long token, boolean validating);
 
     EventIterator createEventIterator(long segment, long startToken);
+
+    /**
+     * Creates a transaction iterator that starts reading at a known transaction start instead of at the start of the
+     * segment.
+     *
+     * @param segment    the first token in the segment
+     * @param token      the token of the first transaction to return
+     * @param validating flag to indicate if the checksums of the transactions must be checked
+     * @param from       start of a transaction at or before {@code token}, or {@code null} to read from the start of
+     *                   the segment
+     * @return the transaction iterator
+     */
+    default TransactionIterator createTransactionIterator(long segment, long token, boolean validating,
+                                                          TransactionPosition from) {
+        return createTransactionIterator(segment, token, validating);
+    }
+
+    /**
+     * Creates an event iterator that starts reading at a known transaction start instead of at the start of the
+     * segment.
+     *
+     * @param segment    the first token in the segment
+     * @param startToken the token of the first event to return
+     * @param from       start of a transaction at or before {@code startToken}, or {@code null} to read from the
+     *                   start of the segment
+     * @return the event iterator
+     */
+    default EventIterator createEventIterator(long segment, long startToken, TransactionPosition from) {
+        return createEventIterator(segment, startToken);
+    }
 }
@@ -0,0 +1,201 @@
+/*
+ *  Copyright (c) 2017-2022 AxonIQ B.V. and/or licensed to AxonIQ B.V.
+ *  under one or more contributor license agreements.
+ *
+ *  Licensed under the AxonIQ Open Source License Agreement v1.0;
+ *  you may not use this file except in compliance with the license.
+ *
+ */
+
+package io.axoniq.axonserver.localstorage.file;
+
+import io.axoniq.axonserver.util.DaemonThreadFactory;
+import org.mapdb.DB;
+import org.mapdb.DBException;
+import org.mapdb.DBMaker;
+import org.mapdb.HTreeMap;
+import org.mapdb.Serializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.LongStream;
+
+/**
+ * Global index for a storage engine, containing the segments that contain events for each aggregate. The index is
+ * stored in a MapDB file and updated when a segment is completed. When segments are missing in the global index on
+ * startup (for instance after an unclean shutdown or when the global index is enabled for an existing event store),
+ * the global index is rebuilt in the background from the segment indexes. Until it is complete, the global index is
+ * not used for lookups.
+ *
+ * @since 2023.0.0
+ */
+public class GlobalIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(GlobalIndex.class);
+    private static final String SEGMENTS_PER_AGGREGATE = "segmentsPerAggregate";
+    private static final String SEGMENTS = "segments";
+
+    private final String context;
+    private final Supplier<StorageProperties> storageProperties;
+    private DB db;
+    private HTreeMap<String, long[]> segmentsPerAggregate;
+    private NavigableSet<Long> segments;
+    private volatile boolean ready;
+
+    /**
+     * @param context           the context of the storage engine
+     * @param storageProperties storage engine configuration
+     */
+    public GlobalIndex(String context, Supplier<StorageProperties> storageProperties) {
+        this.context = context;
+        this.storageProperties = storageProperties;
+    }
+
+    /**
+     * Opens the global index and adds the completed segments that are not in the global index yet.
+     *
+     * @param completedSegments  the completed segments of the storage engine
+     * @param aggregateIdsReader function that reads the aggregate identifiers from the index of a completed segment
+     */
+    public synchronized void init(Collection<Long> completedSegments,
+                                  Function<Long, Collection<String>> aggregateIdsReader) {
+        open();
+        segments.retainAll(completedSegments);
+        SortedSet<Long> missing = new TreeSet<>(completedSegments);
+        missing.removeAll(segments);
+        if (missing.isEmpty()) {
+            ready = true;
+            return;
+        }
+        logger.info("{}: adding {} segments to global index", context, missing.size());
+        new DaemonThreadFactory("global-index-" + context).newThread(() -> rebuild(missing, aggregateIdsReader))
+                                                          .start();
+    }
+
+    private void rebuild(SortedSet<Long> missing, Function<Long, Collection<String>> aggregateIdsReader) {
+        try {
+            for (Long segment : missing) {
+                add(segment, aggregateIdsReader.apply(segment));
+            }
+            ready = true;
+            logger.info("{}: global index ready", context);
+        } catch (RuntimeException ex) {
+            logger.warn("{}: failed to build global index, lookups will use the segment indexes", context, ex);
+        }
+    }
+
+    private void open() {
+        File file = storageProperties.get().globalIndex(context);
+        try {
+            doOpen(file);
+        } catch (DBException ex) {
+            logger.warn("{}: global index {} is corrupt, rebuilding", context, file, ex);
+            FileUtils.delete(file);
+            doOpen(file);
+        }
+    }
+
+    private void doOpen(File file) {
+        StorageProperties properties = storageProperties.get();
+        DBMaker.Maker maker = DBMaker.fileDB(file);
+        if (properties.isUseMmapIndex()) {
+            maker.fileMmapEnable();
+            if (properties.isForceCleanMmapIndex()) {
+                maker.cleanerHackEnable();
+            }
+        } else {
+            maker.fileChannelEnable();
+        }
+        db = maker.make();
+        segmentsPerAggregate = db.hashMap(SEGMENTS_PER_AGGREGATE, Serializer.STRING, Serializer.LONG_ARRAY)
+                                 .createOrOpen();
+        segments = db.treeSet(SEGMENTS, Serializer.LONG).createOrOpen();
+    }
+
+    /**
+     * Adds the aggregates of a completed segment to the global index. Segments that are no longer in the global index
+     * are removed from the entries of the aggregates that are updated.
+     *
+     * @param segment      the segment number
+     * @param aggregateIds the aggregate identifiers in the segment
+     */
+    public synchronized void add(long segment, Collection<String> aggregateIds) {
+        if (db == null || db.isClosed()) {
+            return;
+        }
+        for (String aggregateId : aggregateIds) {
+            long[] current = segmentsPerAggregate.get(aggregateId);
+            if (current == null) {
+                segmentsPerAggregate.put(aggregateId, new long[]{segment});
+            } else if (Arrays.stream(current).noneMatch(s -> s == segment)) {
+                segmentsPerAggregate.put(aggregateId,
+                                         LongStream.concat(Arrays.stream(current).filter(segments::contains),
+                                                           LongStream.of(segment))
+                                                   .toArray());
+            }
+        }
+        segments.add(segment);
+    }
+
+    /**
+     * Returns the segments that contain events for an aggregate. The result may contain segments that have been
+     * removed.
+     *
+     * @param aggregateId the aggregate identifier
+     * @return the segments for the aggregate, or empty optional when the global index is not available
+     */
+    public Optional<long[]> segments(String aggregateId) {
+        if (!ready) {
+            return Optional.empty();
+        }
+        try {
+            long[] result = segmentsPerAggregate.get(aggregateId);
+            return Optional.of(result == null ? new long[0] : result);
+        } catch (RuntimeException ex) {
+            logger.debug("{}: global index not available", context, ex);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Removes a segment from the global index.
+     *
+     * @param segment the segment number
+     */
+    public synchronized void remove(long segment) {
+        if (db != null && !db.isClosed()) {
+            segments.remove(segment);
+        }
+    }
+
+    /**
+     * Stops using the global index for lookups, for instance when updating the global index failed.
+     */
+    public void disable() {
+        ready = false;
+    }
+
+    /**
+     * Closes the global index.
+     *
+     * @param delete flag to indicate that the global index file should be deleted
+     */
+    public synchronized void close(boolean delete) {
+        ready = false;
+        if (db != null && !db.isClosed()) {
+            db.close();
+        }
+        if (delete) {
+            FileUtils.delete(storageProperties.get().globalIndex(context));
+        }
+    }
+}
@@ -51,6 +51,13 @@ public interface IndexEntries {
      */
     List<Integer> positions();
 
+    /**
+     * Returns a copy of the positions of events within this segment, without boxing.
+     *
+     * @return the positions of events within this segment
+     */
+    int[] positionArray();
+
     /**
      * Returns the last position of an event.
      *
@@ -9,6 +9,9 @@
 
 package io.axoniq.axonserver.localstorage.file;
 
+import io.axoniq.axonserver.localstorage.SegmentSummary;
+
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -83,6 +86,25 @@ public interface IndexManager {
     SortedMap<Long, IndexEntries> lookupAggregate(String aggregateId, long firstSequenceNumber, long lastSequenceNumber,
                                                   long maxResults, long minToken);
 
+    /**
+     * Finds the locations of events for the given aggregate within range of sequence numbers specified, per segment
+     * in ascending segment order.
+     *
+     * @param aggregateId         the aggregate identifier
+     * @param firstSequenceNumber minimum sequence number for the events returned (inclusive)
+     * @param lastSequenceNumber  maximum sequence number for the events returned (exclusive)
+     * @param minToken            minimum token hint for the entries to return
+     * @return iterator of positions per segment
+     */
+    default Iterator<SegmentIndexEntries> lookupAggregateSegments(String aggregateId, long firstSequenceNumber,
+                                                                  long lastSequenceNumber, long minToken) {
+        return lookupAggregate(aggregateId, firstSequenceNumber, lastSequenceNumber, Long.MAX_VALUE, minToken)
+                .entrySet()
+                .stream()
+                .map(e -> new SegmentIndexEntries(e.getKey(), e.getValue()))
+                .iterator();
+    }
+
     /**
      * Stops index manager and optionally deletes all indexes.
      *
@@ -116,4 +138,103 @@ public interface IndexManager {
      * @param indexEntries list of index entries to add
      */
     void addToActiveSegment(Long segment, Map<String, List<IndexEntry>> indexEntries);
+
+    /**
+     * Adds the timestamps of a number of consecutive events to the timestamp index of an active segment.
+     *
+     * @param segment    the segment number
+     * @param firstToken the token of the first event
+     * @param timestamps the timestamps of the events
+     */
+    void addTimestamps(long segment, long firstToken, long[] timestamps);
+
+    /**
+     * Returns the timestamp index for a segment.
+     *
+     * @param segment the segment number
+     * @return the timestamp index or empty optional when there is no timestamp index for the segment
+     */
+    Optional<SegmentTimestamps> getTimestamps(long segment);
+
+    /**
+     * Stores the timestamp index for a completed segment that does not have a timestamp index yet.
+     *
+     * @param timestamps the timestamp index for the segment
+     */
+    void storeTimestamps(SegmentTimestamps timestamps);
+
+    /**
+     * Adds a number of consecutive events to the summary of an active segment.
+     *
+     * @param segment        the segment number
+     * @param firstToken     the token of the first event
+     * @param timestamps     the timestamps of the events
+     * @param payloadTypes   the payload types of the events
+     * @param aggregateTypes the aggregate types of the events
+     */
+    void addSummary(long segment, long firstToken, long[] timestamps, String[] payloadTypes, String[] aggregateTypes);
+
+    /**
+     * Returns the summary for a segment.
+     *
+     * @param segment the segment number
+     * @return the summary or empty optional when there is no summary for the segment
+     */
+    Optional<SegmentSummary> getSummary(long segment);
+
+    /**
+     * Stores the summary for a completed segment that does not have a summary yet.
+     *
+     * @param summary the summary for the segment
+     */
+    void storeSummary(SegmentSummary summary);
+
+    /**
+     * Adds the start of a transaction to the skip index of an active segment.
+     *
+     * @param segment  the segment number
+     * @param token    the token of the first event in the transaction
+     * @param position the position of the transaction in the data file
+     */
+    void addTransaction(long segment, long token, int position);
+
+    /**
+     * Returns the skip index for a segment.
+     *
+     * @param segment the segment number
+     * @return the skip index or empty optional when there is no skip index for the segment
+     */
+    Optional<SegmentSkipIndex> getSkipIndex(long segment);
+
+    /**
+     * Returns the validation checkpoint for a segment.
+     *
+     * @param segment the segment number
+     * @return the checkpoint or empty optional when the segment has not been validated before
+     */
+    Optional<ValidationCheckpoint> getValidationCheckpoint(long segment);
+
+    /**
+     * Stores the validation checkpoint for a completed segment.
+     *
+     * @param checkpoint the checkpoint for the segment
+     */
+    void storeValidationCheckpoint(ValidationCheckpoint checkpoint);
+
+    /**
+     * Creates a snapshot of the index, timestamp index, summary and skip index of an active segment. The snapshot contains at
+     * least the entries for all events before {@code nextToken}, and possibly entries for later events.
+     *
+     * @param segment   the segment number
+     * @param nextToken the token following the last event that must be included in the snapshot
+     * @return the snapshot or empty optional when the segment is not active
+     */
+    Optional<ActiveSegmentSnapshot> snapshotActiveSegment(long segment, long nextToken);
+
+    /**
+     * Restores the index, timestamp index, summary and skip index of an active segment from a snapshot.
+     *
+     * @param snapshot the snapshot of the active segment
+     */
+    void restoreActiveSegment(ActiveSegmentSnapshot snapshot);
 }
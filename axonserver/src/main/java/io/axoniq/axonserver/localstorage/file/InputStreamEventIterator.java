@@ -12,6 +12,7 @@ package io.axoniq.axonserver.localstorage.file;
 import io.axoniq.axonserver.exception.ErrorCode;
 import io.axoniq.axonserver.exception.MessagingPlatformException;
 import io.axoniq.axonserver.localstorage.SerializedEventWithToken;
+import io.axoniq.axonserver.localstorage.file.SegmentSkipIndex.TransactionPosition;
 
 import java.io.IOException;
 
@@ -24,10 +25,26 @@ public class InputStreamEventIterator extends EventIterator {
     private final PositionKeepingDataInputStream reader;
 
     public InputStreamEventIterator(InputStreamEventSource eventSource, long segment, long start) {
+        this(eventSource, segment, start, null);
+    }
+
+    /**
+     * @param eventSource the event source for the segment
+     * @param segment     the first token in the segment
+     * @param start       the token of the first event to return
+     * @param from        start of a transaction at or before {@code start}, or {@code null} to read from the start of
+     *                    the segment
+     */
+    public InputStreamEventIterator(InputStreamEventSource eventSource, long segment, long start,
+                                    TransactionPosition from) {
         reader = eventSource.getStream();
         this.eventSource = eventSource;
         currentSequenceNumber = segment;
         try {
+            if (from != null && from.getToken() <= start) {
+                currentSequenceNumber = from.getToken();
+                reader.position(from.getPosition());
+            }
             forwardTo(start);
         } catch (IOException e) {
             throw new MessagingPlatformException(ErrorCode.DATAFILE_READ_ERROR, e.getMessage(), e);
@@ -75,10 +92,12 @@ public class InputStreamEventIterator extends EventIterator {
 
     protected boolean readTransaction() {
         try {
+            int start = reader.position();
             int size = reader.readInt();
             if (size == -1 || size == 0) {
                 return false;
             }
+            transactionStarted(currentSequenceNumber, start);
             processVersion(reader);
             short nrOfMessages = reader.readShort();
             for (int idx = 0; idx < nrOfMessages; idx++) {
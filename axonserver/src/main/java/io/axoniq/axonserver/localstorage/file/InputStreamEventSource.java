@@ -12,6 +12,7 @@ package io.axoniq.axonserver.localstorage.file;
 import io.axoniq.axonserver.exception.ErrorCode;
 import io.axoniq.axonserver.exception.MessagingPlatformException;
 import io.axoniq.axonserver.localstorage.SerializedEvent;
+import io.axoniq.axonserver.localstorage.file.SegmentSkipIndex.TransactionPosition;
 import io.axoniq.axonserver.localstorage.transformation.EventTransformer;
 import io.axoniq.axonserver.localstorage.transformation.EventTransformerFactory;
 import org.slf4j.Logger;
@@ -70,6 +71,17 @@ public class InputStreamEventSource implements EventSource {
         return new InputStreamEventIterator(this, segment, startToken);
     }
 
+    @Override
+    public TransactionIterator createTransactionIterator(long segment, long token, boolean validating,
+                                                         TransactionPosition from) {
+        return new InputStreamTransactionIterator(this, segment, token, validating, from);
+    }
+
+    @Override
+    public EventIterator createEventIterator(long segment, long startToken, TransactionPosition from) {
+        return new InputStreamEventIterator(this, segment, startToken, from);
+    }
+
     public PositionKeepingDataInputStream getStream() {
         return dataInputStream;
     }
@@ -15,7 +15,15 @@ import io.axoniq.axonserver.localstorage.EventTypeContext;
 import io.axoniq.axonserver.localstorage.transformation.EventTransformerFactory;
 import io.axoniq.axonserver.metric.MeterFactory;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
 import java.util.SortedSet;
 import java.util.concurrent.ConcurrentSkipListSet;
@@ -31,6 +39,7 @@ public class InputStreamEventStore extends SegmentBasedEventStore implements Rea
 
     private final SortedSet<Long> segments = new ConcurrentSkipListSet<>(Comparator.reverseOrder());
     private final EventTransformerFactory eventTransformerFactory;
+    private final Map<Long, ByteBufferEventSource> mappedSegments = new LinkedHashMap<>(16, 0.75f, true);
 
     public InputStreamEventStore(EventTypeContext context, IndexManager indexManager,
                                  EventTransformerFactory eventTransformerFactory,
@@ -60,6 +69,10 @@ public class InputStreamEventStore extends SegmentBasedEventStore implements Rea
 
     @Override
     public void close(boolean deleteData) {
+        synchronized (mappedSegments) {
+            mappedSegments.values().forEach(this::unmap);
+            mappedSegments.clear();
+        }
         if (deleteData) {
             segments.forEach(this::removeSegment);
         }
@@ -68,6 +81,12 @@ public class InputStreamEventStore extends SegmentBasedEventStore implements Rea
 
     private void removeSegment(long segment) {
         StorageProperties storageProperties = storagePropertiesSupplier.get();
+        synchronized (mappedSegments) {
+            ByteBufferEventSource mapped = mappedSegments.remove(segment);
+            if (mapped != null) {
+                unmap(mapped);
+            }
+        }
         if (segments.remove(segment) && (!FileUtils.delete(storageProperties.dataFile(context, segment)) ||
                 !indexManager.remove(segment))) {
             throw new MessagingPlatformException(ErrorCode.DATAFILE_WRITE_ERROR,
@@ -79,6 +98,10 @@ public class InputStreamEventStore extends SegmentBasedEventStore implements Rea
     @Override
     public Optional<EventSource> getEventSource(long segment) {
         logger.debug("Get eventsource: {}", segment);
+        StorageProperties storageProperties = storagePropertiesSupplier.get();
+        if (storageProperties.isMemoryMapCompletedSegments() && storageProperties.getMemoryMappedSegments() > 0) {
+            return segments.contains(segment) ? Optional.of(mapped(segment, storageProperties)) : Optional.empty();
+        }
         InputStreamEventSource eventSource = get(segment, false);
         logger.trace("result={}", eventSource);
         if (eventSource == null) {
@@ -92,6 +115,45 @@ public class InputStreamEventStore extends SegmentBasedEventStore implements Rea
         return segments;
     }
 
+    /**
+     * Returns a duplicate of the memory mapped buffer for a segment. Keeps the most recently used segments mapped, up
+     * to the configured number of memory mapped segments. When a segment is removed from the mapped segments, its
+     * buffer is unmapped once all duplicates are closed.
+     */
+    private ByteBufferEventSource mapped(long segment, StorageProperties storageProperties) {
+        synchronized (mappedSegments) {
+            ByteBufferEventSource eventSource = mappedSegments.get(segment);
+            if (eventSource == null) {
+                eventSource = map(segment, storageProperties);
+                mappedSegments.put(segment, eventSource);
+                Iterator<ByteBufferEventSource> iterator = mappedSegments.values().iterator();
+                while (mappedSegments.size() > storageProperties.getMemoryMappedSegments()) {
+                    unmap(iterator.next());
+                    iterator.remove();
+                }
+            }
+            return eventSource.duplicate();
+        }
+    }
+
+    private ByteBufferEventSource map(long segment, StorageProperties storageProperties) {
+        File file = storageProperties.dataFile(context, segment);
+        try (FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            fileOpenMeter.increment();
+            MappedByteBuffer buffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size());
+            return new ByteBufferEventSource(file.getAbsolutePath(), buffer, eventTransformerFactory,
+                                             storageProperties);
+        } catch (IOException ioException) {
+            throw new MessagingPlatformException(ErrorCode.DATAFILE_READ_ERROR,
+                                                 "Failed to open segment: " + segment,
+                                                 ioException);
+        }
+    }
+
+    private void unmap(ByteBufferEventSource eventSource) {
+        eventSource.release(storagePropertiesSupplier.get().getSecondaryCleanupDelay());
+    }
+
     private InputStreamEventSource get(long segment, boolean force) {
         if (!force && !segments.contains(segment)) {
             return null;
@@ -14,6 +14,7 @@ import io.axoniq.axonserver.exception.EventStoreValidationException;
 import io.axoniq.axonserver.exception.MessagingPlatformException;
 import io.axoniq.axonserver.localstorage.SerializedEvent;
 import io.axoniq.axonserver.localstorage.SerializedTransactionWithToken;
+import io.axoniq.axonserver.localstorage.file.SegmentSkipIndex.TransactionPosition;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -32,11 +33,28 @@ public class InputStreamTransactionIterator implements TransactionIterator {
     private SerializedTransactionWithToken next;
 
     public InputStreamTransactionIterator(InputStreamEventSource eventSource, long segment, long start, boolean validating) {
+        this(eventSource, segment, start, validating, null);
+    }
+
+    /**
+     * @param eventSource the event source for the segment
+     * @param segment     the first token in the segment
+     * @param start       the token of the first transaction to return
+     * @param validating  flag to indicate if the checksums of the transactions must be checked
+     * @param from        start of a transaction at or before {@code start}, or {@code null} to read from the start of
+     *                    the segment
+     */
+    public InputStreamTransactionIterator(InputStreamEventSource eventSource, long segment, long start,
+                                          boolean validating, TransactionPosition from) {
         this.eventSource = eventSource;
         this.reader = eventSource.getStream();
         this.currentSequenceNumber = segment;
         this.validating = validating;
         try {
+            if (from != null && from.getToken() <= start) {
+                currentSequenceNumber = from.getToken();
+                reader.position(from.getPosition());
+            }
             forwardTo(start);
         } catch (IOException e) {
             throw new MessagingPlatformException(ErrorCode.DATAFILE_READ_ERROR, e.getMessage(), e);
@@ -0,0 +1,228 @@
+/*
+ *  Copyright (c) 2017-2022 AxonIQ B.V. and/or licensed to AxonIQ B.V.
+ *  under one or more contributor license agreements.
+ *
+ *  Licensed under the AxonIQ Open Source License Agreement v1.0;
+ *  you may not use this file except in compliance with the license.
+ *
+ */
+
+package io.axoniq.axonserver.localstorage.file;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import javax.annotation.Nonnull;
+
+/**
+ * Append-only list of primitive int values. Values are stored in a chain of {@code int[]} chunks that double in size,
+ * so appending never copies existing values and no value is boxed. A single writer at a time may append values,
+ * readers can access the list concurrently without locking and see all values up to the published size.
+ *
+ * @since 2023.0.0
+ */
+public class IntAppendOnlyList {
+
+    private static final int FIRST_CHUNK_SIZE = 4;
+    private static final int MAX_CHUNK_SIZE = 8192;
+    private static final int[][] NO_CHUNKS = new int[0][];
+
+    private volatile int[][] chunks;
+    private volatile int size;
+    private int usedInLastChunk;
+
+    /**
+     * Creates a list containing the given values.
+     *
+     * @param values the initial values
+     */
+    public IntAppendOnlyList(int[] values) {
+        if (values.length == 0) {
+            chunks = NO_CHUNKS;
+        } else {
+            chunks = new int[][]{values.clone()};
+            usedInLastChunk = values.length;
+        }
+        size = values.length;
+    }
+
+    /**
+     * @return the number of values in the list
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true if the list contains no values
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the value at the given index.
+     *
+     * @param index the index of the value
+     * @return the value at the given index
+     */
+    public int get(int index) {
+        int currentSize = size;
+        if (index < 0 || index >= currentSize) {
+            throw new IndexOutOfBoundsException(String.format("%d: index out of bounds [0..%d]",
+                                                              index,
+                                                              currentSize - 1));
+        }
+        for (int[] chunk : chunks) {
+            if (index < chunk.length) {
+                return chunk[index];
+            }
+            index -= chunk.length;
+        }
+        throw new IllegalStateException("Value at index " + index + " not found");
+    }
+
+    /**
+     * @return the last value in the list
+     * @throws NoSuchElementException when the list is empty
+     */
+    public int last() {
+        int currentSize = size;
+        if (currentSize == 0) {
+            throw new NoSuchElementException("List is empty");
+        }
+        return get(currentSize - 1);
+    }
+
+    /**
+     * Appends a value to the list.
+     *
+     * @param value the value to append
+     */
+    public synchronized void add(int value) {
+        int[] chunk = writableChunk();
+        chunk[usedInLastChunk++] = value;
+        size = size + 1;
+    }
+
+    /**
+     * Appends a number of values to the list. Readers see the values once all values are appended.
+     *
+     * @param values the values to append
+     */
+    public synchronized void addAll(int[] values) {
+        for (int value : values) {
+            int[] chunk = writableChunk();
+            chunk[usedInLastChunk++] = value;
+        }
+        size = size + values.length;
+    }
+
+    private int[] writableChunk() {
+        int[][] current = chunks;
+        if (current.length > 0 && usedInLastChunk < current[current.length - 1].length) {
+            return current[current.length - 1];
+        }
+        int chunkSize = current.length == 0 ?
+                FIRST_CHUNK_SIZE :
+                Math.min(MAX_CHUNK_SIZE, Math.max(FIRST_CHUNK_SIZE, current[current.length - 1].length * 2));
+        int[][] extended = Arrays.copyOf(current, current.length + 1);
+        extended[current.length] = new int[chunkSize];
+        chunks = extended;
+        usedInLastChunk = 0;
+        return extended[current.length];
+    }
+
+    /**
+     * Returns a copy of the values in the list.
+     *
+     * @return an array containing the values in the list
+     */
+    public int[] toArray() {
+        int currentSize = size;
+        int[] result = new int[currentSize];
+        int copied = 0;
+        for (int[] chunk : chunks) {
+            if (copied == currentSize) {
+                break;
+            }
+            int length = Math.min(chunk.length, currentSize - copied);
+            System.arraycopy(chunk, 0, result, copied, length);
+            copied += length;
+        }
+        return result;
+    }
+
+    /**
+     * Returns a read-only {@link List} view of the values in the list at the time of the call. Values appended later
+     * are not included in the view.
+     *
+     * @return a read-only view of the values
+     */
+    public List<Integer> asList() {
+        return new ListView(size, chunks);
+    }
+
+    private static class ListView extends AbstractList<Integer> implements RandomAccess {
+
+        private final int size;
+        private final int[][] chunks;
+
+        private ListView(int size, int[][] chunks) {
+            this.size = size;
+            this.chunks = chunks;
+        }
+
+        @Override
+        public Integer get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException(String.format("%d: index out of bounds [0..%d]",
+                                                                  index,
+                                                                  size - 1));
+            }
+            for (int[] chunk : chunks) {
+                if (index < chunk.length) {
+                    return chunk[index];
+                }
+                index -= chunk.length;
+            }
+            throw new IllegalStateException("Value at index " + index + " not found");
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Nonnull
+        @Override
+        public Iterator<Integer> iterator() {
+            return new Iterator<Integer>() {
+                private int count;
+                private int chunk;
+                private int index;
+
+                @Override
+                public boolean hasNext() {
+                    return count < size;
+                }
+
+                @Override
+                public Integer next() {
+                    if (count >= size) {
+                        throw new NoSuchElementException();
+                    }
+                    while (index == chunks[chunk].length) {
+                        chunk++;
+                        index = 0;
+                    }
+                    count++;
+                    return chunks[chunk][index++];
+                }
+            };
+        }
+    }
+}
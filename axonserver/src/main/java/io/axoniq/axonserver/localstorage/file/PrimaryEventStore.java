@@ -9,32 +9,46 @@
 
 package io.axoniq.axonserver.localstorage.file;
 
+import com.google.common.primitives.Longs;
 import io.axoniq.axonserver.config.FileSystemMonitor;
 import io.axoniq.axonserver.exception.ErrorCode;
 import io.axoniq.axonserver.exception.MessagingPlatformException;
 import io.axoniq.axonserver.grpc.event.Event;
 import io.axoniq.axonserver.localstorage.EventTypeContext;
+import io.axoniq.axonserver.localstorage.SerializedEvent;
 import io.axoniq.axonserver.localstorage.SerializedEventWithToken;
 import io.axoniq.axonserver.localstorage.StorageCallback;
+import io.axoniq.axonserver.localstorage.file.SegmentSkipIndex.TransactionPosition;
 import io.axoniq.axonserver.localstorage.transformation.EventTransformer;
 import io.axoniq.axonserver.localstorage.transformation.EventTransformerFactory;
 import io.axoniq.axonserver.localstorage.transformation.ProcessedEvent;
+import io.axoniq.axonserver.localstorage.transformation.SerializedProcessedEvent;
 import io.axoniq.axonserver.localstorage.transformation.WrappedEvent;
+import io.axoniq.axonserver.metric.BaseMetricName;
 import io.axoniq.axonserver.metric.MeterFactory;
+import io.axoniq.axonserver.util.DaemonThreadFactory;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.util.CloseableIterator;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.NavigableSet;
@@ -43,6 +57,9 @@ import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentNavigableMap;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
@@ -63,15 +80,24 @@ public class PrimaryEventStore extends SegmentBasedEventStore {
 
     protected static final Logger logger = LoggerFactory.getLogger(PrimaryEventStore.class);
     public static final int MAX_EVENTS_PER_BLOCK = Short.MAX_VALUE;
+    private static final int PAGE_SIZE = 4096;
+    private static final ExecutorService preallocateExecutor = Executors.newCachedThreadPool(
+            new DaemonThreadFactory("segment-preallocate-"));
 
     protected final EventTransformerFactory eventTransformerFactory;
     protected final Synchronizer synchronizer;
     protected final AtomicReference<WritePosition> writePositionRef = new AtomicReference<>();
     protected final AtomicLong lastToken = new AtomicLong(-1);
+    private final AtomicLong lastSnapshotToken = new AtomicLong(-1);
     //
     protected final ConcurrentNavigableMap<Long, ByteBufferEventSource> readBuffers = new ConcurrentSkipListMap<>();
     protected EventTransformer eventTransformer;
     protected final FileSystemMonitor fileSystemMonitor;
+    private final AtomicReference<CompletableFuture<PreallocatedSegment>> preallocatedSegment = new AtomicReference<>();
+    private final Timer rolloverTimer;
+    private final Timer completionTimer;
+    private final Gauge completionBacklog;
+    private final MeterFactory meterFactory;
 
     /**
      * @param context                   the context and the content type (events or snapshots)
@@ -109,7 +135,18 @@ public class PrimaryEventStore extends SegmentBasedEventStore {
         super(context, indexManager, storagePropertiesSupplier, completedSegmentsHandler, meterFactory);
         this.eventTransformerFactory = eventTransformerFactory;
         this.fileSystemMonitor = fileSystemMonitor;
-        synchronizer = new Synchronizer(context, storagePropertiesSupplier.get(), this::completeSegment);
+        synchronizer = new Synchronizer(context,
+                                        storagePropertiesSupplier.get(),
+                                        this::completeSegment,
+                                        this::snapshotActiveSegment);
+        this.meterFactory = meterFactory;
+        Tags tags = Tags.of(MeterFactory.CONTEXT, context.getContext(), "type", context.getEventType().name());
+        this.rolloverTimer = meterFactory.timer(BaseMetricName.AXON_SEGMENT_ROLLOVER, tags);
+        this.completionTimer = meterFactory.timer(BaseMetricName.AXON_SEGMENT_COMPLETION, tags);
+        this.completionBacklog = meterFactory.gauge(BaseMetricName.AXON_SEGMENT_COMPLETION_BACKLOG,
+                                                    tags,
+                                                    synchronizer,
+                                                    Synchronizer::pendingSegments);
     }
 
     @Override
@@ -119,6 +156,7 @@ public class PrimaryEventStore extends SegmentBasedEventStore {
         FileUtils.checkCreateDirectory(storageDir);
         indexManager.init();
         eventTransformer = eventTransformerFactory.get(storageProperties.getFlags());
+        FileUtils.delete(storageProperties.preallocatedDataFile(context));
         initLatestSegment(lastInitialized, Long.MAX_VALUE, storageDir, defaultFirstIndex, storageProperties);
 
         fileSystemMonitor.registerPath(storeName(), storageDir.toPath());
@@ -132,24 +170,61 @@ public class PrimaryEventStore extends SegmentBasedEventStore {
         if (next != null) {
             next.initSegments(first);
         }
+        deleteActiveIndexSnapshots(storageDir, first, storageProperties);
         WritableEventSource buffer = getOrOpenDatafile(first, storageProperties.getSegmentSize(), false);
+        ActiveSegmentSnapshot snapshot = nextToken == Long.MAX_VALUE ?
+                readActiveIndexSnapshot(first, storageProperties) : null;
         indexManager.remove(first);
-        long sequence = first;
-        Map<String, List<IndexEntry>> loadedEntries = new HashMap<>();
-        try (EventByteBufferIterator iterator = new EventByteBufferIterator(buffer, first, first)) {
-            while (sequence < nextToken && iterator.hasNext()) {
+        ActiveSegmentEvents events = null;
+        if (snapshot != null) {
+            events = readActiveSegment(buffer, first, snapshot.getNextToken(), nextToken);
+            if (events.nextToken < snapshot.getNextToken()
+                    || snapshot.getTimestamps().getNextToken() > events.nextToken
+                    || snapshot.getSummary().getNextToken() > events.nextToken) {
+                logger.warn("{}: snapshot of the index of segment {} does not match the segment, rebuilding the index",
+                            context, first);
+                events = null;
+            } else {
+                lastSnapshotToken.set(snapshot.getNextToken());
+                indexManager.restoreActiveSegment(snapshot.truncate(events.firstPosition));
+                logger.info("{}: restored index of segment {} from snapshot, read {} events",
+                            context, first, events.timestamps.size());
+            }
+        }
+        if (events == null) {
+            events = readActiveSegment(buffer, first, first, nextToken);
+        }
+        lastToken.set(events.nextToken - 1);
+
+        indexManager.addToActiveSegment(first, events.entries);
+        for (TransactionPosition transactionStart : events.transactionStarts) {
+            indexManager.addTransaction(first, transactionStart.getToken(), transactionStart.getPosition());
+        }
+        indexManager.addTimestamps(first, events.firstToken, Longs.toArray(events.timestamps));
+        indexManager.addSummary(first,
+                                events.firstToken,
+                                Longs.toArray(events.timestamps),
+                                events.payloadTypes.toArray(new String[0]),
+                                events.aggregateTypes.toArray(new String[0]));
+
+        buffer.putInt(buffer.position(), 0);
+        WritePosition writePosition = new WritePosition(events.nextToken, buffer.position(), buffer, first, 0);
+        writePositionRef.set(writePosition);
+        synchronizer.init(writePosition);
+    }
+
+    private ActiveSegmentEvents readActiveSegment(WritableEventSource buffer, long segment, long firstToken,
+                                                  long nextToken) {
+        try (EventByteBufferIterator iterator = new EventByteBufferIterator(buffer, segment, firstToken)) {
+            ActiveSegmentEvents events = new ActiveSegmentEvents(firstToken);
+            events.nextToken = Math.min(firstToken, iterator.currentSequenceNumber);
+            while (events.nextToken < nextToken && iterator.hasNext()) {
                 EventInformation event = iterator.next();
-                if (event.isDomainEvent()) {
-                    IndexEntry indexEntry = new IndexEntry(
-                            event.getEvent().getAggregateSequenceNumber(),
-                            event.getPosition(),
-                            sequence
-                    );
-                    loadedEntries.computeIfAbsent(event.getEvent().getAggregateIdentifier(),
-                                                  aggregateId -> new LinkedList<>())
-                                 .add(indexEntry);
+                TransactionPosition transactionStart = iterator.transactionStart(event);
+                if (transactionStart != null) {
+                    events.transactionStarts.add(transactionStart);
                 }
-                sequence++;
+                events.add(event);
             }
             List<EventInformation> pendingEvents = iterator.pendingEvents();
             if (!pendingEvents.isEmpty()) {
@@ -158,28 +233,71 @@ public class PrimaryEventStore extends SegmentBasedEventStore {
                         nextToken,
                         pendingEvents.size());
                 for (EventInformation event : pendingEvents) {
-                    if (event.isDomainEvent()) {
-                        IndexEntry indexEntry = new IndexEntry(
-                                event.getEvent().getAggregateSequenceNumber(),
-                                event.getPosition(),
-                                sequence
-                        );
-                        loadedEntries.computeIfAbsent(event.getEvent().getAggregateIdentifier(),
-                                                      aggregateId -> new LinkedList<>())
-                                     .add(indexEntry);
-                    }
-                    sequence++;
+                    events.add(event);
                 }
             }
-            lastToken.set(sequence - 1);
+            if (events.firstPosition < 0) {
+                events.firstPosition = buffer.position();
+            }
+            return events;
         }
+    }
 
-        indexManager.addToActiveSegment(first, loadedEntries);
+    private ActiveSegmentSnapshot readActiveIndexSnapshot(long segment, StorageProperties storageProperties) {
+        File file = storageProperties.activeIndex(context, segment);
+        if (!file.exists()) {
+            return null;
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(file.toPath())))) {
+            ActiveSegmentSnapshot snapshot = ActiveSegmentSnapshot.readFrom(input);
+            return snapshot.getSegment() == segment && snapshot.getNextToken() > segment ? snapshot : null;
+        } catch (IOException e) {
+            logger.warn("{}: failed to read snapshot of the index of segment {}", context, segment, e);
+            return null;
+        }
+    }
 
-        buffer.putInt(buffer.position(), 0);
-        WritePosition writePosition = new WritePosition(sequence, buffer.position(), buffer, first, 0);
-        writePositionRef.set(writePosition);
-        synchronizer.init(writePosition);
+    private void deleteActiveIndexSnapshots(File storageDir, long activeSegment,
+                                            StorageProperties storageProperties) {
+        String suffix = storageProperties.getActiveIndexSuffix();
+        Arrays.stream(FileUtils.getFilesWithSuffix(storageDir, suffix))
+              .map(name -> Long.valueOf(name.substring(0, name.indexOf('.'))))
+              .filter(segment -> segment != activeSegment)
+              .forEach(segment -> FileUtils.delete(storageProperties.activeIndex(context, segment)));
+    }
+
+    /**
+     * Writes a snapshot of the index of the active segment, so the index does not have to be rebuilt from all events
+     * in the segment at startup. Runs on the segment completion thread of the {@link Synchronizer}, so it does not
+     * run concurrently with completing a segment.
+     *
+     * @param writePosition the last confirmed write position
+     */
+    protected void snapshotActiveSegment(WritePosition writePosition) {
+        long segment = writePosition.segment;
+        long snapshotToken = lastToken.get() + 1;
+        if (snapshotToken <= segment || snapshotToken == lastSnapshotToken.get()) {
+            return;
+        }
+        indexManager.snapshotActiveSegment(segment, snapshotToken).ifPresent(snapshot -> {
+            StorageProperties storageProperties = storagePropertiesSupplier.get();
+            File tempFile = storageProperties.activeIndexTemp(context, segment);
+            try {
+                try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                        Files.newOutputStream(tempFile.toPath())))) {
+                    snapshot.writeTo(output);
+                }
+                Files.move(tempFile.toPath(),
+                           storageProperties.activeIndex(context, segment).toPath(),
+                           StandardCopyOption.REPLACE_EXISTING);
+                lastSnapshotToken.set(snapshotToken);
+            } catch (IOException e) {
+                throw new MessagingPlatformException(ErrorCode.INDEX_WRITE_ERROR,
+                                                     "Failed to write snapshot of the index of segment " + segment,
+                                                     e);
+            }
+        });
     }
 
     public int activeSegmentCount() {
@@ -215,9 +333,7 @@ public class PrimaryEventStore extends SegmentBasedEventStore {
                      .orElse(defaultFirstIndex);
     }
 
-    private FilePreparedTransaction prepareTransaction(List<Event> origEventList) {
-        List<ProcessedEvent> eventList = origEventList.stream().map(s -> new WrappedEvent(s, eventTransformer)).collect(
-                Collectors.toList());
+    private FilePreparedTransaction prepareTransaction(List<ProcessedEvent> eventList) {
         int eventSize = eventBlockSize(eventList);
         WritePosition writePosition = claim(eventSize, eventList.size());
         return new FilePreparedTransaction(writePosition, eventSize, eventList);
@@ -231,12 +347,34 @@ public class PrimaryEventStore extends SegmentBasedEventStore {
      */
     @Override
     public CompletableFuture<Long> store(List<Event> events) {
+        return store(() -> events.stream()
+                                 .map(event -> (ProcessedEvent) new WrappedEvent(event, eventTransformer))
+                                 .collect(Collectors.toList()));
+    }
 
+    /**
+     * Stores a list of events in their serialized form. Writes the serialized data without parsing the events.
+     * Completable future completes when these events and all previous events are written.
+     *
+     * @param events the serialized events to store
+     * @return completable future with the token of the first event
+     */
+    @Override
+    public CompletableFuture<Long> storeSerialized(List<SerializedEvent> events) {
+        return store(() -> events.stream()
+                                 .map(event -> (ProcessedEvent) new SerializedProcessedEvent(event, eventTransformer))
+                                 .collect(Collectors.toList()));
+    }
+
+    private CompletableFuture<Long> store(Supplier<List<ProcessedEvent>> events) {
         CompletableFuture<Long> completableFuture = new CompletableFuture<>();
         try {
             Map<String, List<IndexEntry>> indexEntries = new HashMap<>();
-            FilePreparedTransaction preparedTransaction = prepareTransaction(events);
+            FilePreparedTransaction preparedTransaction = prepareTransaction(events.get());
             WritePosition writePosition = preparedTransaction.getWritePosition();
+            long[] timestamps = timestamps(preparedTransaction);
+            String[] payloadTypes = payloadTypes(preparedTransaction);
+            String[] aggregateTypes = aggregateTypes(preparedTransaction);
 
             synchronizer.register(writePosition, new StorageCallback() {
                 private final AtomicBoolean running = new AtomicBoolean();
@@ -245,8 +383,16 @@ public class PrimaryEventStore extends SegmentBasedEventStore {
                 public boolean complete(long firstToken) {
                     if (running.compareAndSet(false, true)) {
                         indexManager.addToActiveSegment(writePosition.segment, indexEntries);
-                        completableFuture.complete(firstToken);
+                        indexManager.addTransaction(writePosition.segment, firstToken, writePosition.position);
+                        indexManager.addTimestamps(writePosition.segment, firstToken, timestamps);
+                        indexManager.addSummary(writePosition.segment,
+                                                firstToken,
+                                                timestamps,
+                                                payloadTypes,
+                                                aggregateTypes);
+                        // update last token before completing, listeners on the future may read the new events
                         lastToken.set(firstToken + preparedTransaction.getEventList().size() - 1);
+                        completableFuture.complete(firstToken);
                         return true;
                     }
                     return false;
@@ -266,6 +412,29 @@ public class PrimaryEventStore extends SegmentBasedEventStore {
         return completableFuture;
     }
 
+    private long[] timestamps(FilePreparedTransaction preparedTransaction) {
+        List<ProcessedEvent> eventList = preparedTransaction.getEventList();
+        long[] timestamps = new long[eventList.size()];
+        for (int i = 0; i < timestamps.length; i++) {
+            timestamps[i] = eventList.get(i).getTimestamp();
+        }
+        return timestamps;
+    }
+
+    private String[] payloadTypes(FilePreparedTransaction preparedTransaction) {
+        return preparedTransaction.getEventList()
+                                  .stream()
+                                  .map(ProcessedEvent::getPayloadType)
+                                  .toArray(String[]::new);
+    }
+
+    private String[] aggregateTypes(FilePreparedTransaction preparedTransaction) {
+        return preparedTransaction.getEventList()
+                                  .stream()
+                                  .map(ProcessedEvent::getAggregateType)
+                                  .toArray(String[]::new);
+    }
+
     @Override
     public void handover(Long segment, Runnable callback) {
         callback.run();
@@ -283,6 +452,18 @@ public class PrimaryEventStore extends SegmentBasedEventStore {
         fileSystemMonitor.unregisterPath(storeName());
 
         synchronizer.shutdown(true);
+        WritePosition writePosition = writePositionRef.get();
+        if (!deleteData && writePosition != null && storageProperties.getActiveIndexSnapshotInterval() > 0) {
+            try {
+                snapshotActiveSegment(writePosition);
+            } catch (MessagingPlatformException ex) {
+                logger.warn("{}: failed to write snapshot of active segment {}", context, writePosition.segment, ex);
+            }
+        }
+        CompletableFuture<PreallocatedSegment> preallocated = preallocatedSegment.getAndSet(null);
+        if (preallocated != null) {
+            preallocated.thenAccept(PreallocatedSegment::discard);
+        }
         readBuffers.forEach((s, source) -> {
             source.clean(0);
             if (deleteData) {
@@ -296,6 +477,7 @@ public class PrimaryEventStore extends SegmentBasedEventStore {
         if (deleteData) {
             storageDir.delete();
         }
+        meterFactory.remove(completionBacklog);
         closeListeners.forEach(Runnable::run);
     }
 
@@ -396,10 +578,20 @@ public class PrimaryEventStore extends SegmentBasedEventStore {
             eventSource.clean(0);
         }
         FileUtils.delete(storageProperties.dataFile(context, segment));
+        FileUtils.delete(storageProperties.activeIndex(context, segment));
     }
 
+    /**
+     * Completes a full segment: builds the index and bloom filter for the segment and hands it over to the next
+     * segment based event store. Runs on the segment completion thread of the {@link Synchronizer}. Until the index
+     * is built, reads for the segment use the index of the active segment.
+     *
+     * @param writePosition a position in the segment to complete
+     */
     protected void completeSegment(WritePosition writePosition) {
+        long start = System.nanoTime();
         indexManager.complete(writePosition.segment);
+        FileUtils.delete(storagePropertiesSupplier.get().activeIndex(context, writePosition.segment));
         if (next != null) {
             next.handover(writePosition.segment, () -> {
                 ByteBufferEventSource source = readBuffers.remove(writePosition.segment);
@@ -412,6 +604,7 @@ public class PrimaryEventStore extends SegmentBasedEventStore {
                 }
             });
         }
+        completionTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
     }
 
     private void write(WritePosition writePosition, List<ProcessedEvent> eventList,
@@ -475,20 +668,83 @@ public class PrimaryEventStore extends SegmentBasedEventStore {
 
             if (writePosition.isOverflow(totalSize)) {
                 // only one thread can be here
+                long start = System.nanoTime();
                 logger.debug("{}: Creating new segment {}", context, writePosition.sequence);
 
                 writePosition.buffer.putInt(writePosition.position, -1);
 
-                WritableEventSource buffer = getOrOpenDatafile(writePosition.sequence,
-                                                               totalSize + FILE_HEADER_SIZE + FILE_FOOTER_SIZE,
-                                                               true);
+                WritableEventSource buffer = openNextDatafile(writePosition.sequence,
+                                                              totalSize + FILE_HEADER_SIZE + FILE_FOOTER_SIZE);
                 writePositionRef.set(writePosition.reset(buffer));
+                rolloverTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            } else if (!writePosition.isWritable(totalSize)) {
+                Thread.onSpinWait();
             }
         } while (!writePosition.isWritable(totalSize));
 
+        preallocateIfNeeded(writePosition, totalSize);
         return writePosition;
     }
 
+    /**
+     * Starts creating the file for the next segment in the background when the active segment is filled beyond the
+     * preallocate threshold. The file is created with a temporary name, as the number of the next segment is only
+     * known when the active segment is full.
+     */
+    private void preallocateIfNeeded(WritePosition writePosition, int totalSize) {
+        StorageProperties storageProperties = storagePropertiesSupplier.get();
+        if (!storageProperties.isPreallocateSegments() || preallocatedSegment.get() != null
+                || writePosition.position + totalSize
+                < writePosition.buffer.capacity() * (double) storageProperties.getPreallocateThreshold()) {
+            return;
+        }
+        CompletableFuture<PreallocatedSegment> future = new CompletableFuture<>();
+        if (preallocatedSegment.compareAndSet(null, future)) {
+            preallocateExecutor.execute(() -> {
+                try {
+                    future.complete(preallocate(storageProperties));
+                } catch (Exception ex) {
+                    logger.warn("{}: Failed to preallocate next segment", context, ex);
+                    future.completeExceptionally(ex);
+                }
+            });
+        }
+    }
+
+    private PreallocatedSegment preallocate(StorageProperties storageProperties) throws IOException {
+        File file = storageProperties.preallocatedDataFile(context);
+        FileUtils.delete(file);
+        try (FileChannel fileChannel = new RandomAccessFile(file, "rw").getChannel()) {
+            logger.debug("{}: Preallocating file {}", context, file);
+            MappedByteBuffer buffer = fileChannel.map(FileChannel.MapMode.READ_WRITE,
+                                                      0,
+                                                      storageProperties.getSegmentSize());
+            if (storageProperties.isPrefaultSegments()) {
+                for (int position = 0; position < buffer.capacity(); position += PAGE_SIZE) {
+                    buffer.put(position, (byte) 0);
+                }
+            }
+            buffer.put(VERSION);
+            buffer.putInt(storageProperties.getFlags());
+            return new PreallocatedSegment(file, buffer);
+        }
+    }
+
+    /**
+     * Opens the file for a new segment. Uses the preallocated file when it is available, otherwise creates the file.
+     */
+    private WritableEventSource openNextDatafile(long segment, int minSize) {
+        CompletableFuture<PreallocatedSegment> preallocated = preallocatedSegment.get();
+        if (preallocated != null && preallocated.isDone() && preallocatedSegment.compareAndSet(preallocated, null)
+                && !preallocated.isCompletedExceptionally()) {
+            WritableEventSource writableEventSource = preallocated.join().activate(segment, minSize);
+            if (writableEventSource != null) {
+                return writableEventSource;
+            }
+        }
+        return getOrOpenDatafile(segment, minSize, true);
+    }
+
     @Override
     public long nextToken() {
         return writePositionRef.get().sequence;
@@ -527,6 +783,53 @@ public class PrimaryEventStore extends SegmentBasedEventStore {
         }
     }
 
+    /**
+     * File for the next segment, created and mapped before the active segment is full.
+     */
+    private class PreallocatedSegment {
+
+        private final File file;
+        private final MappedByteBuffer buffer;
+
+        PreallocatedSegment(File file, MappedByteBuffer buffer) {
+            this.file = file;
+            this.buffer = buffer;
+        }
+
+        /**
+         * Renames the preallocated file to the file for the given segment.
+         *
+         * @return the event source for the segment or null when the preallocated file cannot be used
+         */
+        WritableEventSource activate(long segment, int minSize) {
+            StorageProperties storageProperties = storagePropertiesSupplier.get();
+            File segmentFile = storageProperties.dataFile(context, segment);
+            if (buffer.capacity() < minSize || segmentFile.exists()) {
+                discard();
+                return null;
+            }
+            try {
+                Files.move(file.toPath(), segmentFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException | RuntimeException ex) {
+                logger.warn("{}: Failed to use preallocated file for segment {}", context, segment, ex);
+                discard();
+                return null;
+            }
+            logger.info("Opening file {}", segmentFile);
+            WritableEventSource writableEventSource = new WritableEventSource(segmentFile.getAbsolutePath(),
+                                                                              buffer,
+                                                                              eventTransformer,
+                                                                              storageProperties.isCleanRequired());
+            readBuffers.put(segment, writableEventSource);
+            return writableEventSource;
+        }
+
+        void discard() {
+            CleanUtils.cleanDirectBuffer(buffer, () -> true, 0, file.getAbsolutePath());
+            FileUtils.delete(file);
+        }
+    }
+
     private int eventBlockSize(List<ProcessedEvent> eventList) {
         long size = 0;
         for (ProcessedEvent event : eventList) {
@@ -541,4 +844,43 @@ public class PrimaryEventStore extends SegmentBasedEventStore {
     private String storeName() {
         return context + "-" + type.getEventType().name().toLowerCase();
     }
+
+    /**
+     * Events read from the active segment at startup, to add to the index of the active segment.
+     */
+    private static class ActiveSegmentEvents {
+
+        private final long firstToken;
+        private final Map<String, List<IndexEntry>> entries = new HashMap<>();
+        private final List<Long> timestamps = new ArrayList<>();
+        private final List<String> payloadTypes = new ArrayList<>();
+        private final List<String> aggregateTypes = new ArrayList<>();
+        private final List<TransactionPosition> transactionStarts = new ArrayList<>();
+        private long nextToken;
+        private int firstPosition = -1;
+
+        private ActiveSegmentEvents(long firstToken) {
+            this.firstToken = firstToken;
+        }
+
+        private void add(EventInformation event) {
+            if (firstPosition < 0) {
+                firstPosition = event.getPosition();
+            }
+            timestamps.add(event.getEvent().getTimestamp());
+            payloadTypes.add(event.getEvent().getPayload().getType());
+            aggregateTypes.add(event.getEvent().getAggregateType());
+            if (event.isDomainEvent()) {
+                IndexEntry indexEntry = new IndexEntry(
+                        event.getEvent().getAggregateSequenceNumber(),
+                        event.getPosition(),
+                        nextToken
+                );
+                entries.computeIfAbsent(event.getEvent().getAggregateIdentifier(),
+                                        aggregateId -> new ArrayList<>())
+                       .add(indexEntry);
+            }
+            nextToken++;
+        }
+    }
 }
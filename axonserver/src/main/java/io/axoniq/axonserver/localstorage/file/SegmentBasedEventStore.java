@@ -9,21 +9,26 @@
 
 package io.axoniq.axonserver.localstorage.file;
 
+import com.google.common.primitives.Longs;
 import io.axoniq.axonserver.exception.ErrorCode;
 import io.axoniq.axonserver.exception.EventStoreValidationException;
 import io.axoniq.axonserver.exception.MessagingPlatformException;
 import io.axoniq.axonserver.grpc.event.Event;
 import io.axoniq.axonserver.grpc.event.EventWithToken;
+import io.axoniq.axonserver.localstorage.EventFields;
 import io.axoniq.axonserver.localstorage.EventStorageEngine;
 import io.axoniq.axonserver.localstorage.EventType;
 import io.axoniq.axonserver.localstorage.EventTypeContext;
 import io.axoniq.axonserver.localstorage.QueryOptions;
 import io.axoniq.axonserver.localstorage.Registration;
+import io.axoniq.axonserver.localstorage.SegmentSummary;
 import io.axoniq.axonserver.localstorage.SerializedEvent;
 import io.axoniq.axonserver.localstorage.SerializedEventWithToken;
 import io.axoniq.axonserver.localstorage.SerializedTransactionWithToken;
+import io.axoniq.axonserver.localstorage.file.SegmentSkipIndex.TransactionPosition;
 import io.axoniq.axonserver.metric.BaseMetricName;
 import io.axoniq.axonserver.metric.MeterFactory;
+import io.axoniq.axonserver.util.DaemonThreadFactory;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.Tags;
@@ -39,18 +44,24 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.SortedSet;
+import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
@@ -85,8 +96,12 @@ public abstract class SegmentBasedEventStore implements EventStorageEngine {
     protected final EventTypeContext type;
     protected final Set<Runnable> closeListeners = new CopyOnWriteArraySet<>();
     private final Timer lastSequenceReadTimer;
+    private final Timer iteratorOpenTimer;
     protected final SegmentBasedEventStore next;
     private static final int PREFETCH_SEGMENT_FILES = 2;
+    private static final ExecutorService QUERY_EXECUTOR = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(),
+            new DaemonThreadFactory("ad-hoc-query-scan-"));
     protected final Counter fileOpenMeter;
     private final DistributionSummary aggregateSegmentsCount;
 
@@ -107,6 +122,7 @@ public abstract class SegmentBasedEventStore implements EventStorageEngine {
         Tags tags = Tags.of(MeterFactory.CONTEXT, context, "type", eventTypeContext.getEventType().name());
         this.fileOpenMeter = meterFactory.counter(BaseMetricName.AXON_SEGMENT_OPEN, tags);
         this.lastSequenceReadTimer = meterFactory.timer(BaseMetricName.AXON_LAST_SEQUENCE_READTIME, tags);
+        this.iteratorOpenTimer = meterFactory.timer(BaseMetricName.AXON_ITERATOR_OPEN, tags);
         this.aggregateSegmentsCount = meterFactory.distributionSummary
                                                           (BaseMetricName.AXON_AGGREGATE_SEGMENT_COUNT, tags);
     }
@@ -120,17 +136,18 @@ public abstract class SegmentBasedEventStore implements EventStorageEngine {
         return Flux.defer(() -> {
                        logger.debug("Reading index entries for aggregate {} started.", aggregateId);
 
-                       SortedMap<Long, IndexEntries> positionInfos = indexManager.lookupAggregate(aggregateId,
-                                                                                                  firstSequence,
-                                                                                                  lastSequence,
-                                                                                                  Long.MAX_VALUE,
-                                                                                                  minToken);
+                       Iterator<SegmentIndexEntries> segments = indexManager.lookupAggregateSegments(aggregateId,
+                                                                                                     firstSequence,
+                                                                                                     lastSequence,
+                                                                                                     minToken);
                        logger.debug("Reading index entries for aggregate {} finished.", aggregateId);
-                       aggregateSegmentsCount.record(positionInfos.size());
+                       AtomicInteger segmentCount = new AtomicInteger();
 
-                       return Flux.fromIterable(positionInfos.entrySet());
-                   }).flatMapSequential(e -> eventsForPositions(e.getKey(),
-                                                                e.getValue(),
+                       return Flux.fromIterable(() -> segments)
+                                  .doOnNext(e -> segmentCount.incrementAndGet())
+                                  .doOnComplete(() -> aggregateSegmentsCount.record(segmentCount.get()));
+                   }).flatMapSequential(e -> eventsForPositions(e.segment(),
+                                                                e.indexEntries(),
                                                                 storagePropertiesSupplier.get().getEventsPerSegmentPrefetch()),
                                         PREFETCH_SEGMENT_FILES,
                                         storagePropertiesSupplier.get().getEventsPerSegmentPrefetch())
@@ -171,18 +188,17 @@ public abstract class SegmentBasedEventStore implements EventStorageEngine {
     @Override
     public void processEventsPerAggregate(String aggregateId, long firstSequenceNumber, long lastSequenceNumber,
                                           long minToken, Consumer<SerializedEvent> eventConsumer) {
-        SortedMap<Long, IndexEntries> positionInfos = indexManager.lookupAggregate(aggregateId,
-                                                                                   firstSequenceNumber,
-                                                                                   lastSequenceNumber,
-                                                                                   Long.MAX_VALUE,
-                                                                                   minToken);
-        positionInfos.forEach((segment, positionInfo) -> retrieveEventsForAnAggregate(segment,
-                                                                                      positionInfo.positions(),
+        Iterator<SegmentIndexEntries> segments = indexManager.lookupAggregateSegments(aggregateId,
                                                                                       firstSequenceNumber,
                                                                                       lastSequenceNumber,
-                                                                                      eventConsumer,
-                                                                                      Long.MAX_VALUE,
-                                                                                      minToken));
+                                                                                      minToken);
+        segments.forEachRemaining(e -> retrieveEventsForAnAggregate(e.segment(),
+                                                                    e.indexEntries().positions(),
+                                                                    firstSequenceNumber,
+                                                                    lastSequenceNumber,
+                                                                    eventConsumer,
+                                                                    Long.MAX_VALUE,
+                                                                    minToken));
     }
 
     @Override
@@ -216,51 +232,211 @@ public abstract class SegmentBasedEventStore implements EventStorageEngine {
 
     @Override
     public void query(QueryOptions queryOptions, Predicate<EventWithToken> consumer) {
+        if (queryOptions.getParallelism() > 1) {
+            queryInParallel(queryOptions, consumer);
+            return;
+        }
         for (long segment : getSegments()) {
             if (segment <= queryOptions.getMaxToken()) {
-                Optional<EventSource> eventSource = getEventSource(segment);
-                AtomicBoolean done = new AtomicBoolean();
-                boolean snapshot = EventType.SNAPSHOT.equals(type.getEventType());
-                eventSource.ifPresent(e -> {
-                    long minTimestampInSegment = Long.MAX_VALUE;
-                    EventInformation eventWithToken;
-                    EventIterator iterator = createEventIterator(e, segment, segment);
-                    while (iterator.hasNext()) {
-                        eventWithToken = iterator.next();
-                        minTimestampInSegment = Math.min(minTimestampInSegment,
-                                                         eventWithToken.getEvent().getTimestamp());
-                        if (eventWithToken.getToken() > queryOptions.getMaxToken()) {
-                            iterator.close();
-                            return;
-                        }
-                        if (eventWithToken.getToken() >= queryOptions.getMinToken()
-                                && eventWithToken.getEvent().getTimestamp() >= queryOptions.getMinTimestamp()
-                                && !consumer.test(eventWithToken.asEventWithToken(snapshot))) {
-                            iterator.close();
-                            return;
-                        }
-                    }
-                    if (queryOptions.getMinToken() > segment || minTimestampInSegment < queryOptions
-                            .getMinTimestamp()) {
-                        done.set(true);
+                Optional<SegmentTimestamps> timestamps = queryOptions.getMinTimestamp() > 0 ?
+                        segmentTimestamps(segment) : Optional.empty();
+                if (timestamps.isPresent() && !timestamps.get().isEmpty()
+                        && timestamps.get().getMaxTimestamp() < queryOptions.getMinTimestamp()) {
+                    // no events in this segment, or any older segment, are after the minimum timestamp
+                    return;
+                }
+                if (!mayContainMatches(segment, queryOptions)) {
+                    if (queryOptions.getMinToken() > segment) {
+                        return;
                     }
-                    iterator.close();
-                });
-                if (done.get()) {
+                    continue;
+                }
+                if (querySegment(segment, timestamps, queryOptions, consumer)) {
                     return;
                 }
             }
         }
 
         if (next != null) {
-            next.query(new QueryOptions(queryOptions.getMinToken(),
-                                        queryOptions.getMaxToken(),
-                                        queryOptions.getMinTimestamp()), consumer);
+            next.query(queryOptions, consumer);
         }
     }
 
+    /**
+     * Scans the segments of this store and the next stores on a number of threads from the query pool. Each thread
+     * takes the next segment to scan, starting with the most recent segment, so the order in which events are passed
+     * to the consumer is not defined. The consumer must be thread safe. When the consumer returns false, the threads
+     * stop scanning after their current event.
+     */
+    private void queryInParallel(QueryOptions queryOptions, Predicate<EventWithToken> consumer) {
+        List<Map.Entry<Long, SegmentBasedEventStore>> segments = segmentsToQuery(queryOptions);
+        AtomicInteger nextSegment = new AtomicInteger();
+        AtomicBoolean stopped = new AtomicBoolean();
+        Predicate<EventWithToken> stoppableConsumer = event -> {
+            if (stopped.get() || !consumer.test(event)) {
+                stopped.set(true);
+                return false;
+            }
+            return true;
+        };
+        Runnable scanner = () -> {
+            int index;
+            while (!stopped.get() && (index = nextSegment.getAndIncrement()) < segments.size()) {
+                long segment = segments.get(index).getKey();
+                SegmentBasedEventStore store = segments.get(index).getValue();
+                Optional<SegmentTimestamps> timestamps = queryOptions.getMinTimestamp() > 0 ?
+                        store.segmentTimestamps(segment) : Optional.empty();
+                store.querySegment(segment, timestamps, queryOptions, stoppableConsumer);
+            }
+        };
+        CompletableFuture<?>[] scanners = new CompletableFuture<?>[Math.min(queryOptions.getParallelism(),
+                                                                            segments.size())];
+        for (int i = 0; i < scanners.length; i++) {
+            scanners[i] = CompletableFuture.runAsync(scanner, QUERY_EXECUTOR);
+        }
+        try {
+            CompletableFuture.allOf(scanners).join();
+        } catch (CompletionException ex) {
+            stopped.set(true);
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Returns the segments from this store and the next stores that may contain events matching the query options,
+     * most recent segment first, with the store that contains the segment.
+     */
+    private List<Map.Entry<Long, SegmentBasedEventStore>> segmentsToQuery(QueryOptions queryOptions) {
+        SortedMap<Long, SegmentBasedEventStore> segments = new TreeMap<>(Comparator.reverseOrder());
+        for (SegmentBasedEventStore store = this; store != null; store = store.next) {
+            for (long segment : store.getSegments()) {
+                segments.putIfAbsent(segment, store);
+            }
+        }
+        List<Map.Entry<Long, SegmentBasedEventStore>> result = new ArrayList<>();
+        long nextSegment = Long.MAX_VALUE;
+        for (Map.Entry<Long, SegmentBasedEventStore> entry : segments.entrySet()) {
+            long segment = entry.getKey();
+            if (nextSegment <= queryOptions.getMinToken()) {
+                // all events in this segment, and any older segment, are before the minimum token
+                break;
+            }
+            nextSegment = segment;
+            if (segment > queryOptions.getMaxToken()) {
+                continue;
+            }
+            if (queryOptions.getMinTimestamp() > 0) {
+                Optional<SegmentTimestamps> timestamps = entry.getValue().segmentTimestamps(segment);
+                if (timestamps.isPresent() && !timestamps.get().isEmpty()
+                        && timestamps.get().getMaxTimestamp() < queryOptions.getMinTimestamp()) {
+                    // no events in this segment, or any older segment, are after the minimum timestamp
+                    break;
+                }
+            }
+            if (entry.getValue().mayContainMatches(segment, queryOptions)) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Checks the summary of a segment for events with one of the payload types and aggregate types from the query
+     * options. Segments without a summary are scanned, and get their summary during the scan.
+     *
+     * @return false if the segment does not contain events matching the types in the query options
+     */
+    private boolean mayContainMatches(long segment, QueryOptions queryOptions) {
+        if (queryOptions.getPayloadTypes().isEmpty() && queryOptions.getAggregateTypes().isEmpty()) {
+            return true;
+        }
+        return indexManager.getSummary(segment).map(summary -> summary.mayContain(queryOptions.getPayloadTypes(),
+                                                                                  queryOptions.getAggregateTypes()))
+                                               .orElse(true);
+    }
+
+    /**
+     * Passes the events in a segment matching the query options to the consumer. The token, timestamp and types of an
+     * event are checked on the fields read from the serialized event, only matching events are parsed completely. When
+     * the whole segment is scanned and it does not have a summary yet, the summary is created from the scanned events.
+     *
+     * @return true if older segments do not contain events matching the query options
+     */
+    private boolean querySegment(long segment, Optional<SegmentTimestamps> timestamps, QueryOptions queryOptions,
+                                 Predicate<EventWithToken> consumer) {
+        long start = Math.max(segment, timestamps.map(t -> t.scanStart(queryOptions.getMinTimestamp()))
+                                                 .orElse(segment));
+        Optional<EventSource> eventSource = getEventSource(segment);
+        AtomicBoolean done = new AtomicBoolean();
+        boolean snapshot = EventType.SNAPSHOT.equals(type.getEventType());
+        eventSource.ifPresent(e -> {
+            long minTimestampInSegment = timestamps.map(SegmentTimestamps::getMinTimestamp)
+                                                   .orElse(Long.MAX_VALUE);
+            SegmentSummary summary = start == segment && !indexManager.getSummary(segment).isPresent() ?
+                    new SegmentSummary(segment) : null;
+            EventInformation eventWithToken;
+            EventIterator iterator = createEventIterator(e, segment, start);
+            while (iterator.hasNext()) {
+                eventWithToken = iterator.next();
+                if (eventWithToken.getToken() > queryOptions.getMaxToken()) {
+                    iterator.close();
+                    return;
+                }
+                EventFields fields = EventFields.of(eventWithToken.getSerializedEventWithToken().getSerializedEvent(),
+                                                    false);
+                if (summary != null) {
+                    summary.add(eventWithToken.getToken(),
+                                fields.getTimestamp(),
+                                fields.getPayloadType(),
+                                fields.getAggregateType());
+                }
+                minTimestampInSegment = Math.min(minTimestampInSegment, fields.getTimestamp());
+                if (eventWithToken.getToken() >= queryOptions.getMinToken()
+                        && fields.getTimestamp() >= queryOptions.getMinTimestamp()
+                        && queryOptions.matchesTypes(fields)
+                        && !consumer.test(eventWithToken.asEventWithToken(snapshot))) {
+                    iterator.close();
+                    return;
+                }
+            }
+            if (queryOptions.getMinToken() > segment || minTimestampInSegment < queryOptions
+                    .getMinTimestamp()) {
+                done.set(true);
+            }
+            iterator.close();
+            if (summary != null) {
+                indexManager.storeSummary(summary);
+            }
+        });
+        return done.get();
+    }
+
+    /**
+     * Creates an iterator for the events in a segment, starting at the given token. Uses the skip index of the segment
+     * to start reading close to the token.
+     *
+     * @param e          the event source for the segment
+     * @param segment    the first token in the segment
+     * @param startToken the token of the first event to return
+     * @return the event iterator
+     */
     protected EventIterator createEventIterator(EventSource e, long segment, long startToken) {
-        return e.createEventIterator(segment, startToken);
+        long start = System.nanoTime();
+        EventIterator iterator = e.createEventIterator(segment, startToken, transactionPosition(segment, startToken));
+        iteratorOpenTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return iterator;
+    }
+
+    private TransactionPosition transactionPosition(long segment, long token) {
+        if (token <= segment) {
+            return null;
+        }
+        return indexManager.getSkipIndex(segment)
+                           .map(skipIndex -> skipIndex.floor(token))
+                           .orElse(null);
     }
 
     @Override
@@ -363,13 +539,8 @@ public abstract class SegmentBasedEventStore implements EventStorageEngine {
     @Override
     public long getTokenAt(long instant) {
         for (long segment : getSegments()) {
-            Optional<EventSource> eventSource = getEventSource(segment);
-            Long found = eventSource.map(es -> {
-                try (EventIterator iterator = createEventIterator(es, segment, segment)) {
-                    return iterator.getTokenAt(instant);
-                }
-            }).orElse(null);
-
+            Long found = segmentTimestamps(segment).map(timestamps -> getTokenAt(segment, timestamps, instant))
+                                                  .orElse(null);
             if (found != null) {
                 return found;
             }
@@ -381,6 +552,69 @@ public abstract class SegmentBasedEventStore implements EventStorageEngine {
         return getSegments().isEmpty() ? -1 : getFirstToken();
     }
 
+    private Long getTokenAt(long segment, SegmentTimestamps timestamps, long instant) {
+        if (timestamps.isEmpty() || timestamps.getFirstTimestamp() > instant) {
+            return null;
+        }
+        if (timestamps.getFirstTimestamp() == instant) {
+            return segment;
+        }
+        long start = timestamps.scanStart(instant);
+        return getEventSource(segment).map(eventSource -> {
+            try (EventIterator iterator = createEventIterator(eventSource, segment, start)) {
+                long token = start;
+                while (iterator.hasNext()) {
+                    EventInformation event = iterator.next();
+                    if (event.getEvent().getTimestamp() >= instant) {
+                        return event.getToken();
+                    }
+                    token = event.getToken() + 1;
+                }
+                return token;
+            }
+        }).orElse(null);
+    }
+
+    /**
+     * Returns the timestamp index for a segment managed by this event store. If the index manager does not have a
+     * timestamp index for the segment, it is created from the events in the segment.
+     *
+     * @param segment the segment number
+     * @return the timestamp index or empty optional if the segment is not managed by this event store
+     */
+    protected Optional<SegmentTimestamps> segmentTimestamps(long segment) {
+        Optional<SegmentTimestamps> timestamps = indexManager.getTimestamps(segment);
+        if (timestamps.isPresent()) {
+            return timestamps;
+        }
+        return getEventSource(segment).map(eventSource -> {
+            SegmentTimestamps created = new SegmentTimestamps(segment,
+                                                              storagePropertiesSupplier.get()
+                                                                                       .getTimestampIndexInterval());
+            try (EventIterator iterator = createEventIterator(eventSource, segment, segment)) {
+                while (iterator.hasNext()) {
+                    EventInformation event = iterator.next();
+                    created.add(event.getToken(), event.getEvent().getTimestamp());
+                }
+            }
+            indexManager.storeTimestamps(created);
+            return created;
+        });
+    }
+
+    @Override
+    public List<SegmentSummary> segmentSummaries() {
+        SortedMap<Long, SegmentSummary> summaries = new TreeMap<>(Comparator.reverseOrder());
+        for (SegmentBasedEventStore store = this; store != null; store = store.next) {
+            for (long segment : store.getSegments()) {
+                if (!summaries.containsKey(segment)) {
+                    store.indexManager.getSummary(segment).ifPresent(summary -> summaries.put(segment, summary));
+                }
+            }
+        }
+        return new ArrayList<>(summaries.values());
+    }
+
     @Override
     public CloseableIterator<SerializedEventWithToken> getGlobalIterator(long start) {
         throw new UnsupportedOperationException("Operation only supported on primary event store");
@@ -416,14 +650,30 @@ public abstract class SegmentBasedEventStore implements EventStorageEngine {
         return Stream.concat(getSegments().stream(), next.getSegments().stream()).distinct();
     }
 
+    /**
+     * Validates the checksums of the transactions in a segment. Completed segments that have been validated before
+     * and whose data file has not changed since are not read again.
+     *
+     * @param segment the first token in the segment
+     * @return the result of the validation
+     */
     protected ValidationResult validateSegment(long segment) {
+        File dataFile = storagePropertiesSupplier.get().dataFile(context, segment);
+        Optional<ValidationCheckpoint> checkpoint = indexManager.getValidationCheckpoint(segment);
+        if (checkpoint.isPresent() && checkpoint.get().matches(dataFile)) {
+            logger.debug("{}: Segment {} of {} unchanged since last validation",
+                         type.getContext(), segment, type.getEventType());
+            return new ValidationResult(segment, checkpoint.get().getNextToken());
+        }
         logger.debug("{}: Validating {} segment: {}", type.getContext(), type.getEventType(), segment);
         try (TransactionIterator iterator = getTransactions(segment, segment, true)) {
             SerializedTransactionWithToken last = null;
             while (iterator.hasNext()) {
                 last = iterator.next();
             }
-            return new ValidationResult(segment, last == null ? segment : last.getToken() + last.getEvents().size());
+            long nextToken = last == null ? segment : last.getToken() + last.getEvents().size();
+            indexManager.storeValidationCheckpoint(ValidationCheckpoint.of(segment, dataFile, nextToken));
+            return new ValidationResult(segment, nextToken);
         } catch (Exception ex) {
             return new ValidationResult(segment, ex.getMessage());
         }
@@ -485,7 +735,13 @@ public abstract class SegmentBasedEventStore implements EventStorageEngine {
 
     protected TransactionIterator createTransactionIterator(EventSource eventSource, long segment, long token,
                                                             boolean validating) {
-        return eventSource.createTransactionIterator(segment, token, validating);
+        long start = System.nanoTime();
+        TransactionIterator iterator = eventSource.createTransactionIterator(segment,
+                                                                            token,
+                                                                            validating,
+                                                                            transactionPosition(segment, token));
+        iteratorOpenTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return iterator;
     }
 
     public long getSegmentFor(long token) {
@@ -598,18 +854,25 @@ public abstract class SegmentBasedEventStore implements EventStorageEngine {
 
     protected void recreateIndexFromIterator(long segment, EventIterator iterator) {
         Map<String, List<IndexEntry>> loadedEntries = new HashMap<>();
+        List<Long> timestamps = new ArrayList<>();
         while (iterator.hasNext()) {
             EventInformation event = iterator.next();
+            timestamps.add(event.getEvent().getTimestamp());
             if (event.isDomainEvent()) {
                 IndexEntry indexEntry = new IndexEntry(
                         event.getEvent().getAggregateSequenceNumber(),
                         event.getPosition(),
                         event.getToken());
-                loadedEntries.computeIfAbsent(event.getEvent().getAggregateIdentifier(), id -> new LinkedList<>())
+                loadedEntries.computeIfAbsent(event.getEvent().getAggregateIdentifier(), id -> new ArrayList<>())
                              .add(indexEntry);
             }
+            TransactionPosition transactionStart = iterator.transactionStart(event);
+            if (transactionStart != null) {
+                indexManager.addTransaction(segment, transactionStart.getToken(), transactionStart.getPosition());
+            }
         }
         indexManager.addToActiveSegment(segment, loadedEntries);
+        indexManager.addTimestamps(segment, segment, Longs.toArray(timestamps));
         indexManager.complete(segment);
     }
 
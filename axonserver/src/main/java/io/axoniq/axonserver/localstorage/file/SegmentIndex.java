@@ -0,0 +1,47 @@
+/*
+ *  Copyright (c) 2017-2022 AxonIQ B.V. and/or licensed to AxonIQ B.V.
+ *  under one or more contributor license agreements.
+ *
+ *  Licensed under the AxonIQ Open Source License Agreement v1.0;
+ *  you may not use this file except in compliance with the license.
+ *
+ */
+
+package io.axoniq.axonserver.localstorage.file;
+
+import java.util.Collection;
+
+/**
+ * Read access to the index of a completed segment.
+ *
+ * @since 2023.0.0
+ */
+public interface SegmentIndex {
+
+    /**
+     * Returns the positions of the events for an aggregate in the segment.
+     *
+     * @param aggregateId the aggregate identifier
+     * @return the index entries for the aggregate or {@code null} when the aggregate does not occur in the segment
+     */
+    IndexEntries getPositions(String aggregateId);
+
+    /**
+     * Returns the identifiers of all aggregates in the segment.
+     *
+     * @return the aggregate identifiers
+     */
+    Collection<String> aggregateIds();
+
+    /**
+     * Checks if the index is closed.
+     *
+     * @return true if the index is closed
+     */
+    boolean isClosed();
+
+    /**
+     * Closes the index and releases the resources held by it.
+     */
+    void close();
+}
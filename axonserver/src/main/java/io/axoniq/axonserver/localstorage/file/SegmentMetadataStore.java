@@ -0,0 +1,367 @@
+/*
+ *  Copyright (c) 2017-2022 AxonIQ B.V. and/or licensed to AxonIQ B.V.
+ *  under one or more contributor license agreements.
+ *
+ *  Licensed under the AxonIQ Open Source License Agreement v1.0;
+ *  you may not use this file except in compliance with the license.
+ *
+ */
+
+package io.axoniq.axonserver.localstorage.file;
+
+import io.axoniq.axonserver.exception.ErrorCode;
+import io.axoniq.axonserver.exception.MessagingPlatformException;
+import io.axoniq.axonserver.localstorage.SegmentSummary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Supplier;
+
+/**
+ * Maintains the per-segment metadata of an event store: the {@link SegmentTimestamps}, {@link SegmentSummary},
+ * {@link SegmentSkipIndex} and {@link ValidationCheckpoint}. Timestamps, summaries and skip indexes are kept in memory
+ * for active segments, for completed segments they are written to files next to the index and bloom filter files. A
+ * limited number of them for completed segments is cached in memory.
+ *
+ * @since 2023.0.0
+ */
+public class SegmentMetadataStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(SegmentMetadataStore.class);
+    private final String context;
+    private final Supplier<StorageProperties> storageProperties;
+    private final ConcurrentNavigableMap<Long, SegmentTimestamps> active = new ConcurrentSkipListMap<>();
+    private final ConcurrentNavigableMap<Long, SegmentTimestamps> completed = new ConcurrentSkipListMap<>();
+    private final ConcurrentNavigableMap<Long, SegmentSummary> activeSummaries = new ConcurrentSkipListMap<>();
+    private final ConcurrentNavigableMap<Long, SegmentSummary> completedSummaries = new ConcurrentSkipListMap<>();
+    private final ConcurrentNavigableMap<Long, SegmentSkipIndex> activeSkipIndexes = new ConcurrentSkipListMap<>();
+    private final ConcurrentNavigableMap<Long, SegmentSkipIndex> completedSkipIndexes = new ConcurrentSkipListMap<>();
+
+    /**
+     * @param context           the context of the storage engine
+     * @param storageProperties storage engine configuration
+     */
+    public SegmentMetadataStore(String context, Supplier<StorageProperties> storageProperties) {
+        this.context = context;
+        this.storageProperties = storageProperties;
+    }
+
+    /**
+     * Adds the timestamps of a number of consecutive events to an active segment.
+     *
+     * @param segment    the segment number
+     * @param firstToken the token of the first event
+     * @param timestamps the timestamps of the events
+     */
+    public void addTimestamps(long segment, long firstToken, long[] timestamps) {
+        active.computeIfAbsent(segment, this::newTimestamps)
+              .addAll(firstToken, timestamps);
+    }
+
+    /**
+     * Adds a number of consecutive events to the summary of an active segment.
+     *
+     * @param segment        the segment number
+     * @param firstToken     the token of the first event
+     * @param timestamps     the timestamps of the events
+     * @param payloadTypes   the payload types of the events
+     * @param aggregateTypes the aggregate types of the events
+     */
+    public void addSummary(long segment, long firstToken, long[] timestamps, String[] payloadTypes,
+                           String[] aggregateTypes) {
+        SegmentSummary summary = activeSummaries.computeIfAbsent(segment, SegmentSummary::new);
+        for (int i = 0; i < timestamps.length; i++) {
+            summary.add(firstToken + i, timestamps[i], payloadTypes[i], aggregateTypes[i]);
+        }
+    }
+
+    /**
+     * Adds the start of a transaction to the skip index of an active segment.
+     *
+     * @param segment  the segment number
+     * @param token    the token of the first event in the transaction
+     * @param position the position of the transaction in the data file
+     */
+    public void addTransaction(long segment, long token, int position) {
+        activeSkipIndexes.computeIfAbsent(segment, this::newSkipIndex)
+                         .add(token, position);
+    }
+
+    /**
+     * Writes the timestamp index, the summary and the skip index for an active segment to disk.
+     *
+     * @param segment the segment number
+     */
+    public void complete(long segment) {
+        SegmentTimestamps timestamps = active.computeIfAbsent(segment, this::newTimestamps);
+        write(timestamps);
+        completed.put(segment, timestamps);
+        active.remove(segment);
+        SegmentSummary summary = activeSummaries.remove(segment);
+        if (summary != null) {
+            storeSummary(summary);
+        }
+        SegmentSkipIndex skipIndex = activeSkipIndexes.remove(segment);
+        if (skipIndex != null) {
+            storeSkipIndex(skipIndex);
+        }
+        evict();
+    }
+
+    private void storeSkipIndex(SegmentSkipIndex skipIndex) {
+        StorageProperties properties = storageProperties.get();
+        try {
+            write(properties.skipIndex(context, skipIndex.getSegment()),
+                  properties.skipIndexTemp(context, skipIndex.getSegment()),
+                  skipIndex::writeTo);
+            completedSkipIndexes.put(skipIndex.getSegment(), skipIndex);
+        } catch (MessagingPlatformException ex) {
+            logger.warn("{}: failed to store skip index for segment {}", context, skipIndex.getSegment(), ex);
+        }
+    }
+
+    /**
+     * Returns the skip index for a segment.
+     *
+     * @param segment the segment number
+     * @return the skip index or empty optional when there is no skip index for the segment
+     */
+    public Optional<SegmentSkipIndex> getSkipIndex(long segment) {
+        SegmentSkipIndex skipIndex = activeSkipIndexes.get(segment);
+        if (skipIndex == null) {
+            skipIndex = completedSkipIndexes.computeIfAbsent(segment, this::readSkipIndex);
+            evict();
+        }
+        return Optional.ofNullable(skipIndex);
+    }
+
+    /**
+     * Stores the timestamp index for a completed segment that did not have a timestamp index yet.
+     *
+     * @param timestamps the timestamps for the segment
+     */
+    public void storeTimestamps(SegmentTimestamps timestamps) {
+        try {
+            write(timestamps);
+            completed.put(timestamps.getSegment(), timestamps);
+            evict();
+        } catch (MessagingPlatformException ex) {
+            logger.warn("{}: failed to store timestamp index for segment {}", context, timestamps.getSegment(), ex);
+        }
+    }
+
+    /**
+     * Stores the summary for a completed segment.
+     *
+     * @param summary the summary for the segment
+     */
+    public void storeSummary(SegmentSummary summary) {
+        try {
+            write(summary);
+            completedSummaries.put(summary.getSegment(), summary);
+            evict();
+        } catch (MessagingPlatformException ex) {
+            logger.warn("{}: failed to store summary for segment {}", context, summary.getSegment(), ex);
+        }
+    }
+
+    /**
+     * Returns the summary for a segment.
+     *
+     * @param segment the segment number
+     * @return the summary or empty optional when there is no summary for the segment
+     */
+    public Optional<SegmentSummary> getSummary(long segment) {
+        SegmentSummary summary = activeSummaries.get(segment);
+        if (summary == null) {
+            summary = completedSummaries.computeIfAbsent(segment, this::readSummary);
+            evict();
+        }
+        return Optional.ofNullable(summary);
+    }
+
+    /**
+     * Restores the timestamp index, the summary and the skip index for an active segment from a snapshot.
+     *
+     * @param timestamps the timestamp index for the segment
+     * @param summary    the summary for the segment
+     * @param skipIndex  the skip index for the segment
+     */
+    public void restoreActive(SegmentTimestamps timestamps, SegmentSummary summary, SegmentSkipIndex skipIndex) {
+        active.put(timestamps.getSegment(), timestamps);
+        activeSummaries.put(summary.getSegment(), summary);
+        activeSkipIndexes.put(skipIndex.getSegment(), skipIndex);
+    }
+
+    /**
+     * Returns the validation checkpoint for a segment.
+     *
+     * @param segment the segment number
+     * @return the checkpoint or empty optional when the segment has not been validated before
+     */
+    public Optional<ValidationCheckpoint> getValidationCheckpoint(long segment) {
+        return Optional.ofNullable(read(storageProperties.get().validation(context, segment),
+                                        ValidationCheckpoint::readFrom));
+    }
+
+    /**
+     * Stores the validation checkpoint for a completed segment.
+     *
+     * @param checkpoint the checkpoint for the segment
+     */
+    public void storeValidationCheckpoint(ValidationCheckpoint checkpoint) {
+        StorageProperties properties = storageProperties.get();
+        try {
+            write(properties.validation(context, checkpoint.getSegment()),
+                  properties.validationTemp(context, checkpoint.getSegment()),
+                  checkpoint::writeTo);
+        } catch (MessagingPlatformException ex) {
+            logger.warn("{}: failed to store validation checkpoint for segment {}",
+                        context,
+                        checkpoint.getSegment(),
+                        ex);
+        }
+    }
+
+    /**
+     * Returns the timestamp index for a segment.
+     *
+     * @param segment the segment number
+     * @return the timestamps or empty optional when there is no timestamp index for the segment
+     */
+    public Optional<SegmentTimestamps> getTimestamps(long segment) {
+        SegmentTimestamps timestamps = active.get(segment);
+        if (timestamps == null) {
+            timestamps = completed.computeIfAbsent(segment, this::read);
+            evict();
+        }
+        return Optional.ofNullable(timestamps);
+    }
+
+    /**
+     * Removes the timestamp index, the summary, the skip index and the validation checkpoint for a segment.
+     *
+     * @param segment the segment number
+     * @return true if the files for the segment do not exist anymore
+     */
+    public boolean remove(long segment) {
+        active.remove(segment);
+        completed.remove(segment);
+        activeSummaries.remove(segment);
+        completedSummaries.remove(segment);
+        activeSkipIndexes.remove(segment);
+        completedSkipIndexes.remove(segment);
+        StorageProperties properties = storageProperties.get();
+        return FileUtils.delete(properties.timestampIndex(context, segment))
+                & FileUtils.delete(properties.summary(context, segment))
+                & FileUtils.delete(properties.skipIndex(context, segment))
+                & FileUtils.delete(properties.validation(context, segment));
+    }
+
+    /**
+     * Removes all timestamp indexes, summaries and skip indexes for the segments from memory.
+     */
+    public void cleanup() {
+        active.clear();
+        completed.clear();
+        activeSummaries.clear();
+        completedSummaries.clear();
+        activeSkipIndexes.clear();
+        completedSkipIndexes.clear();
+    }
+
+    private SegmentTimestamps newTimestamps(long segment) {
+        return new SegmentTimestamps(segment, storageProperties.get().getTimestampIndexInterval());
+    }
+
+    private SegmentSkipIndex newSkipIndex(long segment) {
+        return new SegmentSkipIndex(segment, storageProperties.get().getSkipIndexInterval());
+    }
+
+    private void evict() {
+        int max = storageProperties.get().getMaxBloomFiltersInMemory();
+        while (completed.size() > max) {
+            completed.pollFirstEntry();
+        }
+        while (completedSummaries.size() > max) {
+            completedSummaries.pollFirstEntry();
+        }
+        while (completedSkipIndexes.size() > max) {
+            completedSkipIndexes.pollFirstEntry();
+        }
+    }
+
+    private void write(SegmentTimestamps timestamps) {
+        StorageProperties properties = storageProperties.get();
+        write(properties.timestampIndex(context, timestamps.getSegment()),
+              properties.timestampIndexTemp(context, timestamps.getSegment()),
+              timestamps::writeTo);
+    }
+
+    private void write(SegmentSummary summary) {
+        StorageProperties properties = storageProperties.get();
+        write(properties.summary(context, summary.getSegment()),
+              properties.summaryTemp(context, summary.getSegment()),
+              summary::writeTo);
+    }
+
+    private void write(File file, File tempFile, Writer writer) {
+        try {
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(tempFile.toPath())))) {
+                writer.writeTo(output);
+            }
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new MessagingPlatformException(ErrorCode.INDEX_WRITE_ERROR,
+                                                 "Failed to write " + file,
+                                                 e);
+        }
+    }
+
+    private SegmentTimestamps read(long segment) {
+        return read(storageProperties.get().timestampIndex(context, segment), SegmentTimestamps::readFrom);
+    }
+
+    private SegmentSummary readSummary(long segment) {
+        return read(storageProperties.get().summary(context, segment), SegmentSummary::readFrom);
+    }
+
+    private SegmentSkipIndex readSkipIndex(long segment) {
+        return read(storageProperties.get().skipIndex(context, segment), SegmentSkipIndex::readFrom);
+    }
+
+    private <T> T read(File file, Reader<T> reader) {
+        if (!file.exists()) {
+            return null;
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(file.toPath())))) {
+            return reader.readFrom(input);
+        } catch (IOException e) {
+            logger.warn("{}: failed to read {}", context, file, e);
+            return null;
+        }
+    }
+
+    private interface Writer {
+
+        void writeTo(DataOutputStream output) throws IOException;
+    }
+
+    private interface Reader<T> {
+
+        T readFrom(DataInputStream input) throws IOException;
+    }
+}
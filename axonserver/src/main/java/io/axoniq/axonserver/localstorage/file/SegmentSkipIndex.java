@@ -0,0 +1,174 @@
+/*
+ *  Copyright (c) 2017-2022 AxonIQ B.V. and/or licensed to AxonIQ B.V.
+ *  under one or more contributor license agreements.
+ *
+ *  Licensed under the AxonIQ Open Source License Agreement v1.0;
+ *  you may not use this file except in compliance with the license.
+ *
+ */
+
+package io.axoniq.axonserver.localstorage.file;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Sparse skip index for a single segment. Contains the token and the position in the data file of the start of every
+ * {@code interval}-th transaction. Iterators use the skip index to start reading close to the requested token instead
+ * of walking all transaction headers from the start of the segment.
+ *
+ * @since 2023.0.0
+ */
+public class SegmentSkipIndex {
+
+    private static final int VERSION = 1;
+
+    private final long segment;
+    private final int interval;
+    private long nextToken;
+    private long transactions;
+    private long[] sampleTokens;
+    private int[] samplePositions;
+    private int samples;
+
+    /**
+     * @param segment  the first token in the segment
+     * @param interval number of transactions between samples
+     */
+    public SegmentSkipIndex(long segment, int interval) {
+        this.segment = segment;
+        this.interval = Math.max(1, interval);
+        this.nextToken = segment;
+        this.sampleTokens = new long[16];
+        this.samplePositions = new int[16];
+    }
+
+    /**
+     * Adds the start of the next transaction in the segment. Transactions must be added in token order.
+     *
+     * @param token    the token of the first event in the transaction
+     * @param position the position of the transaction in the data file
+     */
+    public synchronized void add(long token, int position) {
+        if (token < nextToken) {
+            return;
+        }
+        if (transactions % interval == 0) {
+            if (samples == sampleTokens.length) {
+                sampleTokens = Arrays.copyOf(sampleTokens, samples * 2);
+                samplePositions = Arrays.copyOf(samplePositions, samples * 2);
+            }
+            sampleTokens[samples] = token;
+            samplePositions[samples] = position;
+            samples++;
+        }
+        transactions++;
+        nextToken = token + 1;
+    }
+
+    /**
+     * Returns the start of the last sampled transaction at or before the given token.
+     *
+     * @param token the token to search for
+     * @return the start of the transaction or {@code null} when there is no sample at or before the token
+     */
+    public synchronized TransactionPosition floor(long token) {
+        int low = 0;
+        int high = samples - 1;
+        int floor = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (sampleTokens[mid] <= token) {
+                floor = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return floor < 0 ? null : new TransactionPosition(sampleTokens[floor], samplePositions[floor]);
+    }
+
+    /**
+     * Returns a copy of this skip index without the transactions starting at or after the given token.
+     *
+     * @param token the token of the first transaction to remove
+     * @return a copy of the skip index with the transactions before the token
+     */
+    public synchronized SegmentSkipIndex truncate(long token) {
+        SegmentSkipIndex truncated = new SegmentSkipIndex(segment, interval);
+        int count = 0;
+        while (count < samples && sampleTokens[count] < token) {
+            count++;
+        }
+        truncated.sampleTokens = Arrays.copyOf(sampleTokens, Math.max(1, count));
+        truncated.samplePositions = Arrays.copyOf(samplePositions, Math.max(1, count));
+        truncated.samples = count;
+        truncated.transactions = transactions;
+        truncated.nextToken = Math.min(nextToken, token);
+        return truncated;
+    }
+
+    public long getSegment() {
+        return segment;
+    }
+
+    public synchronized long getNextToken() {
+        return nextToken;
+    }
+
+    synchronized void writeTo(DataOutputStream output) throws IOException {
+        output.writeByte(VERSION);
+        output.writeLong(segment);
+        output.writeInt(interval);
+        output.writeLong(nextToken);
+        output.writeLong(transactions);
+        output.writeInt(samples);
+        for (int i = 0; i < samples; i++) {
+            output.writeLong(sampleTokens[i]);
+            output.writeInt(samplePositions[i]);
+        }
+    }
+
+    static SegmentSkipIndex readFrom(DataInputStream input) throws IOException {
+        int version = input.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported skip index version: " + version);
+        }
+        SegmentSkipIndex skipIndex = new SegmentSkipIndex(input.readLong(), input.readInt());
+        skipIndex.nextToken = input.readLong();
+        skipIndex.transactions = input.readLong();
+        int samples = input.readInt();
+        skipIndex.sampleTokens = new long[Math.max(1, samples)];
+        skipIndex.samplePositions = new int[Math.max(1, samples)];
+        for (int i = 0; i < samples; i++) {
+            skipIndex.sampleTokens[i] = input.readLong();
+            skipIndex.samplePositions[i] = input.readInt();
+        }
+        skipIndex.samples = samples;
+        return skipIndex;
+    }
+
+    /**
+     * The token of the first event in a transaction and the position of the transaction in the data file.
+     */
+    public static class TransactionPosition {
+
+        private final long token;
+        private final int position;
+
+        public TransactionPosition(long token, int position) {
+            this.token = token;
+            this.position = position;
+        }
+
+        public long getToken() {
+            return token;
+        }
+
+        public int getPosition() {
+            return position;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ *  Copyright (c) 2017-2022 AxonIQ B.V. and/or licensed to AxonIQ B.V.
+ *  under one or more contributor license agreements.
+ *
+ *  Licensed under the AxonIQ Open Source License Agreement v1.0;
+ *  you may not use this file except in compliance with the license.
+ *
+ */
+
+package io.axoniq.axonserver.localstorage.file;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Sparse timestamp index for a single segment. Contains the first, minimum and maximum timestamp of the events in the
+ * segment, and a sample every {@code interval} events. Each sample contains the token of an event and the maximum
+ * timestamp of all events in the segment before that token.
+ * <p>
+ * As timestamps of events are not guaranteed to be increasing, the samples keep the maximum timestamp of the preceding
+ * events. If this maximum is lower than an instant, none of the events before the sample token have a timestamp at or
+ * after that instant, so a search for the instant can start at the sample token.
+ *
+ * @since 2023.0.0
+ */
+public class SegmentTimestamps {
+
+    private static final int VERSION = 1;
+
+    private final long segment;
+    private final int interval;
+    private long nextToken;
+    private long firstTimestamp;
+    private long minTimestamp = Long.MAX_VALUE;
+    private long maxTimestamp = Long.MIN_VALUE;
+    private long[] sampleTokens;
+    private long[] sampleMaxTimestamps;
+    private int samples;
+
+    /**
+     * @param segment  the first token in the segment
+     * @param interval number of events between samples
+     */
+    public SegmentTimestamps(long segment, int interval) {
+        this.segment = segment;
+        this.interval = Math.max(1, interval);
+        this.nextToken = segment;
+        this.sampleTokens = new long[16];
+        this.sampleMaxTimestamps = new long[16];
+    }
+
+    /**
+     * Adds the timestamp of the next event in the segment. Events must be added in token order.
+     *
+     * @param token     the token of the event
+     * @param timestamp the timestamp of the event
+     */
+    public synchronized void add(long token, long timestamp) {
+        if (token < nextToken) {
+            return;
+        }
+        if (isEmpty()) {
+            firstTimestamp = timestamp;
+        }
+        if (token >= segment + (long) samples * interval) {
+            if (samples == sampleTokens.length) {
+                sampleTokens = Arrays.copyOf(sampleTokens, samples * 2);
+                sampleMaxTimestamps = Arrays.copyOf(sampleMaxTimestamps, samples * 2);
+            }
+            sampleTokens[samples] = token;
+            sampleMaxTimestamps[samples] = maxTimestamp;
+            samples++;
+        }
+        minTimestamp = Math.min(minTimestamp, timestamp);
+        maxTimestamp = Math.max(maxTimestamp, timestamp);
+        nextToken = token + 1;
+    }
+
+    /**
+     * Adds the timestamps of a number of consecutive events.
+     *
+     * @param firstToken the token of the first event
+     * @param timestamps the timestamps of the events
+     */
+    public synchronized void addAll(long firstToken, long[] timestamps) {
+        for (int i = 0; i < timestamps.length; i++) {
+            add(firstToken + i, timestamps[i]);
+        }
+    }
+
+    /**
+     * Returns the token from where to search for the first event with a timestamp at or after the given instant. All
+     * events in the segment before this token have a timestamp before the instant.
+     *
+     * @param instant the timestamp to search for
+     * @return the token to start the search from
+     */
+    public synchronized long scanStart(long instant) {
+        int low = 0;
+        int high = samples - 1;
+        long start = segment;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (sampleMaxTimestamps[mid] < instant) {
+                start = sampleTokens[mid];
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return start;
+    }
+
+    public long getSegment() {
+        return segment;
+    }
+
+    public synchronized boolean isEmpty() {
+        return nextToken == segment;
+    }
+
+    public synchronized long getFirstTimestamp() {
+        return firstTimestamp;
+    }
+
+    public synchronized long getMinTimestamp() {
+        return minTimestamp;
+    }
+
+    public synchronized long getMaxTimestamp() {
+        return maxTimestamp;
+    }
+
+    /**
+     * Returns the token following the last event added.
+     *
+     * @return the next token
+     */
+    public synchronized long getNextToken() {
+        return nextToken;
+    }
+
+    synchronized void writeTo(DataOutputStream output) throws IOException {
+        output.writeByte(VERSION);
+        output.writeLong(segment);
+        output.writeInt(interval);
+        output.writeLong(nextToken);
+        output.writeLong(firstTimestamp);
+        output.writeLong(minTimestamp);
+        output.writeLong(maxTimestamp);
+        output.writeInt(samples);
+        for (int i = 0; i < samples; i++) {
+            output.writeLong(sampleTokens[i]);
+            output.writeLong(sampleMaxTimestamps[i]);
+        }
+    }
+
+    static SegmentTimestamps readFrom(DataInputStream input) throws IOException {
+        int version = input.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported timestamp index version: " + version);
+        }
+        SegmentTimestamps timestamps = new SegmentTimestamps(input.readLong(), input.readInt());
+        timestamps.nextToken = input.readLong();
+        timestamps.firstTimestamp = input.readLong();
+        timestamps.minTimestamp = input.readLong();
+        timestamps.maxTimestamp = input.readLong();
+        int samples = input.readInt();
+        timestamps.sampleTokens = new long[Math.max(1, samples)];
+        timestamps.sampleMaxTimestamps = new long[Math.max(1, samples)];
+        for (int i = 0; i < samples; i++) {
+            timestamps.sampleTokens[i] = input.readLong();
+            timestamps.sampleMaxTimestamps[i] = input.readLong();
+        }
+        timestamps.samples = samples;
+        return timestamps;
+    }
+}
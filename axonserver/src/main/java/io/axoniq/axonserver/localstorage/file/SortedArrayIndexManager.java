@@ -0,0 +1,146 @@
+/*
+ *  Copyright (c) 2017-2022 AxonIQ B.V. and/or licensed to AxonIQ B.V.
+ *  under one or more contributor license agreements.
+ *
+ *  Licensed under the AxonIQ Open Source License Agreement v1.0;
+ *  you may not use this file except in compliance with the license.
+ *
+ */
+
+package io.axoniq.axonserver.localstorage.file;
+
+import io.axoniq.axonserver.exception.ErrorCode;
+import io.axoniq.axonserver.exception.MessagingPlatformException;
+import io.axoniq.axonserver.localstorage.EventType;
+import io.axoniq.axonserver.metric.MeterFactory;
+import org.mapdb.DB;
+import org.mapdb.DBMaker;
+import org.mapdb.HTreeMap;
+import org.mapdb.Serializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Index manager that stores the index for completed segments in the {@link SortedArraySegmentIndex} format instead of
+ * a MapDB hash map. On initialization, existing MapDB index files are converted to the new format. The original files
+ * are kept, so the storage engine can be switched back to the standard index format. Segments completed while this
+ * format is selected only have the new index file. After switching back, the standard index for these segments is
+ * recreated from the segment files on startup.
+ *
+ * @since 2023.0.0
+ */
+public class SortedArrayIndexManager extends StandardIndexManager {
+
+    /**
+     * Value for the {@code index-format} storage property to select this index manager.
+     */
+    public static final String INDEX_FORMAT = "sorted-array";
+
+    private static final Logger logger = LoggerFactory.getLogger(SortedArrayIndexManager.class);
+
+    /**
+     * @param context            the context of the storage engine
+     * @param storageProperties  storage engine configuration
+     * @param eventType          content type of the event store (events or snapshots)
+     * @param remoteIndexManager component that provides last sequence number for old aggregates
+     * @param meterFactory       factory to create metrics meter
+     */
+    public SortedArrayIndexManager(String context, Supplier<StorageProperties> storageProperties,
+                                   EventType eventType,
+                                   RemoteAggregateSequenceNumberResolver remoteIndexManager,
+                                   MeterFactory meterFactory) {
+        super(context, storageProperties, eventType, remoteIndexManager, meterFactory);
+    }
+
+    /**
+     * @param context           the context of the storage engine
+     * @param storageProperties storage engine configuration
+     * @param eventType         content type of the event store (events or snapshots)
+     * @param meterFactory      factory to create metrics meter
+     */
+    public SortedArrayIndexManager(String context, Supplier<StorageProperties> storageProperties,
+                                   EventType eventType, MeterFactory meterFactory) {
+        this(context, storageProperties, eventType, null, meterFactory);
+    }
+
+    @Override
+    public void init() {
+        convertIndexFiles();
+        super.init();
+    }
+
+    @Override
+    public boolean remove(long segment) {
+        boolean removed = super.remove(segment);
+        return FileUtils.delete(storageProperties.get().index(context, segment)) && removed;
+    }
+
+    @Override
+    protected String indexSuffix(StorageProperties properties) {
+        return properties.getNewIndexSuffix();
+    }
+
+    @Override
+    protected File indexFile(StorageProperties properties, long segment) {
+        return properties.newIndex(context, segment);
+    }
+
+    @Override
+    protected void writeIndex(long segment, Map<String, IndexEntries> positionsPerAggregate) {
+        StorageProperties properties = storageProperties.get();
+        File tempFile = properties.newIndexTemp(context, segment);
+        try {
+            SortedArraySegmentIndex.write(tempFile, positionsPerAggregate);
+            Files.move(tempFile.toPath(), properties.newIndex(context, segment).toPath(),
+                       StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new MessagingPlatformException(ErrorCode.INDEX_WRITE_ERROR,
+                                                 "Failed to write index file " + properties.newIndex(context,
+                                                                                                     segment),
+                                                 e);
+        }
+    }
+
+    @Override
+    protected SegmentIndex openIndex(long segment) {
+        StorageProperties properties = storageProperties.get();
+        return SortedArraySegmentIndex.open(properties.newIndex(context, segment),
+                                            properties.isForceCleanMmapIndex());
+    }
+
+    private void convertIndexFiles() {
+        StorageProperties properties = storageProperties.get();
+        String[] indexFiles = FileUtils.getFilesWithSuffix(new File(properties.getStorage(context)),
+                                                           properties.getIndexSuffix());
+        for (String indexFile : indexFiles) {
+            long segment = Long.parseLong(indexFile.substring(0, indexFile.indexOf('.')));
+            if (!properties.newIndex(context, segment).exists()) {
+                logger.info("{}: converting index for segment {}", context, segment);
+                writeIndex(segment, readMapDbIndex(properties.index(context, segment)));
+            }
+        }
+    }
+
+    private Map<String, IndexEntries> readMapDbIndex(File file) {
+        DB db = DBMaker.fileDB(file)
+                       .readOnly()
+                       .fileLockDisable()
+                       .fileChannelEnable()
+                       .make();
+        try (HTreeMap<String, IndexEntries> map = db.hashMap(AGGREGATE_MAP, Serializer.STRING,
+                                                             StandardIndexEntriesSerializer.get())
+                                                    .createOrOpen()) {
+            return new HashMap<>(map);
+        } finally {
+            db.close();
+        }
+    }
+}
@@ -0,0 +1,306 @@
+/*
+ *  Copyright (c) 2017-2022 AxonIQ B.V. and/or licensed to AxonIQ B.V.
+ *  under one or more contributor license agreements.
+ *
+ *  Licensed under the AxonIQ Open Source License Agreement v1.0;
+ *  you may not use this file except in compliance with the license.
+ *
+ */
+
+package io.axoniq.axonserver.localstorage.file;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import io.axoniq.axonserver.exception.ErrorCode;
+import io.axoniq.axonserver.exception.MessagingPlatformException;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Immutable index for a completed segment, stored as a sorted array of aggregate identifier hashes. The file is memory
+ * mapped read-only, a lookup is a binary search on the hashes followed by a comparison of the aggregate identifier.
+ * <p>
+ * File layout:
+ * <pre>
+ *     int     magic
+ *     byte    version
+ *     int     number of aggregates (n)
+ *     long[n] hashes of the aggregate identifiers, sorted
+ *     int[n]  offsets of the entries, in the same order as the hashes
+ *     entries:
+ *         int     length of the aggregate identifier (UTF-8)
+ *         byte[]  aggregate identifier
+ *         long    first sequence number
+ *         int     number of positions (p)
+ *         byte[]  positions of the events in the segment, each stored as the zigzag encoded varint of the
+ *                 difference with the previous position (the first one with 0)
+ * </pre>
+ *
+ * @since 2023.0.0
+ */
+public class SortedArraySegmentIndex implements SegmentIndex {
+
+    private static final int MAGIC = 0x41584958;
+    private static final byte VERSION = 1;
+    private static final int HEADER_SIZE = 9;
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private final File file;
+    private final MappedByteBuffer buffer;
+    private final int count;
+    private final boolean forceClean;
+    private final AtomicInteger readers = new AtomicInteger();
+    private volatile boolean closed;
+
+    private SortedArraySegmentIndex(File file, MappedByteBuffer buffer, boolean forceClean) {
+        this.file = file;
+        this.buffer = buffer;
+        this.forceClean = forceClean;
+        if (buffer.getInt(0) != MAGIC || buffer.get(4) != VERSION) {
+            throw new MessagingPlatformException(ErrorCode.INDEX_READ_ERROR,
+                                                 "Invalid index file: " + file);
+        }
+        this.count = buffer.getInt(5);
+    }
+
+    /**
+     * Writes the index entries for a segment to a file.
+     *
+     * @param file                  the file to write
+     * @param positionsPerAggregate the index entries per aggregate identifier
+     * @throws IOException when writing the file fails
+     */
+    public static void write(File file, Map<String, IndexEntries> positionsPerAggregate) throws IOException {
+        Entry[] entries = positionsPerAggregate.entrySet()
+                                               .stream()
+                                               .map(e -> new Entry(e.getKey(), e.getValue()))
+                                               .sorted(Comparator.comparingLong((Entry e) -> e.hash)
+                                                                 .thenComparing(e -> e.key))
+                                               .toArray(Entry[]::new);
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(file.toPath())))) {
+            output.writeInt(MAGIC);
+            output.writeByte(VERSION);
+            output.writeInt(entries.length);
+            for (Entry entry : entries) {
+                output.writeLong(entry.hash);
+            }
+            int offset = HEADER_SIZE + entries.length * (Long.BYTES + Integer.BYTES);
+            for (Entry entry : entries) {
+                output.writeInt(offset);
+                offset += entry.size();
+            }
+            for (Entry entry : entries) {
+                output.writeInt(entry.keyBytes.length);
+                output.write(entry.keyBytes);
+                output.writeLong(entry.indexEntries.firstSequenceNumber());
+                output.writeInt(entry.indexEntries.size());
+                output.write(entry.encodedPositions);
+            }
+        }
+    }
+
+    /**
+     * Opens an index file for reading.
+     *
+     * @param file       the index file
+     * @param forceClean unmap the file when the index is closed
+     * @return the opened index
+     */
+    public static SortedArraySegmentIndex open(File file, boolean forceClean) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new SortedArraySegmentIndex(file, buffer, forceClean);
+        } catch (IOException e) {
+            throw new MessagingPlatformException(ErrorCode.INDEX_READ_ERROR,
+                                                 "Failed to open index file: " + file,
+                                                 e);
+        }
+    }
+
+    @Override
+    public IndexEntries getPositions(String aggregateId) {
+        readers.incrementAndGet();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Index closed: " + file);
+            }
+            byte[] key = aggregateId.getBytes(StandardCharsets.UTF_8);
+            long hash = hash(key);
+            int index = find(hash);
+            if (index < 0) {
+                return null;
+            }
+            while (index > 0 && hashAt(index - 1) == hash) {
+                index--;
+            }
+            for (; index < count && hashAt(index) == hash; index++) {
+                IndexEntries entries = readIfKeyMatches(offsetAt(index), key);
+                if (entries != null) {
+                    return entries;
+                }
+            }
+            return null;
+        } finally {
+            readers.decrementAndGet();
+        }
+    }
+
+    @Override
+    public Collection<String> aggregateIds() {
+        readers.incrementAndGet();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Index closed: " + file);
+            }
+            List<String> aggregateIds = new ArrayList<>(count);
+            ByteBuffer view = buffer.duplicate();
+            for (int i = 0; i < count; i++) {
+                int offset = offsetAt(i);
+                byte[] key = new byte[view.getInt(offset)];
+                view.position(offset + Integer.BYTES);
+                view.get(key);
+                aggregateIds.add(new String(key, StandardCharsets.UTF_8));
+            }
+            return aggregateIds;
+        } finally {
+            readers.decrementAndGet();
+        }
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        if (forceClean) {
+            CleanUtils.cleanDirectBuffer(buffer, () -> readers.get() == 0, 0, file.getAbsolutePath());
+        }
+    }
+
+    private int find(long hash) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midHash = hashAt(mid);
+            if (midHash < hash) {
+                low = mid + 1;
+            } else if (midHash > hash) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private long hashAt(int index) {
+        return buffer.getLong(HEADER_SIZE + index * Long.BYTES);
+    }
+
+    private int offsetAt(int index) {
+        return buffer.getInt(HEADER_SIZE + count * Long.BYTES + index * Integer.BYTES);
+    }
+
+    private IndexEntries readIfKeyMatches(int offset, byte[] key) {
+        int keyLength = buffer.getInt(offset);
+        if (keyLength != key.length) {
+            return null;
+        }
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset + Integer.BYTES);
+        for (byte b : key) {
+            if (view.get() != b) {
+                return null;
+            }
+        }
+        long firstSequenceNumber = view.getLong();
+        int[] positions = new int[view.getInt()];
+        int previous = 0;
+        for (int i = 0; i < positions.length; i++) {
+            previous += zigzagDecode(readVarInt(view));
+            positions[i] = previous;
+        }
+        return new StandardIndexEntries(firstSequenceNumber, positions);
+    }
+
+    private static long hash(byte[] key) {
+        return HASH_FUNCTION.hashBytes(key).asLong();
+    }
+
+    private static byte[] encodePositions(int[] positions) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(positions.length * 2);
+        int previous = 0;
+        for (int position : positions) {
+            int value = zigzagEncode(position - previous);
+            while ((value & ~0x7F) != 0) {
+                output.write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            output.write(value);
+            previous = position;
+        }
+        return output.toByteArray();
+    }
+
+    private static int readVarInt(ByteBuffer view) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = view.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private static int zigzagEncode(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int zigzagDecode(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static class Entry {
+
+        private final String key;
+        private final byte[] keyBytes;
+        private final long hash;
+        private final IndexEntries indexEntries;
+        private final byte[] encodedPositions;
+
+        private Entry(String key, IndexEntries indexEntries) {
+            this.key = key;
+            this.keyBytes = key.getBytes(StandardCharsets.UTF_8);
+            this.hash = hash(keyBytes);
+            this.indexEntries = indexEntries;
+            this.encodedPositions = encodePositions(indexEntries.positionArray());
+        }
+
+        private int size() {
+            return Integer.BYTES + keyBytes.length + Long.BYTES + Integer.BYTES + encodedPositions.length;
+        }
+    }
+}
@@ -18,6 +18,8 @@ import io.axoniq.axonserver.localstorage.transaction.StorageTransactionManagerFa
 import io.axoniq.axonserver.localstorage.transformation.EventTransformerFactory;
 import io.axoniq.axonserver.metric.MeterFactory;
 
+import java.util.function.Supplier;
+
 /**
  * Factory to create event storage engines for the event store and the snapshot store.
  *
@@ -56,9 +58,7 @@ public class StandardEventStoreFactory implements EventStoreFactory {
      */
     @Override
     public EventStorageEngine createEventStorageEngine(String context) {
-        StandardIndexManager indexManager = new StandardIndexManager(context, embeddedDBProperties::getEvent,
-                                                                     EventType.EVENT,
-                                                                     meterFactory);
+        StandardIndexManager indexManager = indexManager(context, embeddedDBProperties::getEvent, EventType.EVENT);
         InputStreamEventStore second = new InputStreamEventStore(new EventTypeContext(context, EventType.EVENT),
                                                                  indexManager,
                                                                  eventTransformerFactory,
@@ -79,9 +79,7 @@ public class StandardEventStoreFactory implements EventStoreFactory {
      */
     @Override
     public EventStorageEngine createSnapshotStorageEngine(String context) {
-        StandardIndexManager indexManager = new StandardIndexManager(context, embeddedDBProperties::getSnapshot,
-                                                                     EventType.SNAPSHOT,
-                                                                     meterFactory);
+        StandardIndexManager indexManager = indexManager(context, embeddedDBProperties::getSnapshot, EventType.SNAPSHOT);
         InputStreamEventStore second = new InputStreamEventStore(new EventTypeContext(context, EventType.SNAPSHOT),
                                                                  indexManager,
                                                                  eventTransformerFactory,
@@ -92,4 +90,12 @@ public class StandardEventStoreFactory implements EventStoreFactory {
                                      eventTransformerFactory,
                                      embeddedDBProperties::getSnapshot, second, meterFactory, fileSystemMonitor);
     }
+
+    private StandardIndexManager indexManager(String context, Supplier<StorageProperties> storageProperties,
+                                              EventType eventType) {
+        if (SortedArrayIndexManager.INDEX_FORMAT.equals(storageProperties.get().getIndexFormat())) {
+            return new SortedArrayIndexManager(context, storageProperties, eventType, meterFactory);
+        }
+        return new StandardIndexManager(context, storageProperties, eventType, meterFactory);
+    }
 }
@@ -9,7 +9,7 @@
 
 package io.axoniq.axonserver.localstorage.file;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -20,7 +20,7 @@ import java.util.List;
  */
 public class StandardIndexEntries implements IndexEntries {
 
-    private final AppendOnlyList<Integer> entries;
+    private final IntAppendOnlyList entries;
     private final long firstSequenceNumber;
 
     /**
@@ -28,7 +28,7 @@ public class StandardIndexEntries implements IndexEntries {
      * @param firstSequenceNumber first sequence number
      */
     public StandardIndexEntries(long firstSequenceNumber) {
-        this(firstSequenceNumber, new Integer[0]);
+        this(firstSequenceNumber, new int[0]);
     }
 
     /**
@@ -37,11 +37,21 @@ public class StandardIndexEntries implements IndexEntries {
      * @param firstSequenceNumber first sequence number
      * @param entries             the positions of the aggregate
      */
-    public StandardIndexEntries(long firstSequenceNumber, Integer[] entries) {
-        this.entries = new AppendOnlyList<>(entries);
+    public StandardIndexEntries(long firstSequenceNumber, int[] entries) {
+        this.entries = new IntAppendOnlyList(entries);
         this.firstSequenceNumber = firstSequenceNumber;
     }
 
+    /**
+     * Initializes the object with given entries and {@code firstSequenceNumber}.
+     *
+     * @param firstSequenceNumber first sequence number
+     * @param entries             the positions of the aggregate
+     */
+    public StandardIndexEntries(long firstSequenceNumber, Integer[] entries) {
+        this(firstSequenceNumber, Arrays.stream(entries).mapToInt(Integer::intValue).toArray());
+    }
+
     /**
      * @return true if no entries in this object
      */
@@ -77,16 +87,11 @@ public class StandardIndexEntries implements IndexEntries {
             return this;
         }
 
-        List<Integer> reducedEntries = new ArrayList<>();
-        long i = firstSequenceNumber;
-        for (Integer entry : entries) {
-            if (i >= minSequenceNumber && i < maxSequenceNumber) {
-                reducedEntries.add(entry);
-            }
-            i++;
-        }
+        int[] positions = entries.toArray();
+        int from = (int) Math.min(positions.length, Math.max(0, minSequenceNumber - firstSequenceNumber));
+        int to = (int) Math.min(positions.length, Math.max(from, maxSequenceNumber - firstSequenceNumber));
         return new StandardIndexEntries(Math.max(minSequenceNumber, firstSequenceNumber),
-                                        reducedEntries.toArray(new Integer[0]));
+                                        Arrays.copyOfRange(positions, from, to));
     }
 
     /**
@@ -94,7 +99,15 @@ public class StandardIndexEntries implements IndexEntries {
      */
     @Override
     public List<Integer> positions() {
-        return entries;
+        return entries.asList();
+    }
+
+    /**
+     * @return copy of the positions
+     */
+    @Override
+    public int[] positionArray() {
+        return entries.toArray();
     }
 
     /**
@@ -129,14 +142,17 @@ public class StandardIndexEntries implements IndexEntries {
         add(indexEntry.getPosition());
     }
 
-    public void add(Integer position) {
+    public void add(int position) {
         entries.add(position);
     }
 
     @Override
     public void addAll(List<IndexEntry> newEntries) {
-        List<Integer> positions = new ArrayList<>(newEntries.size());
-        newEntries.forEach(e -> positions.add(e.getPosition()));
+        int[] positions = new int[newEntries.size()];
+        int i = 0;
+        for (IndexEntry entry : newEntries) {
+            positions[i++] = entry.getPosition();
+        }
         entries.addAll(positions);
     }
 
@@ -47,8 +47,8 @@ public class StandardIndexEntriesSerializer implements Serializer<IndexEntries>
     public void serialize(@Nonnull DataOutput2 out, @Nonnull IndexEntries value) throws IOException {
         out.packInt(value.size());
         out.packLong(value.firstSequenceNumber());
-        for (Integer positionInfo : value.positions()) {
-            out.packInt(positionInfo);
+        for (int position : value.positionArray()) {
+            out.packInt(position);
         }
     }
 
@@ -64,7 +64,7 @@ public class StandardIndexEntriesSerializer implements Serializer<IndexEntries>
     public IndexEntries deserialize(@Nonnull DataInput2 input, int available) throws IOException {
         int count = input.unpackInt();
         long sequenceNumber = input.unpackLong();
-        Integer[] entries = new Integer[count];
+        int[] entries = new int[count];
         for (int i = 0; i < count; i++) {
             entries[i] = input.unpackInt();
         }
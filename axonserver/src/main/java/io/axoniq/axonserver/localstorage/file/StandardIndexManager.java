@@ -12,11 +12,13 @@ package io.axoniq.axonserver.localstorage.file;
 import io.axoniq.axonserver.exception.ErrorCode;
 import io.axoniq.axonserver.exception.MessagingPlatformException;
 import io.axoniq.axonserver.localstorage.EventType;
+import io.axoniq.axonserver.localstorage.SegmentSummary;
 import io.axoniq.axonserver.metric.BaseMetricName;
 import io.axoniq.axonserver.metric.MeterFactory;
 import io.axoniq.axonserver.util.DaemonThreadFactory;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
 import org.mapdb.DB;
 import org.mapdb.DBMaker;
 import org.mapdb.HTreeMap;
@@ -29,23 +31,37 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.Set;
 import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentNavigableMap;
 import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
 
@@ -62,9 +78,12 @@ import static io.axoniq.axonserver.localstorage.file.FileUtils.name;
 public class StandardIndexManager implements IndexManager {
 
     private static final Logger logger = LoggerFactory.getLogger(StandardIndexManager.class);
-    private static final String AGGREGATE_MAP = "aggregateMap";
+    static final String AGGREGATE_MAP = "aggregateMap";
     private static final ScheduledExecutorService scheduledExecutorService =
             Executors.newScheduledThreadPool(1, new DaemonThreadFactory("index-manager-"));
+    private static final ExecutorService probeExecutorService =
+            Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors()),
+                                         new DaemonThreadFactory("index-probe-"));
     protected final Supplier<StorageProperties> storageProperties;
     protected final String context;
     private final EventType eventType;
@@ -78,6 +97,9 @@ public class StandardIndexManager implements IndexManager {
     private final AtomicLong useMmapAfterIndex = new AtomicLong();
     private final Counter bloomFilterOpenMeter;
     private final Counter bloomFilterCloseMeter;
+    private final Timer indexProbeTimer;
+    private final SegmentMetadataStore segmentMetadata;
+    private final GlobalIndex globalIndex;
     private ScheduledFuture<?> cleanupTask;
 
     /**
@@ -110,6 +132,9 @@ public class StandardIndexManager implements IndexManager {
         this.indexCloseMeter = meterFactory.rateMeter(BaseMetricName.AXON_INDEX_CLOSE, tags);
         this.bloomFilterOpenMeter = meterFactory.counter(BaseMetricName.AXON_BLOOM_OPEN, tags);
         this.bloomFilterCloseMeter = meterFactory.counter(BaseMetricName.AXON_BLOOM_CLOSE, tags);
+        this.indexProbeTimer = meterFactory.timer(BaseMetricName.AXON_INDEX_PROBE, tags);
+        this.segmentMetadata = new SegmentMetadataStore(context, storageProperties);
+        this.globalIndex = new GlobalIndex(context, storageProperties);
         scheduledExecutorService.scheduleAtFixedRate(this::indexCleanup, 10, 10, TimeUnit.SECONDS);
     }
 
@@ -119,13 +144,16 @@ public class StandardIndexManager implements IndexManager {
     public void init() {
         StorageProperties properties = storageProperties.get();
         String[] indexFiles = FileUtils.getFilesWithSuffix(new File(properties.getStorage(context)),
-                                                           properties.getIndexSuffix());
+                                                           indexSuffix(properties));
         for (String indexFile : indexFiles) {
             long index = Long.parseLong(indexFile.substring(0, indexFile.indexOf('.')));
             indexesDescending.add(index);
         }
 
         updateUseMmapAfterIndex();
+        if (properties.isGlobalIndexEnabled()) {
+            globalIndex.init(indexesDescending, this::aggregateIds);
+        }
     }
 
     private void updateUseMmapAfterIndex() {
@@ -138,6 +166,49 @@ public class StandardIndexManager implements IndexManager {
         if (positionsPerAggregate == null) {
             positionsPerAggregate = Collections.emptyMap();
         }
+        writeIndex(segment, positionsPerAggregate);
+
+        PersistedBloomFilter filter = new PersistedBloomFilter(properties.bloomFilter(context, segment)
+                                                                                .getAbsolutePath(),
+                                                               positionsPerAggregate.keySet().size(),
+                                                               properties.getBloomIndexFpp());
+        filter.create();
+        filter.insertAll(positionsPerAggregate.keySet());
+        filter.store();
+        bloomFilterPerSegment.put(segment, filter);
+
+        getIndex(segment);
+    }
+
+    /**
+     * Returns the file suffix of the index files for completed segments.
+     *
+     * @param properties storage engine configuration
+     * @return the file suffix of the index files
+     */
+    protected String indexSuffix(StorageProperties properties) {
+        return properties.getIndexSuffix();
+    }
+
+    /**
+     * Returns the index file for a completed segment.
+     *
+     * @param properties storage engine configuration
+     * @param segment    the segment number
+     * @return the index file
+     */
+    protected File indexFile(StorageProperties properties, long segment) {
+        return properties.index(context, segment);
+    }
+
+    /**
+     * Writes the index file for a completed segment.
+     *
+     * @param segment               the segment number
+     * @param positionsPerAggregate the index entries per aggregate identifier
+     */
+    protected void writeIndex(long segment, Map<String, IndexEntries> positionsPerAggregate) {
+        StorageProperties properties = storageProperties.get();
         File tempFile = properties.indexTemp(context, segment);
         if (!FileUtils.delete(tempFile)) {
             throw new MessagingPlatformException(ErrorCode.INDEX_WRITE_ERROR,
@@ -169,24 +240,35 @@ public class StandardIndexManager implements IndexManager {
                                                          .index(context, segment),
                                                  e);
         }
+    }
 
-        PersistedBloomFilter filter = new PersistedBloomFilter(properties.bloomFilter(context, segment)
-                                                                                .getAbsolutePath(),
-                                                               positionsPerAggregate.keySet().size(),
-                                                               properties.getBloomIndexFpp());
-        filter.create();
-        filter.insertAll(positionsPerAggregate.keySet());
-        filter.store();
-        bloomFilterPerSegment.put(segment, filter);
-
-        getIndex(segment);
+    /**
+     * Opens the index file of a completed segment for reading.
+     *
+     * @param segment the segment number
+     * @return the opened index
+     */
+    protected SegmentIndex openIndex(long segment) {
+        return new MapDbSegmentIndex(segment);
     }
 
     private IndexEntries getPositions(long segment, String aggregateId) {
         if (notInBloomIndex(segment, aggregateId)) {
             return null;
         }
+        return probe(segment, aggregateId);
+    }
 
+    private IndexEntries probe(long segment, String aggregateId) {
+        long start = System.nanoTime();
+        try {
+            return readPositions(segment, aggregateId);
+        } finally {
+            indexProbeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private IndexEntries readPositions(long segment, String aggregateId) {
         RuntimeException lastError = new RuntimeException();
         for (int retry = 0; retry < 3; retry++) {
             try {
@@ -202,6 +284,39 @@ public class StandardIndexManager implements IndexManager {
         throw lastError;
     }
 
+    /**
+     * Reads the positions for an aggregate from the indexes of a number of completed segments, without checking the
+     * bloom filters. The segments are probed in parallel, the calling thread probes the first segment itself.
+     *
+     * @param segments    the segments to probe
+     * @param aggregateId the aggregate identifier
+     * @return the index entries per segment, in the same order as the segments, with {@code null} values for segments
+     * that do not contain the aggregate
+     */
+    private List<IndexEntries> probe(List<Long> segments, String aggregateId) {
+        List<CompletableFuture<IndexEntries>> others = new ArrayList<>(segments.size());
+        for (int i = 1; i < segments.size(); i++) {
+            long segment = segments.get(i);
+            others.add(CompletableFuture.supplyAsync(() -> probe(segment, aggregateId),
+                                                     probeExecutorService));
+        }
+        List<IndexEntries> results = new ArrayList<>(segments.size());
+        if (!segments.isEmpty()) {
+            results.add(probe(segments.get(0), aggregateId));
+        }
+        for (CompletableFuture<IndexEntries> other : others) {
+            try {
+                results.add(other.join());
+            } catch (CompletionException ex) {
+                if (ex.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) ex.getCause();
+                }
+                throw ex;
+            }
+        }
+        return results;
+    }
+
     private Index getIndex(long segment) {
         try {
             return indexMap.computeIfAbsent(segment, Index::new).ensureReady();
@@ -290,11 +405,32 @@ public class StandardIndexManager implements IndexManager {
     @Override
     public void complete(long segment) {
         createIndex(segment, activeIndexes.get(segment));
+        segmentMetadata.complete(segment);
+        addToGlobalIndex(segment, activeIndexes.getOrDefault(segment, Collections.emptyMap()).keySet());
         indexesDescending.add(segment);
         activeIndexes.remove(segment);
         updateUseMmapAfterIndex();
     }
 
+    private void addToGlobalIndex(long segment, Collection<String> aggregateIds) {
+        try {
+            globalIndex.add(segment, aggregateIds);
+        } catch (RuntimeException ex) {
+            logger.warn("{}: failed to add segment {} to global index, lookups will use the segment indexes",
+                        context, segment, ex);
+            globalIndex.disable();
+        }
+    }
+
+    private Collection<String> aggregateIds(long segment) {
+        SegmentIndex segmentIndex = openIndex(segment);
+        try {
+            return segmentIndex.aggregateIds();
+        } finally {
+            segmentIndex.close();
+        }
+    }
+
     /**
      * Returns the last sequence number of an aggregate if this is found.
      *
@@ -309,28 +445,39 @@ public class StandardIndexManager implements IndexManager {
             return Optional.empty();
         }
         int checked = 0;
-        for (Long segment : activeIndexes.descendingKeySet()) {
+        for (Map.Entry<Long, Map<String, IndexEntries>> activeIndex : activeIndexes.descendingMap().entrySet()) {
             if (checked >= maxSegments) {
                 return Optional.empty();
             }
-            if (segment <= maxTokenHint) {
-                IndexEntries indexEntries = activeIndexes.get(segment).get(aggregateId);
+            if (activeIndex.getKey() <= maxTokenHint) {
+                IndexEntries indexEntries = activeIndex.getValue().get(aggregateId);
                 if (indexEntries != null) {
                     return Optional.of(indexEntries.lastSequenceNumber());
                 }
                 checked++;
             }
         }
-        for (Long segment : indexesDescending) {
-            if (checked >= maxSegments) {
-                return Optional.empty();
+        int parallelism = Math.max(1, storageProperties.get().getIndexLookupParallelism());
+        Predicate<Long> mayContain = mayContain(aggregateId);
+        Iterator<Long> segments = indexesDescending.iterator();
+        while (segments.hasNext()) {
+            List<Long> batch = new ArrayList<>(parallelism);
+            while (batch.size() < parallelism && checked < maxSegments && segments.hasNext()) {
+                Long segment = segments.next();
+                if (segment <= maxTokenHint) {
+                    checked++;
+                    if (mayContain.test(segment)) {
+                        batch.add(segment);
+                    }
+                }
             }
-            if (segment <= maxTokenHint) {
-                IndexEntries indexEntries = getPositions(segment, aggregateId);
+            for (IndexEntries indexEntries : probe(batch, aggregateId)) {
                 if (indexEntries != null) {
                     return Optional.of(indexEntries.lastSequenceNumber());
                 }
-                checked++;
+            }
+            if (checked >= maxSegments) {
+                return Optional.empty();
             }
         }
         if (remoteIndexManager != null && checked < maxSegments) {
@@ -353,10 +500,10 @@ public class StandardIndexManager implements IndexManager {
      */
     @Override
     public SegmentIndexEntries lastIndexEntries(String aggregateId, long maxSequenceNumber) {
-        for (Long segment : activeIndexes.descendingKeySet()) {
-            IndexEntries indexEntries = activeIndexes.get(segment).get(aggregateId);
+        for (Map.Entry<Long, Map<String, IndexEntries>> activeIndex : activeIndexes.descendingMap().entrySet()) {
+            IndexEntries indexEntries = activeIndex.getValue().get(aggregateId);
             if (indexEntries != null && indexEntries.firstSequenceNumber() < maxSequenceNumber) {
-                return new SegmentIndexEntries(segment, indexEntries.range(indexEntries.firstSequenceNumber(),
+                return new SegmentIndexEntries(activeIndex.getKey(), indexEntries.range(indexEntries.firstSequenceNumber(),
                                                                            maxSequenceNumber,
                                                                            EventType.SNAPSHOT.equals(eventType)));
             }
@@ -389,7 +536,7 @@ public class StandardIndexManager implements IndexManager {
     }
 
     /**
-     * Removes the index and bloom filter for the segment
+     * Removes the index, bloom filter and metadata files for the segment
      *
      * @param segment the segment number
      */
@@ -404,8 +551,11 @@ public class StandardIndexManager implements IndexManager {
             bloomFilterPerSegment.remove(segment);
             indexesDescending.remove(segment);
         }
-        return FileUtils.delete(properties.index(context, segment)) &&
-                FileUtils.delete(properties.bloomFilter(context, segment));
+        globalIndex.remove(segment);
+        boolean metadataRemoved = segmentMetadata.remove(segment);
+        return FileUtils.delete(indexFile(properties, segment)) &&
+                FileUtils.delete(properties.bloomFilter(context, segment)) &&
+                metadataRemoved;
     }
 
     /**
@@ -427,39 +577,154 @@ public class StandardIndexManager implements IndexManager {
                      firstSequenceNumber,
                      lastSequenceNumber);
 
+        AtomicLong remaining = new AtomicLong(maxResults);
+        visitAggregate(aggregateId, minToken, (segment, entries) -> {
+            int nrOfEntries = addToResult(firstSequenceNumber, lastSequenceNumber, results, segment, entries);
+            return !allEntriesFound(firstSequenceNumber, remaining.addAndGet(-nrOfEntries), entries);
+        });
+        return results;
+    }
+
+    /**
+     * Finds the entries for the aggregate per segment in ascending segment order. The candidate segments are
+     * determined up front from the active indexes and the bloom filters or global index. The index of a candidate
+     * segment is only probed when the returned iterator reaches it, and the walk stops at the first segment that
+     * starts after the last requested sequence number.
+     */
+    @Override
+    public Iterator<SegmentIndexEntries> lookupAggregateSegments(String aggregateId, long firstSequenceNumber,
+                                                                 long lastSequenceNumber, long minToken) {
+        Iterator<Long> candidates = candidateSegments(aggregateId, minToken).iterator();
+        boolean snapshot = EventType.SNAPSHOT.equals(eventType);
+        return new Iterator<SegmentIndexEntries>() {
+            private SegmentIndexEntries next;
+            private boolean done;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && !done && candidates.hasNext()) {
+                    long segment = candidates.next();
+                    IndexEntries entries = entries(segment, aggregateId);
+                    if (entries == null || entries.isEmpty()) {
+                        continue;
+                    }
+                    if (entries.firstSequenceNumber() >= lastSequenceNumber) {
+                        done = true;
+                    } else {
+                        IndexEntries range = entries.range(firstSequenceNumber, lastSequenceNumber, snapshot);
+                        if (!range.isEmpty()) {
+                            next = new SegmentIndexEntries(segment, range);
+                        }
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public SegmentIndexEntries next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                SegmentIndexEntries result = next;
+                next = null;
+                return result;
+            }
+        };
+    }
+
+    /**
+     * Returns the segments that may contain events for the aggregate in ascending order, without reading the indexes
+     * of completed segments. Uses the same minToken bounds as {@link #visitAggregate(String, long, BiPredicate)}.
+     */
+    private Deque<Long> candidateSegments(String aggregateId, long minToken) {
+        Deque<Long> candidates = new ArrayDeque<>();
         long minTokenInPreviousSegment = Long.MAX_VALUE;
         for (Long segment : activeIndexes.descendingKeySet()) {
             if (minTokenInPreviousSegment < minToken) {
-                return results;
+                return candidates;
             }
-            IndexEntries entries = activeIndexes.getOrDefault(segment, Collections.emptyMap()).get(aggregateId);
-            if (entries != null) {
-                int nrOfEntries = addToResult(firstSequenceNumber, lastSequenceNumber, results, segment, entries);
-                maxResults -= nrOfEntries;
-                if (allEntriesFound(firstSequenceNumber, maxResults, entries)) {
-                    return results;
-                }
+            if (activeIndexes.getOrDefault(segment, Collections.emptyMap()).containsKey(aggregateId)) {
+                candidates.addFirst(segment);
             }
             minTokenInPreviousSegment = segment;
         }
+        indexesDescending.stream()
+                         .takeWhile(s -> s >= minToken || nextSegment(s) >= minToken)
+                         .filter(mayContain(aggregateId))
+                         .forEach(candidates::addFirst);
+        return candidates;
+    }
 
-        for (Long index : indexesDescending) {
+    private IndexEntries entries(long segment, String aggregateId) {
+        Map<String, IndexEntries> activeIndex = activeIndexes.get(segment);
+        if (activeIndex != null) {
+            return activeIndex.get(aggregateId);
+        }
+        return probe(segment, aggregateId);
+    }
+
+    /**
+     * Passes the index entries for an aggregate per segment to the visitor, starting with the most recent segment.
+     * Stops when the visitor returns false or when the segments only contain events before the minToken.
+     */
+    private void visitAggregate(String aggregateId, long minToken, BiPredicate<Long, IndexEntries> visitor) {
+        long minTokenInPreviousSegment = Long.MAX_VALUE;
+        for (Long segment : activeIndexes.descendingKeySet()) {
             if (minTokenInPreviousSegment < minToken) {
-                return results;
+                return;
+            }
+            IndexEntries entries = activeIndexes.getOrDefault(segment, Collections.emptyMap()).get(aggregateId);
+            if (entries != null && !visitor.test(segment, entries)) {
+                return;
             }
-            IndexEntries entries = getPositions(index, aggregateId);
-            logger.debug("{}: lookupAggregate {} in segment {} found {}", context, aggregateId, index, entries);
-            if (entries != null) {
-                int nrOfEntries = addToResult(firstSequenceNumber, lastSequenceNumber, results, index, entries);
-                maxResults -= nrOfEntries;
-                if (allEntriesFound(firstSequenceNumber, maxResults, entries)) {
-                    return results;
+            minTokenInPreviousSegment = segment;
+        }
+
+        int parallelism = Math.max(1, storageProperties.get().getIndexLookupParallelism());
+        Iterator<Long> segments = indexesDescending.stream()
+                                                   .takeWhile(s -> s >= minToken || nextSegment(s) >= minToken)
+                                                   .filter(mayContain(aggregateId))
+                                                   .iterator();
+        while (segments.hasNext()) {
+            List<Long> batch = new ArrayList<>(parallelism);
+            while (batch.size() < parallelism && segments.hasNext()) {
+                batch.add(segments.next());
+            }
+            List<IndexEntries> batchEntries = probe(batch, aggregateId);
+            for (int i = 0; i < batch.size(); i++) {
+                IndexEntries entries = batchEntries.get(i);
+                logger.debug("{}: lookupAggregate {} in segment {} found {}", context, aggregateId, batch.get(i),
+                             entries);
+                if (entries != null && !visitor.test(batch.get(i), entries)) {
+                    return;
                 }
             }
-            minTokenInPreviousSegment = index;
         }
+    }
 
-        return results;
+    /**
+     * Returns a predicate to check if a completed segment may contain events for an aggregate. Uses the global index
+     * when it is available, otherwise the bloom filters of the segments.
+     */
+    private Predicate<Long> mayContain(String aggregateId) {
+        return globalIndex.segments(aggregateId)
+                          .<Predicate<Long>>map(segments -> {
+                              Set<Long> segmentSet = new HashSet<>();
+                              for (long segment : segments) {
+                                  segmentSet.add(segment);
+                              }
+                              return segmentSet::contains;
+                          })
+                          .orElse(segment -> !notInBloomIndex(segment, aggregateId));
+    }
+
+    private long nextSegment(long segment) {
+        SortedSet<Long> newerSegments = indexesDescending.headSet(segment);
+        if (!newerSegments.isEmpty()) {
+            return newerSegments.last();
+        }
+        Map.Entry<Long, Map<String, IndexEntries>> firstActive = activeIndexes.firstEntry();
+        return firstActive == null ? Long.MAX_VALUE : firstActive.getKey();
     }
 
     private int addToResult(long firstSequenceNumber, long lastSequenceNumber,
@@ -486,6 +751,8 @@ public class StandardIndexManager implements IndexManager {
         indexMap.forEach((segment, index) -> index.close());
         indexMap.clear();
         indexesDescending.clear();
+        segmentMetadata.cleanup();
+        globalIndex.close(delete);
         if (cleanupTask != null && !cleanupTask.isDone()) {
             cleanupTask.cancel(true);
         }
@@ -496,74 +763,274 @@ public class StandardIndexManager implements IndexManager {
         StorageProperties properties = storageProperties.get();
         return indexesDescending.stream()
                                 .filter(s -> s > lastSegmentBackedUp)
-                                .flatMap(s -> Stream.of(
-                                        name(properties.index(context, s)),
+                                .flatMap(s -> Stream.concat(Stream.of(
+                                        name(indexFile(properties, s)),
                                         name(properties.bloomFilter(context, s))
-                                ));
+                                ), Stream.of(properties.timestampIndex(context, s),
+                                             properties.summary(context, s),
+                                             properties.skipIndex(context, s))
+                                         .filter(File::exists)
+                                         .map(FileUtils::name)));
+    }
+
+    /**
+     * Adds the timestamps of a number of events to the timestamp index of an active segment.
+     *
+     * @param segment    the segment number
+     * @param firstToken the token of the first event
+     * @param timestamps the timestamps of the events
+     */
+    @Override
+    public void addTimestamps(long segment, long firstToken, long[] timestamps) {
+        segmentMetadata.addTimestamps(segment, firstToken, timestamps);
+    }
+
+    /**
+     * Returns the timestamp index for a segment.
+     *
+     * @param segment the segment number
+     * @return the timestamp index or empty optional when there is no timestamp index for the segment
+     */
+    @Override
+    public Optional<SegmentTimestamps> getTimestamps(long segment) {
+        return segmentMetadata.getTimestamps(segment);
+    }
+
+    /**
+     * Stores the timestamp index for a completed segment. Ignored if the segment is not completed yet.
+     *
+     * @param timestamps the timestamp index for the segment
+     */
+    @Override
+    public void storeTimestamps(SegmentTimestamps timestamps) {
+        if (indexesDescending.contains(timestamps.getSegment())) {
+            segmentMetadata.storeTimestamps(timestamps);
+        }
+    }
+
+    /**
+     * Adds a number of events to the summary of an active segment.
+     *
+     * @param segment        the segment number
+     * @param firstToken     the token of the first event
+     * @param timestamps     the timestamps of the events
+     * @param payloadTypes   the payload types of the events
+     * @param aggregateTypes the aggregate types of the events
+     */
+    @Override
+    public void addSummary(long segment, long firstToken, long[] timestamps, String[] payloadTypes,
+                           String[] aggregateTypes) {
+        segmentMetadata.addSummary(segment, firstToken, timestamps, payloadTypes, aggregateTypes);
+    }
+
+    /**
+     * Returns the summary for a segment.
+     *
+     * @param segment the segment number
+     * @return the summary or empty optional when there is no summary for the segment
+     */
+    @Override
+    public Optional<SegmentSummary> getSummary(long segment) {
+        return segmentMetadata.getSummary(segment);
+    }
+
+    /**
+     * Stores the summary for a completed segment. Ignored if the segment is not completed yet.
+     *
+     * @param summary the summary for the segment
+     */
+    @Override
+    public void storeSummary(SegmentSummary summary) {
+        if (indexesDescending.contains(summary.getSegment())) {
+            segmentMetadata.storeSummary(summary);
+        }
+    }
+
+    /**
+     * Adds the start of a transaction to the skip index of an active segment.
+     *
+     * @param segment  the segment number
+     * @param token    the token of the first event in the transaction
+     * @param position the position of the transaction in the data file
+     */
+    @Override
+    public void addTransaction(long segment, long token, int position) {
+        segmentMetadata.addTransaction(segment, token, position);
+    }
+
+    /**
+     * Returns the skip index for a segment.
+     *
+     * @param segment the segment number
+     * @return the skip index or empty optional when there is no skip index for the segment
+     */
+    @Override
+    public Optional<SegmentSkipIndex> getSkipIndex(long segment) {
+        return segmentMetadata.getSkipIndex(segment);
+    }
+
+    /**
+     * Returns the validation checkpoint for a segment.
+     *
+     * @param segment the segment number
+     * @return the checkpoint or empty optional when the segment has not been validated before
+     */
+    @Override
+    public Optional<ValidationCheckpoint> getValidationCheckpoint(long segment) {
+        return segmentMetadata.getValidationCheckpoint(segment);
+    }
+
+    /**
+     * Stores the validation checkpoint for a completed segment. Ignored if the segment is not completed yet.
+     *
+     * @param checkpoint the checkpoint for the segment
+     */
+    @Override
+    public void storeValidationCheckpoint(ValidationCheckpoint checkpoint) {
+        if (indexesDescending.contains(checkpoint.getSegment())) {
+            segmentMetadata.storeValidationCheckpoint(checkpoint);
+        }
+    }
+
+    /**
+     * Creates a snapshot of the index, timestamp index, summary and skip index of an active segment. The positions for each
+     * aggregate are copied, so the snapshot is not affected by events added later.
+     *
+     * @param segment   the segment number
+     * @param nextToken the token following the last event that must be included in the snapshot
+     * @return the snapshot or empty optional when the segment is not active
+     */
+    @Override
+    public Optional<ActiveSegmentSnapshot> snapshotActiveSegment(long segment, long nextToken) {
+        if (indexesDescending.contains(segment)) {
+            return Optional.empty();
+        }
+        Map<String, IndexEntries> entries = new HashMap<>();
+        activeIndexes.getOrDefault(segment, Collections.emptyMap())
+                     .forEach((aggregateId, indexEntries) -> entries.put(aggregateId, new StandardIndexEntries(
+                             indexEntries.firstSequenceNumber(),
+                             indexEntries.positionArray())));
+        Optional<SegmentTimestamps> timestamps = segmentMetadata.getTimestamps(segment);
+        Optional<SegmentSummary> summary = segmentMetadata.getSummary(segment);
+        Optional<SegmentSkipIndex> skipIndex = segmentMetadata.getSkipIndex(segment);
+        if (!timestamps.isPresent() || !summary.isPresent() || !skipIndex.isPresent()) {
+            return Optional.empty();
+        }
+        return Optional.of(new ActiveSegmentSnapshot(segment,
+                                                     nextToken,
+                                                     entries,
+                                                     timestamps.get(),
+                                                     summary.get(),
+                                                     skipIndex.get()));
+    }
+
+    /**
+     * Restores the index, timestamp index, summary and skip index of an active segment from a snapshot.
+     *
+     * @param snapshot the snapshot of the active segment
+     */
+    @Override
+    public void restoreActiveSegment(ActiveSegmentSnapshot snapshot) {
+        if (indexesDescending.contains(snapshot.getSegment())) {
+            throw new IndexNotFoundException(snapshot.getSegment() + ": already completed");
+        }
+        activeIndexes.computeIfAbsent(snapshot.getSegment(), s -> new ConcurrentHashMap<>())
+                     .putAll(snapshot.getEntries());
+        segmentMetadata.restoreActive(snapshot.getTimestamps(), snapshot.getSummary(), snapshot.getSkipIndex());
     }
 
     private class Index implements Closeable {
 
         private final long segment;
         private final Object initLock = new Object();
-        private volatile boolean initialized;
-        private HTreeMap<String, IndexEntries> positions;
-        private DB db;
-
+        private volatile SegmentIndex segmentIndex;
 
         private Index(long segment) {
             this.segment = segment;
         }
 
         public IndexEntries getPositions(String aggregateId) {
-            return positions.get(aggregateId);
+            return segmentIndex.getPositions(aggregateId);
         }
 
         @Override
         public void close() {
             if( logger.isDebugEnabled()) {
-                logger.debug("{}: close {}", segment, storageProperties.get().index(context, segment));
+                logger.debug("{}: close {}", segment, indexFile(storageProperties.get(), segment));
             }
-            if (db != null && !db.isClosed()) {
+            SegmentIndex current = segmentIndex;
+            if (current != null && !current.isClosed()) {
                 indexCloseMeter.mark();
-                positions.close();
-                db.close();
+                current.close();
             }
         }
 
         public Index ensureReady() {
-            if (initialized && !db.isClosed()) {
+            SegmentIndex current = segmentIndex;
+            if (current != null && !current.isClosed()) {
                 return this;
             }
 
             synchronized (initLock) {
-                if (initialized && !db.isClosed()) {
+                current = segmentIndex;
+                if (current != null && !current.isClosed()) {
                     return this;
                 }
 
                 StorageProperties properties = storageProperties.get();
-                if (!properties.index(context, segment).exists()) {
+                if (!indexFile(properties, segment).exists()) {
                     throw new IndexNotFoundException("Index not found for segment: " + segment);
                 }
                 indexOpenMeter.mark();
-                logger.debug("{}: open {}", segment, properties.index(context, segment));
-                DBMaker.Maker maker = DBMaker.fileDB(properties.index(context, segment))
-                                             .readOnly()
-                                             .fileLockDisable();
-                if (properties.isUseMmapIndex() && segment > useMmapAfterIndex.get()) {
-                    maker.fileMmapEnable();
-                    if (properties.isForceCleanMmapIndex()) {
-                        maker.cleanerHackEnable();
-                    }
-                } else {
-                    maker.fileChannelEnable();
-                }
-                this.db = maker.make();
-                this.positions = db.hashMap(AGGREGATE_MAP, Serializer.STRING, StandardIndexEntriesSerializer.get())
-                                   .createOrOpen();
-                initialized = true;
+                logger.debug("{}: open {}", segment, indexFile(properties, segment));
+                segmentIndex = openIndex(segment);
             }
             return this;
         }
     }
+
+    private class MapDbSegmentIndex implements SegmentIndex {
+
+        private final DB db;
+        private final HTreeMap<String, IndexEntries> positions;
+
+        private MapDbSegmentIndex(long segment) {
+            StorageProperties properties = storageProperties.get();
+            DBMaker.Maker maker = DBMaker.fileDB(properties.index(context, segment))
+                                         .readOnly()
+                                         .fileLockDisable();
+            if (properties.isUseMmapIndex() && segment > useMmapAfterIndex.get()) {
+                maker.fileMmapEnable();
+                if (properties.isForceCleanMmapIndex()) {
+                    maker.cleanerHackEnable();
+                }
+            } else {
+                maker.fileChannelEnable();
+            }
+            this.db = maker.make();
+            this.positions = db.hashMap(AGGREGATE_MAP, Serializer.STRING, StandardIndexEntriesSerializer.get())
+                               .createOrOpen();
+        }
+
+        @Override
+        public IndexEntries getPositions(String aggregateId) {
+            return positions.get(aggregateId);
+        }
+
+        @Override
+        public Collection<String> aggregateIds() {
+            return new ArrayList<>(positions.keySet());
+        }
+
+        @Override
+        public boolean isClosed() {
+            return db.isClosed();
+        }
+
+        @Override
+        public void close() {
+            positions.close();
+            db.close();
+        }
+    }
 }
@@ -10,6 +10,7 @@
 package io.axoniq.axonserver.localstorage.file;
 
 import io.axoniq.axonserver.config.SystemInfoProvider;
+import io.axoniq.axonserver.localstorage.transformation.EventCompression;
 import org.springframework.util.Assert;
 import org.springframework.util.unit.DataSize;
 
@@ -45,6 +46,39 @@ public class StorageProperties implements Cloneable {
      * File suffix for bloom files.
      */
     private String bloomIndexSuffix = ".bloom";
+    /**
+     * File suffix for timestamp index files.
+     */
+    private String timestampIndexSuffix = ".tindex";
+    /**
+     * File suffix for segment summary files.
+     */
+    private String summarySuffix = ".summary";
+    /**
+     * File suffix for segment validation checkpoint files.
+     */
+    private String validationSuffix = ".valid";
+    /**
+     * File suffix for snapshots of the index of the active segment.
+     */
+    private String activeIndexSuffix = ".aindex";
+    /**
+     * Interval (in milliseconds) for writing a snapshot of the index of the active segment, to limit the number of
+     * events to read at startup. Set to 0 to disable the snapshots.
+     */
+    private long activeIndexSnapshotInterval = 60000;
+    /**
+     * Number of events between samples in the timestamp index of a segment.
+     */
+    private int timestampIndexInterval = 1024;
+    /**
+     * File suffix for segment skip index files.
+     */
+    private String skipIndexSuffix = ".skip";
+    /**
+     * Number of transactions between samples in the skip index of a segment.
+     */
+    private int skipIndexInterval = 64;
 
     /**
      * Size for new storage segments.
@@ -65,6 +99,14 @@ public class StorageProperties implements Cloneable {
      * Interval to force syncing files to disk (ms)
      */
     private long forceInterval = 1000;
+    /**
+     * When to confirm appended transactions relative to forcing the data to disk
+     */
+    private DurabilityMode durability = DurabilityMode.ASYNC;
+    /**
+     * Maximum time (ms) to wait for more transactions before forcing the data to disk in group commit mode
+     */
+    private long groupCommitWindow = 0;
     /**
      * Number of segments to validate to on startup after unclean shutdown.
      */
@@ -73,6 +115,10 @@ public class StorageProperties implements Cloneable {
      * Number of recent segments that Axon Server keeps memory mapped
      */
     private int memoryMappedSegments = 5;
+    /**
+     * Read completed segments through memory mapped files, keeping at most memoryMappedSegments segments mapped
+     */
+    private boolean memoryMapCompletedSegments;
     /**
      * Delay to clear ByteBuffers from off-heap memory for writable segments
      */
@@ -89,6 +135,10 @@ public class StorageProperties implements Cloneable {
      * Maximum number of bloom filters to keep in memory
      */
     private int maxBloomFiltersInMemory = 100;
+    /**
+     * Maximum number of completed segment indexes to probe in parallel when looking up an aggregate
+     */
+    private int indexLookupParallelism = 4;
     /**
      * Interval (ms) to check if there are files that are complete and can be closed
      */
@@ -102,6 +152,22 @@ public class StorageProperties implements Cloneable {
      * When using memory mapped files for indexes, let mapdb forcefully close the memory mapped files on close
      */
     private Boolean forceCleanMmapIndex;
+    /**
+     * Create and map the file for the next segment in the background when the active segment is almost full
+     */
+    private boolean preallocateSegments;
+    /**
+     * Fill ratio of the active segment when the file for the next segment is created
+     */
+    private float preallocateThreshold = 0.9f;
+    /**
+     * Touch all pages of a preallocated segment, so no page faults occur when writing to the new segment
+     */
+    private boolean prefaultSegments;
+    /**
+     * Maintain a global index with the segments containing events for each aggregate
+     */
+    private boolean globalIndexEnabled;
 
     /**
      * Define how many events to prefetch from disk when streaming events to the client
@@ -115,12 +181,20 @@ public class StorageProperties implements Cloneable {
 
     private final SystemInfoProvider systemInfoProvider;
     private int flags;
+    /**
+     * Compression algorithm for events in new segments. Existing segments keep the algorithm they were written with.
+     */
+    private EventCompression compression = EventCompression.NONE;
     /**
      * Time to keep events in primary tier before deleting them, if secondary tier is defined.
      */
     private Duration[] retentionTime = new Duration[]{
             Duration.ofDays(7)
     };
+    /**
+     * Format of the index files for completed segments. Use "sorted-array" for the {@link SortedArrayIndexManager}
+     * format, any other value uses the MapDB based index files.
+     */
     private String indexFormat;
     private int segmentsForSequenceNumberCheck = 10;
 
@@ -138,6 +212,21 @@ public class StorageProperties implements Cloneable {
         this.newIndexSuffix = newIndexSuffix;
     }
 
+    public StorageProperties(SystemInfoProvider systemInfoProvider, String eventsSuffix, String indexSuffix,
+                             String bloomIndexSuffix, String newIndexSuffix, String globalIndexSuffix,
+                             String timestampIndexSuffix) {
+        this(systemInfoProvider, eventsSuffix, indexSuffix, bloomIndexSuffix, newIndexSuffix, globalIndexSuffix);
+        this.timestampIndexSuffix = timestampIndexSuffix;
+    }
+
+    public StorageProperties(SystemInfoProvider systemInfoProvider, String eventsSuffix, String indexSuffix,
+                             String bloomIndexSuffix, String newIndexSuffix, String globalIndexSuffix,
+                             String timestampIndexSuffix, String summarySuffix) {
+        this(systemInfoProvider, eventsSuffix, indexSuffix, bloomIndexSuffix, newIndexSuffix, globalIndexSuffix,
+             timestampIndexSuffix);
+        this.summarySuffix = summarySuffix;
+    }
+
     public String getEventsSuffix() {
         return eventsSuffix;
     }
@@ -223,6 +312,110 @@ public class StorageProperties implements Cloneable {
         return new File(String.format(TEMP_PATH_FORMAT, getStorage(context), segment, newIndexSuffix));
     }
 
+    public File timestampIndex(String context, long segment) {
+        return new File(String.format(PATH_FORMAT, getStorage(context), segment, timestampIndexSuffix));
+    }
+
+    public File timestampIndexTemp(String context, long segment) {
+        return new File(String.format(TEMP_PATH_FORMAT, getStorage(context), segment, timestampIndexSuffix));
+    }
+
+    public String getTimestampIndexSuffix() {
+        return timestampIndexSuffix;
+    }
+
+    public void setTimestampIndexSuffix(String timestampIndexSuffix) {
+        this.timestampIndexSuffix = timestampIndexSuffix;
+    }
+
+    public File summary(String context, long segment) {
+        return new File(String.format(PATH_FORMAT, getStorage(context), segment, summarySuffix));
+    }
+
+    public File summaryTemp(String context, long segment) {
+        return new File(String.format(TEMP_PATH_FORMAT, getStorage(context), segment, summarySuffix));
+    }
+
+    public String getSummarySuffix() {
+        return summarySuffix;
+    }
+
+    public void setSummarySuffix(String summarySuffix) {
+        this.summarySuffix = summarySuffix;
+    }
+
+    public File validation(String context, long segment) {
+        return new File(String.format(PATH_FORMAT, getStorage(context), segment, validationSuffix));
+    }
+
+    public File validationTemp(String context, long segment) {
+        return new File(String.format(TEMP_PATH_FORMAT, getStorage(context), segment, validationSuffix));
+    }
+
+    public String getValidationSuffix() {
+        return validationSuffix;
+    }
+
+    public void setValidationSuffix(String validationSuffix) {
+        this.validationSuffix = validationSuffix;
+    }
+
+    public File activeIndex(String context, long segment) {
+        return new File(String.format(PATH_FORMAT, getStorage(context), segment, activeIndexSuffix));
+    }
+
+    public File activeIndexTemp(String context, long segment) {
+        return new File(String.format(TEMP_PATH_FORMAT, getStorage(context), segment, activeIndexSuffix));
+    }
+
+    public String getActiveIndexSuffix() {
+        return activeIndexSuffix;
+    }
+
+    public void setActiveIndexSuffix(String activeIndexSuffix) {
+        this.activeIndexSuffix = activeIndexSuffix;
+    }
+
+    public long getActiveIndexSnapshotInterval() {
+        return activeIndexSnapshotInterval;
+    }
+
+    public void setActiveIndexSnapshotInterval(long activeIndexSnapshotInterval) {
+        this.activeIndexSnapshotInterval = activeIndexSnapshotInterval;
+    }
+
+    public File skipIndex(String context, long segment) {
+        return new File(String.format(PATH_FORMAT, getStorage(context), segment, skipIndexSuffix));
+    }
+
+    public File skipIndexTemp(String context, long segment) {
+        return new File(String.format(TEMP_PATH_FORMAT, getStorage(context), segment, skipIndexSuffix));
+    }
+
+    public String getSkipIndexSuffix() {
+        return skipIndexSuffix;
+    }
+
+    public void setSkipIndexSuffix(String skipIndexSuffix) {
+        this.skipIndexSuffix = skipIndexSuffix;
+    }
+
+    public int getSkipIndexInterval() {
+        return skipIndexInterval;
+    }
+
+    public void setSkipIndexInterval(int skipIndexInterval) {
+        this.skipIndexInterval = skipIndexInterval;
+    }
+
+    public int getTimestampIndexInterval() {
+        return timestampIndexInterval;
+    }
+
+    public void setTimestampIndexInterval(int timestampIndexInterval) {
+        this.timestampIndexInterval = timestampIndexInterval;
+    }
+
     public String getGlobalIndexSuffix() {
         return globalIndexSuffix;
     }
@@ -231,6 +424,44 @@ public class StorageProperties implements Cloneable {
         this.globalIndexSuffix = globalIndexSuffix;
     }
 
+    public File globalIndex(String context) {
+        return new File(String.format("%s/aggregates%s", getStorage(context), globalIndexSuffix));
+    }
+
+    public File preallocatedDataFile(String context) {
+        return new File(String.format("%s/next%s.temp", getStorage(context), eventsSuffix));
+    }
+
+    public boolean isPreallocateSegments() {
+        return preallocateSegments;
+    }
+
+    public void setPreallocateSegments(boolean preallocateSegments) {
+        this.preallocateSegments = preallocateSegments;
+    }
+
+    public StorageProperties withPreallocateSegments(boolean preallocateSegments) {
+        StorageProperties clone = cloneProperties();
+        clone.preallocateSegments = preallocateSegments;
+        return clone;
+    }
+
+    public float getPreallocateThreshold() {
+        return preallocateThreshold;
+    }
+
+    public void setPreallocateThreshold(float preallocateThreshold) {
+        this.preallocateThreshold = preallocateThreshold;
+    }
+
+    public boolean isPrefaultSegments() {
+        return prefaultSegments;
+    }
+
+    public void setPrefaultSegments(boolean prefaultSegments) {
+        this.prefaultSegments = prefaultSegments;
+    }
+
     public File dataFile(String context, long segment) {
         return new File(String.format(PATH_FORMAT, getStorage(context), segment, eventsSuffix));
     }
@@ -244,7 +475,21 @@ public class StorageProperties implements Cloneable {
     }
 
     public int getFlags() {
-        return flags;
+        return flags | compression.flag();
+    }
+
+    public EventCompression getCompression() {
+        return compression;
+    }
+
+    public void setCompression(EventCompression compression) {
+        this.compression = compression;
+    }
+
+    public StorageProperties withCompression(EventCompression compression) {
+        StorageProperties clone = cloneProperties();
+        clone.compression = compression;
+        return clone;
     }
 
     public String getStorage(String context) {
@@ -262,6 +507,20 @@ public class StorageProperties implements Cloneable {
         this.validationSegments = validationSegments;
     }
 
+    public boolean isMemoryMapCompletedSegments() {
+        return memoryMapCompletedSegments;
+    }
+
+    public void setMemoryMapCompletedSegments(boolean memoryMapCompletedSegments) {
+        this.memoryMapCompletedSegments = memoryMapCompletedSegments;
+    }
+
+    public StorageProperties withMemoryMapCompletedSegments(boolean memoryMapCompletedSegments) {
+        StorageProperties clone = cloneProperties();
+        clone.memoryMapCompletedSegments = memoryMapCompletedSegments;
+        return clone;
+    }
+
     public int getMemoryMappedSegments() {
         return memoryMappedSegments;
     }
@@ -302,6 +561,36 @@ public class StorageProperties implements Cloneable {
         this.maxBloomFiltersInMemory = maxBloomFiltersInMemory;
     }
 
+    public int getIndexLookupParallelism() {
+        return indexLookupParallelism;
+    }
+
+    public void setIndexLookupParallelism(int indexLookupParallelism) {
+        this.indexLookupParallelism = indexLookupParallelism;
+    }
+
+    public DurabilityMode getDurability() {
+        return durability;
+    }
+
+    public void setDurability(DurabilityMode durability) {
+        this.durability = durability;
+    }
+
+    public StorageProperties withDurability(DurabilityMode durability) {
+        StorageProperties clone = cloneProperties();
+        clone.durability = durability;
+        return clone;
+    }
+
+    public long getGroupCommitWindow() {
+        return groupCommitWindow;
+    }
+
+    public void setGroupCommitWindow(long groupCommitWindow) {
+        this.groupCommitWindow = groupCommitWindow;
+    }
+
     public long getSyncInterval() {
         return syncInterval;
     }
@@ -344,6 +633,14 @@ public class StorageProperties implements Cloneable {
                 systemInfoProvider.javaOnWindows();
     }
 
+    public boolean isGlobalIndexEnabled() {
+        return globalIndexEnabled;
+    }
+
+    public void setGlobalIndexEnabled(boolean globalIndexEnabled) {
+        this.globalIndexEnabled = globalIndexEnabled;
+    }
+
     public boolean isUseMmapIndex() {
         return useMmapIndex;
     }
@@ -386,6 +683,12 @@ public class StorageProperties implements Cloneable {
         return clone;
     }
 
+    public StorageProperties withIndexLookupParallelism(int indexLookupParallelism) {
+        StorageProperties clone = cloneProperties();
+        clone.indexLookupParallelism = indexLookupParallelism;
+        return clone;
+    }
+
     public void setRetentionTime(Duration[] retentionTime) {
         this.retentionTime = retentionTime;
     }
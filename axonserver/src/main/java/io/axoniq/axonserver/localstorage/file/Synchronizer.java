@@ -18,13 +18,16 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.SortedMap;
 import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
@@ -45,24 +48,62 @@ public class Synchronizer {
     private final SortedMap<WritePosition, StorageCallback> writePositions = new ConcurrentSkipListMap<>();
 
     private final ScheduledExecutorService fsync;
+    private final ScheduledExecutorService segmentCompletion;
     private final EventTypeContext context;
     private final StorageProperties storageProperties;
     private final Consumer<WritePosition> completeSegmentCallback;
+    private final Consumer<WritePosition> snapshotCallback;
     private final AtomicReference<WritePosition> currentRef = new AtomicReference<>();
     private final ConcurrentSkipListSet<WritePosition> syncAndCloseFile = new ConcurrentSkipListSet<>();
     private final AtomicBoolean updated = new AtomicBoolean();
+    private final AtomicBoolean groupCommitScheduled = new AtomicBoolean();
     private volatile ScheduledFuture<?> forceJob;
     private volatile ScheduledFuture<?> syncJob;
+    private volatile ScheduledFuture<?> snapshotJob;
 
     public Synchronizer(EventTypeContext context, StorageProperties storageProperties,
                         Consumer<WritePosition> completeSegmentCallback) {
+        this(context, storageProperties, completeSegmentCallback, writePosition -> {
+        });
+    }
+
+    /**
+     * @param context                 the context and the content type (events or snapshots)
+     * @param storageProperties       configuration of the storage engine
+     * @param completeSegmentCallback callback to complete a full segment
+     * @param snapshotCallback        callback to write a snapshot of the index of the active segment, called
+     *                                periodically on the segment completion thread
+     */
+    public Synchronizer(EventTypeContext context, StorageProperties storageProperties,
+                        Consumer<WritePosition> completeSegmentCallback,
+                        Consumer<WritePosition> snapshotCallback) {
         this.context = context;
         this.storageProperties = storageProperties;
         this.completeSegmentCallback = completeSegmentCallback;
+        this.snapshotCallback = snapshotCallback;
         fsync = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory(context + "-synchronizer-"));
+        segmentCompletion = Executors.newSingleThreadScheduledExecutor(
+                new CustomizableThreadFactory(context + "-segment-completion-"));
     }
 
+    /**
+     * Confirms the transactions that are completely written, in the order of the write positions. Depending on the
+     * {@link DurabilityMode} the segment is forced to disk before confirming the transactions.
+     */
     public void notifyWritePositions() {
+        switch (storageProperties.getDurability()) {
+            case GROUP_COMMIT:
+                scheduleGroupCommit();
+                break;
+            case PER_TRANSACTION:
+                confirmWritePositions(true);
+                break;
+            default:
+                confirmWritePositions(false);
+        }
+    }
+
+    private void confirmWritePositions(boolean force) {
         try {
             boolean removed = false;
             for (Iterator<Map.Entry<WritePosition, StorageCallback>> iterator = writePositions
@@ -81,13 +122,18 @@ public class Synchronizer {
                     break;
                 }
 
+                if (force) {
+                    writePosition.force();
+                }
                 if (!writePositionEntry.getValue().complete(writePosition.sequence)) {
                     break;
                 }
-                updated.set(true);
+                if (!force) {
+                    updated.set(true);
+                }
 
                 if (canSyncAt(writePosition, current)) {
-                    syncAndCloseFile.add(current);
+                    closeFile(current);
                 }
                 removed = true;
                 currentRef.updateAndGet(old -> old.sequence < writePosition.sequence ? writePosition : old);
@@ -102,7 +148,105 @@ public class Synchronizer {
         }
     }
 
+    private void scheduleGroupCommit() {
+        if (groupCommitScheduled.compareAndSet(false, true)) {
+            try {
+                fsync.schedule(this::groupCommit, storageProperties.getGroupCommitWindow(), TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException ex) {
+                groupCommitScheduled.set(false);
+                throw ex;
+            }
+        }
+    }
+
+    /**
+     * Collects all transactions that are completely written, forces the segments containing them once and then
+     * confirms all collected transactions.
+     */
+    private void groupCommit() {
+        groupCommitScheduled.set(false);
+        try {
+            List<Map.Entry<WritePosition, StorageCallback>> group = new ArrayList<>();
+            WritePosition last = currentRef.get();
+            for (Map.Entry<WritePosition, StorageCallback> writePositionEntry : writePositions.entrySet()) {
+                WritePosition writePosition = writePositionEntry.getKey();
+                if (last == null || !writePosition.isComplete()
+                        || writePosition.sequence > last.sequence + writePosition.prevEntries) {
+                    break;
+                }
+                if (!Objects.equals(last.segment, writePosition.segment) && !group.isEmpty()) {
+                    last.force();
+                }
+                group.add(writePositionEntry);
+                last = writePosition;
+            }
+            if (group.isEmpty()) {
+                return;
+            }
+            last.force();
+
+            boolean removed = false;
+            for (Map.Entry<WritePosition, StorageCallback> writePositionEntry : group) {
+                WritePosition current = currentRef.get();
+                WritePosition writePosition = writePositionEntry.getKey();
+                if (!writePositionEntry.getValue().complete(writePosition.sequence)) {
+                    break;
+                }
+                removed = true;
+                if (canSyncAt(writePosition, current)) {
+                    closeFile(current);
+                }
+                currentRef.updateAndGet(old -> old.sequence < writePosition.sequence ? writePosition : old);
+                writePositions.remove(writePosition);
+            }
+            if (removed && !writePositions.isEmpty()) {
+                scheduleGroupCommit();
+            }
+        } catch (RuntimeException t) {
+            writePositions.entrySet().iterator().forEachRemaining(e -> e.getValue().error(t));
+            log.error("Caught exception in the synchronizer for {}", context, t);
+        }
+    }
+
+    /**
+     * Queues a segment for completion. Segments are completed on a dedicated thread, so building the index for a
+     * segment does not delay forcing and confirming writes to the active segment.
+     */
+    private void closeFile(WritePosition writePosition) {
+        syncAndCloseFile.add(writePosition);
+        try {
+            segmentCompletion.execute(this::completeSegments);
+        } catch (RejectedExecutionException ex) {
+            log.debug("{}: segment completion already stopped, segment {} completed on shutdown",
+                      context, writePosition.segment);
+        }
+    }
+
+    private void completeSegments() {
+        synchronized (syncAndCloseFile) {
+            boolean closeMore = true;
+            while (closeMore && !syncAndCloseFile.isEmpty()) {
+                closeMore = completeFirstSegment();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of segments that are full and waiting to be completed.
+     *
+     * @return the number of segments waiting for completion
+     */
+    public int pendingSegments() {
+        return syncAndCloseFile.size();
+    }
+
     private boolean syncAndCloseFile() {
+        synchronized (syncAndCloseFile) {
+            return completeFirstSegment();
+        }
+    }
+
+    private boolean completeFirstSegment() {
         WritePosition toSync = syncAndCloseFile.pollFirst();
         if (toSync != null) {
             try {
@@ -137,12 +281,19 @@ public class Synchronizer {
         currentRef.set(writePosition);
         log.debug("Initializing at {}", writePosition);
         if (syncJob == null) {
-            syncJob = fsync.scheduleWithFixedDelay(this::syncAndCloseFile,
+            syncJob = segmentCompletion.scheduleWithFixedDelay(this::syncAndCloseFile,
                                                    storageProperties.getSyncInterval(),
                                                    storageProperties.getSyncInterval(),
                                                    TimeUnit.MILLISECONDS);
             log.debug("Scheduled syncJob");
         }
+        if (snapshotJob == null && storageProperties.getActiveIndexSnapshotInterval() > 0) {
+            snapshotJob = segmentCompletion.scheduleWithFixedDelay(this::snapshotCurrent,
+                                                                   storageProperties.getActiveIndexSnapshotInterval(),
+                                                                   storageProperties.getActiveIndexSnapshotInterval(),
+                                                                   TimeUnit.MILLISECONDS);
+            log.debug("Scheduled snapshotJob");
+        }
         if (forceJob == null) {
             forceJob = fsync.scheduleWithFixedDelay(this::forceCurrent,
                                                     storageProperties.getForceInterval(),
@@ -152,6 +303,18 @@ public class Synchronizer {
         }
     }
 
+    private void snapshotCurrent() {
+        WritePosition writePosition = currentRef.get();
+        if (writePosition != null) {
+            try {
+                snapshotCallback.accept(writePosition);
+            } catch (Exception ex) {
+                log.warn("{}: failed to write snapshot of active segment {} - {}",
+                         context, writePosition.segment, ex.getMessage());
+            }
+        }
+    }
+
     public void forceCurrent() {
         if (updated.compareAndSet(true, false)) {
             WritePosition writePosition = currentRef.get();
@@ -168,15 +331,17 @@ public class Synchronizer {
         if (forceJob != null) {
             forceJob.cancel(false);
         }
+        if (snapshotJob != null) {
+            snapshotJob.cancel(false);
+        }
         syncJob = null;
         forceJob = null;
+        snapshotJob = null;
         waitForPendingWrites();
-        boolean closeMore = true;
-        while (closeMore && !syncAndCloseFile.isEmpty()) {
-            closeMore = syncAndCloseFile();
-        }
+        completeSegments();
         if (shutdown) {
             fsync.shutdown();
+            segmentCompletion.shutdown();
         }
         WritePosition writePosition = currentRef.getAndSet(null);
         if (writePosition != null) {
@@ -14,6 +14,7 @@ import io.axoniq.axonserver.exception.EventStoreValidationException;
 import io.axoniq.axonserver.exception.MessagingPlatformException;
 import io.axoniq.axonserver.localstorage.SerializedEvent;
 import io.axoniq.axonserver.localstorage.SerializedTransactionWithToken;
+import io.axoniq.axonserver.localstorage.file.SegmentSkipIndex.TransactionPosition;
 
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
@@ -33,16 +34,33 @@ public class TransactionByteBufferIterator implements TransactionIterator {
 
 
     public TransactionByteBufferIterator(ByteBufferEventSource eventSource, long segment, long token, boolean validating) {
+        this(eventSource, segment, token, validating, null);
+    }
+
+    /**
+     * @param eventSource the event source for the segment
+     * @param segment     the first token in the segment
+     * @param token       the token of the first transaction to return
+     * @param validating  flag to indicate if the checksums of the transactions must be checked
+     * @param from        start of a transaction at or before {@code token}, or {@code null} to read from the start of
+     *                    the segment
+     */
+    public TransactionByteBufferIterator(ByteBufferEventSource eventSource, long segment, long token,
+                                         boolean validating, TransactionPosition from) {
         this.eventSource = eventSource;
         this.reader = eventSource.getBuffer();
         this.currentSequenceNumber = segment;
         this.validating = validating;
+        reader.position(5);
+        if (from != null && from.getToken() <= token) {
+            currentSequenceNumber = from.getToken();
+            reader.position(from.getPosition());
+        }
         forwardTo(token);
         readTransaction();
     }
 
     private void forwardTo(long firstSequence) {
-        reader.position(5);
         while (firstSequence > currentSequenceNumber) {
 
             int size = reader.getInt();
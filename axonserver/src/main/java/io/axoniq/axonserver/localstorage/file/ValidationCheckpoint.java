@@ -0,0 +1,92 @@
+/*
+ *  Copyright (c) 2017-2022 AxonIQ B.V. and/or licensed to AxonIQ B.V.
+ *  under one or more contributor license agreements.
+ *
+ *  Licensed under the AxonIQ Open Source License Agreement v1.0;
+ *  you may not use this file except in compliance with the license.
+ *
+ */
+
+
+package io.axoniq.axonserver.localstorage.file;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Records that the checksums of a completed segment have been verified. As completed segments do not change, the
+ * segment does not need to be validated again at startup as long as the size and modification time of the data file
+ * are unchanged.
+ *
+ * @since 2023.0.0
+ */
+public class ValidationCheckpoint {
+
+    private static final int VERSION = 1;
+
+    private final long segment;
+    private final long fileSize;
+    private final long lastModified;
+    private final long nextToken;
+
+    /**
+     * @param segment      the first token in the segment
+     * @param fileSize     the size of the data file when it was validated
+     * @param lastModified the modification time of the data file when it was validated
+     * @param nextToken    the token following the last event in the segment
+     */
+    public ValidationCheckpoint(long segment, long fileSize, long lastModified, long nextToken) {
+        this.segment = segment;
+        this.fileSize = fileSize;
+        this.lastModified = lastModified;
+        this.nextToken = nextToken;
+    }
+
+    /**
+     * Creates a checkpoint for a data file that has been validated.
+     *
+     * @param segment   the first token in the segment
+     * @param dataFile  the data file of the segment
+     * @param nextToken the token following the last event in the segment
+     * @return the checkpoint
+     */
+    public static ValidationCheckpoint of(long segment, File dataFile, long nextToken) {
+        return new ValidationCheckpoint(segment, dataFile.length(), dataFile.lastModified(), nextToken);
+    }
+
+    /**
+     * Checks if the data file has not changed since it was validated.
+     *
+     * @param dataFile the data file of the segment
+     * @return true if the size and modification time of the data file match the checkpoint
+     */
+    public boolean matches(File dataFile) {
+        return dataFile.exists() && dataFile.length() == fileSize && dataFile.lastModified() == lastModified;
+    }
+
+    public long getSegment() {
+        return segment;
+    }
+
+    public long getNextToken() {
+        return nextToken;
+    }
+
+    void writeTo(DataOutputStream output) throws IOException {
+        output.writeByte(VERSION);
+        output.writeLong(segment);
+        output.writeLong(fileSize);
+        output.writeLong(lastModified);
+        output.writeLong(nextToken);
+    }
+
+    static ValidationCheckpoint readFrom(DataInputStream input) throws IOException {
+        int version = input.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported validation checkpoint version: " + version);
+        }
+        return new ValidationCheckpoint(input.readLong(), input.readLong(), input.readLong(), input.readLong());
+    }
+}
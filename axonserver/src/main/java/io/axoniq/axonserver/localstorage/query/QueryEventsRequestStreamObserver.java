@@ -41,6 +41,7 @@ import io.axoniq.axonserver.queryparser.FunctionExpr;
 import io.axoniq.axonserver.queryparser.Numeric;
 import io.axoniq.axonserver.queryparser.Query;
 import io.axoniq.axonserver.queryparser.QueryElement;
+import io.axoniq.axonserver.queryparser.StringLiteral;
 import io.axoniq.axonserver.util.DaemonThreadFactory;
 import io.axoniq.axonserver.util.StreamObserverUtils;
 import io.grpc.stub.StreamObserver;
@@ -52,10 +53,14 @@ import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
@@ -64,6 +69,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 /**
  * @author Marc Gathier
@@ -78,6 +84,7 @@ public class QueryEventsRequestStreamObserver implements StreamObserver<QueryEve
                                                                                                    new DaemonThreadFactory(
                                                                                                            "ad-hoc-query-"));
     public static final String COLUMN_NAME_TOKEN = "token";
+    private static final int PENDING_RESULTS_CAPACITY = 1024;
 
     private final SnapshotWriteStorage snapshotWriteStorage;
     private final EventStreamReader snapshotStreamReader;
@@ -90,6 +97,10 @@ public class QueryEventsRequestStreamObserver implements StreamObserver<QueryEve
     private final long deadline;
     private final EventDecorator eventDecorator;
     private final StreamObserver<QueryEventsResponse> responseObserver;
+    private final int queryParallelism;
+    private final BlockingQueue<QueryResult> pendingResults = new ArrayBlockingQueue<>(PENDING_RESULTS_CAPACITY);
+    private final AtomicBoolean processingResults = new AtomicBoolean();
+    private volatile boolean pipelineDone;
     private final AtomicReference<Sender> senderRef = new AtomicReference<>();
     private volatile Registration registration;
     private volatile Pipeline pipeLine;
@@ -100,6 +111,24 @@ public class QueryEventsRequestStreamObserver implements StreamObserver<QueryEve
                                             StreamObserver<QueryEventsResponse> responseObserver,
                                             SnapshotWriteStorage snapshotWriteStorage,
                                             EventStreamReader snapshotStreamReader) {
+        this(eventWriteStorage, eventStreamReader, aggregateReader, defaultLimit, timeout, eventDecorator,
+             responseObserver, snapshotWriteStorage, snapshotStreamReader, 1);
+    }
+
+    /**
+     * Creates a query handler that may scan a number of segments in parallel for queries that do not need to process
+     * the events in order.
+     *
+     * @param queryParallelism maximum number of segments to scan in parallel for a query
+     */
+    public QueryEventsRequestStreamObserver(EventWriteStorage eventWriteStorage, EventStreamReader eventStreamReader,
+                                            AggregateReader aggregateReader,
+                                            long defaultLimit, long timeout, EventDecorator eventDecorator,
+                                            StreamObserver<QueryEventsResponse> responseObserver,
+                                            SnapshotWriteStorage snapshotWriteStorage,
+                                            EventStreamReader snapshotStreamReader,
+                                            int queryParallelism) {
+        this.queryParallelism = queryParallelism;
         this.eventWriteStorage = eventWriteStorage;
         this.eventStreamReader = eventStreamReader;
         this.aggregateReader = aggregateReader;
@@ -148,12 +177,20 @@ public class QueryEventsRequestStreamObserver implements StreamObserver<QueryEve
                 Query query = new EventStoreQueryParser().parse(queryString);
                 query.addDefaultLimit(defaultLimit);
                 String aggregateIdentifier = null;
+                Set<String> payloadTypes = new HashSet<>();
+                Set<String> aggregateTypes = new HashSet<>();
+                boolean leadingFilter = true;
                 for (int i = 0; i < query.size(); i++) {
+                    leadingFilter = leadingFilter && query.get(i) instanceof FunctionExpr
+                            && isFilterOperation(query.get(i).operator());
                     if (query.get(i) instanceof FunctionExpr) {
                         FunctionExpr functionExpr = (FunctionExpr) query.get(i);
                         if (isProjectOperation(functionExpr.operator())) {
                             break;
                         }
+                        if (leadingFilter) {
+                            collectTypeFilters(functionExpr, payloadTypes, aggregateTypes);
+                        }
                         if (COLUMN_NAME_TOKEN.equals(functionExpr.getParameters().get(0).getLiteral()) &&
                                 operatorIn(functionExpr.operator(), "=", ">", ">=")) {
                             minConnectionToken = getValueAsLong(minConnectionToken,
@@ -180,12 +217,19 @@ public class QueryEventsRequestStreamObserver implements StreamObserver<QueryEve
                                 pipeLine));
                     } else {
                         registration = eventWriteStorage.registerEventListener((token, events) -> pushEventFromStream(token,
-                                events,
+                                events.stream().map(SerializedEvent::asEvent).collect(Collectors.toList()),
                                 pipeLine));
                     }
                 }
                 if (aggregateIdentifier == null) {
-                    QueryOptions queryOptions = new QueryOptions(minConnectionToken, maxToken, query.getStartTime());
+                    int parallelism = !queryEventsRequest.getLiveEvents() && isOrderIndependent(query) ?
+                            queryParallelism : 1;
+                    QueryOptions queryOptions = new QueryOptions(minConnectionToken,
+                                                                 maxToken,
+                                                                 query.getStartTime(),
+                                                                 parallelism,
+                                                                 payloadTypes,
+                                                                 aggregateTypes);
                     senderService.submit(() -> {
                         streamReader.query(queryOptions,
                                                 event -> pushEvent(event, pipeLine));
@@ -253,6 +297,64 @@ public class QueryEventsRequestStreamObserver implements StreamObserver<QueryEve
         return false;
     }
 
+    private boolean isFilterOperation(String operator) {
+        return operatorIn(operator, "=", "!=", "<>", "<", "<=", ">", ">=", "in", "and", "or");
+    }
+
+    /**
+     * Collects the payload types and aggregate types that events must have to match a filter expression, so the event
+     * store can skip segments that do not contain these types. Only equality and in-list conditions on the type
+     * columns are used, combined with "and".
+     */
+    private void collectTypeFilters(QueryElement element, Set<String> payloadTypes, Set<String> aggregateTypes) {
+        if ("and".equals(element.operator())) {
+            element.getParameters().forEach(p -> collectTypeFilters(p, payloadTypes, aggregateTypes));
+            return;
+        }
+        if (!operatorIn(element.operator(), "=", "in") || element.getParameters().size() != 2) {
+            return;
+        }
+        String column = element.getParameters().get(0).getLiteral();
+        Set<String> types = "payloadType".equals(column) ? payloadTypes :
+                "aggregateType".equals(column) ? aggregateTypes : null;
+        if (types == null) {
+            return;
+        }
+        QueryElement value = element.getParameters().get(1);
+        List<? extends QueryElement> values = "=".equals(element.operator()) ?
+                Collections.singletonList(value) :
+                value.getParameters();
+        if (values.stream().allMatch(StringLiteral.class::isInstance)) {
+            values.forEach(v -> types.add(v.getLiteral()));
+        }
+    }
+
+    /**
+     * Checks if the result of a query does not depend on the order in which the events are processed. This is the case
+     * when the events are aggregated before any limit is applied, as the query then needs to process all events.
+     */
+    private boolean isOrderIndependent(Query query) {
+        for (QueryElement element : query.getParameters()) {
+            String operator = element.operator().toLowerCase();
+            if ("limit".equals(operator) || "sortby".equals(operator)) {
+                return false;
+            }
+            if (isAggregateOperation(operator)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isAggregateOperation(String operator) {
+        return "count".equals(operator)
+                || "min".equals(operator)
+                || "max".equals(operator)
+                || "avg".equals(operator)
+                || "sum".equals(operator)
+                || "groupby".equals(operator);
+    }
+
     private boolean isProjectOperation(String operator) {
         return "count".equals(operator)
                 || "min".equals(operator)
@@ -304,9 +406,18 @@ public class QueryEventsRequestStreamObserver implements StreamObserver<QueryEve
             return false;
         }
         try {
-            return !deadlineExpired() && pipeLine.process(new DefaultQueryResult(new EventExpressionResult(eventDecorator
-                                                                                             .decorateEventWithToken(
-                                                                                                     event))));
+            if (deadlineExpired()) {
+                return false;
+            }
+            DefaultQueryResult result = new DefaultQueryResult(new EventExpressionResult(eventDecorator
+                                                                                                 .decorateEventWithToken(
+                                                                                                         event)));
+            pendingResults.put(result);
+            processPendingResults(pipeLine);
+            return !pipelineDone;
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return false;
         } catch (RuntimeException re) {
             try {
                 cancelRegistration();
@@ -318,6 +429,26 @@ public class QueryEventsRequestStreamObserver implements StreamObserver<QueryEve
         }
     }
 
+    /**
+     * Passes the pending results to the pipeline. One thread at a time processes the results, threads that find the
+     * pipeline busy leave their result for that thread and continue, so segments scanned in parallel do not wait for
+     * each other.
+     */
+    private void processPendingResults(Pipeline pipeLine) {
+        while (!pendingResults.isEmpty() && processingResults.compareAndSet(false, true)) {
+            try {
+                QueryResult result;
+                while ((result = pendingResults.poll()) != null) {
+                    if (!pipelineDone && !pipeLine.process(result)) {
+                        pipelineDone = true;
+                    }
+                }
+            } finally {
+                processingResults.set(false);
+            }
+        }
+    }
+
     private boolean deadlineExpired() {
         return System.currentTimeMillis() > deadline;
     }
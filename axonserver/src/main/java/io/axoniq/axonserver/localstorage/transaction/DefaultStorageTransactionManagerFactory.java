@@ -10,14 +10,34 @@
 package io.axoniq.axonserver.localstorage.transaction;
 
 import io.axoniq.axonserver.localstorage.EventStorageEngine;
+import io.axoniq.axonserver.metric.MeterFactory;
 
 /**
  * @author Marc Gathier
  */
 public class DefaultStorageTransactionManagerFactory implements StorageTransactionManagerFactory {
 
+    private final MeterFactory meterFactory;
+    private final int sequenceNumberCacheSize;
+
+    public DefaultStorageTransactionManagerFactory() {
+        this(null, 0);
+    }
+
+    /**
+     * @param meterFactory            factory to create metrics meters for the sequence number caches
+     * @param sequenceNumberCacheSize maximum number of aggregates in the sequence number cache per context
+     */
+    public DefaultStorageTransactionManagerFactory(MeterFactory meterFactory, int sequenceNumberCacheSize) {
+        this.meterFactory = meterFactory;
+        this.sequenceNumberCacheSize = sequenceNumberCacheSize;
+    }
+
     @Override
     public StorageTransactionManager createTransactionManager(EventStorageEngine eventStore) {
-        return new SingleInstanceTransactionManager(eventStore);
+        if (meterFactory == null) {
+            return new SingleInstanceTransactionManager(eventStore);
+        }
+        return new SingleInstanceTransactionManager(eventStore, meterFactory, sequenceNumberCacheSize);
     }
 }
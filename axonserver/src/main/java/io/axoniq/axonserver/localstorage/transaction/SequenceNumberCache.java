@@ -12,26 +12,41 @@ package io.axoniq.axonserver.localstorage.transaction;
 import io.axoniq.axonserver.exception.ErrorCode;
 import io.axoniq.axonserver.exception.MessagingPlatformException;
 import io.axoniq.axonserver.grpc.event.Event;
+import io.axoniq.axonserver.localstorage.EventIndexFields;
 import io.axoniq.axonserver.localstorage.EventStorageEngine;
+import io.axoniq.axonserver.localstorage.SerializedEvent;
+import io.axoniq.axonserver.metric.BaseMetricName;
+import io.axoniq.axonserver.metric.DefaultMetricCollector;
+import io.axoniq.axonserver.metric.MeterFactory;
 import io.axoniq.axonserver.util.DaemonThreadFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.springframework.util.StringUtils;
 
 import java.time.Clock;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.function.BiFunction;
 
 /**
  * Maintains a cache of last sequence numbers per aggregate. Used to verify new events coming in, also considering
  * pending transactions.
- * Cache is limited in the number of entries, eviction policy is least recently used.
+ * <p>
+ * The cache is limited in the number of entries. Entries are kept in a number of stripes, each an open addressing
+ * table with the aggregate identifiers and their last sequence numbers in arrays. When a stripe is full, the entry to
+ * evict is selected from a sample of the entries in the stripe, based on the estimated access frequency of the
+ * aggregates (kept in a count-min sketch) and the last access time. Aggregates with a pending transaction are never
+ * evicted, as the event store does not contain the reserved sequence numbers yet.
  *
  * @author Marc Gathier
  * @since 4.2
@@ -43,11 +58,20 @@ public class SequenceNumberCache {
                                                                                                                         "cache-cleanup"));
     private static final EventStorageEngine.SearchHint[] NO_HINTS = {};
     private static final EventStorageEngine.SearchHint[] SEARCH_RECENT = {EventStorageEngine.SearchHint.RECENT_ONLY};
+    private static final int DEFAULT_MAX_SIZE = 100_000;
+    private static final int MAX_STRIPES = 64;
+    private static final int EVICTION_SAMPLE_SIZE = 8;
 
     private final int maxSize;
     private final BiFunction<String, EventStorageEngine.SearchHint[], Optional<Long>> aggregateSequenceNumberProvider;
     private final Clock clock;
-    private final Map<String, SequenceNumber> sequenceNumbersPerAggregate = new ConcurrentHashMap<>();
+    private final Stripe[] stripes;
+    private final MeterFactory meterFactory;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+    private final Gauge sizeGauge;
+    private final Gauge hitRatioGauge;
     private final ScheduledFuture<?> cleanupTask;
 
     /**
@@ -57,7 +81,7 @@ public class SequenceNumberCache {
      */
     public SequenceNumberCache(
             BiFunction<String, EventStorageEngine.SearchHint[], Optional<Long>> aggregateSequenceNumberProvider) {
-        this(aggregateSequenceNumberProvider, Clock.systemUTC(), 100_000);
+        this(aggregateSequenceNumberProvider, Clock.systemUTC(), DEFAULT_MAX_SIZE);
     }
 
     /**
@@ -70,9 +94,46 @@ public class SequenceNumberCache {
     public SequenceNumberCache(
             BiFunction<String, EventStorageEngine.SearchHint[], Optional<Long>> aggregateSequenceNumberProvider,
             Clock clock, int maxSize) {
+        this(aggregateSequenceNumberProvider,
+             clock,
+             maxSize,
+             new MeterFactory(new SimpleMeterRegistry(), new DefaultMetricCollector()),
+             Tags.empty());
+    }
+
+    /**
+     * Creates a sequence number cache with specified aggregateSequenceNumber provider, clock and cache size, that
+     * reports its hit ratio, size and evictions through the given meter factory.
+     *
+     * @param aggregateSequenceNumberProvider function to retrieve the last sequence number for an aggregate
+     * @param clock                           clock to use to set last used time
+     * @param maxSize                         maximum number of entries for the cache
+     * @param meterFactory                    factory to create metrics meters
+     * @param tags                            tags to add to the metrics of the cache
+     */
+    public SequenceNumberCache(
+            BiFunction<String, EventStorageEngine.SearchHint[], Optional<Long>> aggregateSequenceNumberProvider,
+            Clock clock, int maxSize, MeterFactory meterFactory, Tags tags) {
         this.aggregateSequenceNumberProvider = aggregateSequenceNumberProvider;
         this.clock = clock;
-        this.maxSize = maxSize;
+        this.maxSize = Math.max(1, maxSize);
+        int nrOfStripes = Integer.highestOneBit(Math.max(1, Math.min(MAX_STRIPES, this.maxSize / 256)));
+        this.stripes = new Stripe[nrOfStripes];
+        for (int i = 0; i < nrOfStripes; i++) {
+            stripes[i] = new Stripe((this.maxSize + nrOfStripes - 1) / nrOfStripes);
+        }
+        this.meterFactory = meterFactory;
+        this.hits = meterFactory.counter(BaseMetricName.AXON_SEQUENCE_NUMBER_CACHE_HITS, tags);
+        this.misses = meterFactory.counter(BaseMetricName.AXON_SEQUENCE_NUMBER_CACHE_MISSES, tags);
+        this.evictions = meterFactory.counter(BaseMetricName.AXON_SEQUENCE_NUMBER_CACHE_EVICTIONS, tags);
+        this.sizeGauge = meterFactory.gauge(BaseMetricName.AXON_SEQUENCE_NUMBER_CACHE_SIZE,
+                                            tags,
+                                            this,
+                                            SequenceNumberCache::size);
+        this.hitRatioGauge = meterFactory.gauge(BaseMetricName.AXON_SEQUENCE_NUMBER_CACHE_HIT_RATIO,
+                                                tags,
+                                                this,
+                                                SequenceNumberCache::hitRatio);
         this.cleanupTask = SCHEDULED_EXECUTOR_SERVICE.scheduleAtFixedRate(() -> clearOld(TimeUnit.MINUTES.toMillis(30)),
                                                                           15,
                                                                           15,
@@ -106,32 +167,81 @@ public class SequenceNumberCache {
                                                                i -> new MinMaxPair(e.getAggregateIdentifier(),
                                                                                    e.getAggregateSequenceNumber()))
                                               .setMax(e.getAggregateSequenceNumber()));
+        return reserve(minMaxPerAggregate, force);
+    }
+
+    /**
+     * Reserve the sequence numbers of the aggregates in the provided list of serialized events to avoid collisions
+     * during store. Reads the aggregate fields from the serialized events, without parsing the complete events.
+     *
+     * @param events list of serialized events to store
+     * @return a {@link Runnable} to release the reserved sequence numbers
+     */
+    public Runnable reserveSerializedSequenceNumbers(List<SerializedEvent> events) {
+        Map<String, MinMaxPair> minMaxPerAggregate = new HashMap<>();
+        events.stream()
+              .map(SerializedEvent::indexFields)
+              .filter(EventIndexFields::isDomainEvent)
+              .forEach(e -> minMaxPerAggregate.computeIfAbsent(e.getAggregateIdentifier(),
+                                                               i -> new MinMaxPair(e.getAggregateIdentifier(),
+                                                                                   e.getAggregateSequenceNumber()))
+                                              .setMax(e.getAggregateSequenceNumber()));
+        return reserve(minMaxPerAggregate, false);
+    }
+
+    /**
+     * Marks the transaction for the given events as completed, so the aggregates in the transaction may be evicted
+     * from the cache again.
+     *
+     * @param events the events in the completed transaction
+     */
+    public void transactionCompleted(List<Event> events) {
+        events.stream()
+              .filter(this::isDomainEvent)
+              .map(Event::getAggregateIdentifier)
+              .distinct()
+              .forEach(this::unpin);
+    }
+
+    /**
+     * Marks the transaction for the given serialized events as completed, so the aggregates in the transaction may be
+     * evicted from the cache again.
+     *
+     * @param events the serialized events in the completed transaction
+     */
+    public void serializedTransactionCompleted(List<SerializedEvent> events) {
+        events.stream()
+              .map(SerializedEvent::indexFields)
+              .filter(EventIndexFields::isDomainEvent)
+              .map(EventIndexFields::getAggregateIdentifier)
+              .distinct()
+              .forEach(this::unpin);
+    }
 
-        Map<String, SequenceNumber> oldSequenceNumberPerAggregate = new HashMap<>();
+    private Runnable reserve(Map<String, MinMaxPair> minMaxPerAggregate, boolean force) {
+        Map<String, Long> oldSequenceNumberPerAggregate = new HashMap<>();
         Runnable unreserve = () -> oldSequenceNumberPerAggregate
-                .forEach(sequenceNumbersPerAggregate::put);
-            for (Map.Entry<String, MinMaxPair> entry : minMaxPerAggregate.entrySet()) {
-                if (force) {
-                    sequenceNumbersPerAggregate.put(entry.getKey(), new SequenceNumber(entry.getValue().getMax()));
-                } else {
-                    SequenceNumber updated = sequenceNumbersPerAggregate.compute(entry.getKey(),
-                                                                                 (aggId, old) -> checkAndUpdateSequenceNumber(
-                                                                                         aggId,
-                                                                                         old,
-                                                                                         entry.getValue()));
-                    if (!updated.isValid()) {
-                        unreserve.run();
-                        throw new MessagingPlatformException(ErrorCode.INVALID_SEQUENCE,
-                                                             String.format(
-                                                                     "Invalid sequence number %d for aggregate %s, expected %d",
-                                                                     entry.getValue().getMin(),
-                                                                     entry.getKey(),
-                                                                     updated.get() + 1));
-                    }
-                    oldSequenceNumberPerAggregate.putIfAbsent(entry.getKey(),
-                                                              new SequenceNumber(entry.getValue().getMin() - 1));
+                .forEach((aggregateId, sequenceNumber) -> stripe(aggregateId).put(aggregateId,
+                                                                                  sequenceNumber,
+                                                                                  false));
+        for (Map.Entry<String, MinMaxPair> entry : minMaxPerAggregate.entrySet()) {
+            if (force) {
+                stripe(entry.getKey()).put(entry.getKey(), entry.getValue().getMax(), true);
+            } else {
+                long current = checkAndUpdateSequenceNumber(entry.getKey(), entry.getValue());
+                if (current + 1 != entry.getValue().getMin()) {
+                    unreserve.run();
+                    oldSequenceNumberPerAggregate.keySet().forEach(this::unpin);
+                    throw new MessagingPlatformException(ErrorCode.INVALID_SEQUENCE,
+                                                         String.format(
+                                                                 "Invalid sequence number %d for aggregate %s, expected %d",
+                                                                 entry.getValue().getMin(),
+                                                                 entry.getKey(),
+                                                                 current + 1));
                 }
+                oldSequenceNumberPerAggregate.putIfAbsent(entry.getKey(), entry.getValue().getMin() - 1);
             }
+        }
         return unreserve;
     }
 
@@ -141,28 +251,54 @@ public class SequenceNumberCache {
 
     /**
      * Checks if the min sequence number for an aggregate has the correct value and updates the cache. If the min
-     * sequence number is valid
-     * it returns a new {@link SequenceNumber} object with max sequence number from minMaxPair.
-     * If the min sequence number supplied in the minMaxPair parameter is not valid, it returns the current sequence
-     * number, with a flag
-     * indicating that the last check was invalid.
+     * sequence number is valid the cache is updated with the max sequence number from minMaxPair, and the aggregate is
+     * pinned in the cache until the transaction is completed. The last sequence number for aggregates that are not in
+     * the cache is read from the event store, outside the lock of the stripe. If an entry was evicted from the stripe
+     * during this read, the read is repeated, as the evicted entry may have been more recent than the value read.
      *
-     * @param aggregateIdentfier aggregate identifier to check
-     * @param current            currently cached SequenceNumber for this aggregate
-     * @param minMaxPair         min value to check and max value to set
-     * @return updated SequenceNumber containing the new sequence number or updated valid flag.
+     * @param aggregateIdentifier aggregate identifier to check
+     * @param minMaxPair          min value to check and max value to set
+     * @return the sequence number for the aggregate before the update
      */
-    private SequenceNumber checkAndUpdateSequenceNumber(String aggregateIdentfier, SequenceNumber current,
-                                                        MinMaxPair minMaxPair) {
-        if (current == null) {
-            current = new SequenceNumber(aggregateSequenceNumberProvider
-                                                 .apply(aggregateIdentfier, searchHints(minMaxPair.min)).orElse(-1L));
-        }
-        if (minMaxPair.getMin() == current.get() + 1) {
-            return new SequenceNumber(minMaxPair.max);
+    private long checkAndUpdateSequenceNumber(String aggregateIdentifier, MinMaxPair minMaxPair) {
+        Stripe stripe = stripe(aggregateIdentifier);
+        int hash = hash(aggregateIdentifier);
+        while (true) {
+            long evictionCount;
+            synchronized (stripe) {
+                int index = stripe.indexOf(aggregateIdentifier, hash);
+                if (index >= 0) {
+                    hits.increment();
+                    return stripe.checkAndUpdate(index, minMaxPair);
+                }
+                evictionCount = stripe.evictionCount;
+            }
+            misses.increment();
+            long stored = aggregateSequenceNumberProvider.apply(aggregateIdentifier, searchHints(minMaxPair.getMin()))
+                                                         .orElse(-1L);
+            synchronized (stripe) {
+                int index = stripe.indexOf(aggregateIdentifier, hash);
+                if (index < 0 && evictionCount == stripe.evictionCount) {
+                    index = stripe.insert(aggregateIdentifier, hash, stored);
+                }
+                if (index >= 0) {
+                    return stripe.checkAndUpdate(index, minMaxPair);
+                }
+            }
         }
+    }
+
+    private void unpin(String aggregateIdentifier) {
+        stripe(aggregateIdentifier).unpin(aggregateIdentifier);
+    }
+
+    private Stripe stripe(String aggregateIdentifier) {
+        return stripes[(hash(aggregateIdentifier) >>> 16) & (stripes.length - 1)];
+    }
 
-        return current.invalid();
+    private static int hash(String aggregateIdentifier) {
+        int h = aggregateIdentifier.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
     }
 
     /**
@@ -182,18 +318,42 @@ public class SequenceNumberCache {
     }
 
     public void clear() {
-        sequenceNumbersPerAggregate.clear();
+        for (Stripe stripe : stripes) {
+            stripe.clear();
+        }
+    }
+
+    /**
+     * Returns the number of aggregates in the cache.
+     *
+     * @return the number of aggregates in the cache
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    private double hitRatio() {
+        double total = hits.count() + misses.count();
+        return total == 0 ? 0 : hits.count() / total;
     }
 
     /**
-     * Removes entries from the cache that are older than timeout milliseconds. Does not clear anything if cache has not reached
-     * its max size.
+     * Removes entries from the cache that are older than timeout milliseconds. Does not clear anything if cache has not
+     * reached its max size. This also removes aggregates with pending transactions, to clean up aggregates that were
+     * reserved without completing the transaction.
+     *
      * @param timeout timeout value
      */
     public void clearOld(long timeout) {
-        if (sequenceNumbersPerAggregate.size() > maxSize) {
+        if (size() > maxSize) {
             long minTimestamp = clock.millis() - timeout;
-            sequenceNumbersPerAggregate.entrySet().removeIf(e -> e.getValue().timestamp() < minTimestamp);
+            for (Stripe stripe : stripes) {
+                stripe.clearOld(minTimestamp);
+            }
         }
     }
 
@@ -204,6 +364,212 @@ public class SequenceNumberCache {
         if (cleanupTask != null && !cleanupTask.isDone()) {
             cleanupTask.cancel(true);
         }
+        meterFactory.remove(hits);
+        meterFactory.remove(misses);
+        meterFactory.remove(evictions);
+        meterFactory.remove(sizeGauge);
+        meterFactory.remove(hitRatioGauge);
+    }
+
+    /**
+     * Open addressing hash table with linear probing, containing part of the aggregates in the cache. All access must
+     * be synchronized on the stripe.
+     */
+    private class Stripe {
+
+        private final int maxSize;
+        private final FrequencySketch frequencies;
+        private String[] keys;
+        private int[] hashes;
+        private long[] sequenceNumbers;
+        private long[] lastAccess;
+        private int[] pins;
+        private int size;
+        private long evictionCount;
+
+        Stripe(int maxSize) {
+            this.maxSize = maxSize;
+            this.frequencies = new FrequencySketch(maxSize);
+            allocate(tableSize(maxSize));
+        }
+
+        private void allocate(int capacity) {
+            keys = new String[capacity];
+            hashes = new int[capacity];
+            sequenceNumbers = new long[capacity];
+            lastAccess = new long[capacity];
+            pins = new int[capacity];
+        }
+
+        private int tableSize(int entries) {
+            return Integer.highestOneBit(entries + entries / 3) << 1;
+        }
+
+        int indexOf(String key, int hash) {
+            int mask = keys.length - 1;
+            for (int index = hash & mask; keys[index] != null; index = (index + 1) & mask) {
+                if (hashes[index] == hash && keys[index].equals(key)) {
+                    return index;
+                }
+            }
+            return -1;
+        }
+
+        long checkAndUpdate(int index, MinMaxPair minMaxPair) {
+            long current = sequenceNumbers[index];
+            frequencies.increment(hashes[index]);
+            lastAccess[index] = clock.millis();
+            if (minMaxPair.getMin() == current + 1) {
+                sequenceNumbers[index] = minMaxPair.getMax();
+                pins[index]++;
+            }
+            return current;
+        }
+
+        synchronized void put(String key, long sequenceNumber, boolean pin) {
+            int hash = hash(key);
+            int index = indexOf(key, hash);
+            if (index < 0) {
+                index = insert(key, hash, sequenceNumber);
+            }
+            sequenceNumbers[index] = sequenceNumber;
+            lastAccess[index] = clock.millis();
+            if (pin) {
+                pins[index]++;
+            }
+        }
+
+        synchronized void unpin(String key) {
+            int index = indexOf(key, hash(key));
+            if (index >= 0 && pins[index] > 0) {
+                pins[index]--;
+            }
+        }
+
+        int insert(String key, int hash, long sequenceNumber) {
+            while (size >= maxSize && evict()) {
+                evictions.increment();
+            }
+            if ((size + 1) * 4 > keys.length * 3) {
+                resize(keys.length * 2);
+            }
+            int mask = keys.length - 1;
+            int index = hash & mask;
+            while (keys[index] != null) {
+                index = (index + 1) & mask;
+            }
+            keys[index] = key;
+            hashes[index] = hash;
+            sequenceNumbers[index] = sequenceNumber;
+            lastAccess[index] = clock.millis();
+            pins[index] = 0;
+            frequencies.increment(hash);
+            size++;
+            return index;
+        }
+
+        /**
+         * Evicts the entry with the lowest estimated access frequency from a sample of the entries without pending
+         * transactions. When all entries have pending transactions nothing is evicted, and the table grows beyond its
+         * maximum size.
+         *
+         * @return true if an entry was evicted
+         */
+        private boolean evict() {
+            int mask = keys.length - 1;
+            int start = ThreadLocalRandom.current().nextInt(keys.length);
+            int victim = -1;
+            int victimFrequency = Integer.MAX_VALUE;
+            int sampled = 0;
+            for (int i = 0; i < keys.length && sampled < EVICTION_SAMPLE_SIZE; i++) {
+                int index = (start + i) & mask;
+                if (keys[index] != null && pins[index] == 0) {
+                    sampled++;
+                    int frequency = frequencies.frequency(hashes[index]);
+                    if (frequency < victimFrequency
+                            || (frequency == victimFrequency && lastAccess[index] < lastAccess[victim])) {
+                        victim = index;
+                        victimFrequency = frequency;
+                    }
+                }
+            }
+            if (victim < 0) {
+                return false;
+            }
+            remove(victim);
+            evictionCount++;
+            return true;
+        }
+
+        /**
+         * Removes the entry at the given index and moves entries following it in the same probe sequence back, so
+         * lookups do not need tombstones.
+         */
+        private void remove(int index) {
+            int mask = keys.length - 1;
+            int hole = index;
+            for (int i = (index + 1) & mask; keys[i] != null; i = (i + 1) & mask) {
+                int home = hashes[i] & mask;
+                boolean canMove = hole <= i ? (home <= hole || home > i) : (home <= hole && home > i);
+                if (canMove) {
+                    keys[hole] = keys[i];
+                    hashes[hole] = hashes[i];
+                    sequenceNumbers[hole] = sequenceNumbers[i];
+                    lastAccess[hole] = lastAccess[i];
+                    pins[hole] = pins[i];
+                    hole = i;
+                }
+            }
+            keys[hole] = null;
+            size--;
+        }
+
+        private void resize(int capacity) {
+            String[] oldKeys = keys;
+            int[] oldHashes = hashes;
+            long[] oldSequenceNumbers = sequenceNumbers;
+            long[] oldLastAccess = lastAccess;
+            int[] oldPins = pins;
+            allocate(capacity);
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != null) {
+                    int index = oldHashes[i] & mask;
+                    while (keys[index] != null) {
+                        index = (index + 1) & mask;
+                    }
+                    keys[index] = oldKeys[i];
+                    hashes[index] = oldHashes[i];
+                    sequenceNumbers[index] = oldSequenceNumbers[i];
+                    lastAccess[index] = oldLastAccess[i];
+                    pins[index] = oldPins[i];
+                }
+            }
+        }
+
+        synchronized void clearOld(long minTimestamp) {
+            List<String> old = new ArrayList<>();
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != null && lastAccess[i] < minTimestamp) {
+                    old.add(keys[i]);
+                }
+            }
+            old.forEach(key -> remove(indexOf(key, hash(key))));
+            evictionCount += old.size();
+            if (keys.length > tableSize(maxSize) && size <= maxSize) {
+                resize(tableSize(maxSize));
+            }
+        }
+
+        synchronized void clear() {
+            allocate(tableSize(maxSize));
+            size = 0;
+            evictionCount++;
+        }
+
+        synchronized int size() {
+            return size;
+        }
     }
 
     private class MinMaxPair {
@@ -239,43 +605,51 @@ public class SequenceNumberCache {
         }
     }
 
-    private class SequenceNumber {
-
-        private final long sequence;
-        private final boolean valid;
-        private final long timestamp;
-
-        private SequenceNumber(long sequence) {
-            this(sequence, true);
-        }
-
-        private SequenceNumber(long sequence, boolean valid) {
-            this.sequence = sequence;
-            this.valid = valid;
-            this.timestamp = clock.millis();
-        }
-
-        public boolean isValid() {
-            return valid;
-        }
-
-        public long get() {
-            return sequence;
+    /**
+     * Count-min sketch with four rows of 4-bit counters, estimating how often aggregates are accessed. All counters are
+     * halved periodically, so the estimates favour recent accesses.
+     */
+    private static class FrequencySketch {
+
+        private static final int[] SEEDS = {0x97CB3127, 0xB3D5A2F1, 0x5B1C4E8D, 0xE2A6F30B};
+        private final byte[] counters;
+        private final int mask;
+        private final int resetThreshold;
+        private int additions;
+
+        FrequencySketch(int maxSize) {
+            int width = Integer.highestOneBit(Math.max(16, maxSize) - 1) << 1;
+            this.counters = new byte[width * SEEDS.length];
+            this.mask = width - 1;
+            this.resetThreshold = 10 * Math.max(16, maxSize);
         }
 
-        public long timestamp() {
-            return timestamp;
+        void increment(int hash) {
+            for (int row = 0; row < SEEDS.length; row++) {
+                int index = index(hash, row);
+                if (counters[index] < 15) {
+                    counters[index]++;
+                }
+            }
+            if (++additions >= resetThreshold) {
+                for (int i = 0; i < counters.length; i++) {
+                    counters[i] = (byte) (counters[i] >>> 1);
+                }
+                additions /= 2;
+            }
         }
 
-        public SequenceNumber minus(int i) {
-            return new SequenceNumber(sequence - i);
+        int frequency(int hash) {
+            int frequency = Integer.MAX_VALUE;
+            for (int row = 0; row < SEEDS.length; row++) {
+                frequency = Math.min(frequency, counters[index(hash, row)]);
+            }
+            return frequency;
         }
 
-        public SequenceNumber invalid() {
-            if (!valid) {
-                return this;
-            }
-            return new SequenceNumber(sequence, false);
+        private int index(int hash, int row) {
+            int h = (hash ^ SEEDS[row]) * 0x9E3779B9;
+            return row * (mask + 1) + ((h ^ (h >>> 15)) & mask);
         }
     }
 }
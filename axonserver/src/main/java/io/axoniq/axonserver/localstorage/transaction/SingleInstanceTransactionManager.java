@@ -11,8 +11,12 @@ package io.axoniq.axonserver.localstorage.transaction;
 
 import io.axoniq.axonserver.grpc.event.Event;
 import io.axoniq.axonserver.localstorage.EventStorageEngine;
+import io.axoniq.axonserver.localstorage.SerializedEvent;
+import io.axoniq.axonserver.metric.MeterFactory;
+import io.micrometer.core.instrument.Tags;
 import reactor.core.publisher.Mono;
 
+import java.time.Clock;
 import java.util.List;
 
 /**
@@ -29,9 +33,30 @@ public class SingleInstanceTransactionManager implements StorageTransactionManag
         eventStorageEngine.registerCloseListener(sequenceNumberCache::close);
     }
 
+    /**
+     * @param eventStorageEngine      the storage engine to store the events in
+     * @param meterFactory            factory to create metrics meters
+     * @param sequenceNumberCacheSize maximum number of aggregates in the sequence number cache
+     */
+    public SingleInstanceTransactionManager(EventStorageEngine eventStorageEngine, MeterFactory meterFactory,
+                                            int sequenceNumberCacheSize) {
+        this.eventStorageEngine = eventStorageEngine;
+        this.sequenceNumberCache = new SequenceNumberCache(eventStorageEngine::getLastSequenceNumber,
+                                                           Clock.systemUTC(),
+                                                           sequenceNumberCacheSize,
+                                                           meterFactory,
+                                                           Tags.of(MeterFactory.CONTEXT,
+                                                                   eventStorageEngine.getType().getContext(),
+                                                                   "type",
+                                                                   eventStorageEngine.getType().getEventType()
+                                                                                     .name()));
+        eventStorageEngine.registerCloseListener(sequenceNumberCache::close);
+    }
+
     @Override
     public Mono<Long> storeBatch(List<Event> eventList) {
-        return Mono.fromFuture(eventStorageEngine.store(eventList));
+        return Mono.fromFuture(eventStorageEngine.store(eventList))
+                   .doFinally(signal -> sequenceNumberCache.transactionCompleted(eventList));
     }
 
     @Override
@@ -39,6 +64,17 @@ public class SingleInstanceTransactionManager implements StorageTransactionManag
         return sequenceNumberCache.reserveSequenceNumbers(eventList, false);
     }
 
+    @Override
+    public Mono<Long> storeSerializedBatch(List<SerializedEvent> eventList) {
+        return Mono.fromFuture(eventStorageEngine.storeSerialized(eventList))
+                   .doFinally(signal -> sequenceNumberCache.serializedTransactionCompleted(eventList));
+    }
+
+    @Override
+    public Runnable reserveSerializedSequenceNumbers(List<SerializedEvent> eventList) {
+        return sequenceNumberCache.reserveSerializedSequenceNumbers(eventList);
+    }
+
     @Override
     public void clearSequenceNumberCache() {
         sequenceNumberCache.clear();
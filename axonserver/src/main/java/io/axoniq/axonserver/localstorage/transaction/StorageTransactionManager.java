@@ -10,9 +10,11 @@
 package io.axoniq.axonserver.localstorage.transaction;
 
 import io.axoniq.axonserver.grpc.event.Event;
+import io.axoniq.axonserver.localstorage.SerializedEvent;
 import reactor.core.publisher.Mono;
 
 import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * Defines the interface for a transaction manager.
@@ -33,6 +35,28 @@ public interface StorageTransactionManager {
      */
     Runnable reserveSequenceNumbers(List<Event> eventList);
 
+    /**
+     * Stores a batch of events in their serialized form. The default implementation parses the events and stores them
+     * through {@link #storeBatch(List)}.
+     *
+     * @param eventList the serialized events to store
+     * @return a {@link Mono} with the token of the first stored event
+     */
+    default Mono<Long> storeSerializedBatch(List<SerializedEvent> eventList) {
+        return storeBatch(eventList.stream().map(SerializedEvent::asEvent).collect(Collectors.toList()));
+    }
+
+    /**
+     * Reserves the sequence numbers for a list of serialized events. The default implementation parses the events and
+     * reserves the sequence numbers through {@link #reserveSequenceNumbers(List)}.
+     *
+     * @param eventList the list of serialized events to reserve the sequence number for
+     * @return a {@link Runnable} to restore the previous situation, releasing the reserved sequences
+     */
+    default Runnable reserveSerializedSequenceNumbers(List<SerializedEvent> eventList) {
+        return reserveSequenceNumbers(eventList.stream().map(SerializedEvent::asEvent).collect(Collectors.toList()));
+    }
+
     default long waitingTransactions() {
         return 0;
     }
@@ -0,0 +1,100 @@
+/*
+ *  Copyright (c) 2017-2022 AxonIQ B.V. and/or licensed to AxonIQ B.V.
+ *  under one or more contributor license agreements.
+ *
+ *  Licensed under the AxonIQ Open Source License Agreement v1.0;
+ *  you may not use this file except in compliance with the license.
+ *
+ */
+
+package io.axoniq.axonserver.localstorage.transformation;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Event transformer that compresses events before storing them. A compressed event starts with a marker byte
+ * containing the {@link EventCompression#flag()} of the algorithm, followed by the length of the uncompressed event (4
+ * bytes) and the compressed event. When compression does not reduce the size of the event, the event is stored with
+ * marker {@link EventCompression#NONE} followed by the uncompressed event.
+ * <p>
+ * A serialized event never starts with a byte below 8, as that is not a valid protobuf field tag. This allows the
+ * transformer to read events stored without compression as well, so the compression algorithm for a context can be
+ * changed while segments written with another algorithm still exist.
+ *
+ * @since 2023.0.0
+ */
+public class CompressionEventTransformer implements EventTransformer {
+
+    private static final int HEADER_SIZE = 5;
+    private static final Map<EventCompression, CompressionEventTransformer> INSTANCES =
+            new EnumMap<>(EventCompression.class);
+
+    static {
+        for (EventCompression compression : EventCompression.values()) {
+            INSTANCES.put(compression, new CompressionEventTransformer(compression));
+        }
+    }
+
+    private final EventCompression compression;
+
+    private CompressionEventTransformer(EventCompression compression) {
+        this.compression = compression;
+    }
+
+    /**
+     * Returns the transformer for a compression algorithm.
+     *
+     * @param compression the compression algorithm for new events
+     * @return the transformer
+     */
+    public static CompressionEventTransformer get(EventCompression compression) {
+        return INSTANCES.get(compression);
+    }
+
+    @Override
+    public byte[] fromStorage(byte[] eventBytes) {
+        if (eventBytes.length == 0) {
+            return eventBytes;
+        }
+        EventCompression eventCompression = EventCompression.fromMarker(eventBytes[0]);
+        if (eventCompression == null) {
+            return eventBytes;
+        }
+        if (eventCompression == EventCompression.NONE) {
+            byte[] event = new byte[eventBytes.length - 1];
+            System.arraycopy(eventBytes, 1, event, 0, event.length);
+            return event;
+        }
+        int length = ((eventBytes[1] & 0xFF) << 24)
+                | ((eventBytes[2] & 0xFF) << 16)
+                | ((eventBytes[3] & 0xFF) << 8)
+                | (eventBytes[4] & 0xFF);
+        byte[] event = new byte[length];
+        eventCompression.decompress(eventBytes, HEADER_SIZE, eventBytes.length - HEADER_SIZE, event);
+        return event;
+    }
+
+    @Override
+    public byte[] toStorage(byte[] bytes) {
+        if (compression == EventCompression.NONE) {
+            return bytes;
+        }
+        byte[] target = new byte[HEADER_SIZE + compression.maxCompressedLength(bytes.length)];
+        int compressedLength = compression.compress(bytes, target, HEADER_SIZE);
+        if (HEADER_SIZE + compressedLength > bytes.length) {
+            byte[] uncompressed = new byte[bytes.length + 1];
+            uncompressed[0] = (byte) EventCompression.NONE.flag();
+            System.arraycopy(bytes, 0, uncompressed, 1, bytes.length);
+            return uncompressed;
+        }
+        target[0] = (byte) compression.flag();
+        target[1] = (byte) (bytes.length >>> 24);
+        target[2] = (byte) (bytes.length >>> 16);
+        target[3] = (byte) (bytes.length >>> 8);
+        target[4] = (byte) bytes.length;
+        byte[] result = new byte[HEADER_SIZE + compressedLength];
+        System.arraycopy(target, 0, result, 0, result.length);
+        return result;
+    }
+}
@@ -10,13 +10,16 @@
 package io.axoniq.axonserver.localstorage.transformation;
 
 /**
+ * Returns the event transformer for the compression algorithm defined in the flags of a segment. The transformers
+ * can read events compressed with any of the supported algorithms.
+ *
  * @author Marc Gathier
  */
 public class DefaultEventTransformerFactory implements EventTransformerFactory {
 
     @Override
     public EventTransformer get(int flags) {
-        return NoOpEventTransformer.INSTANCE;
+        return CompressionEventTransformer.get(EventCompression.fromFlags(flags));
     }
 
 }
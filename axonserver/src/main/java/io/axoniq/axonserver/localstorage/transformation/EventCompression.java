@@ -0,0 +1,147 @@
+/*
+ *  Copyright (c) 2017-2022 AxonIQ B.V. and/or licensed to AxonIQ B.V.
+ *  under one or more contributor license agreements.
+ *
+ *  Licensed under the AxonIQ Open Source License Agreement v1.0;
+ *  you may not use this file except in compliance with the license.
+ *
+ */
+
+package io.axoniq.axonserver.localstorage.transformation;
+
+import com.github.luben.zstd.Zstd;
+import io.axoniq.axonserver.exception.ErrorCode;
+import io.axoniq.axonserver.exception.MessagingPlatformException;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+
+/**
+ * Compression algorithms for events stored in the event store. The algorithm used for new events in a segment is
+ * stored in the lowest 4 bits of the flags in the segment header.
+ *
+ * @since 2023.0.0
+ */
+public enum EventCompression {
+    /**
+     * No compression.
+     */
+    NONE(0) {
+        @Override
+        int maxCompressedLength(int length) {
+            return length;
+        }
+
+        @Override
+        int compress(byte[] source, byte[] target, int targetOffset) {
+            System.arraycopy(source, 0, target, targetOffset, source.length);
+            return source.length;
+        }
+
+        @Override
+        void decompress(byte[] source, int sourceOffset, int sourceLength, byte[] target) {
+            System.arraycopy(source, sourceOffset, target, 0, target.length);
+        }
+    },
+    /**
+     * LZ4 compression, favours speed over compression ratio.
+     */
+    LZ4(1) {
+        private final LZ4Compressor compressor = LZ4Factory.fastestInstance().fastCompressor();
+        private final LZ4FastDecompressor decompressor = LZ4Factory.fastestInstance().fastDecompressor();
+
+        @Override
+        int maxCompressedLength(int length) {
+            return compressor.maxCompressedLength(length);
+        }
+
+        @Override
+        int compress(byte[] source, byte[] target, int targetOffset) {
+            return compressor.compress(source, 0, source.length, target, targetOffset, target.length - targetOffset);
+        }
+
+        @Override
+        void decompress(byte[] source, int sourceOffset, int sourceLength, byte[] target) {
+            decompressor.decompress(source, sourceOffset, target, 0, target.length);
+        }
+    },
+    /**
+     * Zstandard compression, gives a better compression ratio than LZ4 at a higher CPU cost when storing events.
+     */
+    ZSTD(2) {
+        @Override
+        int maxCompressedLength(int length) {
+            return (int) Zstd.compressBound(length);
+        }
+
+        @Override
+        int compress(byte[] source, byte[] target, int targetOffset) {
+            long result = Zstd.compressByteArray(target, targetOffset, target.length - targetOffset,
+                                                 source, 0, source.length, ZSTD_LEVEL);
+            if (Zstd.isError(result)) {
+                throw new MessagingPlatformException(ErrorCode.DATAFILE_WRITE_ERROR,
+                                                     "Failed to compress event: " + Zstd.getErrorName(result));
+            }
+            return (int) result;
+        }
+
+        @Override
+        void decompress(byte[] source, int sourceOffset, int sourceLength, byte[] target) {
+            long result = Zstd.decompressByteArray(target, 0, target.length, source, sourceOffset, sourceLength);
+            if (Zstd.isError(result) || result != target.length) {
+                throw new MessagingPlatformException(ErrorCode.DATAFILE_READ_ERROR,
+                                                     "Failed to decompress event: " + Zstd.getErrorName(result));
+            }
+        }
+    };
+
+    /**
+     * Bits in the segment flags used to store the compression algorithm.
+     */
+    public static final int FLAGS_MASK = 0x0F;
+    private static final int ZSTD_LEVEL = 3;
+
+    private final int flag;
+
+    EventCompression(int flag) {
+        this.flag = flag;
+    }
+
+    /**
+     * Returns the value to include in the segment flags for this compression algorithm. This value is also used as
+     * the marker byte for compressed events.
+     *
+     * @return the flag value
+     */
+    public int flag() {
+        return flag;
+    }
+
+    abstract int maxCompressedLength(int length);
+
+    abstract int compress(byte[] source, byte[] target, int targetOffset);
+
+    abstract void decompress(byte[] source, int sourceOffset, int sourceLength, byte[] target);
+
+    /**
+     * Returns the compression algorithm defined in the flags of a segment. Segments written by older versions may
+     * contain other values in the flags, these are treated as no compression. As the transformers detect the
+     * compression of each event when reading, this only affects the compression of new events.
+     *
+     * @param flags the flags from the segment header
+     * @return the compression algorithm
+     */
+    public static EventCompression fromFlags(int flags) {
+        EventCompression compression = fromMarker(flags & FLAGS_MASK);
+        return compression == null ? NONE : compression;
+    }
+
+    static EventCompression fromMarker(int marker) {
+        for (EventCompression compression : values()) {
+            if (compression.flag == marker) {
+                return compression;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ *  Copyright (c) 2017-2022 AxonIQ B.V. and/or licensed to AxonIQ B.V.
+ *  under one or more contributor license agreements.
+ *
+ *  Licensed under the AxonIQ Open Source License Agreement v1.0;
+ *  you may not use this file except in compliance with the license.
+ *
+ */
+
+
+package io.axoniq.axonserver.localstorage.transformation;
+
+import io.axoniq.axonserver.grpc.MetaDataValue;
+import io.axoniq.axonserver.localstorage.EventIndexFields;
+import io.axoniq.axonserver.localstorage.SerializedEvent;
+
+import java.util.Map;
+
+/**
+ * Event to store that is received in serialized form. Writes the serialized data as received, and reads the fields
+ * needed for the index from the serialized data, without parsing the complete event.
+ *
+ * @since 2023.0.0
+ */
+public class SerializedProcessedEvent implements ProcessedEvent {
+
+    private final SerializedEvent event;
+    private final EventIndexFields indexFields;
+    private final byte[] dataForWrite;
+
+    public SerializedProcessedEvent(SerializedEvent event, EventTransformer eventTransformer) {
+        this.event = event;
+        this.indexFields = event.indexFields();
+        this.dataForWrite = eventTransformer.toStorage(event.serializedData());
+    }
+
+    @Override
+    public int getSerializedSize() {
+        return dataForWrite.length;
+    }
+
+    @Override
+    public byte[] toByteArray() {
+        return dataForWrite;
+    }
+
+    @Override
+    public String getAggregateIdentifier() {
+        return indexFields.getAggregateIdentifier();
+    }
+
+    @Override
+    public long getAggregateSequenceNumber() {
+        return indexFields.getAggregateSequenceNumber();
+    }
+
+    @Override
+    public String getMessageIdentifier() {
+        return event.getIdentifier();
+    }
+
+    @Override
+    public byte[] getPayloadBytes() {
+        return event.getPayload();
+    }
+
+    @Override
+    public String getPayloadRevision() {
+        return event.getPayloadRevision();
+    }
+
+    @Override
+    public String getPayloadType() {
+        return event.getPayloadType();
+    }
+
+    @Override
+    public long getTimestamp() {
+        return indexFields.getTimestamp();
+    }
+
+    @Override
+    public String getAggregateType() {
+        return indexFields.getAggregateType();
+    }
+
+    @Override
+    public Map<String, MetaDataValue> getMetaData() {
+        return event.asEvent().getMetaDataMap();
+    }
+
+    @Override
+    public boolean isDomainEvent() {
+        return indexFields.isDomainEvent();
+    }
+}
@@ -11,6 +11,7 @@ package io.axoniq.axonserver.message;
 
 import io.axoniq.axonserver.exception.ErrorCode;
 import io.axoniq.axonserver.exception.MessagingPlatformException;
+import io.axoniq.axonserver.localstorage.Registration;
 import io.axoniq.axonserver.metric.MeterFactory;
 import io.axoniq.axonserver.metric.MetricName;
 import io.micrometer.core.instrument.Gauge;
@@ -21,8 +22,10 @@ import org.slf4j.LoggerFactory;
 import java.util.Comparator;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
@@ -44,6 +47,7 @@ public class FlowControlQueues<T> {
 
     private final Map<String, BlockingQueue<DestinationNode>> segments = new ConcurrentHashMap<>();
     private final Map<String, Gauge> gauges = new ConcurrentHashMap<>();
+    private final Map<String, Set<Runnable>> listeners = new ConcurrentHashMap<>();
 
     public FlowControlQueues(Comparator<T> comparator, int softLimit, MetricName metricName,
                              MeterFactory meterFactory, ErrorCode errorCode) {
@@ -70,6 +74,45 @@ public class FlowControlQueues<T> {
         return message == null ? null : message.value;
     }
 
+    /**
+     * Retrieves and removes the first message for the given destination without waiting.
+     *
+     * @param filterValue the destination
+     * @return the first message or {@code null} when there are no messages for the destination
+     */
+    public T poll(String filterValue) {
+        BlockingQueue<DestinationNode> destinationSegment = segments.get(filterValue);
+        if (destinationSegment == null) {
+            return null;
+        }
+        DestinationNode message = destinationSegment.poll();
+        return message == null ? null : message.value;
+    }
+
+    /**
+     * Registers a listener that is invoked after a message is added for the given destination, and creates the queue
+     * for the destination. The listener is invoked on the thread adding the message, so it must not block.
+     *
+     * @param filterValue the destination
+     * @param listener    the listener
+     * @return a registration to remove the listener
+     */
+    public Registration registerListener(String filterValue, Runnable listener) {
+        segments.computeIfAbsent(filterValue, this::newQueueWithMetrics);
+        listeners.computeIfAbsent(filterValue, d -> new CopyOnWriteArraySet<>()).add(listener);
+        return () -> listeners.computeIfPresent(filterValue, (d, current) -> {
+            current.remove(listener);
+            return current.isEmpty() ? null : current;
+        });
+    }
+
+    private void notifyListeners(String filterValue) {
+        Set<Runnable> destinationListeners = listeners.get(filterValue);
+        if (destinationListeners != null) {
+            destinationListeners.forEach(Runnable::run);
+        }
+    }
+
     public void put(String filterValue, T value) {
         put(filterValue, value, 0);
     }
@@ -104,6 +147,7 @@ public class FlowControlQueues<T> {
         if (logger.isTraceEnabled()) {
             destinationSegment.forEach(node -> logger.trace("entry: {}", node.id));
         }
+        notifyListeners(filterValue);
     }
 
     public void move(String oldDestinationValue, Function<T, String> newDestinationAssignment) {
@@ -122,6 +166,7 @@ public class FlowControlQueues<T> {
             if (destination != null) {
                 try {
                     segments.computeIfAbsent(destination, this::newQueueWithMetrics).put(filterNode);
+                    notifyListeners(destination);
                 } catch (InterruptedException e) {
                     Thread.currentThread().interrupt();
                     logger.debug("Interrupt during move");
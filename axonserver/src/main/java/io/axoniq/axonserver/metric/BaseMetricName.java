@@ -81,9 +81,16 @@ public enum BaseMetricName implements MetricName {
                                       "The size of queue holding queries waiting for permits from client"),
     AXON_INDEX_OPEN("file.index.open", "Rate of index files opened"),
     AXON_INDEX_CLOSE("file.index.close", "Rate of index files closed"),
+    AXON_INDEX_PROBE("file.index.probe", "Elapsed time for looking up an aggregate in the index of a segment"),
     AXON_BLOOM_OPEN("file.bloom.open", "Number of bloom filter files opened"),
     AXON_BLOOM_CLOSE("file.bloom.close", "Number of bloom filter files closed"),
     AXON_SEGMENT_OPEN("file.segment.open", "Number of event store segment files opened"),
+    AXON_SEGMENT_ROLLOVER("file.segment.rollover",
+                          "Elapsed time for switching to a new segment while appending events"),
+    AXON_SEGMENT_COMPLETION("file.segment.completion",
+                            "Elapsed time for building the index of a full segment and handing it over"),
+    AXON_SEGMENT_COMPLETION_BACKLOG("file.segment.completion.backlog",
+                                    "Number of full segments waiting for their index to be built"),
     AXON_AGGREGATE_READTIME("local.aggregate.readtime", "Elapsed time for reading events from the event store"),
     AXON_AGGREGATE_SEGMENT_COUNT("local.aggregate.segments", "Number of segments where aggregate is found"),
     AXON_LAST_SEQUENCE_READTIME("local.lastsequence.readtime",
@@ -91,7 +98,46 @@ public enum BaseMetricName implements MetricName {
     LOCAL_QUERY_RESPONSE_TIME("local.query.responsetime",
                               "Response time for query execution from time received by Axon Server to response received"),
     INTERCEPTOR_DURATION("local.interceptor.duration",
-                         "Total time executing interceptors (tags: context and interceptor type)");
+                         "Total time executing interceptors (tags: context and interceptor type)"),
+    AXON_SEQUENCE_NUMBER_CACHE_HITS("local.sequencenumbercache.hits",
+                                    "Number of sequence number checks for aggregates found in the sequence number cache"),
+    AXON_SEQUENCE_NUMBER_CACHE_MISSES("local.sequencenumbercache.misses",
+                                      "Number of sequence number checks that read the last sequence number from the event store"),
+    AXON_SEQUENCE_NUMBER_CACHE_EVICTIONS("local.sequencenumbercache.evictions",
+                                         "Number of aggregates evicted from the sequence number cache"),
+    AXON_SEQUENCE_NUMBER_CACHE_SIZE("local.sequencenumbercache.size",
+                                    "Number of aggregates in the sequence number cache"),
+    AXON_SEQUENCE_NUMBER_CACHE_HIT_RATIO("local.sequencenumbercache.hitratio",
+                                         "Ratio of sequence number checks for aggregates found in the sequence number cache"),
+    AXON_AGGREGATE_CACHE_HITS("local.aggregate.cache.hits", "Number of aggregate reads served from the aggregate cache"),
+    AXON_AGGREGATE_CACHE_MISSES("local.aggregate.cache.misses",
+                                "Number of aggregate reads that could not be served from the aggregate cache"),
+    AXON_AGGREGATE_CACHE_BYTES("local.aggregate.cache.bytes", "Size of the events in the aggregate cache"),
+    AXON_AGGREGATE_CACHE_BYTES_SAVED("local.aggregate.cache.bytes.saved",
+                                     "Size of the events served from the aggregate cache instead of the event store"),
+    AXON_AGGREGATE_CACHE_HIT_RATIO("local.aggregate.cache.hitratio",
+                                   "Ratio of aggregate reads served from the aggregate cache"),
+    AXON_TAIL_CACHE_HITS("local.tracker.tailcache.hits",
+                         "Number of events sent to tracking event processors from the tail cache"),
+    AXON_TAIL_CACHE_MISSES("local.tracker.tailcache.misses",
+                           "Number of events sent to tracking event processors read from the event store"),
+    AXON_TAIL_CACHE_BYTES("local.tracker.tailcache.bytes", "Size of the events in the tail cache"),
+    AXON_TAIL_CACHE_TRANSACTIONS("local.tracker.tailcache.transactions",
+                                 "Number of transactions in the tail cache"),
+    AXON_TRACKER_LAG("local.tracker.lag",
+                     "Number of events between the last token in the event store and the next token for a tracker"),
+    AXON_TRACKER_SEND_TIME("local.tracker.sendtime",
+                           "Time spent sending a batch of events to a tracking event processor"),
+    AXON_ITERATOR_OPEN("file.iterator.open",
+                       "Elapsed time for opening an iterator at a token within a segment"),
+    AXON_CONTEXT_INIT_DURATION("local.context.init.duration",
+                               "Elapsed time for initializing the event store and snapshot store of a context"),
+    AXON_POST_COMMIT_QUEUE_SIZE("local.postcommit.queue.size",
+                                "Number of stored event batches waiting for the post commit hooks"),
+    AXON_POST_COMMIT_DURATION("local.postcommit.duration",
+                              "Elapsed time for invoking the post commit hooks for a batch of events"),
+    AXON_POST_COMMIT_DROPPED("local.postcommit.dropped",
+                             "Number of stored event batches not passed to the post commit hooks as the queue was full");
 
 
     private final String name;
@@ -0,0 +1,69 @@
+/*
+ *  Copyright (c) 2017-2022 AxonIQ B.V. and/or licensed to AxonIQ B.V.
+ *  under one or more contributor license agreements.
+ *
+ *  Licensed under the AxonIQ Open Source License Agreement v1.0;
+ *  you may not use this file except in compliance with the license.
+ *
+ */
+
+
+package io.axoniq.axonserver.rest;
+
+import io.axoniq.axonserver.localstorage.EventType;
+import io.axoniq.axonserver.localstorage.LocalEventStore;
+import io.axoniq.axonserver.localstorage.SegmentSummary;
+import io.axoniq.axonserver.logging.AuditLog;
+import io.axoniq.axonserver.topology.Topology;
+import io.swagger.v3.oas.annotations.Parameter;
+import org.slf4j.Logger;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.security.Principal;
+import java.util.List;
+
+import static io.axoniq.axonserver.util.StringUtils.sanitize;
+
+/**
+ * REST Controller to retrieve the summaries of the segments in the event store, for instance for capacity planning.
+ *
+ * @since 2023.0.0
+ */
+@RestController
+@RequestMapping("/v1/eventstore")
+public class EventStoreSegmentsRestController {
+
+    private static final Logger auditLog = AuditLog.getLogger();
+
+    private final LocalEventStore localEventStore;
+
+    public EventStoreSegmentsRestController(LocalEventStore localEventStore) {
+        this.localEventStore = localEventStore;
+    }
+
+    /**
+     * Returns the summaries of the segments in the event store or snapshot store of a context, most recent segment
+     * first. Segments that have not been summarized yet are not included.
+     *
+     * @param context   the context
+     * @param type      the type of store, EVENT or SNAPSHOT
+     * @param principal the authenticated user
+     * @return the segment summaries
+     */
+    @GetMapping("/segments")
+    public List<SegmentSummary> segments(
+            @RequestParam(value = "targetContext", defaultValue = Topology.DEFAULT_CONTEXT) String context,
+            @RequestParam(value = "type", defaultValue = "EVENT") String type,
+            @Parameter(hidden = true) Principal principal) {
+        if (auditLog.isInfoEnabled()) {
+            auditLog.info("[{}] Request for event store segment summaries. Context=\"{}\", type=\"{}\"",
+                          AuditLog.username(principal),
+                          sanitize(context),
+                          sanitize(type));
+        }
+        return localEventStore.segmentSummaries(context, EventType.valueOf(type));
+    }
+}
@@ -11,10 +11,12 @@ package io.axoniq.axonserver;
 
 import io.axoniq.axonserver.exception.ErrorCode;
 import io.axoniq.axonserver.exception.MessagingPlatformException;
+import io.axoniq.axonserver.localstorage.Registration;
 import io.axoniq.axonserver.message.FlowControlQueues;
 import org.junit.*;
 
 import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.*;
 
@@ -108,6 +110,22 @@ public class FlowControlQueuesTest {
         assertEquals(configuredErrorCode, exception.getErrorCode());
     }
 
+    @Test
+    public void pollAndListeners() {
+        AtomicInteger notified = new AtomicInteger();
+        Registration registration = testSubject.registerListener("one", notified::incrementAndGet);
+        assertNull(testSubject.poll("one"));
+        testSubject.put("one", new QueueElement("B"));
+        testSubject.put("one", new QueueElement("A"));
+        testSubject.put("two", new QueueElement("A"));
+        assertEquals(2, notified.get());
+        assertEquals("A", testSubject.poll("one").prioKey);
+
+        registration.cancel();
+        testSubject.put("one", new QueueElement("C"));
+        assertEquals(2, notified.get());
+    }
+
     public static class QueueElement {
         private final String prioKey;
         private final String value;
@@ -15,6 +15,13 @@ import org.junit.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static io.axoniq.axonserver.test.AssertUtils.assertWithin;
+import static java.util.Arrays.asList;
 import static org.junit.Assert.*;
 
 /**
@@ -22,16 +29,27 @@ import static org.junit.Assert.*;
  * @since 4.5.8
  */
 public class GrpcFlowControlledDispatcherListenerTest {
+    private final FlowControlQueues<String> queues = new FlowControlQueues<>();
+    private final List<String> sent = new CopyOnWriteArrayList<>();
     private GrpcFlowControlledDispatcherListener<String,String> testSubject;
 
     @Before
     public void setUp() throws Exception {
-        FlowControlQueues<String> queues = new FlowControlQueues<>();
-        testSubject = new GrpcFlowControlledDispatcherListener<String,String>(queues, "queue1", new FakeStreamObserver<String>(), 1) {
+        testSubject = listener("queue1");
+    }
+
+    @After
+    public void tearDown() {
+        testSubject.cancel();
+    }
+
+    private GrpcFlowControlledDispatcherListener<String, String> listener(String queueName) {
+        return new GrpcFlowControlledDispatcherListener<String,String>(queues, queueName, new FakeStreamObserver<String>(), 1) {
             private final Logger logger = LoggerFactory.getLogger("test");
             @Override
             protected boolean send(String message) {
-                return false;
+                sent.add(message);
+                return !message.startsWith("filtered");
             }
 
             @Override
@@ -45,4 +63,55 @@ public class GrpcFlowControlledDispatcherListenerTest {
     public void waiting() {
         assertEquals(0, testSubject.waiting());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void sendsMessagesWhilePermitsLeft() throws InterruptedException {
+        queues.put("queue1", "one");
+        queues.put("queue1", "filtered");
+        queues.put("queue1", "two");
+        queues.put("queue1", "three");
+        Thread.sleep(50);
+        assertTrue(sent.isEmpty());
+
+        testSubject.addPermits(2);
+        assertWithin(1, TimeUnit.SECONDS, () -> assertEquals(asList("one", "filtered", "two"), sent));
+        assertEquals(1, testSubject.waiting());
+        assertEquals(0, testSubject.permits());
+
+        testSubject.addPermits(2);
+        assertWithin(1, TimeUnit.SECONDS, () -> assertEquals(4, sent.size()));
+        queues.put("queue1", "four");
+        assertWithin(1, TimeUnit.SECONDS, () -> assertEquals(5, sent.size()));
+        assertEquals(0, testSubject.permits());
+    }
+
+    @Test
+    public void cancelStopsSending() throws InterruptedException {
+        testSubject.addPermits(10);
+        testSubject.cancel();
+        queues.put("queue1", "one");
+        Thread.sleep(50);
+        assertTrue(sent.isEmpty());
+        assertEquals(1, testSubject.waiting());
+    }
+
+    @Test
+    public void threadsIndependentOfListeners() throws InterruptedException {
+        List<GrpcFlowControlledDispatcherListener<String, String>> listeners = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            GrpcFlowControlledDispatcherListener<String, String> listener = listener("client" + i);
+            listener.addPermits(10);
+            listeners.add(listener);
+        }
+        for (int i = 0; i < 500; i++) {
+            queues.put("client" + i, "message" + i);
+        }
+        assertWithin(2, TimeUnit.SECONDS, () -> assertEquals(500, sent.size()));
+        long dispatcherThreads = Thread.getAllStackTraces().keySet().stream()
+                                       .filter(t -> t.getName().startsWith("request-dispatcher-"))
+                                       .count();
+        assertTrue("Dispatcher threads: " + dispatcherThreads,
+                   dispatcherThreads <= Math.max(4, 2 * Runtime.getRuntime().availableProcessors()));
+        listeners.forEach(GrpcFlowControlledDispatcherListener::cancel);
+    }
+}
@@ -29,9 +29,12 @@ import io.axoniq.axonserver.plugin.interceptor.AppendSnapshotInterceptor;
 import io.axoniq.axonserver.plugin.interceptor.ReadEventInterceptor;
 import io.axoniq.axonserver.plugin.interceptor.ReadSnapshotInterceptor;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assume;
 import org.junit.Test;
 
 import javax.annotation.Nonnull;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.UUID;
@@ -328,6 +331,48 @@ public class DefaultEventInterceptorsTest {
         assertFalse(testSubject.noEventReadInterceptors("default"));
     }
 
+    @Test
+    public void pluginRemoved() {
+        pluginServiceProvider.add(new ServiceWithInfo<>((ReadEventInterceptor) (event, context) -> event,
+                                                        PLUGIN_KEY));
+        pluginContextFilter.on(new PluginEnabledEvent("default", PLUGIN_KEY, null, true));
+        assertFalse(testSubject.noEventReadInterceptors("default"));
+        assertTrue(testSubject.noEventReadInterceptors("other"));
+
+        pluginContextFilter.on(new PluginRemovedEvent("default", PLUGIN_KEY));
+        assertTrue(testSubject.noEventReadInterceptors("default"));
+    }
+
+    @Test
+    public void interceptEventAllocation() {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threadMXBean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocationMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+        Assume.assumeTrue(allocationMXBean.isThreadAllocatedMemoryEnabled());
+        pluginServiceProvider.add(new ServiceWithInfo<>((ReadEventInterceptor) (event, context) -> event,
+                                                        PLUGIN_KEY));
+        pluginContextFilter.on(new PluginEnabledEvent("default", PLUGIN_KEY, null, true));
+        Event event = event("aggregate1", 0);
+        TestExecutionContext noPlugins = new TestExecutionContext("other");
+        int calls = 100_000;
+        long threadId = Thread.currentThread().getId();
+        for (int warmup = 0; warmup < 3; warmup++) {
+            long before = allocationMXBean.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < calls; i++) {
+                if (testSubject.interceptEvent(event, noPlugins) != event
+                        || !testSubject.noAppendEventInterceptors("default")
+                        || testSubject.noEventReadInterceptors("default")) {
+                    fail("Unexpected interceptors");
+                }
+            }
+            long bytesPerCall = (allocationMXBean.getThreadAllocatedBytes(threadId) - before) / calls;
+            if (bytesPerCall == 0) {
+                return;
+            }
+        }
+        fail("Looking up interceptors allocates memory");
+    }
+
     @Nonnull
     private MetaDataValue metaDataValue(String value) {
         return MetaDataValue.newBuilder().setTextValue(value).build();
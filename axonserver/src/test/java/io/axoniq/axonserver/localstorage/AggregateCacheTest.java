@@ -0,0 +1,124 @@
+/*
+ *  Copyright (c) 2017-2022 AxonIQ B.V. and/or licensed to AxonIQ B.V.
+ *  under one or more contributor license agreements.
+ *
+ *  Licensed under the AxonIQ Open Source License Agreement v1.0;
+ *  you may not use this file except in compliance with the license.
+ *
+ */
+
+package io.axoniq.axonserver.localstorage;
+
+import com.google.protobuf.ByteString;
+import io.axoniq.axonserver.grpc.SerializedObject;
+import io.axoniq.axonserver.grpc.event.Event;
+import io.axoniq.axonserver.metric.BaseMetricName;
+import io.axoniq.axonserver.metric.DefaultMetricCollector;
+import io.axoniq.axonserver.metric.MeterFactory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class AggregateCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private AggregateCache testSubject;
+
+    @Before
+    public void setUp() {
+        testSubject = new AggregateCache("demo", 16_000, new MeterFactory(meterRegistry,
+                                                                          new DefaultMetricCollector()));
+    }
+
+    @Test
+    public void servesLoadedAggregate() {
+        load("A", snapshot("A", 2), event("A", 3), event("A", 4));
+
+        assertEquals(Arrays.asList(2L, 3L, 4L), sequenceNumbers(testSubject.get("A", true, 0, Long.MAX_VALUE)));
+        assertEquals(Arrays.asList(3L), sequenceNumbers(testSubject.get("A", false, 3, 4)));
+        assertTrue(testSubject.get("A", true, 0, Long.MAX_VALUE).get(0).isSnapshot());
+        assertNull("events before the snapshot are not cached", testSubject.get("A", false, 0, Long.MAX_VALUE));
+        assertNull(testSubject.get("B", true, 0, Long.MAX_VALUE));
+        assertEquals(3, meterRegistry.find(BaseMetricName.AXON_AGGREGATE_CACHE_HITS.metric()).counter().count(), 0);
+        assertEquals(0.6, meterRegistry.find(BaseMetricName.AXON_AGGREGATE_CACHE_HIT_RATIO.metric())
+                                       .gauge().value(), 0.001);
+    }
+
+    @Test
+    public void appendsEventsToCachedAggregate() {
+        load("A", event("A", 0), event("A", 1));
+        testSubject.append(Arrays.asList(event("A", 2), event("B", 0), event("A", 3)));
+
+        assertEquals(Arrays.asList(1L, 2L, 3L), sequenceNumbers(testSubject.get("A", true, 1, Long.MAX_VALUE)));
+        assertNull(testSubject.get("B", false, 0, Long.MAX_VALUE));
+    }
+
+    @Test
+    public void doesNotCacheAggregateAppendedWhileLoading() {
+        AggregateCache.Loader loader = testSubject.loader("A", true, 0, Long.MAX_VALUE);
+        loader.add(event("A", 0));
+        testSubject.append(Arrays.asList(event("A", 1)));
+        loader.complete();
+
+        assertNull(testSubject.get("A", true, 0, Long.MAX_VALUE));
+    }
+
+    @Test
+    public void invalidateRemovesAggregate() {
+        load("A", event("A", 0));
+        testSubject.invalidate("A");
+
+        assertNull(testSubject.get("A", true, 0, Long.MAX_VALUE));
+        assertEquals(0, testSubject.bytes());
+    }
+
+    @Test
+    public void onlyCachesReadsUpToLatestEvent() {
+        assertNull(testSubject.loader("A", true, 0, 10));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedAggregates() {
+        for (int i = 0; i < 20; i++) {
+            load("A" + i, event("A" + i, 0), event("A" + i, 1), event("A" + i, 2));
+            testSubject.get("A0", true, 0, Long.MAX_VALUE);
+        }
+
+        assertTrue(testSubject.bytes() <= 16_000);
+        assertNotNull(testSubject.get("A0", true, 0, Long.MAX_VALUE));
+        assertNull(testSubject.get("A1", true, 0, Long.MAX_VALUE));
+        assertNotNull(testSubject.get("A19", true, 0, Long.MAX_VALUE));
+    }
+
+    private void load(String aggregateId, SerializedEvent... events) {
+        AggregateCache.Loader loader = testSubject.loader(aggregateId, true, 0, Long.MAX_VALUE);
+        Arrays.stream(events).forEach(loader::add);
+        loader.complete();
+    }
+
+    private List<Long> sequenceNumbers(List<SerializedEvent> events) {
+        return events.stream().map(SerializedEvent::getAggregateSequenceNumber).collect(Collectors.toList());
+    }
+
+    private SerializedEvent snapshot(String aggregateId, long sequenceNumber) {
+        return new SerializedEvent(Event.newBuilder(event(aggregateId, sequenceNumber).asEvent())
+                                        .setSnapshot(true)
+                                        .build());
+    }
+
+    private SerializedEvent event(String aggregateId, long sequenceNumber) {
+        return new SerializedEvent(Event.newBuilder()
+                                        .setAggregateIdentifier(aggregateId)
+                                        .setAggregateType("Demo")
+                                        .setAggregateSequenceNumber(sequenceNumber)
+                                        .setMessageIdentifier(aggregateId + "-" + sequenceNumber)
+                                        .setPayload(SerializedObject.newBuilder()
+                                                                    .setData(ByteString.copyFrom(new byte[300])))
+                                        .build());
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ *  Copyright (c) 2017-2022 AxonIQ B.V. and/or licensed to AxonIQ B.V.
+ *  under one or more contributor license agreements.
+ *
+ *  Licensed under the AxonIQ Open Source License Agreement v1.0;
+ *  you may not use this file except in compliance with the license.
+ *
+ */
+
+package io.axoniq.axonserver.localstorage;
+
+import com.google.protobuf.ByteString;
+import io.axoniq.axonserver.grpc.MetaDataValue;
+import io.axoniq.axonserver.grpc.SerializedObject;
+import io.axoniq.axonserver.grpc.event.Event;
+import io.axoniq.axonserver.grpc.event.PayloadDescription;
+import org.junit.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+public class EventFieldsTest {
+
+    private final Event event = Event.newBuilder()
+                                     .setMessageIdentifier("id")
+                                     .setAggregateIdentifier("order-1")
+                                     .setAggregateType("Order")
+                                     .setAggregateSequenceNumber(12)
+                                     .setTimestamp(1000)
+                                     .setPayload(SerializedObject.newBuilder()
+                                                                 .setType("OrderPlaced")
+                                                                 .setRevision("2")
+                                                                 .setData(ByteString.copyFromUtf8("<data/>")))
+                                     .putMetaData("traceId", MetaDataValue.newBuilder().setTextValue("t").build())
+                                     .putMetaData("tenant", MetaDataValue.newBuilder().setNumberValue(1).build())
+                                     .build();
+
+    @Test
+    public void readsFieldsFromSerializedEvent() {
+        EventFields fields = EventFields.of(new SerializedEvent(event.toByteArray()), true);
+
+        assertEquals("OrderPlaced", fields.getPayloadType());
+        assertEquals("2", fields.getPayloadRevision());
+        assertEquals("Order", fields.getAggregateType());
+        assertEquals(1000, fields.getTimestamp());
+        assertEquals(new HashSet<>(Arrays.asList("traceId", "tenant")), fields.getMetaDataKeys());
+        assertEquals(PayloadDescription.newBuilder().setType("OrderPlaced").setRevision("2").build(),
+                     fields.payloadDescription());
+    }
+
+    @Test
+    public void skipsMetaDataKeysWhenNotRequested() {
+        EventFields fields = EventFields.of(event.toByteArray(), false);
+
+        assertEquals("OrderPlaced", fields.getPayloadType());
+        assertTrue(fields.getMetaDataKeys().isEmpty());
+    }
+
+    @Test
+    public void readsEmptyEvent() {
+        EventFields fields = EventFields.of(Event.getDefaultInstance().toByteArray(), true);
+
+        assertEquals("", fields.getPayloadType());
+        assertEquals("", fields.getAggregateType());
+        assertTrue(fields.getMetaDataKeys().isEmpty());
+    }
+
+    @Test
+    public void filterMatchesAllConditions() {
+        EventFields fields = EventFields.of(event.toByteArray(), true);
+        EventStreamFilter filter = new EventStreamFilter();
+        assertTrue(filter.isEmpty());
+        assertTrue(filter.matches(fields));
+
+        filter.setAggregateTypes(Collections.singleton("Order"));
+        filter.setMetaDataKeys(Collections.singleton("tenant"));
+        assertTrue(filter.matches(fields));
+
+        filter.setPayloadTypes(Collections.singleton("OrderShipped"));
+        assertFalse(filter.matches(fields));
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ *  Copyright (c) 2017-2022 AxonIQ B.V. and/or licensed to AxonIQ B.V.
+ *  under one or more contributor license agreements.
+ *
+ *  Licensed under the AxonIQ Open Source License Agreement v1.0;
+ *  you may not use this file except in compliance with the license.
+ *
+ */
+
+
+package io.axoniq.axonserver.localstorage;
+
+import com.google.protobuf.ByteString;
+import io.axoniq.axonserver.grpc.SerializedObject;
+import io.axoniq.axonserver.grpc.event.Event;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+public class EventIndexFieldsTest {
+
+    @Test
+    public void readsIndexFieldsFromSerializedEvent() {
+        Event event = Event.newBuilder()
+                           .setMessageIdentifier("id")
+                           .setAggregateIdentifier("order-1")
+                           .setAggregateType("Order")
+                           .setAggregateSequenceNumber(12)
+                           .setTimestamp(1000)
+                           .setPayload(SerializedObject.newBuilder()
+                                                       .setType("OrderPlaced")
+                                                       .setData(ByteString.copyFromUtf8("<data/>")))
+                           .build();
+        EventIndexFields fields = new SerializedEvent(event.toByteArray()).indexFields();
+
+        assertEquals("order-1", fields.getAggregateIdentifier());
+        assertEquals(12, fields.getAggregateSequenceNumber());
+        assertEquals("Order", fields.getAggregateType());
+        assertEquals(1000, fields.getTimestamp());
+        assertTrue(fields.isDomainEvent());
+    }
+
+    @Test
+    public void readsEmptyEvent() {
+        EventIndexFields fields = EventIndexFields.of(Event.getDefaultInstance().toByteArray());
+
+        assertEquals("", fields.getAggregateIdentifier());
+        assertEquals(0, fields.getAggregateSequenceNumber());
+        assertFalse(fields.isDomainEvent());
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ *  Copyright (c) 2017-2022 AxonIQ B.V. and/or licensed to AxonIQ B.V.
+ *  under one or more contributor license agreements.
+ *
+ *  Licensed under the AxonIQ Open Source License Agreement v1.0;
+ *  you may not use this file except in compliance with the license.
+ *
+ */
+
+package io.axoniq.axonserver.localstorage;
+
+import io.axoniq.axonserver.grpc.event.Event;
+import io.axoniq.axonserver.metric.DefaultMetricCollector;
+import io.axoniq.axonserver.metric.MeterFactory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.*;
+import org.springframework.data.util.CloseableIterator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.*;
+
+public class EventTailCacheTest {
+
+    private EventTailCache testSubject;
+    private final AtomicInteger iteratorsOpened = new AtomicInteger();
+    private final AtomicInteger iteratorsClosed = new AtomicInteger();
+    private final Function<Long, CloseableIterator<SerializedEventWithToken>> storeIterator = start -> {
+        iteratorsOpened.incrementAndGet();
+        return new CloseableIterator<SerializedEventWithToken>() {
+            long next = start;
+
+            @Override
+            public void close() {
+                iteratorsClosed.incrementAndGet();
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next < 10;
+            }
+
+            @Override
+            public SerializedEventWithToken next() {
+                return new SerializedEventWithToken(next++, event("store"));
+            }
+        };
+    };
+
+    @Before
+    public void setUp() {
+        testSubject = new EventTailCache("demo", 1000, new MeterFactory(new SimpleMeterRegistry(),
+                                                                        new DefaultMetricCollector()));
+    }
+
+    @Test
+    public void getReturnsEventsInCachedTransactions() {
+        testSubject.append(10, events(3));
+        testSubject.append(13, events(2));
+
+        assertNull(testSubject.get(9));
+        assertEquals(10, testSubject.get(10).getToken());
+        assertEquals(12, testSubject.get(12).getToken());
+        assertEquals(14, testSubject.get(14).getToken());
+        assertNull(testSubject.get(15));
+    }
+
+    @Test
+    public void appendRemovesOldestTransactionsWhenFull() {
+        int eventSize = event("cache").toByteArray().length;
+        int eventsPerTransaction = 1000 / eventSize / 2;
+        testSubject.append(0, events(eventsPerTransaction));
+        testSubject.append(eventsPerTransaction, events(eventsPerTransaction));
+        assertNotNull(testSubject.get(0));
+
+        testSubject.append(2L * eventsPerTransaction, events(eventsPerTransaction));
+        assertNull(testSubject.get(0));
+        assertNotNull(testSubject.get(eventsPerTransaction));
+        assertNotNull(testSubject.get(2L * eventsPerTransaction));
+    }
+
+    @Test
+    public void iteratorSwitchesFromStoreToCache() {
+        testSubject.append(5, events(10));
+
+        List<SerializedEventWithToken> read = new ArrayList<>();
+        try (CloseableIterator<SerializedEventWithToken> iterator = testSubject.iterator(0, storeIterator)) {
+            while (iterator.hasNext()) {
+                read.add(iterator.next());
+            }
+        }
+
+        assertEquals(15, read.size());
+        for (int i = 0; i < read.size(); i++) {
+            assertEquals(i, read.get(i).getToken());
+            assertEquals(i < 5 ? "store" : "cache", read.get(i).asEvent().getMessageIdentifier());
+        }
+        // second store iterator is opened when the tracker has read past the end of the cache
+        assertEquals(2, iteratorsOpened.get());
+        assertEquals(2, iteratorsClosed.get());
+    }
+
+    @Test
+    public void disabledCacheReadsFromStore() {
+        EventTailCache disabled = new EventTailCache("demo", 0, new MeterFactory(new SimpleMeterRegistry(),
+                                                                                  new DefaultMetricCollector()));
+        disabled.append(5, events(10));
+        assertNull(disabled.get(5));
+
+        try (CloseableIterator<SerializedEventWithToken> iterator = disabled.iterator(5, storeIterator)) {
+            assertEquals("store", iterator.next().asEvent().getMessageIdentifier());
+        }
+    }
+
+    private static List<SerializedEvent> events(int count) {
+        return IntStream.range(0, count)
+                        .mapToObj(i -> new SerializedEvent(event("cache")))
+                        .collect(Collectors.toList());
+    }
+
+    private static Event event(String source) {
+        return Event.newBuilder().setMessageIdentifier(source).build();
+    }
+}
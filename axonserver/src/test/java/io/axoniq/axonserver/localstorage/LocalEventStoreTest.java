@@ -23,6 +23,7 @@ import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.Before;
 import org.junit.Test;
 import org.springframework.data.util.CloseableIterator;
+import org.springframework.test.util.ReflectionTestUtils;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.FluxSink;
 import reactor.core.publisher.Mono;
@@ -31,6 +32,7 @@ import reactor.test.StepVerifier;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
@@ -182,6 +184,33 @@ public class LocalEventStoreTest {
         assertEquals(1, eventInterceptors.readEvent);
     }
 
+    @Test
+    public void syncedEventsAndSnapshotsUpdateAggregateCache() {
+        ReflectionTestUtils.setField(testSubject, "aggregateCacheSize", 1_000_000L);
+        testSubject.initContext("cached", false);
+        GetAggregateEventsRequest request = GetAggregateEventsRequest.newBuilder()
+                                                                     .setAggregateId("123")
+                                                                     .build();
+        StepVerifier.create(testSubject.aggregateEvents("cached", null, request))
+                    .expectNextCount(8)
+                    .verifyComplete();
+
+        testSubject.syncEvents("cached", 10001, Collections.singletonList(
+                Event.newBuilder().setAggregateIdentifier("123").setAggregateType("Demo")
+                     .setAggregateSequenceNumber(8).build()));
+        StepVerifier.create(testSubject.aggregateEvents("cached", null, request)
+                                       .map(e -> e.asEvent().getAggregateSequenceNumber()))
+                    .expectNext(0L, 1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L)
+                    .verifyComplete();
+
+        testSubject.syncSnapshots("cached", 10001, Collections.singletonList(
+                Event.newBuilder().setAggregateIdentifier("123").setAggregateType("Demo")
+                     .setAggregateSequenceNumber(8).build()));
+        StepVerifier.create(testSubject.aggregateEvents("cached", null, request))
+                    .expectNextCount(8)
+                    .verifyComplete();
+    }
+
     @Test
     public void aggregateEventsNoSnapshots() {
         Flux<SerializedEvent> events = testSubject.aggregateEvents("demo", null,
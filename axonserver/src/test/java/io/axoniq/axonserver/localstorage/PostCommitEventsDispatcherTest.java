@@ -0,0 +1,170 @@
+/*
+ *  Copyright (c) 2017-2022 AxonIQ B.V. and/or licensed to AxonIQ B.V.
+ *  under one or more contributor license agreements.
+ *
+ *  Licensed under the AxonIQ Open Source License Agreement v1.0;
+ *  you may not use this file except in compliance with the license.
+ *
+ */
+
+package io.axoniq.axonserver.localstorage;
+
+import io.axoniq.axonserver.grpc.event.Event;
+import io.axoniq.axonserver.interceptor.NoOpEventInterceptors;
+import io.axoniq.axonserver.interceptor.TestExecutionContext;
+import io.axoniq.axonserver.metric.BaseMetricName;
+import io.axoniq.axonserver.metric.DefaultMetricCollector;
+import io.axoniq.axonserver.metric.MeterFactory;
+import io.axoniq.axonserver.plugin.ExecutionContext;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static io.axoniq.axonserver.test.AssertUtils.assertWithin;
+import static org.junit.Assert.*;
+
+public class PostCommitEventsDispatcherTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final MeterFactory meterFactory = new MeterFactory(meterRegistry, new DefaultMetricCollector());
+    private final List<List<Event>> calls = Collections.synchronizedList(new ArrayList<>());
+    private final CountDownLatch hookEntered = new CountDownLatch(1);
+    private final CountDownLatch releaseHook = new CountDownLatch(1);
+    private final NoOpEventInterceptors slowHooks = new NoOpEventInterceptors() {
+        @Override
+        public void interceptEventsPostCommit(List<Event> events, ExecutionContext executionContext) {
+            hookEntered.countDown();
+            try {
+                releaseHook.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            calls.add(events);
+        }
+    };
+    private PostCommitEventsDispatcher testSubject;
+
+    @After
+    public void tearDown() {
+        releaseHook.countDown();
+        if (testSubject != null) {
+            testSubject.close();
+        }
+    }
+
+    @Test
+    public void dispatchDoesNotWaitForHooks() throws InterruptedException {
+        testSubject = new PostCommitEventsDispatcher("demo", slowHooks, 10, 10,
+                                                     PostCommitEventsDispatcher.OverflowStrategy.BLOCK,
+                                                     meterFactory);
+        long start = System.currentTimeMillis();
+        testSubject.dispatch(events(0, 2), new TestExecutionContext("demo"));
+        assertTrue(hookEntered.await(1, TimeUnit.SECONDS));
+        testSubject.dispatch(events(2, 2), new TestExecutionContext("demo"));
+        assertTrue(System.currentTimeMillis() - start < 1000);
+        assertTrue(calls.isEmpty());
+
+        releaseHook.countDown();
+        assertWithin(1, TimeUnit.SECONDS, () -> assertEquals(2, meterRegistry.find(
+                BaseMetricName.AXON_POST_COMMIT_DURATION.metric()).timer().count()));
+        assertEquals(2, calls.size());
+    }
+
+    @Test
+    public void combinesQueuedBatchesFromSameRequestInOrder() throws InterruptedException {
+        testSubject = new PostCommitEventsDispatcher("demo", slowHooks, 10, 3,
+                                                     PostCommitEventsDispatcher.OverflowStrategy.BLOCK,
+                                                     meterFactory);
+        ExecutionContext executionContext = new TestExecutionContext("demo");
+        testSubject.dispatch(events(0, 1), executionContext);
+        assertTrue(hookEntered.await(1, TimeUnit.SECONDS));
+        for (int i = 1; i < 6; i++) {
+            testSubject.dispatch(events(i, 1), executionContext);
+        }
+        assertEquals(5.0, meterRegistry.find(BaseMetricName.AXON_POST_COMMIT_QUEUE_SIZE.metric()).gauge().value(),
+                     0.0);
+
+        releaseHook.countDown();
+        assertWithin(1, TimeUnit.SECONDS, () -> assertEquals(3, calls.size()));
+        assertEquals(1, calls.get(0).size());
+        assertEquals(3, calls.get(1).size());
+        assertEquals(2, calls.get(2).size());
+        long expected = 0;
+        for (List<Event> call : calls) {
+            for (Event event : call) {
+                assertEquals(expected++, event.getAggregateSequenceNumber());
+            }
+        }
+    }
+
+    @Test
+    public void dropsBatchWhenQueueFull() throws InterruptedException {
+        testSubject = new PostCommitEventsDispatcher("demo", slowHooks, 1, 10,
+                                                     PostCommitEventsDispatcher.OverflowStrategy.DROP,
+                                                     meterFactory);
+        testSubject.dispatch(events(0, 1), new TestExecutionContext("demo"));
+        assertTrue(hookEntered.await(1, TimeUnit.SECONDS));
+        testSubject.dispatch(events(1, 1), new TestExecutionContext("demo"));
+        testSubject.dispatch(events(2, 1), new TestExecutionContext("demo"));
+        assertEquals(1, meterRegistry.find(BaseMetricName.AXON_POST_COMMIT_DROPPED.metric()).counter().count(),
+                     0.0);
+
+        releaseHook.countDown();
+        testSubject.close();
+        assertEquals(2, calls.size());
+        assertEquals(1, calls.get(1).get(0).getAggregateSequenceNumber());
+    }
+
+    @Test
+    public void closeInvokesHooksForQueuedBatches() throws InterruptedException {
+        testSubject = new PostCommitEventsDispatcher("demo", slowHooks, 10, 1,
+                                                     PostCommitEventsDispatcher.OverflowStrategy.BLOCK,
+                                                     meterFactory);
+        testSubject.dispatch(events(0, 1), new TestExecutionContext("demo"));
+        assertTrue(hookEntered.await(1, TimeUnit.SECONDS));
+        testSubject.dispatch(events(1, 1), new TestExecutionContext("demo"));
+        testSubject.dispatch(events(2, 1), new TestExecutionContext("demo"));
+
+        releaseHook.countDown();
+        testSubject.close();
+        assertEquals(3, calls.size());
+    }
+
+    @Test
+    public void idleDispatcherWaitsWithoutPolling() throws InterruptedException {
+        testSubject = new PostCommitEventsDispatcher("idle", slowHooks, 10, 1,
+                                                     PostCommitEventsDispatcher.OverflowStrategy.BLOCK,
+                                                     meterFactory);
+        Thread dispatcherThread = dispatcherThread("idle");
+        assertWithin(1, TimeUnit.SECONDS, () -> assertEquals(Thread.State.WAITING, dispatcherThread.getState()));
+
+        testSubject.close();
+        assertFalse(dispatcherThread.isAlive());
+    }
+
+    private Thread dispatcherThread(String context) throws InterruptedException {
+        AtomicReference<Thread> thread = new AtomicReference<>();
+        assertWithin(1, TimeUnit.SECONDS, () -> thread.set(
+                Thread.getAllStackTraces()
+                      .keySet()
+                      .stream()
+                      .filter(t -> t.getName().startsWith("post-commit-" + context + "-"))
+                      .findFirst()
+                      .orElseThrow(AssertionError::new)));
+        return thread.get();
+    }
+
+    private List<Event> events(long first, int count) {
+        List<Event> events = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            events.add(Event.newBuilder().setAggregateIdentifier("A").setAggregateSequenceNumber(first + i).build());
+        }
+        return events;
+    }
+}
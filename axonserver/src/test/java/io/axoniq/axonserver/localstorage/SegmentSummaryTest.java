@@ -0,0 +1,87 @@
+/*
+ *  Copyright (c) 2017-2022 AxonIQ B.V. and/or licensed to AxonIQ B.V.
+ *  under one or more contributor license agreements.
+ *
+ *  Licensed under the AxonIQ Open Source License Agreement v1.0;
+ *  you may not use this file except in compliance with the license.
+ *
+ */
+
+
+package io.axoniq.axonserver.localstorage;
+
+import org.junit.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class SegmentSummaryTest {
+
+    private SegmentSummary testSubject;
+
+    @Before
+    public void setUp() {
+        testSubject = new SegmentSummary(100);
+        for (long token = 100; token < 110; token++) {
+            testSubject.add(token, token * 10, token % 2 == 0 ? "OrderPlaced" : "OrderShipped", "Order");
+        }
+        testSubject.add(110, 50, "Tick", "");
+    }
+
+    @Test
+    public void keepsSegmentStatistics() {
+        assertEquals(111, testSubject.getNextToken());
+        assertEquals(11, testSubject.getEventCount());
+        assertEquals(50, testSubject.getMinTimestamp());
+        assertEquals(1090, testSubject.getMaxTimestamp());
+        Map<String, Long> payloadTypes = new HashMap<>();
+        payloadTypes.put("OrderPlaced", 5L);
+        payloadTypes.put("OrderShipped", 5L);
+        payloadTypes.put("Tick", 1L);
+        assertEquals(payloadTypes, testSubject.getPayloadTypes());
+        assertEquals(new HashSet<>(Arrays.asList("Order", "")), testSubject.getAggregateTypes());
+    }
+
+    @Test
+    public void ignoresEventsAlreadyAdded() {
+        testSubject.add(105, 0, "Other", "Other");
+        assertEquals(11, testSubject.getEventCount());
+        assertFalse(testSubject.getPayloadTypes().containsKey("Other"));
+    }
+
+    @Test
+    public void mayContain() {
+        assertTrue(testSubject.mayContain(Collections.emptySet(), Collections.emptySet()));
+        assertTrue(testSubject.mayContain(Collections.singleton("Tick"), Collections.emptySet()));
+        assertTrue(testSubject.mayContain(Collections.singleton("OrderPlaced"), Collections.singleton("Order")));
+        assertFalse(testSubject.mayContain(Collections.singleton("OrderCancelled"), Collections.emptySet()));
+        assertFalse(testSubject.mayContain(Collections.emptySet(), Collections.singleton("Invoice")));
+        assertTrue(testSubject.mayContain(Collections.emptySet(), Collections.singleton("")));
+    }
+
+    @Test
+    public void writeAndRead() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        testSubject.writeTo(new DataOutputStream(bytes));
+
+        SegmentSummary read = SegmentSummary.readFrom(new DataInputStream(
+                new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(100, read.getSegment());
+        assertEquals(111, read.getNextToken());
+        assertEquals(11, read.getEventCount());
+        assertEquals(50, read.getMinTimestamp());
+        assertEquals(1090, read.getMaxTimestamp());
+        assertEquals(testSubject.getPayloadTypes(), read.getPayloadTypes());
+        assertEquals(testSubject.getAggregateTypes(), read.getAggregateTypes());
+    }
+}
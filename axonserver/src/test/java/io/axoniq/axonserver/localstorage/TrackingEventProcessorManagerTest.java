@@ -12,11 +12,17 @@ package io.axoniq.axonserver.localstorage;
 import io.axoniq.axonserver.grpc.SerializedObject;
 import io.axoniq.axonserver.grpc.event.Event;
 import io.axoniq.axonserver.grpc.event.PayloadDescription;
+import io.axoniq.axonserver.metric.BaseMetricName;
+import io.axoniq.axonserver.metric.DefaultMetricCollector;
+import io.axoniq.axonserver.metric.MeterFactory;
 import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.*;
 import org.springframework.data.util.CloseableIterator;
 
 import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -34,6 +40,8 @@ public class TrackingEventProcessorManagerTest {
     private TrackingEventProcessorManager testSubject;
     private AtomicInteger eventsLeft = new AtomicInteger(10);
     private AtomicBoolean iteratorClosed = new AtomicBoolean();
+    private AtomicInteger hasNextCalls = new AtomicInteger();
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
 
     @Before
     public void setup() {
@@ -48,6 +56,7 @@ public class TrackingEventProcessorManagerTest {
 
                 @Override
                 public boolean hasNext() {
+                    hasNextCalls.incrementAndGet();
                     return eventsLeft.get() > 0;
                 }
 
@@ -63,7 +72,13 @@ public class TrackingEventProcessorManagerTest {
                 }
             };
         };
-        testSubject = new TrackingEventProcessorManager("demo", iteratorBuilder, 5);
+        testSubject = new TrackingEventProcessorManager("demo",
+                                                        iteratorBuilder,
+                                                        () -> 199L,
+                                                        5,
+                                                        2,
+                                                        new MeterFactory(meterRegistry,
+                                                                         new DefaultMetricCollector()));
     }
 
     @Test
@@ -145,6 +160,33 @@ public class TrackingEventProcessorManagerTest {
         assertWithin(1, TimeUnit.SECONDS, () -> assertEquals(10, messagesReceived.get()));
     }
 
+    @Test
+    public void filter() throws InterruptedException {
+        eventsLeft.set(50);
+        AtomicInteger messagesReceived = new AtomicInteger();
+        TrackingEventProcessorManager.EventTracker tracker =
+                testSubject.createEventTracker(100L, "", true, new StreamObserver<SerializedEventWithToken>() {
+                    @Override
+                    public void onNext(SerializedEventWithToken value) {
+                        messagesReceived.incrementAndGet();
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                    }
+                });
+        EventStreamFilter filter = new EventStreamFilter();
+        filter.setPayloadTypes(Collections.singleton("OtherType"));
+        tracker.setFilter(filter);
+        tracker.addPermits(50);
+        tracker.start();
+        assertWithin(1, TimeUnit.SECONDS, () -> assertEquals(10, messagesReceived.get()));
+    }
+
     @Test
     public void testStopAllWhereRequestIsNotForLocalStoreOnly() throws InterruptedException {
         AtomicInteger useLocalStoreMessagesReceived = new AtomicInteger();
@@ -184,4 +226,148 @@ public class TrackingEventProcessorManagerTest {
 
         assertWithin(1, TimeUnit.SECONDS, () -> assertEquals(10, useLocalStoreMessagesReceived.get()));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void noIteratorAccessWhileIdle() throws InterruptedException {
+        AtomicInteger messagesReceived = new AtomicInteger();
+        TrackingEventProcessorManager.EventTracker tracker =
+                testSubject.createEventTracker(100L, "", true, new StreamObserver<SerializedEventWithToken>() {
+                    @Override
+                    public void onNext(SerializedEventWithToken value) {
+                        messagesReceived.incrementAndGet();
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                    }
+                });
+        tracker.addPermits(100);
+        tracker.start();
+        assertWithin(1, TimeUnit.SECONDS, () -> assertEquals(10, messagesReceived.get()));
+
+        int callsWhenDone = hasNextCalls.get();
+        Thread.sleep(300);
+        assertEquals(callsWhenDone, hasNextCalls.get());
+
+        eventsLeft.set(1000);
+        testSubject.reschedule();
+        assertWithin(1, TimeUnit.SECONDS, () -> assertEquals(100, messagesReceived.get()));
+        tracker.addPermits(1000);
+        assertWithin(1, TimeUnit.SECONDS, () -> assertEquals(1010, messagesReceived.get()));
+    }
+
+    @Test
+    public void blockedTrackerDoesNotBlockOtherTrackers() throws InterruptedException {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        TrackingEventProcessorManager.EventTracker slowTracker =
+                testSubject.createEventTracker(100L, "slow", true, new StreamObserver<SerializedEventWithToken>() {
+                    @Override
+                    public void onNext(SerializedEventWithToken value) {
+                        blocked.countDown();
+                        try {
+                            release.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                    }
+                });
+        slowTracker.addPermits(5);
+        slowTracker.start();
+        assertTrue(blocked.await(1, TimeUnit.SECONDS));
+
+        AtomicInteger messagesReceived = new AtomicInteger();
+        TrackingEventProcessorManager.EventTracker tracker =
+                testSubject.createEventTracker(100L, "fast", true, new StreamObserver<SerializedEventWithToken>() {
+                    @Override
+                    public void onNext(SerializedEventWithToken value) {
+                        messagesReceived.incrementAndGet();
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                    }
+                });
+        tracker.addPermits(5);
+        tracker.start();
+        try {
+            assertWithin(1, TimeUnit.SECONDS, () -> assertEquals(5, messagesReceived.get()));
+            Gauge lag = meterRegistry.find(BaseMetricName.AXON_TRACKER_LAG.metric())
+                                     .tag("client", "fast")
+                                     .gauge();
+            assertNotNull(lag);
+            assertEquals(95, lag.value(), 0);
+        } finally {
+            release.countDown();
+        }
+
+        tracker.close();
+        assertNull(meterRegistry.find(BaseMetricName.AXON_TRACKER_LAG.metric()).tag("client", "fast").gauge());
+    }
+
+    @Test
+    public void failingEventSourceRemovesTracker() throws InterruptedException {
+        TrackingEventProcessorManager failingSource = new TrackingEventProcessorManager(
+                "demo",
+                token -> new CloseableIterator<SerializedEventWithToken>() {
+                    @Override
+                    public void close() {
+                        iteratorClosed.set(true);
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return true;
+                    }
+
+                    @Override
+                    public SerializedEventWithToken next() {
+                        throw new RuntimeException("Failed to read event");
+                    }
+                },
+                () -> 199L,
+                5,
+                2,
+                new MeterFactory(meterRegistry, new DefaultMetricCollector()));
+        AtomicBoolean failed = new AtomicBoolean();
+        TrackingEventProcessorManager.EventTracker tracker =
+                failingSource.createEventTracker(100L, "failing", true, new StreamObserver<SerializedEventWithToken>() {
+                    @Override
+                    public void onNext(SerializedEventWithToken value) {
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                        failed.set(true);
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                    }
+                });
+        tracker.addPermits(5);
+        tracker.start();
+
+        assertWithin(1, TimeUnit.SECONDS, () -> assertTrue(failed.get()));
+        assertWithin(1, TimeUnit.SECONDS, () -> assertEquals(0, failingSource.trackerCount()));
+        assertTrue(iteratorClosed.get());
+        assertNull(meterRegistry.find(BaseMetricName.AXON_TRACKER_LAG.metric()).tag("client", "failing").gauge());
+        failingSource.close();
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ *  Copyright (c) 2017-2022 AxonIQ B.V. and/or licensed to AxonIQ B.V.
+ *  under one or more contributor license agreements.
+ *
+ *  Licensed under the AxonIQ Open Source License Agreement v1.0;
+ *  you may not use this file except in compliance with the license.
+ *
+ */
+
+package io.axoniq.axonserver.localstorage.file;
+
+import io.axoniq.axonserver.config.SystemInfoProvider;
+import org.junit.*;
+import org.junit.rules.*;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static io.axoniq.axonserver.test.AssertUtils.assertWithin;
+import static org.junit.Assert.*;
+
+public class GlobalIndexTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final String context = "default";
+    private StorageProperties storageProperties;
+    private GlobalIndex testSubject;
+
+    @Before
+    public void setUp() throws IOException {
+        temporaryFolder.newFolder(context);
+        storageProperties = new StorageProperties(new SystemInfoProvider() {
+        });
+        storageProperties.setStorage(temporaryFolder.getRoot().getAbsolutePath());
+        testSubject = new GlobalIndex(context, () -> storageProperties);
+    }
+
+    @After
+    public void tearDown() {
+        testSubject.close(true);
+    }
+
+    @Test
+    public void addAndRemoveSegments() {
+        testSubject.init(Collections.emptyList(), segment -> Collections.emptyList());
+        testSubject.add(0, Arrays.asList("a", "b"));
+        testSubject.add(10, Collections.singletonList("a"));
+        testSubject.add(10, Collections.singletonList("a"));
+
+        assertArrayEquals(new long[]{0, 10}, testSubject.segments("a").orElse(null));
+        assertArrayEquals(new long[]{0}, testSubject.segments("b").orElse(null));
+        assertArrayEquals(new long[0], testSubject.segments("c").orElse(null));
+
+        testSubject.remove(0);
+        testSubject.add(20, Collections.singletonList("a"));
+        assertArrayEquals(new long[]{10, 20}, testSubject.segments("a").orElse(null));
+    }
+
+    @Test
+    public void rebuildsMissingSegmentsOnInit() throws InterruptedException {
+        testSubject.init(Collections.emptyList(), segment -> Collections.emptyList());
+        testSubject.add(0, Collections.singletonList("a"));
+        testSubject.close(false);
+        assertTrue(storageProperties.globalIndex(context).exists());
+
+        testSubject = new GlobalIndex(context, () -> storageProperties);
+        List<Long> segments = Arrays.asList(0L, 10L);
+        testSubject.init(segments, segment -> Collections.singletonList("a"));
+        assertWithin(1, TimeUnit.SECONDS,
+                     () -> assertArrayEquals(new long[]{0, 10}, testSubject.segments("a").orElse(null)));
+    }
+
+    @Test
+    public void notAvailableWhenDisabled() {
+        testSubject.init(Collections.emptyList(), segment -> Collections.emptyList());
+        testSubject.disable();
+        assertFalse(testSubject.segments("a").isPresent());
+    }
+}
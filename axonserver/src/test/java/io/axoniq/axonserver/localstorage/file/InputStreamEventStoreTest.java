@@ -25,6 +25,7 @@ import org.junit.*;
 import java.util.SortedSet;
 
 import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
 import static junit.framework.TestCase.assertTrue;
 
 /**
@@ -32,10 +33,11 @@ import static junit.framework.TestCase.assertTrue;
  */
 public class InputStreamEventStoreTest {
     private InputStreamEventStore testSubject;
+    private EmbeddedDBProperties embeddedDBProperties;
 
     @Before
     public void setUp() {
-        EmbeddedDBProperties embeddedDBProperties = new EmbeddedDBProperties(new SystemInfoProvider() {
+        embeddedDBProperties = new EmbeddedDBProperties(new SystemInfoProvider() {
         });
         embeddedDBProperties.getEvent().setStorage(TestUtils
                                                            .fixPathOnWindows(InputStreamEventStore.class
@@ -97,6 +99,21 @@ public class InputStreamEventStoreTest {
         assertEquals(13, next.getToken());
     }
 
+    @Test
+    public void memoryMappedSegments() {
+        embeddedDBProperties.getEvent().setMemoryMapCompletedSegments(true);
+        embeddedDBProperties.getEvent().setMemoryMappedSegments(1);
+        for (long segment : new long[]{0, 14, 0}) {
+            EventSource eventSource = testSubject.getEventSource(segment).get();
+            assertTrue(eventSource instanceof ByteBufferEventSource);
+            try (EventIterator iterator = eventSource.createEventIterator(segment, segment)) {
+                assertTrue(iterator.hasNext());
+                assertEquals(segment, iterator.next().getToken());
+            }
+        }
+        assertFalse(testSubject.getEventSource(1000).isPresent());
+    }
+
     @Test
     public void getSegments() {
         SortedSet<Long> segments = testSubject.getSegments();
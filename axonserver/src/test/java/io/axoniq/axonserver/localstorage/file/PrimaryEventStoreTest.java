@@ -14,13 +14,18 @@ import io.axoniq.axonserver.config.FileSystemMonitor;
 import io.axoniq.axonserver.config.SystemInfoProvider;
 import io.axoniq.axonserver.grpc.SerializedObject;
 import io.axoniq.axonserver.grpc.event.Event;
+import io.axoniq.axonserver.grpc.event.EventWithToken;
 import io.axoniq.axonserver.localstorage.EventType;
 import io.axoniq.axonserver.localstorage.EventTypeContext;
+import io.axoniq.axonserver.localstorage.QueryOptions;
+import io.axoniq.axonserver.localstorage.SegmentSummary;
 import io.axoniq.axonserver.localstorage.SerializedEvent;
 import io.axoniq.axonserver.localstorage.SerializedEventWithToken;
 import io.axoniq.axonserver.localstorage.SerializedTransactionWithToken;
 import io.axoniq.axonserver.localstorage.transformation.DefaultEventTransformerFactory;
+import io.axoniq.axonserver.localstorage.transformation.EventCompression;
 import io.axoniq.axonserver.localstorage.transformation.EventTransformerFactory;
+import io.axoniq.axonserver.metric.BaseMetricName;
 import io.axoniq.axonserver.metric.DefaultMetricCollector;
 import io.axoniq.axonserver.metric.MeterFactory;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
@@ -30,14 +35,25 @@ import org.springframework.data.util.CloseableIterator;
 import org.springframework.util.unit.DataSize;
 import reactor.test.StepVerifier;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -57,7 +73,8 @@ public class PrimaryEventStoreTest {
     public static TemporaryFolder tempFolder = new TemporaryFolder();
     private final String context = "junit";
     private final EmbeddedDBProperties embeddedDBProperties;
-    private final MeterFactory meterFactory = new MeterFactory(new SimpleMeterRegistry(), new DefaultMetricCollector());
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final MeterFactory meterFactory = new MeterFactory(meterRegistry, new DefaultMetricCollector());
 
     public PrimaryEventStoreTest() {
         embeddedDBProperties = new EmbeddedDBProperties(new SystemInfoProvider() {
@@ -246,6 +263,285 @@ public class PrimaryEventStoreTest {
         assertEquals(Short.MAX_VALUE + 5, events.size());
     }
 
+    @Test
+    public void compressedEvents() throws InterruptedException {
+        embeddedDBProperties.getEvent().setCompression(EventCompression.ZSTD);
+        PrimaryEventStore testSubject = primaryEventStore();
+        setupEvents(testSubject, 1, 1);
+        byte[] payload = new byte[10_000];
+        Arrays.fill(payload, (byte) 'a');
+        storeEvent(testSubject, payload.length);
+        testSubject.close(false);
+        reset(fileSystemMonitor);
+
+        embeddedDBProperties.getEvent().setCompression(EventCompression.LZ4);
+        PrimaryEventStore secondTestSubject = primaryEventStore();
+        storeEvent(secondTestSubject, payload.length);
+
+        List<SerializedEvent> events = secondTestSubject.eventsPerAggregate("11111", 0, Long.MAX_VALUE, 0)
+                                                        .collect(Collectors.toList())
+                                                        .block();
+        assertEquals(2, events.size());
+        events.forEach(e -> assertArrayEquals(payload, e.asEvent().getPayload().getData().toByteArray()));
+    }
+
+    @Test
+    public void preallocatedSegments() throws Exception {
+        embeddedDBProperties.getEvent().setPreallocateSegments(true);
+        embeddedDBProperties.getEvent().setPrefaultSegments(true);
+        StorageProperties storageProperties = embeddedDBProperties.getEvent();
+        PrimaryEventStore testSubject = primaryEventStore();
+        File preallocated = storageProperties.preallocatedDataFile(context);
+
+        // fill the first segment beyond the preallocate threshold, without rolling over
+        testSubject.store(singletonList(event(storageProperties.getSegmentSize() * 9 / 10))).get(1, TimeUnit.SECONDS);
+        assertWithin(1, TimeUnit.SECONDS, () -> {
+            assertTrue(preallocated.exists());
+            assertEquals(storageProperties.getSegmentSize(), preallocated.length());
+        });
+        Object preallocatedKey = fileKey(preallocated);
+        assertFalse(storageProperties.dataFile(context, 1).exists());
+
+        testSubject.store(singletonList(event(storageProperties.getSegmentSize() / 5))).get(1, TimeUnit.SECONDS);
+
+        File nextSegment = storageProperties.dataFile(context, 1);
+        assertTrue(nextSegment.exists());
+        assertEquals(preallocatedKey, fileKey(nextSegment));
+        assertEquals(storageProperties.getSegmentSize(), nextSegment.length());
+        assertEquals(1, meterRegistry.find(BaseMetricName.AXON_SEGMENT_ROLLOVER.metric()).timer().count());
+        long token = 0;
+        try (CloseableIterator<SerializedEventWithToken> iterator = testSubject.getGlobalIterator(0)) {
+            while (iterator.hasNext()) {
+                assertEquals(token++, iterator.next().getToken());
+            }
+        }
+        assertEquals(2, token);
+    }
+
+    private Object fileKey(File file) throws IOException {
+        return Files.readAttributes(file.toPath(), BasicFileAttributes.class).fileKey();
+    }
+
+    private Event event(long payloadSize) {
+        byte[] buffer = new byte[(int) payloadSize];
+        Arrays.fill(buffer, (byte) 'a');
+        return Event.newBuilder().setAggregateIdentifier(UUID.randomUUID().toString()).setAggregateSequenceNumber(0)
+                    .setAggregateType("Demo").setPayload(SerializedObject.newBuilder()
+                                                                         .setData(ByteString.copyFrom(buffer))
+                                                                         .build()).build();
+    }
+
+    @Test
+    public void iterateFromTokenWithinSegment() throws InterruptedException {
+        PrimaryEventStore testSubject = primaryEventStore();
+        setupEvents(testSubject, 1000, 20);
+
+        for (long start : new long[]{0, 1, 2_501, 9_999, 19_990}) {
+            long token = start;
+            try (CloseableIterator<SerializedEventWithToken> iterator = testSubject.getGlobalIterator(start)) {
+                while (iterator.hasNext()) {
+                    assertEquals(token++, iterator.next().getToken());
+                }
+            }
+            assertEquals(20_000, token);
+        }
+
+        Iterator<SerializedTransactionWithToken> transactions = testSubject.transactionIterator(12_340, 12_400);
+        assertTrue(transactions.hasNext());
+        assertEquals(12_340, transactions.next().getToken());
+        assertTrue(meterRegistry.find(BaseMetricName.AXON_ITERATOR_OPEN.metric()).timer().count() > 0);
+    }
+
+    @Test
+    public void completeSegmentInBackground() throws InterruptedException {
+        PrimaryEventStore testSubject = primaryEventStore();
+        setupEvents(testSubject, 1000, 20);
+
+        assertWithin(5, TimeUnit.SECONDS, () -> {
+            assertEquals(1, testSubject.activeSegmentCount());
+            assertTrue(meterRegistry.find(BaseMetricName.AXON_SEGMENT_COMPLETION.metric()).timer().count() > 0);
+            assertEquals(0, meterRegistry.find(BaseMetricName.AXON_SEGMENT_COMPLETION_BACKLOG.metric())
+                                         .gauge().value(), 0);
+        });
+    }
+
+    @Test
+    public void restoreActiveSegmentFromSnapshot() throws InterruptedException {
+        PrimaryEventStore testSubject = primaryEventStore();
+        setupEvents(testSubject, 10, 5);
+        testSubject.snapshotActiveSegment(testSubject.writePositionRef.get());
+        assertTrue(embeddedDBProperties.getEvent().activeIndex(context, 0).exists());
+
+        setupEvents(testSubject, 15, 5);
+        embeddedDBProperties.getEvent().setActiveIndexSnapshotInterval(0);
+        testSubject.close(false);
+
+        reset(fileSystemMonitor);
+        PrimaryEventStore restored = primaryEventStore();
+        assertEquals(124, restored.getLastToken());
+        StepVerifier.create(restored.eventsPerAggregate("Aggregate-3", 0, Long.MAX_VALUE, 0)
+                                    .map(SerializedEvent::getAggregateSequenceNumber))
+                    .expectNext(0L, 1L, 2L, 3L, 4L, 0L, 1L, 2L, 3L, 4L)
+                    .verifyComplete();
+        StepVerifier.create(restored.eventsPerAggregate("Aggregate-12", 0, Long.MAX_VALUE, 0)
+                                    .map(SerializedEvent::getAggregateSequenceNumber))
+                    .expectNext(0L, 1L, 2L, 3L, 4L)
+                    .verifyComplete();
+        assertEquals(125, restored.segmentSummaries().get(0).getEventCount());
+    }
+
+    @Test
+    public void validationCheckpointForCompletedSegments() throws InterruptedException {
+        PrimaryEventStore testSubject = primaryEventStore();
+        setupEvents(testSubject, 1000, 20);
+        assertWithin(5, TimeUnit.SECONDS, () -> assertEquals(1, testSubject.activeSegmentCount()));
+
+        testSubject.validate(10);
+        long completedSegment = testSubject.getFirstCompletedSegment();
+        assertTrue(embeddedDBProperties.getEvent().validation(context, completedSegment).exists());
+        assertFalse(embeddedDBProperties.getEvent().validation(context, testSubject.getSegments().first()).exists());
+        testSubject.validate(10);
+    }
+
+    @Test
+    public void groupCommit() throws InterruptedException {
+        embeddedDBProperties.getEvent().setDurability(DurabilityMode.GROUP_COMMIT);
+        embeddedDBProperties.getEvent().setGroupCommitWindow(1);
+        PrimaryEventStore testSubject = primaryEventStore();
+        setupEvents(testSubject, 100, 5);
+        assertEquals(499, testSubject.getLastToken());
+    }
+
+    @Test
+    public void perTransactionDurability() throws InterruptedException {
+        embeddedDBProperties.getEvent().setDurability(DurabilityMode.PER_TRANSACTION);
+        PrimaryEventStore testSubject = primaryEventStore();
+        setupEvents(testSubject, 100, 5);
+        assertEquals(499, testSubject.getLastToken());
+    }
+
+    @Test
+    public void storeSerializedEvents() throws Exception {
+        PrimaryEventStore testSubject = primaryEventStore();
+        List<SerializedEvent> newEvents = new ArrayList<>();
+        IntStream.range(0, 3)
+                 .forEach(i -> newEvents.add(new SerializedEvent(Event.newBuilder()
+                                                                      .setAggregateIdentifier("serialized")
+                                                                      .setAggregateSequenceNumber(i)
+                                                                      .setAggregateType("Demo")
+                                                                      .setTimestamp(1000 + i)
+                                                                      .build().toByteArray())));
+        assertEquals(0, (long) testSubject.storeSerialized(newEvents).get(5, TimeUnit.SECONDS));
+
+        assertEquals(Optional.of(2L), testSubject.getLastSequenceNumber("serialized", 3, Long.MAX_VALUE));
+        List<SerializedEvent> events = testSubject.eventsPerAggregate("serialized", 0, Long.MAX_VALUE, 0)
+                                                  .collect(Collectors.toList())
+                                                  .block();
+        assertEquals(newEvents, events);
+    }
+
+    @Test
+    public void queryInParallel() throws InterruptedException {
+        PrimaryEventStore testSubject = primaryEventStore();
+        setupEvents(testSubject, 10, Short.MAX_VALUE + 5);
+        assertTrue(testSubject.getSegments().size() + testSubject.next.getSegments().size() > 1);
+
+        Set<Long> sequential = new HashSet<>();
+        testSubject.query(new QueryOptions(0, Long.MAX_VALUE, 0), event -> sequential.add(event.getToken()));
+        Set<Long> parallel = ConcurrentHashMap.newKeySet();
+        testSubject.query(new QueryOptions(0, Long.MAX_VALUE, 0, 4), event -> parallel.add(event.getToken()));
+
+        assertEquals(10 * (Short.MAX_VALUE + 5), parallel.size());
+        assertEquals(sequential, parallel);
+
+        AtomicInteger stopped = new AtomicInteger();
+        testSubject.query(new QueryOptions(0, Long.MAX_VALUE, 0, 4), event -> stopped.incrementAndGet() < 100);
+        assertTrue(stopped.get() < 10 * (Short.MAX_VALUE + 5));
+    }
+
+    @Test
+    public void querySkipsSegmentsWithoutMatchingTypes() throws InterruptedException {
+        PrimaryEventStore testSubject = primaryEventStore();
+        int eventsPerType = Short.MAX_VALUE + 5;
+        CountDownLatch latch = new CountDownLatch(10);
+        IntStream.range(0, 10).forEach(j -> {
+            List<Event> newEvents = new ArrayList<>();
+            IntStream.range(0, eventsPerType)
+                     .forEach(i -> newEvents.add(Event.newBuilder()
+                                                      .setAggregateIdentifier("Aggregate-" + j)
+                                                      .setAggregateSequenceNumber(i)
+                                                      .setAggregateType("Demo")
+                                                      .setPayload(SerializedObject.newBuilder().setType("Type-" + j))
+                                                      .build()));
+            testSubject.store(newEvents).thenAccept(t -> latch.countDown());
+        });
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+
+        List<SegmentSummary> summaries = testSubject.segmentSummaries();
+        assertTrue(summaries.size() > 1);
+        assertEquals(10L * eventsPerType, summaries.stream().mapToLong(SegmentSummary::getEventCount).sum());
+
+        AtomicInteger matching = new AtomicInteger();
+        AtomicInteger scanned = new AtomicInteger();
+        testSubject.query(new QueryOptions(0, Long.MAX_VALUE, 0, 1, Collections.singleton("Type-0"),
+                                           Collections.emptySet()), event -> {
+            scanned.incrementAndGet();
+            if (event.getEvent().getPayload().getType().equals("Type-0")) {
+                matching.incrementAndGet();
+            }
+            return true;
+        });
+        assertEquals(eventsPerType, matching.get());
+        assertEquals(eventsPerType, scanned.get());
+    }
+
+    @Test
+    public void queryOnEmptyAggregateTypeBuildsMissingSummaries() throws InterruptedException {
+        PrimaryEventStore testSubject = primaryEventStore();
+        int eventsPerType = Short.MAX_VALUE + 5;
+        CountDownLatch latch = new CountDownLatch(4);
+        IntStream.range(0, 4).forEach(j -> {
+            List<Event> newEvents = new ArrayList<>();
+            IntStream.range(0, eventsPerType)
+                     .forEach(i -> newEvents.add(Event.newBuilder()
+                                                      .setAggregateIdentifier("Aggregate-" + j)
+                                                      .setAggregateSequenceNumber(i)
+                                                      .setAggregateType(j % 2 == 0 ? "" : "Demo")
+                                                      .setPayload(SerializedObject.newBuilder().setType("Type"))
+                                                      .build()));
+            testSubject.store(newEvents).thenAccept(t -> latch.countDown());
+        });
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        int summaries = testSubject.segmentSummaries().size();
+        testSubject.close(false);
+        reset(fileSystemMonitor);
+
+        StorageProperties storageProperties = embeddedDBProperties.getEvent();
+        for (String summaryFile : FileUtils.getFilesWithSuffix(new File(storageProperties.getStorage(context)),
+                                                               storageProperties.getSummarySuffix())) {
+            assertTrue(new File(storageProperties.getStorage(context), summaryFile).delete());
+        }
+        PrimaryEventStore restored = primaryEventStore();
+        assertTrue(restored.segmentSummaries().size() < summaries);
+
+        QueryOptions emptyAggregateType = new QueryOptions(0, Long.MAX_VALUE, 0, 1, Collections.emptySet(),
+                                                           Collections.singleton(""));
+        AtomicInteger matching = new AtomicInteger();
+        Predicate<EventWithToken> countMatching = event -> {
+            if (event.getEvent().getAggregateType().isEmpty()) {
+                matching.incrementAndGet();
+            }
+            return true;
+        };
+        restored.query(emptyAggregateType, countMatching);
+        assertEquals(2 * eventsPerType, matching.get());
+        assertEquals(summaries, restored.segmentSummaries().size());
+
+        matching.set(0);
+        restored.query(emptyAggregateType, countMatching);
+        assertEquals(2 * eventsPerType, matching.get());
+    }
+
     @Test
     public void readClosedIterator() throws InterruptedException {
         PrimaryEventStore testSubject = primaryEventStore();
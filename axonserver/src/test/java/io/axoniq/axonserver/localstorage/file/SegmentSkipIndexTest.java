@@ -0,0 +1,79 @@
+/*
+ *  Copyright (c) 2017-2022 AxonIQ B.V. and/or licensed to AxonIQ B.V.
+ *  under one or more contributor license agreements.
+ *
+ *  Licensed under the AxonIQ Open Source License Agreement v1.0;
+ *  you may not use this file except in compliance with the license.
+ *
+ */
+
+package io.axoniq.axonserver.localstorage.file;
+
+import io.axoniq.axonserver.localstorage.file.SegmentSkipIndex.TransactionPosition;
+import org.junit.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class SegmentSkipIndexTest {
+
+    private SegmentSkipIndex testSubject;
+
+    @Before
+    public void setUp() {
+        testSubject = new SegmentSkipIndex(100, 4);
+        // transactions of 5 events, each 1000 bytes
+        for (int transaction = 0; transaction < 20; transaction++) {
+            testSubject.add(100 + transaction * 5L, 5 + transaction * 1000);
+        }
+    }
+
+    @Test
+    public void floorReturnsLastSampleAtOrBeforeToken() {
+        TransactionPosition position = testSubject.floor(147);
+        assertEquals(140, position.getToken());
+        assertEquals(8005, position.getPosition());
+        assertEquals(120, testSubject.floor(120).getToken());
+        assertEquals(100, testSubject.floor(119).getToken());
+        assertEquals(180, testSubject.floor(1000).getToken());
+    }
+
+    @Test
+    public void floorBeforeFirstSample() {
+        assertNull(testSubject.floor(99));
+    }
+
+    @Test
+    public void ignoresTransactionsAlreadyAdded() {
+        testSubject.add(180, 0);
+        assertEquals(16005, testSubject.floor(180).getPosition());
+        assertEquals(196, testSubject.getNextToken());
+    }
+
+    @Test
+    public void truncate() {
+        SegmentSkipIndex truncated = testSubject.truncate(160);
+        assertEquals(140, truncated.floor(1000).getToken());
+        assertEquals(160, truncated.getNextToken());
+        truncated.add(160, 12005);
+        assertEquals(12005, truncated.floor(1000).getPosition());
+        assertEquals(161, truncated.getNextToken());
+    }
+
+    @Test
+    public void writeAndRead() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        testSubject.writeTo(new DataOutputStream(bytes));
+
+        SegmentSkipIndex read = SegmentSkipIndex.readFrom(new DataInputStream(
+                new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(100, read.getSegment());
+        assertEquals(196, read.getNextToken());
+        assertEquals(8005, read.floor(147).getPosition());
+    }
+}
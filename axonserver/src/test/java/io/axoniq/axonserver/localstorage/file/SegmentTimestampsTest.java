@@ -0,0 +1,77 @@
+/*
+ *  Copyright (c) 2017-2022 AxonIQ B.V. and/or licensed to AxonIQ B.V.
+ *  under one or more contributor license agreements.
+ *
+ *  Licensed under the AxonIQ Open Source License Agreement v1.0;
+ *  you may not use this file except in compliance with the license.
+ *
+ */
+
+package io.axoniq.axonserver.localstorage.file;
+
+import org.junit.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class SegmentTimestampsTest {
+
+    private SegmentTimestamps testSubject;
+
+    @Before
+    public void setUp() {
+        testSubject = new SegmentTimestamps(100, 10);
+        // timestamps increase by 10 per event, except event 155 which is far in the future
+        for (long token = 100; token < 200; token++) {
+            testSubject.add(token, token == 155 ? 10_000 : token * 10);
+        }
+    }
+
+    @Test
+    public void keepsSegmentStatistics() {
+        assertFalse(testSubject.isEmpty());
+        assertEquals(1000, testSubject.getFirstTimestamp());
+        assertEquals(1000, testSubject.getMinTimestamp());
+        assertEquals(10_000, testSubject.getMaxTimestamp());
+        assertEquals(200, testSubject.getNextToken());
+    }
+
+    @Test
+    public void scanStartSkipsEventsBeforeInstant() {
+        assertEquals(100, testSubject.scanStart(1000));
+        assertEquals(120, testSubject.scanStart(1250));
+        assertEquals(150, testSubject.scanStart(1600));
+    }
+
+    @Test
+    public void scanStartDoesNotSkipOutOfOrderEvents() {
+        // event 155 has a timestamp after the instant, so search must start before it
+        assertEquals(150, testSubject.scanStart(1700));
+        assertEquals(150, testSubject.scanStart(9000));
+    }
+
+    @Test
+    public void ignoresEventsAlreadyAdded() {
+        testSubject.add(150, 0);
+        assertEquals(1000, testSubject.getMinTimestamp());
+    }
+
+    @Test
+    public void writeAndRead() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        testSubject.writeTo(new DataOutputStream(bytes));
+
+        SegmentTimestamps read = SegmentTimestamps.readFrom(new DataInputStream(
+                new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(100, read.getSegment());
+        assertEquals(200, read.getNextToken());
+        assertEquals(10_000, read.getMaxTimestamp());
+        assertEquals(120, read.scanStart(1250));
+        assertEquals(150, read.scanStart(9000));
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ *  Copyright (c) 2017-2022 AxonIQ B.V. and/or licensed to AxonIQ B.V.
+ *  under one or more contributor license agreements.
+ *
+ *  Licensed under the AxonIQ Open Source License Agreement v1.0;
+ *  you may not use this file except in compliance with the license.
+ *
+ */
+
+package io.axoniq.axonserver.localstorage.file;
+
+import io.axoniq.axonserver.config.SystemInfoProvider;
+import io.axoniq.axonserver.localstorage.EventType;
+import io.axoniq.axonserver.metric.DefaultMetricCollector;
+import io.axoniq.axonserver.metric.MeterFactory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.*;
+import org.junit.rules.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link SortedArrayIndexManager} and {@link SortedArraySegmentIndex}.
+ */
+public class SortedArrayIndexManagerTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final String context = "default";
+    private StorageProperties storageProperties;
+    private MeterFactory meterFactory;
+
+    @Before
+    public void setUp() throws IOException {
+        temporaryFolder.newFolder(context);
+        storageProperties = new StorageProperties(new SystemInfoProvider() {
+        });
+        storageProperties.setStorage(temporaryFolder.getRoot().getAbsolutePath());
+        meterFactory = new MeterFactory(new SimpleMeterRegistry(), new DefaultMetricCollector());
+    }
+
+    @Test
+    public void writeAndLookup() throws IOException {
+        Map<String, IndexEntries> positions = new HashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            positions.put("aggregate-" + i, new StandardIndexEntries(i, new Integer[]{i * 10, i * 10 + 5}));
+        }
+        File file = temporaryFolder.newFile("test.nindex");
+        SortedArraySegmentIndex.write(file, positions);
+
+        SortedArraySegmentIndex index = SortedArraySegmentIndex.open(file, true);
+        for (int i = 0; i < 1000; i++) {
+            IndexEntries entries = index.getPositions("aggregate-" + i);
+            assertEquals(i, entries.firstSequenceNumber());
+            assertEquals(2, entries.size());
+            assertEquals(i * 10 + 5, entries.last());
+        }
+        assertNull(index.getPositions("unknown"));
+        assertEquals(1000, index.aggregateIds().size());
+        index.close();
+        assertTrue(index.isClosed());
+        assertThrows(IllegalStateException.class, index::aggregateIds);
+    }
+
+    @Test
+    public void writesDeltaEncodedPositions() throws IOException {
+        int[] positions = new int[]{Integer.MAX_VALUE - 1, 0, 127, 128, 16_384, 16_385, Integer.MAX_VALUE};
+        Integer[] boxed = Arrays.stream(positions).boxed().toArray(Integer[]::new);
+        File file = temporaryFolder.newFile("delta.nindex");
+        SortedArraySegmentIndex.write(file, Collections.singletonMap("aggregate",
+                                                                     new StandardIndexEntries(5, boxed)));
+
+        SortedArraySegmentIndex index = SortedArraySegmentIndex.open(file, true);
+        assertEquals(Arrays.asList(boxed), index.getPositions("aggregate").positions());
+        index.close();
+
+        Map<String, IndexEntries> dense = Collections.singletonMap(
+                "aggregate", new StandardIndexEntries(0, new Integer[]{1_000_000, 1_000_100, 1_000_200, 1_000_300}));
+        File denseFile = temporaryFolder.newFile("dense.nindex");
+        SortedArraySegmentIndex.write(denseFile, dense);
+        int intEncodedSize = 9 + Long.BYTES + Integer.BYTES + Integer.BYTES + "aggregate".length() + Long.BYTES
+                + Integer.BYTES + 4 * Integer.BYTES;
+        assertTrue(denseFile.length() < intEncodedSize);
+    }
+
+    @Test
+    public void completeAndLookup() {
+        SortedArrayIndexManager indexManager = new SortedArrayIndexManager(context, () -> storageProperties,
+                                                                           EventType.EVENT, meterFactory);
+        indexManager.addToActiveSegment(0L, "aggregate", new IndexEntry(0, 100, 0));
+        indexManager.addToActiveSegment(0L, "aggregate", new IndexEntry(1, 200, 1));
+        indexManager.complete(0);
+
+        assertTrue(storageProperties.newIndex(context, 0).exists());
+        assertFalse(storageProperties.index(context, 0).exists());
+        SortedMap<Long, IndexEntries> result = indexManager.lookupAggregate("aggregate", 0, Long.MAX_VALUE,
+                                                                            Long.MAX_VALUE, 0);
+        assertEquals(2, result.get(0L).size());
+        indexManager.cleanup(false);
+    }
+
+    @Test
+    public void convertsStandardIndexFiles() {
+        StandardIndexManager standardIndexManager = new StandardIndexManager(context, () -> storageProperties,
+                                                                             EventType.EVENT, meterFactory);
+        standardIndexManager.addToActiveSegment(0L, "aggregate", new IndexEntry(0, 100, 0));
+        standardIndexManager.complete(0);
+        standardIndexManager.cleanup(false);
+
+        SortedArrayIndexManager indexManager = new SortedArrayIndexManager(context, () -> storageProperties,
+                                                                           EventType.EVENT, meterFactory);
+        indexManager.init();
+
+        assertTrue(storageProperties.newIndex(context, 0).exists());
+        assertTrue(storageProperties.index(context, 0).exists());
+        SortedMap<Long, IndexEntries> result = indexManager.lookupAggregate("aggregate", 0, Long.MAX_VALUE,
+                                                                            Long.MAX_VALUE, 0);
+        assertEquals(100, result.get(0L).positions().get(0).intValue());
+
+        assertTrue(indexManager.remove(0));
+        assertFalse(storageProperties.index(context, 0).exists());
+        indexManager.cleanup(false);
+    }
+}
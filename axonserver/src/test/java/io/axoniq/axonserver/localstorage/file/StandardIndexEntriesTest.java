@@ -3,6 +3,8 @@ package io.axoniq.axonserver.localstorage.file;
 
 import org.junit.*;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.util.Collections;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -72,4 +74,35 @@ public class StandardIndexEntriesTest {
         IndexEntries subset = standardIndexEntries.range(11, 14, false);
         assertEquals(3, subset.size());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void loadFullSegmentAllocation() {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threadMXBean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocationMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+        Assume.assumeTrue(allocationMXBean.isThreadAllocatedMemoryEnabled());
+        // a 256MB segment with 2M small events for 10,000 aggregates
+        int aggregates = 10_000;
+        int eventsPerAggregate = 200;
+        StandardIndexEntries[] entries = new StandardIndexEntries[aggregates];
+        long threadId = Thread.currentThread().getId();
+        long before = allocationMXBean.getThreadAllocatedBytes(threadId);
+        long start = System.currentTimeMillis();
+        int position = 0;
+        for (int event = 0; event < eventsPerAggregate; event++) {
+            for (int aggregate = 0; aggregate < aggregates; aggregate++) {
+                if (entries[aggregate] == null) {
+                    entries[aggregate] = new StandardIndexEntries(0);
+                }
+                entries[aggregate].add(position);
+                position += 128;
+            }
+        }
+        long allocated = allocationMXBean.getThreadAllocatedBytes(threadId) - before;
+        long bytesPerPosition = allocated / ((long) aggregates * eventsPerAggregate);
+        assertTrue("Allocated bytes per position - " + bytesPerPosition + ", time - "
+                           + (System.currentTimeMillis() - start),
+                   bytesPerPosition <= 12);
+        assertEquals(128 * aggregates * 10 + 128 * 5, entries[5].positions().get(10).intValue());
+    }
+}
@@ -13,7 +13,11 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
 import java.util.SortedMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -37,6 +41,7 @@ public class StandardIndexManagerTest {
     private StorageProperties storageProperties;
     private String context;
     private SystemInfoProvider systemInfoProvider;
+    private SimpleMeterRegistry meterRegistry;
 
     @Before
     public void setUp() throws IOException {
@@ -49,7 +54,8 @@ public class StandardIndexManagerTest {
         storageProperties.setMaxIndexesInMemory(3);
         storageProperties.setStorage(temporaryFolder.getRoot().getAbsolutePath());
 
-        MeterFactory meterFactory = new MeterFactory(new SimpleMeterRegistry(), new DefaultMetricCollector());
+        meterRegistry = new SimpleMeterRegistry();
+        MeterFactory meterFactory = new MeterFactory(meterRegistry, new DefaultMetricCollector());
         indexManager = new StandardIndexManager(context, () -> storageProperties, EventType.EVENT, meterFactory);
     }
 
@@ -86,6 +92,54 @@ public class StandardIndexManagerTest {
         });
     }
 
+    @Test
+    public void testLookupInParallel() {
+        storageProperties.setIndexLookupParallelism(3);
+        String aggregateId = "aggregateId";
+        for (int i = 0; i < 10; i++) {
+            long segment = i * 10L;
+            indexManager.addToActiveSegment(segment, aggregateId, new IndexEntry(i * 2L, 0, segment));
+            indexManager.addToActiveSegment(segment, aggregateId, new IndexEntry(i * 2L + 1, 1, segment + 1));
+            indexManager.addToActiveSegment(segment, "other", new IndexEntry(i, 2, segment + 2));
+            indexManager.complete(segment);
+        }
+        indexManager.addToActiveSegment(100L, "other", new IndexEntry(10, 0, 100));
+
+        SortedMap<Long, IndexEntries> all = indexManager.lookupAggregate(aggregateId, 0, Long.MAX_VALUE,
+                                                                         Long.MAX_VALUE, 0);
+        assertEquals(10, all.size());
+        assertEquals(0, all.get(0L).firstSequenceNumber());
+
+        SortedMap<Long, IndexEntries> tail = indexManager.lookupAggregate(aggregateId, 15, Long.MAX_VALUE,
+                                                                          Long.MAX_VALUE, 0);
+        assertEquals(Arrays.asList(70L, 80L, 90L), new ArrayList<>(tail.keySet()));
+
+        assertEquals(Optional.of(19L), indexManager.getLastSequenceNumber(aggregateId, 20, Long.MAX_VALUE));
+        assertEquals(Optional.of(13L), indexManager.getLastSequenceNumber(aggregateId, 20, 65));
+        assertEquals(Optional.empty(), indexManager.getLastSequenceNumber(aggregateId, 1, Long.MAX_VALUE));
+        assertTrue(meterRegistry.find("file.index.probe").timer().count() > 0);
+    }
+
+    @Test
+    public void testLookupWithGlobalIndex() {
+        storageProperties.setGlobalIndexEnabled(true);
+        indexManager.init();
+        for (int i = 0; i < 5; i++) {
+            long segment = i * 10L;
+            indexManager.addToActiveSegment(segment, i % 2 == 0 ? "even" : "odd", new IndexEntry(i / 2, 0, segment));
+            indexManager.complete(segment);
+        }
+        indexManager.addToActiveSegment(50L, "other", new IndexEntry(0, 0, 50));
+
+        assertTrue(storageProperties.globalIndex(context).exists());
+        assertEquals(Arrays.asList(0L, 20L, 40L),
+                     new ArrayList<>(indexManager.lookupAggregate("even", 0, Long.MAX_VALUE, Long.MAX_VALUE, 0)
+                                                 .keySet()));
+        assertEquals(Optional.of(1L), indexManager.getLastSequenceNumber("odd", 10, Long.MAX_VALUE));
+        assertEquals(Optional.empty(), indexManager.getLastSequenceNumber("unknown", 10, Long.MAX_VALUE));
+        indexManager.cleanup(true);
+    }
+
     @Test
     public void testIndexRange() {
         long segment = 0L;
@@ -107,6 +161,52 @@ public class StandardIndexManagerTest {
         assertNotNull(position.get(0L));
     }
 
+    @Test
+    public void testLookupAggregateSegments() {
+        String aggregateId = "aggregateId";
+        for (long segment = 0; segment < 50; segment += 10) {
+            indexManager.addToActiveSegment(segment, aggregateId, new IndexEntry(segment / 5, 0, segment));
+            indexManager.addToActiveSegment(segment, aggregateId, new IndexEntry(segment / 5 + 1, 1, segment + 1));
+            indexManager.complete(segment);
+        }
+        indexManager.addToActiveSegment(50L, aggregateId, new IndexEntry(10, 0, 50));
+
+        long probesBefore = meterRegistry.find("file.index.probe").timer().count();
+        Iterator<SegmentIndexEntries> segments = indexManager.lookupAggregateSegments(aggregateId, 3, 9, 0);
+        List<Long> segmentNumbers = new ArrayList<>();
+        List<Long> sequenceNumbers = new ArrayList<>();
+        segments.forEachRemaining(e -> {
+            segmentNumbers.add(e.segment());
+            sequenceNumbers.add(e.indexEntries().firstSequenceNumber());
+            sequenceNumbers.add(e.indexEntries().lastSequenceNumber());
+        });
+        assertEquals(Arrays.asList(10L, 20L, 30L, 40L), segmentNumbers);
+        assertEquals(Arrays.asList(3L, 3L, 4L, 5L, 6L, 7L, 8L, 8L), sequenceNumbers);
+        // one probe per completed segment, segment 0 is probed but has no entries in range
+        assertEquals(5, meterRegistry.find("file.index.probe").timer().count() - probesBefore);
+
+        assertFalse(indexManager.lookupAggregateSegments("unknown", 0, Long.MAX_VALUE, 0).hasNext());
+    }
+
+    @Test
+    public void testLookupAggregateSegmentsProbesOnDemand() {
+        String aggregateId = "aggregateId";
+        for (long segment = 0; segment < 50; segment += 10) {
+            indexManager.addToActiveSegment(segment, aggregateId, new IndexEntry(segment / 5, 0, segment));
+            indexManager.addToActiveSegment(segment, aggregateId, new IndexEntry(segment / 5 + 1, 1, segment + 1));
+            indexManager.complete(segment);
+        }
+
+        long probesBefore = meterRegistry.find("file.index.probe").timer().count();
+        Iterator<SegmentIndexEntries> segments = indexManager.lookupAggregateSegments(aggregateId, 0,
+                                                                                      Long.MAX_VALUE, 0);
+        assertEquals(0, meterRegistry.find("file.index.probe").timer().count() - probesBefore);
+
+        assertEquals(0L, segments.next().segment());
+        assertEquals(10L, segments.next().segment());
+        assertEquals(2, meterRegistry.find("file.index.probe").timer().count() - probesBefore);
+    }
+
     @Test
     public void testIndexMinToken() {
         long segment = 0L;
@@ -19,12 +19,16 @@ import io.axoniq.axonserver.localstorage.*;
 import io.grpc.stub.StreamObserver;
 import org.junit.*;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 
@@ -146,4 +150,106 @@ public class QueryEventsRequestStreamObserverTest {
         // first a columns, then 10 results, then a complete
         assertEquals(12, responses.size());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void passesTypeFiltersToEventStore() throws InterruptedException, ExecutionException, TimeoutException {
+        AtomicReference<QueryOptions> queryOptions = new AtomicReference<>();
+        doAnswer(invocation -> {
+            queryOptions.set(invocation.getArgument(0));
+            return null;
+        }).when(eventStreamReader).query(any(QueryOptions.class), any());
+        testSubject.onNext(QueryEventsRequest.newBuilder()
+                                             .setQuery("payloadType in [\"A\", \"B\"] and aggregateType = \"Order\""
+                                                               + " | payloadType = \"C\" | count()")
+                                             .setNumberOfPermits(1000)
+                                             .build());
+
+        completableResult.get(2, TimeUnit.SECONDS);
+        assertEquals(new HashSet<>(Arrays.asList("A", "B", "C")), queryOptions.get().getPayloadTypes());
+        assertEquals(Collections.singleton("Order"), queryOptions.get().getAggregateTypes());
+    }
+
+    @Test
+    public void ignoresTypeFiltersAfterLimit() throws InterruptedException, ExecutionException, TimeoutException {
+        AtomicReference<QueryOptions> queryOptions = new AtomicReference<>();
+        doAnswer(invocation -> {
+            queryOptions.set(invocation.getArgument(0));
+            return null;
+        }).when(eventStreamReader).query(any(QueryOptions.class), any());
+        testSubject.onNext(QueryEventsRequest.newBuilder()
+                                             .setQuery("limit(10) | payloadType = \"A\"")
+                                             .setNumberOfPermits(1000)
+                                             .build());
+
+        completableResult.get(2, TimeUnit.SECONDS);
+        assertTrue(queryOptions.get().getPayloadTypes().isEmpty());
+    }
+
+    @Test
+    public void countsEventsPushedConcurrently() throws InterruptedException, ExecutionException, TimeoutException {
+        QueryEventsRequestStreamObserver parallelSubject = new QueryEventsRequestStreamObserver(
+                mock(EventWriteStorage.class),
+                eventStreamReader,
+                aggregateReader,
+                100,
+                5000,
+                new DefaultEventDecorator(),
+                new StreamObserver<QueryEventsResponse>() {
+                    private final List<QueryEventsResponse> responses = new LinkedList<>();
+
+                    @Override
+                    public void onNext(QueryEventsResponse queryEventsResponse) {
+                        responses.add(queryEventsResponse);
+                    }
+
+                    @Override
+                    public void onError(Throwable throwable) {
+                        completableResult.completeExceptionally(throwable);
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                        completableResult.complete(responses);
+                    }
+                },
+                mock(SnapshotWriteStorage.class),
+                snapshotStreamReader,
+                4);
+        int threads = 4;
+        int eventsPerThread = 250;
+        doAnswer(invocation -> {
+            Predicate<EventWithToken> consumer = invocation.getArgument(1);
+            List<Thread> producers = new LinkedList<>();
+            for (int t = 0; t < threads; t++) {
+                int offset = t * eventsPerThread;
+                Thread producer = new Thread(() -> {
+                    for (int i = 0; i < eventsPerThread; i++) {
+                        Event event = Event.newBuilder()
+                                           .setAggregateIdentifier("aggregateId")
+                                           .setTimestamp(System.currentTimeMillis())
+                                           .build();
+                        consumer.test(EventWithToken.newBuilder().setEvent(event).setToken(offset + i).build());
+                    }
+                });
+                producers.add(producer);
+                producer.start();
+            }
+            for (Thread producer : producers) {
+                producer.join();
+            }
+            return null;
+        }).when(eventStreamReader).query(any(QueryOptions.class), any());
+        parallelSubject.onNext(QueryEventsRequest.newBuilder()
+                                                 .setQuery("count()")
+                                                 .setNumberOfPermits(100_000)
+                                                 .build());
+
+        List<QueryEventsResponse> responses = completableResult.get(5, TimeUnit.SECONDS);
+        long count = responses.stream()
+                              .filter(QueryEventsResponse::hasRow)
+                              .mapToLong(r -> r.getRow().getValuesMap().values().iterator().next().getNumberValue())
+                              .max()
+                              .orElse(0);
+        assertEquals(threads * eventsPerThread, count);
+    }
+}
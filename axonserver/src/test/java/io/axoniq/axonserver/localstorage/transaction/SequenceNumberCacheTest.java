@@ -14,10 +14,17 @@ import io.axoniq.axonserver.exception.MessagingPlatformException;
 import io.axoniq.axonserver.grpc.event.Event;
 import io.axoniq.axonserver.localstorage.EventStorageEngine;
 import io.axoniq.axonserver.localstorage.SerializedEvent;
+import io.axoniq.axonserver.metric.BaseMetricName;
+import io.axoniq.axonserver.metric.DefaultMetricCollector;
+import io.axoniq.axonserver.metric.MeterFactory;
 import io.axoniq.axonserver.test.FakeClock;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.*;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.IntStream;
 
 import static java.util.Arrays.asList;
@@ -167,6 +174,60 @@ public class SequenceNumberCacheTest {
                 serializedEvent("OTHER", "SampleAgg", 11)));
     }
 
+    @Test
+    public void evictsLeastFrequentlyUsedAggregates() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        AtomicInteger lookups = new AtomicInteger();
+        testSubject = new SequenceNumberCache((aggregateId, hints) -> {
+            lookups.incrementAndGet();
+            return Optional.empty();
+        }, clock, 4, new MeterFactory(meterRegistry, new DefaultMetricCollector()), Tags.empty());
+
+        for (int sequenceNumber = 0; sequenceNumber < 5; sequenceNumber++) {
+            reserveAndComplete(serializedEvent("HOT", "SampleAgg", sequenceNumber));
+        }
+        for (int i = 0; i < 10; i++) {
+            reserveAndComplete(serializedEvent("COLD-" + i, "SampleAgg", 0));
+        }
+
+        assertEquals(4, testSubject.size());
+        reserveAndComplete(serializedEvent("HOT", "SampleAgg", 5));
+        assertEquals(11, lookups.get());
+        assertEquals(5, meterRegistry.find(BaseMetricName.AXON_SEQUENCE_NUMBER_CACHE_HITS.metric())
+                                     .counter().count(), 0);
+        assertEquals(7, meterRegistry.find(BaseMetricName.AXON_SEQUENCE_NUMBER_CACHE_EVICTIONS.metric())
+                                     .counter().count(), 0);
+        assertEquals(5 / 16d, meterRegistry.find(BaseMetricName.AXON_SEQUENCE_NUMBER_CACHE_HIT_RATIO.metric())
+                                           .gauge().value(), 0.001);
+    }
+
+    @Test
+    public void doesNotEvictAggregatesWithPendingTransactions() {
+        testSubject = new SequenceNumberCache(SequenceNumberCacheTest::slowSequenceNumberProvider, clock, 2);
+        List<Event> pending = asList(serializedEvent("A", "SampleAgg", 0), serializedEvent("B", "SampleAgg", 0));
+        testSubject.reserveSequenceNumbers(pending);
+        for (int i = 0; i < 5; i++) {
+            reserveAndComplete(serializedEvent("OTHER-" + i, "SampleAgg", 0));
+        }
+
+        assertEquals(3, testSubject.size());
+        try {
+            testSubject.reserveSequenceNumbers(asList(serializedEvent("A", "SampleAgg", 0)));
+            fail("Should fail, as sequence number 0 is reserved by the pending transaction");
+        } catch (MessagingPlatformException mpe) {
+            assertEquals(ErrorCode.INVALID_SEQUENCE, mpe.getErrorCode());
+        }
+
+        testSubject.transactionCompleted(pending);
+        reserveAndComplete(serializedEvent("NEXT", "SampleAgg", 0));
+        assertEquals(2, testSubject.size());
+    }
+
+    private void reserveAndComplete(Event event) {
+        testSubject.reserveSequenceNumbers(asList(event));
+        testSubject.transactionCompleted(asList(event));
+    }
+
     private Event serializedEvent(String aggregateId, String aggregateType, int sequenceNumber) {
         return Event.newBuilder().setAggregateIdentifier(aggregateId)
                     .setAggregateType(aggregateType)
@@ -0,0 +1,71 @@
+/*
+ *  Copyright (c) 2017-2022 AxonIQ B.V. and/or licensed to AxonIQ B.V.
+ *  under one or more contributor license agreements.
+ *
+ *  Licensed under the AxonIQ Open Source License Agreement v1.0;
+ *  you may not use this file except in compliance with the license.
+ *
+ */
+
+package io.axoniq.axonserver.localstorage.transformation;
+
+import com.google.protobuf.ByteString;
+import io.axoniq.axonserver.grpc.SerializedObject;
+import io.axoniq.axonserver.grpc.event.Event;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+public class CompressionEventTransformerTest {
+
+    private final byte[] largeEvent = Event.newBuilder()
+                                           .setMessageIdentifier("id")
+                                           .setPayload(SerializedObject.newBuilder()
+                                                                       .setType("Large")
+                                                                       .setData(ByteString.copyFromUtf8(
+                                                                               "{\"value\":\"abc\"}".repeat(100))))
+                                           .build()
+                                           .toByteArray();
+    private final byte[] smallEvent = Event.newBuilder().setMessageIdentifier("id").build().toByteArray();
+
+    @Test
+    public void compressesEvents() {
+        for (EventCompression compression : EventCompression.values()) {
+            EventTransformer transformer = CompressionEventTransformer.get(compression);
+            byte[] stored = transformer.toStorage(largeEvent);
+            if (compression != EventCompression.NONE) {
+                assertTrue(compression.name(), stored.length < largeEvent.length / 5);
+            }
+            assertArrayEquals(compression.name(), largeEvent, transformer.fromStorage(stored));
+        }
+    }
+
+    @Test
+    public void storesSmallEventsUncompressed() {
+        EventTransformer transformer = CompressionEventTransformer.get(EventCompression.LZ4);
+        byte[] stored = transformer.toStorage(smallEvent);
+        assertEquals(smallEvent.length + 1, stored.length);
+        assertArrayEquals(smallEvent, transformer.fromStorage(stored));
+    }
+
+    @Test
+    public void readsEventsWrittenWithOtherCompression() {
+        EventTransformer none = CompressionEventTransformer.get(EventCompression.NONE);
+        EventTransformer lz4 = CompressionEventTransformer.get(EventCompression.LZ4);
+        EventTransformer zstd = CompressionEventTransformer.get(EventCompression.ZSTD);
+
+        assertArrayEquals(largeEvent, none.fromStorage(zstd.toStorage(largeEvent)));
+        assertArrayEquals(largeEvent, zstd.fromStorage(lz4.toStorage(largeEvent)));
+        assertArrayEquals(largeEvent, lz4.fromStorage(none.toStorage(largeEvent)));
+        assertArrayEquals(new byte[0], lz4.fromStorage(new byte[0]));
+    }
+
+    @Test
+    public void compressionFromFlags() {
+        assertEquals(EventCompression.NONE, EventCompression.fromFlags(0));
+        assertEquals(EventCompression.ZSTD, EventCompression.fromFlags(0x102));
+        assertEquals(EventCompression.NONE, EventCompression.fromFlags(0x0D));
+        assertEquals(CompressionEventTransformer.get(EventCompression.LZ4),
+                     new DefaultEventTransformerFactory().get(EventCompression.LZ4.flag()));
+    }
+}